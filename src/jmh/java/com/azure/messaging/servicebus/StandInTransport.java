@@ -0,0 +1,45 @@
+package com.azure.messaging.servicebus;
+
+import com.azure.core.amqp.exception.AmqpErrorContext;
+import com.azure.core.util.BinaryData;
+import com.azure.messaging.servicebus.implementation.instrumentation.ServiceBusTracer;
+
+/**
+ * Builds SDK objects that normally only exist on a live AMQP link, so benchmarks can exercise the real
+ * {@link ServiceBusMessageBatch} serializer and {@link ServiceBusReceivedMessage} accessors without a namespace.
+ * Lives in the SDK package because the constructors are package-private.
+ */
+public final class StandInTransport {
+
+    /**
+     * Maximum message size of a Standard tier entity.
+     */
+    public static final int STANDARD_MAX_MESSAGE_SIZE = 256 * 1024;
+
+    private static final ServiceBusMessageSerializer SERIALIZER = new ServiceBusMessageSerializer();
+    private static final ServiceBusTracer TRACER = new ServiceBusTracer(null, "standin.servicebus.windows.net",
+            "standin");
+
+    private StandInTransport() {
+    }
+
+    /**
+     * Creates an empty batch, equivalent to {@code senderClient.createMessageBatch()} on a Standard tier entity.
+     *
+     * @return an empty message batch
+     */
+    public static ServiceBusMessageBatch createMessageBatch() {
+        return new ServiceBusMessageBatch(false, STANDARD_MAX_MESSAGE_SIZE,
+                () -> new AmqpErrorContext("standin.servicebus.windows.net"), TRACER, SERIALIZER);
+    }
+
+    /**
+     * Creates a message as it would be delivered to a receiver.
+     *
+     * @param body the message body
+     * @return a received message
+     */
+    public static ServiceBusReceivedMessage receivedMessage(BinaryData body) {
+        return new ServiceBusReceivedMessage(body);
+    }
+}
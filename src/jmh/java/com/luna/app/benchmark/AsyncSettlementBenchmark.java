@@ -0,0 +1,76 @@
+package com.luna.app.benchmark;
+
+import com.luna.app.queue.ConsumerEngine;
+import com.luna.app.queue.ConsumerOptions;
+import com.luna.app.queue.Disposition;
+import com.luna.app.queue.InMemoryMessage;
+import com.luna.app.queue.InMemoryQueue;
+import com.luna.app.queue.SettlementPipeline;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Compares synchronous settlement ({@code outstanding} 0) with a {@link SettlementPipeline} on {@value #WORKERS}
+ * workers. The handler parks for 1 ms; the queue simulates a 2 ms receive and a 5 ms settlement round trip. The score
+ * is the time per message until the engine has closed with every settlement done.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 5)
+@Fork(1)
+public class AsyncSettlementBenchmark {
+
+    private static final int MESSAGES = 2_000;
+    private static final int WORKERS = 8;
+
+    @Param({"0", "16", "64", "256"})
+    private int outstanding;
+
+    private InMemoryQueue queue;
+
+    @Setup(Level.Invocation)
+    public void fillQueue() {
+        queue = new InMemoryQueue(Duration.ofMillis(2), Duration.ofMillis(5), 10);
+        for (int i = 0; i < MESSAGES; i++) {
+            queue.send("Message " + i);
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(MESSAGES)
+    public long consume() throws InterruptedException {
+        CountDownLatch done = new CountDownLatch(MESSAGES);
+        ConsumerOptions options = new ConsumerOptions()
+                .setWorkerCount(WORKERS)
+                .setMaxInFlight(WORKERS * 4 + outstanding)
+                .setMaxOutstandingSettlements(outstanding)
+                .setMaxWaitTime(Duration.ofMillis(200));
+        try (ConsumerEngine<InMemoryMessage> engine = new ConsumerEngine<>("bench", queue::newSource, message -> {
+            LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(1));
+            done.countDown();
+            return Disposition.COMPLETE;
+        }, options)) {
+            engine.start();
+            done.await();
+        }
+        return queue.getCompletedCount();
+    }
+}
@@ -0,0 +1,89 @@
+package com.luna.app.benchmark;
+
+import com.azure.messaging.servicebus.ServiceBusMessage;
+import com.luna.app.queue.BatchingOptions;
+import com.luna.app.queue.BatchingSender;
+import com.luna.app.queue.InMemoryQueue;
+import com.luna.app.queue.MessageSink;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Compares one send per message with a {@link BatchingSender} at increasing linger times, for {@value #PRODUCERS}
+ * producer threads sending to an {@link InMemoryQueue} with a 2 ms send round trip. The score is the time per message
+ * until all futures have completed.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 5)
+@Fork(1)
+public class BatchingSenderBenchmark {
+
+    private static final int MESSAGES = 10_000;
+    private static final int PRODUCERS = 16;
+
+    /**
+     * Linger time in milliseconds, or {@code unbatched} to send every message on its own.
+     */
+    @Param({"unbatched", "0", "1", "5", "20"})
+    private String linger;
+
+    @Benchmark
+    @OperationsPerInvocation(MESSAGES)
+    public long send() throws InterruptedException {
+        InMemoryQueue queue = new InMemoryQueue(Duration.ZERO, Duration.ofMillis(2), 10);
+        if (linger.equals("unbatched")) {
+            MessageSink sink = queue.newSink();
+            runProducers(message -> {
+                MessageSink.Batch batch = sink.createBatch();
+                batch.tryAddMessage(message);
+                sink.send(batch);
+                return CompletableFuture.completedFuture(null);
+            });
+            return MESSAGES;
+        }
+        BatchingOptions options = new BatchingOptions().setMaxLinger(Duration.ofMillis(Long.parseLong(linger)));
+        try (BatchingSender sender = new BatchingSender("bench", queue.newSink(), options)) {
+            runProducers(sender::send);
+            return sender.getBatchesSent();
+        }
+    }
+
+    private static void runProducers(Function<ServiceBusMessage, CompletableFuture<Void>> send)
+            throws InterruptedException {
+        List<Thread> threads = new ArrayList<>();
+        for (int p = 0; p < PRODUCERS; p++) {
+            int producer = p;
+            Thread thread = new Thread(() -> {
+                List<CompletableFuture<Void>> futures = new ArrayList<>();
+                for (int i = producer; i < MESSAGES; i += PRODUCERS) {
+                    futures.add(send.apply(new ServiceBusMessage("Message " + i)));
+                }
+                CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0])).join();
+            });
+            threads.add(thread);
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package com.luna.app.benchmark;
+
+import com.azure.core.util.BinaryData;
+import com.azure.messaging.servicebus.ServiceBusReceivedMessage;
+import com.azure.messaging.servicebus.StandInTransport;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Body decoding as done by the receivers with {@code message.getBody().toString()}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BodyDecodeBenchmark {
+
+    @Param({"16", "1024", "65536"})
+    private int bodySize;
+
+    private ServiceBusReceivedMessage message;
+
+    @Setup
+    public void receiveMessage() {
+        byte[] body = new byte[bodySize];
+        Arrays.fill(body, (byte) 'x');
+        message = StandInTransport.receivedMessage(BinaryData.fromBytes(body));
+    }
+
+    @Benchmark
+    public String bodyToString() {
+        return message.getBody().toString();
+    }
+
+    @Benchmark
+    public byte[] bodyToBytes() {
+        return message.getBody().toBytes();
+    }
+
+    @Benchmark
+    public String bodyDecodedFromBytes() {
+        return new String(message.getBody().toBytes(), StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,80 @@
+package com.luna.app.benchmark;
+
+import com.luna.app.queue.ConsumerEngine;
+import com.luna.app.queue.ConsumerOptions;
+import com.luna.app.queue.Disposition;
+import com.luna.app.queue.ExecutionMode;
+import com.luna.app.queue.InMemoryMessage;
+import com.luna.app.queue.InMemoryQueue;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Measures {@link ConsumerEngine} against an {@link InMemoryQueue} with a 2 ms receive and a 1 ms settlement round
+ * trip, for an increasing number of workers. The handler parks for 1 ms to mimic a downstream call. In virtual-thread
+ * mode {@code workers} is the in-flight limit. The score is the time per message.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ConsumerEngineBenchmark {
+
+    private static final int MESSAGES = 1_000;
+    private static final long HANDLER_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    @Param({"1", "8", "64", "256"})
+    private int workers;
+
+    @Param({"WORKER_POOL", "VIRTUAL_THREAD_PER_MESSAGE"})
+    private ExecutionMode mode;
+
+    private InMemoryQueue queue;
+
+    @Setup(Level.Invocation)
+    public void fillQueue() {
+        queue = new InMemoryQueue(Duration.ofMillis(2), Duration.ofMillis(1), 10);
+        for (int i = 0; i < MESSAGES; i++) {
+            queue.send("Message " + i);
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(MESSAGES)
+    public long consume() throws InterruptedException {
+        CountDownLatch done = new CountDownLatch(MESSAGES);
+        ConsumerOptions options = new ConsumerOptions()
+                .setReceiverCount(Math.max(1, workers / 8))
+                .setWorkerCount(workers)
+                .setMaxInFlight(mode == ExecutionMode.WORKER_POOL ? workers * 4 : workers)
+                .setExecutionMode(mode)
+                .setMaxWaitTime(Duration.ofMillis(200));
+        try (ConsumerEngine<InMemoryMessage> engine = new ConsumerEngine<>("bench", queue::newSource, message -> {
+            LockSupport.parkNanos(HANDLER_NANOS);
+            done.countDown();
+            return Disposition.COMPLETE;
+        }, options)) {
+            engine.start();
+            done.await();
+        }
+        return queue.getCompletedCount();
+    }
+}
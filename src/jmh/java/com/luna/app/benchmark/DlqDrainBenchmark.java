@@ -0,0 +1,72 @@
+package com.luna.app.benchmark;
+
+import com.luna.app.dlq.DlqDrainer;
+import com.luna.app.dlq.DrainAction;
+import com.luna.app.dlq.DrainOptions;
+import com.luna.app.dlq.DrainReport;
+import com.luna.app.dlq.InMemoryDeadLetterAdapter;
+import com.luna.app.queue.InMemoryMessage;
+import com.luna.app.queue.InMemoryQueue;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures {@link DlqDrainer} against the dead-letter queue of an {@link InMemoryQueue} with a 2 ms receive and a
+ * 1 ms settle or send round trip, starting from the one-message-per-receive loop the examples used to run. The score
+ * is the time per drained message.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 5)
+@Fork(1)
+public class DlqDrainBenchmark {
+
+    private static final int MESSAGES = 1_000;
+
+    /**
+     * Drainer count and receive batch size, as {@code drainersxbatch}.
+     */
+    @Param({"1x1", "1x256", "4x256", "16x256", "64x256"})
+    private String configuration;
+
+    private InMemoryQueue queue;
+
+    @Setup(Level.Invocation)
+    public void fillDeadLetterQueue() {
+        queue = new InMemoryQueue(Duration.ofMillis(2), Duration.ofMillis(1), 10);
+        for (int i = 0; i < MESSAGES; i++) {
+            queue.sendToDeadLetter("Message " + i, i % 10 == 0 ? "TTLExpiredException"
+                    : InMemoryQueue.MAX_DELIVERY_COUNT_EXCEEDED);
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(MESSAGES)
+    public DrainReport drain() throws InterruptedException {
+        String[] parts = configuration.split("x");
+        DrainOptions options = new DrainOptions()
+                .setDrainerCount(Integer.parseInt(parts[0]))
+                .setReceiveBatchSize(Integer.parseInt(parts[1]))
+                .setMaxWaitTime(Duration.ofMillis(50))
+                .setAction("TTLExpiredException", DrainAction.DISCARD);
+        DlqDrainer<InMemoryMessage> drainer = new DlqDrainer<>("bench", queue::newDeadLetterSource, queue::newSink,
+                new InMemoryDeadLetterAdapter(), options);
+        return drainer.drain();
+    }
+}
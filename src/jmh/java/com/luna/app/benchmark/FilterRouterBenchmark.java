@@ -0,0 +1,99 @@
+package com.luna.app.benchmark;
+
+import com.luna.app.filter.FilterRouter;
+import com.luna.app.filter.SqlFilter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost per message of evaluating subscription-style SQL filters client-side. Most rules pin a tenant or color, as
+ * subscription rules usually do, and one in five is a range or LIKE rule that cannot be indexed.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FilterRouterBenchmark {
+
+    private static final String[] COLORS = {"red", "green", "blue", "yellow", "black"};
+
+    @Param({"10", "100", "500"})
+    private int ruleCount;
+
+    private FilterRouter<String> router;
+    private List<SqlFilter> filters;
+    private Map<String, Object>[] messages;
+    private int next;
+
+    @Setup
+    @SuppressWarnings("unchecked")
+    public void createRules() {
+        Random random = new Random(42);
+        router = new FilterRouter<>();
+        filters = new ArrayList<>();
+        for (int i = 0; i < ruleCount; i++) {
+            String expression = switch (i % 5) {
+                case 0 -> "quantity > " + random.nextInt(1000) + " AND region LIKE 'eu-%'";
+                case 1 -> "color = '" + COLORS[i % COLORS.length] + "' AND priority";
+                default -> "tenant = 'tenant-" + i + "'";
+            };
+            SqlFilter filter = SqlFilter.compile(expression);
+            router.addRule("rule-" + i, filter, "sub-" + i);
+            filters.add(filter);
+        }
+        messages = new Map[1024];
+        for (int i = 0; i < messages.length; i++) {
+            Map<String, Object> properties = new HashMap<>();
+            properties.put("tenant", "tenant-" + random.nextInt(ruleCount * 2));
+            properties.put("color", COLORS[random.nextInt(COLORS.length)]);
+            properties.put("quantity", random.nextInt(1000));
+            properties.put("region", random.nextBoolean() ? "eu-west" : "us-east");
+            properties.put("priority", random.nextBoolean());
+            messages[i] = properties;
+        }
+    }
+
+    private Map<String, Object> nextMessage() {
+        return messages[next++ & (messages.length - 1)];
+    }
+
+    @Benchmark
+    public List<String> route() {
+        return router.route(nextMessage());
+    }
+
+    @Benchmark
+    public boolean hasMatch() {
+        return router.hasMatch(nextMessage());
+    }
+
+    @Benchmark
+    public int linearScan() {
+        Map<String, Object> properties = nextMessage();
+        int matched = 0;
+        for (SqlFilter filter : filters) {
+            if (filter.test(properties)) {
+                matched++;
+            }
+        }
+        return matched;
+    }
+}
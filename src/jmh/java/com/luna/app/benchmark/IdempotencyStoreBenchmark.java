@@ -0,0 +1,76 @@
+package com.luna.app.benchmark;
+
+import com.luna.app.deduplicate.IdempotencyStore;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.Duration;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Lookup and insert cost of the consumer-side idempotency store once it holds {@code capacity} IDs. Run with
+ * {@code -prof gc} to confirm that lookups and inserts do not allocate.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgs = "-Xmx2g")
+public class IdempotencyStoreBenchmark {
+
+    private static final int PROBES = 1 << 16;
+
+    @Param({"1000000", "10000000"})
+    private int capacity;
+
+    private IdempotencyStore store;
+    private String[] seen;
+    private String[] unseen;
+    private long nextFingerprint;
+    private int next;
+
+    @Setup
+    public void fillStore() {
+        store = new IdempotencyStore(capacity, Duration.ofHours(1));
+        seen = new String[PROBES];
+        unseen = new String[PROBES];
+        for (int i = 0; i < capacity; i++) {
+            String id = UUID.randomUUID().toString();
+            store.markIfAbsent(id);
+            if (i < PROBES) {
+                seen[i] = id;
+            }
+        }
+        for (int i = 0; i < PROBES; i++) {
+            unseen[i] = UUID.randomUUID().toString();
+        }
+        nextFingerprint = Long.MIN_VALUE;
+    }
+
+    @Benchmark
+    public boolean containsUnseen() {
+        return store.contains(unseen[next++ & (PROBES - 1)]);
+    }
+
+    @Benchmark
+    public boolean containsSeen() {
+        return store.contains(seen[next++ & (PROBES - 1)]);
+    }
+
+    @Benchmark
+    public boolean markNewFingerprint() {
+        // spread sequential values over the whole 64-bit space like a real hash would
+        return store.markIfAbsent((nextFingerprint++) * 0x9E3779B97F4A7C15L);
+    }
+}
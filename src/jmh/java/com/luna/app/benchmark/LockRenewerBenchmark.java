@@ -0,0 +1,75 @@
+package com.luna.app.benchmark;
+
+import com.luna.app.queue.InMemoryMessage;
+import com.luna.app.queue.InMemoryQueue;
+import com.luna.app.queue.LockRenewer;
+import com.luna.app.queue.MessageSource;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures registering and cancelling a renewal on a single {@link LockRenewer} while it keeps {@code locks} other
+ * messages alive. Messages are locked for 5 s and renewed 2 s ahead of expiry with a simulated 1 ms renewal round
+ * trip, and all of them are taken at once, so every renewal round is a burst of {@code locks} calls. The trial prints
+ * the renewals, the locks that expired because their renewal arrived late, and the threads the renewer started.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LockRenewerBenchmark {
+
+    @Param({"10000", "50000"})
+    private int locks;
+
+    private InMemoryQueue queue;
+    private MessageSource<InMemoryMessage> source;
+    private InMemoryMessage message;
+    private LockRenewer renewer;
+    private int threadsBefore;
+
+    @Setup
+    public void lockMessages() {
+        queue = new InMemoryQueue(Duration.ZERO, Duration.ofMillis(1), 10, Duration.ofSeconds(5));
+        for (int i = 0; i <= locks; i++) {
+            queue.send("Message " + i);
+        }
+        source = queue.newSource();
+        List<InMemoryMessage> messages = source.receive(locks + 1, Duration.ofSeconds(1));
+        message = messages.get(locks);
+        threadsBefore = Thread.activeCount();
+        renewer = new LockRenewer(Duration.ofSeconds(2), Duration.ofMinutes(5));
+        for (InMemoryMessage held : messages.subList(0, locks)) {
+            renewer.register(source, held);
+        }
+    }
+
+    @TearDown
+    public void checkLocks() {
+        int threads = Thread.activeCount() - threadsBefore;
+        renewer.close();
+        System.out.printf("%d renewals, %d lost, %d threads%n", queue.getLockRenewalCount(),
+                queue.getLockLostCount(), threads);
+    }
+
+    @Benchmark
+    public void registerAndCancel() {
+        renewer.register(source, message).cancel();
+    }
+}
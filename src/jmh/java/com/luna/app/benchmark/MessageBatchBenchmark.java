@@ -0,0 +1,57 @@
+package com.luna.app.benchmark;
+
+import com.azure.messaging.servicebus.ServiceBusMessage;
+import com.azure.messaging.servicebus.ServiceBusMessageBatch;
+import com.azure.messaging.servicebus.StandInTransport;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Batch filling as done by {@code PrefetchExample.sendMessageBatch}: {@code tryAddMessage} serializes every message to
+ * AMQP to check it against the entity's maximum size.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MessageBatchBenchmark {
+
+    @Param({"1000"})
+    private int messageCount;
+
+    private List<ServiceBusMessage> messages;
+
+    @Setup
+    public void createMessages() {
+        messages = new ArrayList<>(messageCount);
+        for (int i = 0; i < messageCount; i++) {
+            messages.add(new ServiceBusMessage("Message number: " + i));
+        }
+    }
+
+    @Benchmark
+    public ServiceBusMessageBatch fillBatch() {
+        ServiceBusMessageBatch messageBatch = StandInTransport.createMessageBatch();
+        for (ServiceBusMessage message : messages) {
+            if (!messageBatch.tryAddMessage(message)) {
+                break;
+            }
+        }
+        return messageBatch;
+    }
+}
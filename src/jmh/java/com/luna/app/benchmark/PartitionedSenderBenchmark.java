@@ -0,0 +1,73 @@
+package com.luna.app.benchmark;
+
+import com.azure.messaging.servicebus.ServiceBusMessage;
+import com.luna.app.queue.BatchingOptions;
+import com.luna.app.queue.BatchingSender;
+import com.luna.app.queue.InMemoryQueue;
+import com.luna.app.queue.PartitionedSender;
+import com.luna.app.queue.PartitionedSenderOptions;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares a single ordered stream ({@code keyGroups} 0), a {@link BatchingSender} with one send in flight, against
+ * a {@link PartitionedSender} with increasing numbers of key groups. Both keep per-key order for {@value #KEYS} keys;
+ * the sink is an {@link InMemoryQueue} that simulates a 2 ms send round trip. The score is the time per message until
+ * all futures have completed.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 5)
+@Fork(1)
+public class PartitionedSenderBenchmark {
+
+    private static final int MESSAGES = 20_000;
+    private static final int KEYS = 1_000;
+
+    @Param({"0", "1", "4", "16", "32"})
+    private int keyGroups;
+
+    @Benchmark
+    @OperationsPerInvocation(MESSAGES)
+    public long send() {
+        InMemoryQueue queue = new InMemoryQueue(Duration.ZERO, Duration.ofMillis(2), 10);
+        List<CompletableFuture<Void>> futures = new ArrayList<>(MESSAGES);
+        if (keyGroups == 0) {
+            BatchingOptions options = new BatchingOptions().setMaxLinger(Duration.ZERO).setMaxConcurrentSends(1);
+            try (BatchingSender sender = new BatchingSender("bench", queue.newSink(), options)) {
+                for (int i = 0; i < MESSAGES; i++) {
+                    futures.add(sender.send(new ServiceBusMessage("Message " + i)));
+                }
+                CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0])).join();
+                return sender.getBatchesSent();
+            }
+        }
+        PartitionedSenderOptions options = new PartitionedSenderOptions()
+                .setKeyGroups(keyGroups)
+                .setMaxConcurrentSends(keyGroups);
+        try (PartitionedSender sender = new PartitionedSender("bench", queue.newSink(), options)) {
+            for (int i = 0; i < MESSAGES; i++) {
+                futures.add(sender.send("customer-" + i % KEYS, new ServiceBusMessage("Message " + i)));
+            }
+            CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0])).join();
+            return sender.getBatchesSent();
+        }
+    }
+}
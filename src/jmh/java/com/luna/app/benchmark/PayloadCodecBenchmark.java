@@ -0,0 +1,152 @@
+package com.luna.app.benchmark;
+
+import com.azure.core.util.BinaryData;
+import com.azure.json.JsonProviders;
+import com.azure.json.JsonReader;
+import com.azure.json.JsonToken;
+import com.azure.messaging.servicebus.ServiceBusMessage;
+import com.azure.messaging.servicebus.ServiceBusReceivedMessage;
+import com.azure.messaging.servicebus.StandInTransport;
+import com.luna.app.codec.BinaryPayloadCodec;
+import com.luna.app.codec.BufferPool;
+import com.luna.app.codec.JsonPayloadCodec;
+import com.luna.app.codec.MessageCodec;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Encoding an order into a {@link ServiceBusMessage} and decoding it from a received message, comparing the String
+ * path the senders and receivers use today with the JSON and binary codecs. Run with {@code -prof gc} for bytes
+ * allocated per message. {@code noteLength} 4096 takes the codecs over their 1 KB compression threshold.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PayloadCodecBenchmark {
+
+    public record Order(String orderId, String customer, long quantity, double amount, String note) {
+    }
+
+    private static final MessageCodec<Order> JSON = new MessageCodec<>(new JsonPayloadCodec<>((json, order) -> json
+            .writeStartObject()
+            .writeStringField("orderId", order.orderId())
+            .writeStringField("customer", order.customer())
+            .writeLongField("quantity", order.quantity())
+            .writeDoubleField("amount", order.amount())
+            .writeStringField("note", order.note())
+            .writeEndObject(), PayloadCodecBenchmark::readOrder), 1024, BufferPool.shared());
+
+    private static final MessageCodec<Order> BINARY = new MessageCodec<>(new BinaryPayloadCodec<Order>(1,
+            (order, out) -> {
+                out.writeString(order.orderId());
+                out.writeString(order.customer());
+                out.writeVarint(order.quantity());
+                out.writeDouble(order.amount());
+                out.writeString(order.note());
+            }, in -> new Order(in.readString(), in.readString(), in.readVarint(), in.readDouble(), in.readString())),
+            1024, BufferPool.shared());
+
+    @Param({"16", "4096"})
+    private int noteLength;
+
+    private Order order;
+    private ServiceBusReceivedMessage stringMessage;
+    private ServiceBusReceivedMessage jsonMessage;
+    private ServiceBusReceivedMessage binaryMessage;
+
+    @Setup
+    public void createOrder() {
+        StringBuilder note = new StringBuilder();
+        while (note.length() < noteLength) {
+            note.append("leave at the back door; ");
+        }
+        order = new Order("order-000123", "Zoë Müller", 3, 59.90, note.substring(0, noteLength));
+        stringMessage = received(stringEncode());
+        jsonMessage = received(jsonEncode());
+        binaryMessage = received(binaryEncode());
+    }
+
+    private static ServiceBusReceivedMessage received(ServiceBusMessage sent) {
+        ServiceBusReceivedMessage message = StandInTransport.receivedMessage(
+                BinaryData.fromBytes(sent.getRawAmqpMessage().getBody().getFirstData()));
+        message.getRawAmqpMessage().getProperties().setContentType(sent.getContentType());
+        message.getApplicationProperties().putAll(sent.getApplicationProperties());
+        return message;
+    }
+
+    @Benchmark
+    public ServiceBusMessage stringEncode() {
+        return new ServiceBusMessage("{\"orderId\":\"" + order.orderId() + "\",\"customer\":\"" + order.customer()
+                + "\",\"quantity\":" + order.quantity() + ",\"amount\":" + order.amount() + ",\"note\":\""
+                + order.note() + "\"}")
+                .setContentType("application/json");
+    }
+
+    @Benchmark
+    public ServiceBusMessage jsonEncode() {
+        return JSON.encode(order);
+    }
+
+    @Benchmark
+    public ServiceBusMessage binaryEncode() {
+        return BINARY.encode(order);
+    }
+
+    @Benchmark
+    public Order stringDecode() {
+        try (JsonReader json = JsonProviders.createReader(stringMessage.getBody().toString())) {
+            return readOrder(json);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Benchmark
+    public Order jsonDecode() {
+        return JSON.decode(jsonMessage);
+    }
+
+    @Benchmark
+    public Order binaryDecode() {
+        return BINARY.decode(binaryMessage);
+    }
+
+    private static Order readOrder(JsonReader json) throws IOException {
+        return json.readObject(reader -> {
+            String orderId = null;
+            String customer = null;
+            long quantity = 0;
+            double amount = 0;
+            String note = null;
+            while (reader.nextToken() != JsonToken.END_OBJECT) {
+                String field = reader.getFieldName();
+                reader.nextToken();
+                switch (field) {
+                    case "orderId" -> orderId = reader.getString();
+                    case "customer" -> customer = reader.getString();
+                    case "quantity" -> quantity = reader.getLong();
+                    case "amount" -> amount = reader.getDouble();
+                    case "note" -> note = reader.getString();
+                    default -> reader.skipChildren();
+                }
+            }
+            return new Order(orderId, customer, quantity, amount, note);
+        });
+    }
+}
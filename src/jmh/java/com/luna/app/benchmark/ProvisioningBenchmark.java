@@ -0,0 +1,77 @@
+package com.luna.app.benchmark;
+
+import com.luna.app.provisioning.DesiredState;
+import com.luna.app.provisioning.InMemoryEntityAdmin;
+import com.luna.app.provisioning.Provisioner;
+import com.luna.app.provisioning.ProvisioningOptions;
+import com.luna.app.provisioning.ProvisioningReport;
+import com.luna.app.provisioning.QueueSpec;
+import com.luna.app.provisioning.SubscriptionSpec;
+import com.luna.app.provisioning.TopicSpec;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Provisions {@value #QUEUES} queues and {@value #TOPICS} topics of {@value #SUBSCRIPTIONS} subscriptions into an
+ * empty {@link InMemoryEntityAdmin} with a 10 ms round trip, for an increasing concurrency limit. Each subscription
+ * gets two rules, so every new subscription costs four calls: create, two rules and removing the default rule. A
+ * concurrency of one is the sequential baseline. The score is the time for the whole environment.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ProvisioningBenchmark {
+
+    private static final int QUEUES = 100;
+    private static final int TOPICS = 10;
+    private static final int SUBSCRIPTIONS = 5;
+
+    private static final DesiredState DESIRED = generate();
+
+    @Param({"1", "4", "16", "64"})
+    private int concurrency;
+
+    @Benchmark
+    public ProvisioningReport provision() {
+        Provisioner provisioner = new Provisioner(new InMemoryEntityAdmin(Duration.ofMillis(10)),
+                new ProvisioningOptions()
+                        .setMaxConcurrency(concurrency)
+                        .setMaxOperationsPerSecond(100_000));
+        return provisioner.provision(DESIRED);
+    }
+
+    private static DesiredState generate() {
+        List<QueueSpec> queues = new ArrayList<>();
+        for (int i = 0; i < QUEUES; i++) {
+            queues.add(new QueueSpec(String.format("queue%03d", i), Duration.ofSeconds(60), 4, null, null, null));
+        }
+        List<TopicSpec> topics = new ArrayList<>();
+        for (int t = 0; t < TOPICS; t++) {
+            List<SubscriptionSpec> subscriptions = new ArrayList<>();
+            for (int s = 0; s < SUBSCRIPTIONS; s++) {
+                subscriptions.add(new SubscriptionSpec("sub" + s, Map.of(
+                        "color", "color = 'color" + s + "'",
+                        "priority", "priority > " + s)));
+            }
+            topics.add(new TopicSpec(String.format("topic%03d", t), subscriptions));
+        }
+        return new DesiredState(queues, topics);
+    }
+}
@@ -0,0 +1,97 @@
+package com.luna.app.benchmark;
+
+import com.luna.app.queue.Disposition;
+import com.luna.app.queue.InMemoryMessage;
+import com.luna.app.session.InMemorySessionQueue;
+import com.luna.app.session.SessionProcessor;
+import com.luna.app.session.SessionProcessorOptions;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Measures {@link SessionProcessor} against an {@link InMemorySessionQueue} with a 2 ms accept and receive round trip,
+ * for {@value #SESSIONS} sessions of {@value #PER_SESSION} messages and an increasing number of session slots. The
+ * handler parks for 1 ms to mimic a downstream call. The score is the time per message; an iteration fails if any
+ * session saw its messages out of order.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 5)
+@Fork(1)
+public class SessionProcessorBenchmark {
+
+    private static final int SESSIONS = 256;
+    private static final int PER_SESSION = 5;
+    private static final int MESSAGES = SESSIONS * PER_SESSION;
+    private static final long HANDLER_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    @Param({"8", "64", "256"})
+    private int slots;
+
+    private InMemorySessionQueue queue;
+    private Map<String, Long> lastSequence;
+    private LongAdder reordered;
+
+    @Setup(Level.Invocation)
+    public void fillQueue() {
+        queue = new InMemorySessionQueue(Duration.ofMillis(2), Duration.ofMillis(100), 10);
+        for (int i = 0; i < PER_SESSION; i++) {
+            for (int s = 0; s < SESSIONS; s++) {
+                queue.send("customer-" + s, String.valueOf(i));
+            }
+        }
+        lastSequence = new ConcurrentHashMap<>();
+        reordered = new LongAdder();
+    }
+
+    @TearDown(Level.Invocation)
+    public void checkOrder() {
+        if (reordered.sum() > 0) {
+            throw new IllegalStateException(reordered.sum() + " messages were handled out of session order");
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(MESSAGES)
+    public void process() throws InterruptedException {
+        CountDownLatch done = new CountDownLatch(MESSAGES);
+        SessionProcessorOptions options = new SessionProcessorOptions()
+                .setMaxConcurrentSessions(slots)
+                .setMaxWaitTime(Duration.ofMillis(20))
+                .setSessionIdleTimeout(Duration.ofMillis(20));
+        try (SessionProcessor<InMemoryMessage> processor = new SessionProcessor<>("bench", queue, message -> {
+            Long previous = lastSequence.put(message.getSessionId(), message.getSequenceNumber());
+            if (previous != null && previous > message.getSequenceNumber()) {
+                reordered.increment();
+            }
+            LockSupport.parkNanos(HANDLER_NANOS);
+            done.countDown();
+            return Disposition.COMPLETE;
+        }, options)) {
+            processor.start();
+            done.await();
+        }
+    }
+}
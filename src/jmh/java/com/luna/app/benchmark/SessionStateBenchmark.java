@@ -0,0 +1,104 @@
+package com.luna.app.benchmark;
+
+import com.luna.app.queue.Disposition;
+import com.luna.app.queue.InMemoryMessage;
+import com.luna.app.session.CompactStateCodec;
+import com.luna.app.session.InMemorySessionQueue;
+import com.luna.app.session.SessionProcessor;
+import com.luna.app.session.SessionProcessorOptions;
+import com.luna.app.session.SessionStateCache;
+import com.luna.app.session.SessionStateHandler;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures a handler that updates a per-session counter on every message, with write-through ({@code flushMillis}
+ * 0) and write-behind session-state caching, against an {@link InMemorySessionQueue} that takes 2 ms for every
+ * accept, receive and session-state call. The score is the time per message. An uncached handler costs two state
+ * round trips per message; each iteration prints what is left once reads are cached and writes coalesced, and fails
+ * if any session's final count is wrong.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 5)
+@Fork(1)
+public class SessionStateBenchmark {
+
+    private static final int SESSIONS = 128;
+    private static final int PER_SESSION = 20;
+    private static final int MESSAGES = SESSIONS * PER_SESSION;
+
+    @Param({"0", "10", "100", "10000"})
+    private long flushMillis;
+
+    private final CompactStateCodec codec = new CompactStateCodec();
+    private InMemorySessionQueue queue;
+
+    @Setup(Level.Invocation)
+    public void fillQueue() {
+        queue = new InMemorySessionQueue(Duration.ofMillis(2), Duration.ofMillis(100), 10);
+        for (int i = 0; i < PER_SESSION; i++) {
+            for (int s = 0; s < SESSIONS; s++) {
+                queue.send("customer-" + s, String.valueOf(i));
+            }
+        }
+    }
+
+    @TearDown(Level.Invocation)
+    public void checkState() {
+        for (int s = 0; s < SESSIONS; s++) {
+            Object count = codec.decode(queue.peekSessionState("customer-" + s)).get("count");
+            if (count == null || (Long) count != PER_SESSION) {
+                throw new IllegalStateException("customer-" + s + " counted " + count + " of " + PER_SESSION);
+            }
+        }
+        System.out.printf("%.2f round trips/msg ", (queue.getStateReadCount() + queue.getStateWriteCount())
+                / (double) MESSAGES);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(MESSAGES)
+    public void process() throws InterruptedException {
+        CountDownLatch done = new CountDownLatch(MESSAGES);
+        SessionProcessorOptions options = new SessionProcessorOptions()
+                .setMaxConcurrentSessions(64)
+                .setMaxWaitTime(Duration.ofMillis(20))
+                .setSessionIdleTimeout(Duration.ofMillis(20));
+        try (SessionStateCache<Map<String, Object>> cache = new SessionStateCache<>(codec,
+                Duration.ofMillis(flushMillis))) {
+            SessionStateHandler<InMemoryMessage, Map<String, Object>> handler = (message, state) -> {
+                Map<String, Object> next = new LinkedHashMap<>(state.get());
+                next.merge("count", 1L, (a, b) -> (Long) a + (Long) b);
+                next.put("lastSequence", message.getSequenceNumber());
+                state.set(next);
+                done.countDown();
+                return Disposition.COMPLETE;
+            };
+            try (SessionProcessor<InMemoryMessage> processor = new SessionProcessor<>("bench", queue, handler, cache,
+                    options)) {
+                processor.start();
+                done.await();
+            }
+        }
+    }
+}
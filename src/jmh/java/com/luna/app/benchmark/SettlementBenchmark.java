@@ -0,0 +1,63 @@
+package com.luna.app.benchmark;
+
+import com.luna.app.queue.Disposition;
+import com.luna.app.queue.InMemoryMessage;
+import com.luna.app.queue.InMemoryQueue;
+import com.luna.app.queue.MessageSource;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Receive-and-settle path of the {@code MessageSource} used by the consumer engine, against a zero-latency
+ * {@link InMemoryQueue}, so only client-side overhead is measured.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SettlementBenchmark {
+
+    private static final Duration NO_WAIT = Duration.ofNanos(1);
+
+    @Param({"1", "32"})
+    private int batchSize;
+
+    private InMemoryQueue queue;
+    private MessageSource<InMemoryMessage> source;
+    private byte[] body;
+
+    @Setup
+    public void openSource() {
+        queue = new InMemoryQueue();
+        source = queue.newSource();
+        body = "Message number: 1".getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public int receiveAndComplete() {
+        for (int i = 0; i < batchSize; i++) {
+            queue.send(body);
+        }
+        List<InMemoryMessage> messages = source.receive(batchSize, NO_WAIT);
+        for (InMemoryMessage message : messages) {
+            source.settle(message, Disposition.COMPLETE);
+        }
+        return messages.size();
+    }
+}
@@ -0,0 +1,60 @@
+package com.luna.app.benchmark;
+
+import com.azure.messaging.servicebus.ServiceBusMessage;
+import com.luna.app.topic.PublishResult;
+import com.luna.app.topic.PublisherOptions;
+import com.luna.app.topic.TopicPublisher;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures {@link TopicPublisher} at increasing concurrency against a stand-in send that acknowledges after a 5 ms
+ * round trip without blocking a thread while waiting. The score is the time per message until the last result.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 5)
+@Fork(1)
+public class TopicPublisherBenchmark {
+
+    private static final int MESSAGES = 2_000;
+    private static final Duration ROUND_TRIP = Duration.ofMillis(5);
+
+    @Param({"4", "16", "64", "256", "1024"})
+    private int concurrency;
+
+    @Param({"false", "true"})
+    private boolean ordered;
+
+    private TopicPublisher publisher;
+
+    @Setup
+    public void setUp() {
+        publisher = new TopicPublisher("bench", message -> Mono.delay(ROUND_TRIP).then(),
+                new PublisherOptions().setMaxConcurrency(concurrency).setOrdered(ordered));
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(MESSAGES)
+    public PublishResult publish() {
+        return publisher.publish(Flux.range(0, MESSAGES).map(i -> new ServiceBusMessage("Message " + i)))
+                .blockLast();
+    }
+}
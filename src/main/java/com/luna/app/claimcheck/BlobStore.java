@@ -0,0 +1,50 @@
+package com.luna.app.claimcheck;
+
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+
+/**
+ * Holds the payloads that a {@link ClaimCheckSender} takes out of messages. Implemented on the local filesystem by
+ * {@link FileBlobStore}; an implementation over Azure Blob Storage would let senders and receivers run on different
+ * hosts.
+ */
+public interface BlobStore {
+
+    /**
+     * Stores the remaining bytes of a buffer; the buffer's position is not changed.
+     *
+     * @param payload the payload
+     * @return the ID under which the payload can be opened
+     */
+    String put(ByteBuffer payload);
+
+    /**
+     * Stores a payload read from a channel, without buffering it on the heap.
+     *
+     * @param source the payload
+     * @param size   the number of bytes to read from {@code source}
+     * @return the ID under which the payload can be opened
+     * @throws IllegalArgumentException if {@code source} ends before {@code size} bytes
+     */
+    String put(ReadableByteChannel source, long size);
+
+    /**
+     * @param blobId the ID returned by {@code put}
+     * @return a stream of the payload, to be closed by the caller
+     * @throws IllegalArgumentException if there is no such blob
+     */
+    InputStream open(String blobId);
+
+    /**
+     * @param blobId the ID returned by {@code put}
+     * @return the payload size in bytes
+     */
+    long size(String blobId);
+
+    /**
+     * @param blobId the ID returned by {@code put}
+     * @return {@code false} if there was no such blob
+     */
+    boolean delete(String blobId);
+}
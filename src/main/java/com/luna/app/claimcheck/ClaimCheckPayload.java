@@ -0,0 +1,77 @@
+package com.luna.app.claimcheck;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+
+/**
+ * The payload of a received message: either its own body or a blob it references. Nothing is read from the store
+ * until {@link #openStream()} is called.
+ */
+public final class ClaimCheckPayload {
+
+    private final BlobStore store;
+    private final String blobId;
+    private final byte[] body;
+    private final long size;
+
+    ClaimCheckPayload(BlobStore store, String blobId, long size) {
+        this.store = store;
+        this.blobId = blobId;
+        this.body = null;
+        this.size = size;
+    }
+
+    ClaimCheckPayload(byte[] body) {
+        this.store = null;
+        this.blobId = null;
+        this.body = body;
+        this.size = body.length;
+    }
+
+    /**
+     * @return whether the payload is held in the blob store rather than in the message
+     */
+    public boolean isClaimCheck() {
+        return blobId != null;
+    }
+
+    /**
+     * @return the referenced blob, or {@code null} if the payload is the message body
+     */
+    public String getBlobId() {
+        return blobId;
+    }
+
+    public long getSize() {
+        return size;
+    }
+
+    /**
+     * @return a stream of the payload, to be closed by the caller
+     */
+    public InputStream openStream() {
+        return body != null ? new ByteArrayInputStream(body) : store.open(blobId);
+    }
+
+    /**
+     * Reads the whole payload onto the heap; prefer {@link #openStream()} for large payloads.
+     *
+     * @return the payload bytes
+     * @throws IllegalStateException if the payload does not fit in an array
+     */
+    public byte[] toBytes() {
+        if (body != null) {
+            return body;
+        }
+        if (size > Integer.MAX_VALUE - 8) {
+            throw new IllegalStateException("Blob " + blobId + " of " + size + " bytes does not fit in an array");
+        }
+        try (InputStream stream = openStream()) {
+            return stream.readAllBytes();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package com.luna.app.claimcheck;
+
+import com.azure.core.amqp.models.AmqpMessageBody;
+import com.azure.core.amqp.models.AmqpMessageBodyType;
+import com.azure.messaging.servicebus.ServiceBusReceivedMessage;
+import com.luna.app.queue.InMemoryMessage;
+
+import java.util.Map;
+
+/**
+ * Resolves the references written by a {@link ClaimCheckSender}. Messages that are not references resolve to their
+ * own body, so a handler can read every message through {@link ClaimCheckPayload#openStream()}.
+ * <p>
+ * The store does not expire blobs: call {@link #release(ClaimCheckPayload)} once the message has been completed.
+ * Releasing earlier would lose the payload of a message that is redelivered.
+ */
+public class ClaimCheckReceiver {
+
+    private final BlobStore store;
+
+    public ClaimCheckReceiver(BlobStore store) {
+        this.store = store;
+    }
+
+    public ClaimCheckPayload payloadOf(ServiceBusReceivedMessage message) {
+        AmqpMessageBody body = message.getRawAmqpMessage().getBody();
+        return payloadOf(message.getApplicationProperties(),
+                body.getBodyType() == AmqpMessageBodyType.DATA ? body.getFirstData() : message.getBody().toBytes());
+    }
+
+    public ClaimCheckPayload payloadOf(InMemoryMessage message) {
+        return payloadOf(message.getApplicationProperties(), message.getBody());
+    }
+
+    /**
+     * @param properties the application properties of a received message
+     * @param body       its body
+     * @return the payload, which is not read until opened
+     */
+    public ClaimCheckPayload payloadOf(Map<String, Object> properties, byte[] body) {
+        Object blobId = properties.get(ClaimCheckSender.BLOB_ID_PROPERTY);
+        if (blobId == null) {
+            return new ClaimCheckPayload(body);
+        }
+        Object size = properties.get(ClaimCheckSender.SIZE_PROPERTY);
+        return new ClaimCheckPayload(store, blobId.toString(),
+                size instanceof Number number ? number.longValue() : store.size(blobId.toString()));
+    }
+
+    /**
+     * Deletes the blob behind a payload.
+     *
+     * @param payload the payload of a completed message
+     * @return {@code false} if the payload was not a claim check or the blob was already deleted
+     */
+    public boolean release(ClaimCheckPayload payload) {
+        return payload.isClaimCheck() && store.delete(payload.getBlobId());
+    }
+}
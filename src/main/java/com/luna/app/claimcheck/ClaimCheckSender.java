@@ -0,0 +1,121 @@
+package com.luna.app.claimcheck;
+
+import com.azure.core.amqp.models.AmqpMessageBody;
+import com.azure.core.amqp.models.AmqpMessageBodyType;
+import com.azure.messaging.servicebus.ServiceBusMessage;
+
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Keeps large payloads out of the broker: bodies above a threshold are written to a {@link BlobStore} and the message
+ * is replaced by a reference with an empty body, the blob ID in {@value #BLOB_ID_PROPERTY} and the payload size in
+ * {@value #SIZE_PROPERTY}. The reference keeps the original's IDs, routing properties, content type and application
+ * properties, so filters, sessions and duplicate detection behave as for the original. A {@link ClaimCheckReceiver}
+ * resolves references on the other side.
+ * <p>
+ * Besides letting bodies exceed the entity's maximum message size, this keeps batches dense: a reference costs a few
+ * hundred bytes of the 256 KB batch limit regardless of the payload size.
+ */
+public class ClaimCheckSender {
+
+    public static final String BLOB_ID_PROPERTY = "claimcheck-blob-id";
+    public static final String SIZE_PROPERTY = "claimcheck-size";
+
+    /**
+     * Default threshold: a quarter of the Standard tier message size, so a batch still holds several checked messages.
+     */
+    public static final int DEFAULT_THRESHOLD = 64 * 1024;
+
+    private final BlobStore store;
+    private final int thresholdBytes;
+    private final LongAdder checked = new LongAdder();
+    private final LongAdder checkedBytes = new LongAdder();
+
+    public ClaimCheckSender(BlobStore store) {
+        this(store, DEFAULT_THRESHOLD);
+    }
+
+    /**
+     * @param store          where payloads are written
+     * @param thresholdBytes bodies larger than this are checked
+     */
+    public ClaimCheckSender(BlobStore store, int thresholdBytes) {
+        if (thresholdBytes < 0) {
+            throw new IllegalArgumentException("thresholdBytes must not be negative but was " + thresholdBytes);
+        }
+        this.store = store;
+        this.thresholdBytes = thresholdBytes;
+    }
+
+    /**
+     * @param message a message to send
+     * @return the message itself if its body is within the threshold, otherwise a reference to the stored body
+     */
+    public ServiceBusMessage check(ServiceBusMessage message) {
+        AmqpMessageBody body = message.getRawAmqpMessage().getBody();
+        if (body.getBodyType() != AmqpMessageBodyType.DATA) {
+            return message;
+        }
+        byte[] bytes = body.getFirstData();
+        if (bytes.length <= thresholdBytes) {
+            return message;
+        }
+        return reference(message, store.put(ByteBuffer.wrap(bytes)), bytes.length);
+    }
+
+    /**
+     * Stores a payload from a channel, e.g. a file, without reading it onto the heap.
+     *
+     * @param template the message whose properties the reference takes; its body is ignored
+     * @param payload  the payload
+     * @param size     the payload size in bytes
+     * @return a reference to the stored payload
+     */
+    public ServiceBusMessage check(ServiceBusMessage template, ReadableByteChannel payload, long size) {
+        return reference(template, store.put(payload, size), size);
+    }
+
+    /**
+     * @return the number of messages whose body was moved to the store
+     */
+    public long getCheckedCount() {
+        return checked.sum();
+    }
+
+    public long getCheckedBytes() {
+        return checkedBytes.sum();
+    }
+
+    private ServiceBusMessage reference(ServiceBusMessage original, String blobId, long size) {
+        checked.increment();
+        checkedBytes.add(size);
+        ServiceBusMessage reference = new ServiceBusMessage(AmqpMessageBody.fromData(new byte[0]))
+                .setContentType(original.getContentType())
+                .setCorrelationId(original.getCorrelationId())
+                .setSubject(original.getSubject())
+                .setTo(original.getTo())
+                .setReplyTo(original.getReplyTo())
+                .setReplyToSessionId(original.getReplyToSessionId());
+        if (original.getMessageId() != null) {
+            reference.setMessageId(original.getMessageId());
+        }
+        if (original.getSessionId() != null) {
+            reference.setSessionId(original.getSessionId());
+        }
+        if (original.getPartitionKey() != null) {
+            reference.setPartitionKey(original.getPartitionKey());
+        }
+        if (original.getTimeToLive() != null) {
+            reference.setTimeToLive(original.getTimeToLive());
+        }
+        if (original.getScheduledEnqueueTime() != null) {
+            reference.setScheduledEnqueueTime(original.getScheduledEnqueueTime());
+        }
+        reference.getApplicationProperties().putAll(original.getApplicationProperties());
+        reference.getApplicationProperties().put(BLOB_ID_PROPERTY, blobId);
+        reference.getApplicationProperties().put(SIZE_PROPERTY, size);
+        return reference;
+    }
+}
@@ -0,0 +1,210 @@
+package com.luna.app.claimcheck;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.UUID;
+import java.util.regex.Pattern;
+
+/**
+ * {@link BlobStore} on a local directory, with every blob in its own memory-mapped file.
+ * <p>
+ * Writes copy the payload straight into the mapped file and reads stream it from mapped windows of at most
+ * {@value #WINDOW_BYTES} bytes, so neither side holds a whole payload on the heap and blobs may be larger than 2 GiB.
+ * Blobs are spread over 256 subdirectories by the first two characters of their ID. Files are not forced to disk:
+ * a blob survives the process but not necessarily a crash of the host.
+ */
+public class FileBlobStore implements BlobStore {
+
+    static final int WINDOW_BYTES = 64 * 1024 * 1024;
+
+    // Blob IDs come from message properties, so only IDs this store could have issued are resolved
+    private static final Pattern BLOB_ID = Pattern.compile(
+            "[0-9a-f]{8}-[0-9a-f]{4}-[0-9a-f]{4}-[0-9a-f]{4}-[0-9a-f]{12}");
+
+    private final Path directory;
+
+    /**
+     * @param directory where blobs are stored; created if missing
+     */
+    public FileBlobStore(Path directory) {
+        try {
+            this.directory = Files.createDirectories(directory);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public String put(ByteBuffer payload) {
+        String blobId = UUID.randomUUID().toString();
+        Path path = pathOf(blobId);
+        try (FileChannel channel = create(path)) {
+            channel.map(FileChannel.MapMode.READ_WRITE, 0, payload.remaining()).put(payload.duplicate());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return blobId;
+    }
+
+    @Override
+    public String put(ReadableByteChannel source, long size) {
+        String blobId = UUID.randomUUID().toString();
+        Path path = pathOf(blobId);
+        boolean written = false;
+        try (FileChannel channel = create(path)) {
+            for (long position = 0; position < size; position += WINDOW_BYTES) {
+                MappedByteBuffer window = channel.map(FileChannel.MapMode.READ_WRITE, position,
+                        Math.min(WINDOW_BYTES, size - position));
+                while (window.hasRemaining()) {
+                    if (source.read(window) < 0) {
+                        throw new IllegalArgumentException("Payload ended after " + (position + window.position())
+                                + " of " + size + " bytes");
+                    }
+                }
+            }
+            written = true;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            if (!written) {
+                deleteQuietly(path);
+            }
+        }
+        return blobId;
+    }
+
+    @Override
+    public InputStream open(String blobId) {
+        try {
+            return new MappedInputStream(FileChannel.open(pathOf(blobId), StandardOpenOption.READ));
+        } catch (NoSuchFileException e) {
+            throw new IllegalArgumentException("No blob " + blobId, e);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public long size(String blobId) {
+        try {
+            return Files.size(pathOf(blobId));
+        } catch (NoSuchFileException e) {
+            throw new IllegalArgumentException("No blob " + blobId, e);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public boolean delete(String blobId) {
+        try {
+            return Files.deleteIfExists(pathOf(blobId));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private Path pathOf(String blobId) {
+        if (blobId == null || !BLOB_ID.matcher(blobId).matches()) {
+            throw new IllegalArgumentException("Invalid blob ID: " + blobId);
+        }
+        return directory.resolve(blobId.substring(0, 2)).resolve(blobId);
+    }
+
+    private static FileChannel create(Path path) throws IOException {
+        Files.createDirectories(path.getParent());
+        return FileChannel.open(path, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+    }
+
+    private static void deleteQuietly(Path path) {
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            // The incomplete blob is unreachable anyway since its ID was never returned
+        }
+    }
+
+    /**
+     * Reads a file through successive read-only mappings. A window is only unmapped once it is garbage collected, so
+     * at most one window per open stream is reachable at a time.
+     */
+    private static final class MappedInputStream extends InputStream {
+
+        private final FileChannel channel;
+        private final long size;
+        private long windowStart;
+        private MappedByteBuffer window;
+
+        MappedInputStream(FileChannel channel) throws IOException {
+            this.channel = channel;
+            this.size = channel.size();
+        }
+
+        @Override
+        public int read() throws IOException {
+            return nextWindow() ? window.get() & 0xFF : -1;
+        }
+
+        @Override
+        public int read(byte[] bytes, int offset, int length) throws IOException {
+            if (length == 0) {
+                return 0;
+            }
+            if (!nextWindow()) {
+                return -1;
+            }
+            int count = Math.min(length, window.remaining());
+            window.get(bytes, offset, count);
+            return count;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            long position = windowStart + (window != null ? window.position() : 0);
+            long skipped = Math.max(0, Math.min(n, size - position));
+            if (window != null && skipped <= window.remaining()) {
+                window.position(window.position() + (int) skipped);
+            } else if (skipped > 0) {
+                window = null;
+                windowStart = position + skipped;
+            }
+            return skipped;
+        }
+
+        @Override
+        public int available() {
+            return window != null ? window.remaining() : 0;
+        }
+
+        @Override
+        public void close() throws IOException {
+            window = null;
+            channel.close();
+        }
+
+        private boolean nextWindow() throws IOException {
+            if (window != null && window.hasRemaining()) {
+                return true;
+            }
+            if (window != null) {
+                windowStart += window.capacity();
+            }
+            if (windowStart >= size) {
+                return false;
+            }
+            window = channel.map(FileChannel.MapMode.READ_ONLY, windowStart, Math.min(WINDOW_BYTES,
+                    size - windowStart));
+            return true;
+        }
+    }
+}
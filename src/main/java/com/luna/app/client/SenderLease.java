@@ -0,0 +1,55 @@
+package com.luna.app.client;
+
+import com.azure.messaging.servicebus.ServiceBusMessage;
+import com.azure.messaging.servicebus.ServiceBusMessageBatch;
+import com.azure.messaging.servicebus.ServiceBusSenderClient;
+
+/**
+ * Borrowed use of a cached sender from a {@link ServiceBusClientFactory}. Closing the lease returns the sender to the
+ * cache; the underlying link stays open for the next caller until it has been idle long enough to be evicted.
+ */
+public class SenderLease implements AutoCloseable {
+
+    private final ServiceBusClientFactory.CachedSender cachedSender;
+    private boolean released;
+
+    SenderLease(ServiceBusClientFactory.CachedSender cachedSender) {
+        this.cachedSender = cachedSender;
+    }
+
+    /**
+     * Returns the shared sender client. Do not close it; close the lease instead.
+     *
+     * @return the sender client
+     */
+    public ServiceBusSenderClient getClient() {
+        if (released) {
+            throw new IllegalStateException("Sender lease has already been released");
+        }
+        return cachedSender.client();
+    }
+
+    public void sendMessage(ServiceBusMessage message) {
+        getClient().sendMessage(message);
+    }
+
+    public void sendMessages(Iterable<ServiceBusMessage> messages) {
+        getClient().sendMessages(messages);
+    }
+
+    public void sendMessages(ServiceBusMessageBatch batch) {
+        getClient().sendMessages(batch);
+    }
+
+    public ServiceBusMessageBatch createMessageBatch() {
+        return getClient().createMessageBatch();
+    }
+
+    @Override
+    public void close() {
+        if (!released) {
+            released = true;
+            cachedSender.release();
+        }
+    }
+}
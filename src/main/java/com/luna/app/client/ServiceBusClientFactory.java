@@ -0,0 +1,260 @@
+package com.luna.app.client;
+
+import com.azure.messaging.servicebus.ServiceBusClientBuilder;
+import com.azure.messaging.servicebus.ServiceBusSenderClient;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Process-wide source of Service Bus clients for one namespace.
+ * <p>
+ * Every client built through a factory comes from the same {@link ServiceBusClientBuilder}, so they share a single
+ * AMQP connection (one TLS handshake, one connection towards the namespace quota) with one link per client. Senders
+ * are cached per entity and handed out as {@link SenderLease}s; a sender that has not been leased for
+ * {@code idleTimeout} is closed. Receivers, session receivers and processors are built on the shared connection but
+ * owned and closed by the caller. All factories are closed by a JVM shutdown hook.
+ */
+public class ServiceBusClientFactory implements AutoCloseable {
+
+    private static final Logger logger = LoggerFactory.getLogger(ServiceBusClientFactory.class);
+
+    private static final Duration DEFAULT_IDLE_TIMEOUT = Duration.ofMinutes(5);
+    private static final Map<String, ServiceBusClientFactory> FACTORIES = new ConcurrentHashMap<>();
+    private static final ScheduledExecutorService EVICTOR = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "servicebus-client-evictor");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    static {
+        Runtime.getRuntime().addShutdownHook(new Thread(ServiceBusClientFactory::closeAll,
+                "servicebus-client-shutdown"));
+    }
+
+    private final String sharedKey;
+    private final ServiceBusClientBuilder builder;
+    private final long idleTimeoutNanos;
+    private final Map<String, CachedSender> senders = new ConcurrentHashMap<>();
+    private final Object leaseLock = new Object();
+    private final ScheduledFuture<?> eviction;
+    private boolean closed;
+
+    /**
+     * Creates a standalone factory. Most callers should use {@link #forConnectionString(String)} instead so that the
+     * connection is shared process-wide.
+     *
+     * @param connectionString the namespace connection string
+     * @param idleTimeout      how long an unused sender is kept open
+     */
+    public ServiceBusClientFactory(String connectionString, Duration idleTimeout) {
+        this(connectionString, idleTimeout, null);
+    }
+
+    private ServiceBusClientFactory(String connectionString, Duration idleTimeout, String sharedKey) {
+        this.sharedKey = sharedKey;
+        this.builder = new ServiceBusClientBuilder().connectionString(connectionString);
+        this.idleTimeoutNanos = idleTimeout.toNanos();
+        long sweepMillis = Math.max(1, idleTimeout.toMillis() / 2);
+        this.eviction = EVICTOR.scheduleWithFixedDelay(this::evictIdleSenders, sweepMillis, sweepMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Returns the shared factory for a namespace, creating it on first use. A shared factory that has been closed is
+     * replaced by a new one on the next call.
+     *
+     * @param connectionString the namespace connection string
+     * @return the factory shared by every caller using this connection string
+     */
+    public static ServiceBusClientFactory forConnectionString(String connectionString) {
+        return FACTORIES.computeIfAbsent(connectionString,
+                key -> new ServiceBusClientFactory(key, DEFAULT_IDLE_TIMEOUT, key));
+    }
+
+    /**
+     * Closes every shared factory; registered as a JVM shutdown hook.
+     */
+    public static void closeAll() {
+        FACTORIES.values().forEach(ServiceBusClientFactory::close);
+    }
+
+    /**
+     * Leases the cached sender for a queue, creating it on first use.
+     *
+     * @param queueName the queue name
+     * @return a lease to close when done sending
+     */
+    public SenderLease leaseQueueSender(String queueName) {
+        return lease("queue:" + queueName, () -> builder.sender().queueName(queueName).buildClient());
+    }
+
+    /**
+     * Leases the cached sender for a topic, creating it on first use.
+     *
+     * @param topicName the topic name
+     * @return a lease to close when done sending
+     */
+    public SenderLease leaseTopicSender(String topicName) {
+        return lease("topic:" + topicName, () -> builder.sender().topicName(topicName).buildClient());
+    }
+
+    private SenderLease lease(String key, SenderSupplier supplier) {
+        // Checked and created under the lock close() takes, so no sender is built after close() has collected them
+        synchronized (leaseLock) {
+            if (closed) {
+                throw new IllegalStateException("Client factory is closed");
+            }
+            CachedSender cached = senders.get(key);
+            if (cached == null || !cached.acquire()) {
+                // Missing, or retired by eviction that has not removed it yet
+                cached = new CachedSender(key, supplier.get());
+                cached.acquire();
+                senders.put(key, cached);
+            }
+            return new SenderLease(cached);
+        }
+    }
+
+    /**
+     * Starts a sender builder on the shared connection, for callers that need a dedicated, caller-owned link.
+     *
+     * @return a sender builder
+     */
+    public ServiceBusClientBuilder.ServiceBusSenderClientBuilder sender() {
+        return builder.sender();
+    }
+
+    /**
+     * Starts a receiver builder on the shared connection. The built client is owned by the caller.
+     *
+     * @return a receiver builder
+     */
+    public ServiceBusClientBuilder.ServiceBusReceiverClientBuilder receiver() {
+        return builder.receiver();
+    }
+
+    /**
+     * Starts a session receiver builder on the shared connection. The built client is owned by the caller.
+     *
+     * @return a session receiver builder
+     */
+    public ServiceBusClientBuilder.ServiceBusSessionReceiverClientBuilder sessionReceiver() {
+        return builder.sessionReceiver();
+    }
+
+    /**
+     * Starts a processor builder on the shared connection. The built client is owned by the caller.
+     *
+     * @return a processor builder
+     */
+    public ServiceBusClientBuilder.ServiceBusProcessorClientBuilder processor() {
+        return builder.processor();
+    }
+
+    public int getCachedSenderCount() {
+        return senders.size();
+    }
+
+    void evictIdleSenders() {
+        long now = System.nanoTime();
+        List<CachedSender> idle = new ArrayList<>();
+        for (CachedSender cached : senders.values()) {
+            if (cached.retireIfIdle(now, idleTimeoutNanos)) {
+                senders.remove(cached.key, cached);
+                idle.add(cached);
+            }
+        }
+        idle.forEach(CachedSender::closeClient);
+    }
+
+    /**
+     * Closes every cached sender and, for a shared factory, removes it from the shared factories. Caller-owned
+     * receivers must be closed by their owners.
+     */
+    @Override
+    public void close() {
+        List<CachedSender> cachedSenders;
+        synchronized (leaseLock) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            cachedSenders = new ArrayList<>(senders.values());
+            senders.clear();
+        }
+        if (sharedKey != null) {
+            FACTORIES.remove(sharedKey, this);
+        }
+        eviction.cancel(false);
+        for (CachedSender cached : cachedSenders) {
+            cached.retire();
+            cached.closeClient();
+        }
+    }
+
+    @FunctionalInterface
+    private interface SenderSupplier {
+        ServiceBusSenderClient get();
+    }
+
+    /**
+     * A cached sender with its lease count. Once retired it is never leased again.
+     */
+    static final class CachedSender {
+        private final String key;
+        private final ServiceBusSenderClient client;
+        private int leases;
+        private long lastReleasedNanos = System.nanoTime();
+        private boolean retired;
+
+        private CachedSender(String key, ServiceBusSenderClient client) {
+            this.key = key;
+            this.client = client;
+        }
+
+        ServiceBusSenderClient client() {
+            return client;
+        }
+
+        private synchronized boolean acquire() {
+            if (retired) {
+                return false;
+            }
+            leases++;
+            return true;
+        }
+
+        synchronized void release() {
+            leases--;
+            lastReleasedNanos = System.nanoTime();
+        }
+
+        private synchronized boolean retireIfIdle(long now, long idleTimeoutNanos) {
+            if (!retired && leases == 0 && now - lastReleasedNanos >= idleTimeoutNanos) {
+                retired = true;
+            }
+            return retired;
+        }
+
+        private synchronized void retire() {
+            retired = true;
+        }
+
+        private void closeClient() {
+            try {
+                client.close();
+            } catch (RuntimeException e) {
+                logger.warn("Error closing sender {}: {}", key, e.getMessage());
+            }
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package com.luna.app.codec;
+
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+/**
+ * Compact binary encoding: the fields are written in a fixed order with {@link PayloadBuffer}'s varints, fixed-width
+ * numbers and length-prefixed strings, with no field names or delimiters. A one-byte version header lets a reader
+ * reject payloads written by an incompatible layout instead of misreading them.
+ *
+ * @param <T> the payload type
+ */
+public class BinaryPayloadCodec<T> implements PayloadCodec<T> {
+
+    public static final String CONTENT_TYPE = "application/x-luna-binary";
+
+    private final int version;
+    private final BiConsumer<T, PayloadBuffer> writer;
+    private final Function<PayloadReader, T> reader;
+
+    /**
+     * @param version layout version, written as the first byte and checked on decode
+     * @param writer  writes the fields of one object
+     * @param reader  reads the fields back in the same order
+     */
+    public BinaryPayloadCodec(int version, BiConsumer<T, PayloadBuffer> writer, Function<PayloadReader, T> reader) {
+        if (version < 0 || version > 255) {
+            throw new IllegalArgumentException("version must be in [0, 255] but was " + version);
+        }
+        this.version = version;
+        this.writer = writer;
+        this.reader = reader;
+    }
+
+    @Override
+    public void encode(T value, PayloadBuffer buffer) {
+        buffer.writeByte(version);
+        writer.accept(value, buffer);
+    }
+
+    @Override
+    public T decode(byte[] bytes, int offset, int length) {
+        PayloadReader payload = new PayloadReader(bytes, offset, length);
+        int payloadVersion = payload.readByte();
+        if (payloadVersion != version) {
+            throw new IllegalArgumentException("Payload has layout version " + payloadVersion + ", expected "
+                    + version);
+        }
+        return reader.apply(payload);
+    }
+
+    @Override
+    public String getContentType() {
+        return CONTENT_TYPE;
+    }
+}
@@ -0,0 +1,61 @@
+package com.luna.app.codec;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Bounded pool of {@link PayloadBuffer}s shared by all threads.
+ * <p>
+ * A thread-local cache would give every virtual thread its own buffer, so buffers are handed out from a shared queue
+ * instead. When the pool is empty a new buffer is created; buffers that grew beyond {@code maxRetainedBytes} for an
+ * unusually large message are dropped on release rather than kept.
+ */
+public class BufferPool {
+
+    private static final BufferPool SHARED = new BufferPool(256, 4096, 1 << 20);
+
+    private final BlockingQueue<PayloadBuffer> buffers;
+    private final int initialCapacity;
+    private final int maxRetainedBytes;
+
+    /**
+     * @param maxPooled        the maximum number of idle buffers kept
+     * @param initialCapacity  the capacity of new buffers
+     * @param maxRetainedBytes buffers larger than this are not returned to the pool
+     */
+    public BufferPool(int maxPooled, int initialCapacity, int maxRetainedBytes) {
+        if (maxPooled <= 0 || initialCapacity <= 0 || maxRetainedBytes < initialCapacity) {
+            throw new IllegalArgumentException("Invalid pool bounds: maxPooled=" + maxPooled + ", initialCapacity="
+                    + initialCapacity + ", maxRetainedBytes=" + maxRetainedBytes);
+        }
+        this.buffers = new ArrayBlockingQueue<>(maxPooled);
+        this.initialCapacity = initialCapacity;
+        this.maxRetainedBytes = maxRetainedBytes;
+    }
+
+    /**
+     * @return the pool used by codecs that are not given one
+     */
+    public static BufferPool shared() {
+        return SHARED;
+    }
+
+    /**
+     * @return an empty buffer; pass it to {@link #release(PayloadBuffer)} when done
+     */
+    public PayloadBuffer acquire() {
+        PayloadBuffer buffer = buffers.poll();
+        return buffer != null ? buffer : new PayloadBuffer(initialCapacity);
+    }
+
+    public void release(PayloadBuffer buffer) {
+        if (buffer.capacity() <= maxRetainedBytes) {
+            buffer.reset();
+            buffers.offer(buffer);
+        }
+    }
+
+    public int getPooledCount() {
+        return buffers.size();
+    }
+}
@@ -0,0 +1,98 @@
+package com.luna.app.codec;
+
+import com.azure.json.JsonToken;
+import com.azure.messaging.servicebus.ServiceBusReceivedMessage;
+import com.azure.messaging.servicebus.ServiceBusReceiverClient;
+import com.luna.app.client.SenderLease;
+import com.luna.app.client.ServiceBusClientFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Sends orders as JSON and as compact binary bodies, then receives and decodes them without building body strings.
+ */
+public class CodecExample {
+
+    private static final Logger logger = LoggerFactory.getLogger(CodecExample.class);
+
+    // Use environment variables for sensitive information
+    private static final String CONNECTION_STRING = System.getenv("AZURE_SERVICE_BUS_CONNECTION_STRING");
+    private static final String QUEUE_NAME = "codec001";
+
+    /**
+     * An order as sent by the shop front end.
+     */
+    public record Order(String orderId, String customer, long quantity, double amount, boolean express) {
+    }
+
+    static final MessageCodec<Order> JSON = new MessageCodec<>(new JsonPayloadCodec<>((json, order) -> json
+            .writeStartObject()
+            .writeStringField("orderId", order.orderId())
+            .writeStringField("customer", order.customer())
+            .writeLongField("quantity", order.quantity())
+            .writeDoubleField("amount", order.amount())
+            .writeBooleanField("express", order.express())
+            .writeEndObject(), json -> json.readObject(reader -> {
+                String orderId = null;
+                String customer = null;
+                long quantity = 0;
+                double amount = 0;
+                boolean express = false;
+                while (reader.nextToken() != JsonToken.END_OBJECT) {
+                    String field = reader.getFieldName();
+                    reader.nextToken();
+                    switch (field) {
+                        case "orderId" -> orderId = reader.getString();
+                        case "customer" -> customer = reader.getString();
+                        case "quantity" -> quantity = reader.getLong();
+                        case "amount" -> amount = reader.getDouble();
+                        case "express" -> express = reader.getBoolean();
+                        default -> reader.skipChildren();
+                    }
+                }
+                return new Order(orderId, customer, quantity, amount, express);
+            })));
+
+    // Deflates bodies of 1 KB and more
+    static final MessageCodec<Order> BINARY = new MessageCodec<>(new BinaryPayloadCodec<Order>(1, (order, out) -> {
+        out.writeString(order.orderId());
+        out.writeString(order.customer());
+        out.writeVarint(order.quantity());
+        out.writeDouble(order.amount());
+        out.writeBoolean(order.express());
+    }, in -> new Order(in.readString(), in.readString(), in.readVarint(), in.readDouble(), in.readBoolean())),
+            1024, BufferPool.shared());
+
+    public static void main(String[] args) {
+        List<Order> orders = List.of(
+                new Order("order-001", "Zoë Müller", 3, 59.90, false),
+                new Order("order-002", "Jörg Ødegaard", 1, 1249.00, true));
+
+        try (SenderLease sender = ServiceBusClientFactory.forConnectionString(CONNECTION_STRING)
+                .leaseQueueSender(QUEUE_NAME)) {
+            for (Order order : orders) {
+                sender.sendMessage(JSON.encode(order));
+                sender.sendMessage(BINARY.encode(order));
+            }
+            logger.info("Sent {} orders in both formats to queue {}", orders.size(), QUEUE_NAME);
+        }
+
+        try (ServiceBusReceiverClient receiver = ServiceBusClientFactory.forConnectionString(CONNECTION_STRING)
+                .receiver()
+                .queueName(QUEUE_NAME)
+                .buildClient()) {
+            for (ServiceBusReceivedMessage message : receiver.receiveMessages(orders.size() * 2,
+                    Duration.ofSeconds(10))) {
+                MessageCodec<Order> codec = BinaryPayloadCodec.CONTENT_TYPE.equals(message.getContentType())
+                        ? BINARY : JSON;
+                logger.info("Received {} as {}", codec.decode(message), message.getContentType());
+                receiver.complete(message);
+            }
+        } finally {
+            ServiceBusClientFactory.closeAll();
+        }
+    }
+}
@@ -0,0 +1,20 @@
+package com.luna.app.codec;
+
+/**
+ * Thrown when a deflated message body inflates to more than the codec's limit, e.g. a corrupt or hostile body.
+ */
+public class InflatedSizeExceededException extends IllegalArgumentException {
+
+    private static final long serialVersionUID = 1L;
+
+    private final int maxInflatedBytes;
+
+    public InflatedSizeExceededException(int maxInflatedBytes) {
+        super("Deflated payload inflates to more than " + maxInflatedBytes + " bytes");
+        this.maxInflatedBytes = maxInflatedBytes;
+    }
+
+    public int getMaxInflatedBytes() {
+        return maxInflatedBytes;
+    }
+}
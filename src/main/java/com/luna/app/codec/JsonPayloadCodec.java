@@ -0,0 +1,79 @@
+package com.luna.app.codec;
+
+import com.azure.json.JsonProviders;
+import com.azure.json.JsonReader;
+import com.azure.json.JsonSerializable;
+import com.azure.json.JsonWriter;
+import com.azure.json.ReadValueCallback;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+/**
+ * Streams objects to and from JSON with azure-json: the writer emits UTF-8 straight into the pooled buffer and the
+ * reader tokenizes the received bytes, so no JSON {@code String} is ever built.
+ *
+ * @param <T> the payload type
+ */
+public class JsonPayloadCodec<T> implements PayloadCodec<T> {
+
+    public static final String CONTENT_TYPE = "application/json";
+
+    private final JsonWriteCallback<T> writer;
+    private final ReadValueCallback<JsonReader, T> reader;
+
+    /**
+     * @param writer writes one object, e.g. {@code (json, order) -> json.writeStartObject()...}
+     * @param reader reads one object from a reader positioned before it
+     */
+    public JsonPayloadCodec(JsonWriteCallback<T> writer, ReadValueCallback<JsonReader, T> reader) {
+        this.writer = writer;
+        this.reader = reader;
+    }
+
+    /**
+     * @param reader the type's {@code fromJson} method
+     * @param <T>    a type that writes itself with {@link JsonSerializable#toJson(JsonWriter)}
+     * @return a codec for the type
+     */
+    public static <T extends JsonSerializable<T>> JsonPayloadCodec<T> of(ReadValueCallback<JsonReader, T> reader) {
+        return new JsonPayloadCodec<>((json, value) -> value.toJson(json), reader);
+    }
+
+    @Override
+    public void encode(T value, PayloadBuffer buffer) {
+        try (JsonWriter json = JsonProviders.createWriter(buffer.asOutputStream())) {
+            writer.write(json, value);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public T decode(byte[] bytes, int offset, int length) {
+        try (JsonReader json = offset == 0 && length == bytes.length
+                ? JsonProviders.createReader(bytes)
+                : JsonProviders.createReader(new ByteArrayInputStream(bytes, offset, length))) {
+            return reader.read(json);
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Malformed JSON payload: " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public String getContentType() {
+        return CONTENT_TYPE;
+    }
+
+    /**
+     * Writes one object to a {@link JsonWriter}.
+     *
+     * @param <T> the payload type
+     */
+    @FunctionalInterface
+    public interface JsonWriteCallback<T> {
+
+        void write(JsonWriter json, T value) throws IOException;
+    }
+}
@@ -0,0 +1,46 @@
+package com.luna.app.codec;
+
+import java.util.function.Supplier;
+
+/**
+ * A received body that is decoded on first access. Not thread-safe; meant to be used by the handler that received it.
+ *
+ * @param <T> the payload type
+ */
+public final class LazyPayload<T> implements Supplier<T> {
+
+    private final MessageCodec<T> codec;
+    private final byte[] body;
+    private final String contentEncoding;
+    private T value;
+    private boolean decoded;
+
+    LazyPayload(MessageCodec<T> codec, byte[] body, String contentEncoding) {
+        this.codec = codec;
+        this.body = body;
+        this.contentEncoding = contentEncoding;
+    }
+
+    /**
+     * @return the decoded payload, decoding it on the first call
+     */
+    @Override
+    public T get() {
+        if (!decoded) {
+            value = codec.decode(body, contentEncoding);
+            decoded = true;
+        }
+        return value;
+    }
+
+    public boolean isDecoded() {
+        return decoded;
+    }
+
+    /**
+     * @return the size of the body as received, before any inflation
+     */
+    public int getEncodedSize() {
+        return body.length;
+    }
+}
@@ -0,0 +1,228 @@
+package com.luna.app.codec;
+
+import com.azure.core.amqp.models.AmqpMessageBody;
+import com.azure.core.amqp.models.AmqpMessageBodyType;
+import com.azure.messaging.servicebus.ServiceBusMessage;
+import com.azure.messaging.servicebus.ServiceBusReceivedMessage;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Builds {@link ServiceBusMessage}s from domain objects and decodes received messages with a {@link PayloadCodec}.
+ * <p>
+ * Encoding runs in a pooled {@link PayloadBuffer}; the message then gets one exact-size copy of the bytes as its AMQP
+ * data section, which the SDK sends as is. Decoding reads the received data section in place. Bodies of at least
+ * {@code compressionThreshold} bytes are deflated when that makes them smaller, and marked with the
+ * {@value #CONTENT_ENCODING_PROPERTY} application property so receivers inflate them before decoding. Inflating stops
+ * at {@code maxInflatedBytes}, by default the {@value #DEFAULT_MAX_INFLATED_BYTES} byte maximum message size of a
+ * standard tier entity, so a small deflated body cannot expand without bound on the receiver.
+ *
+ * @param <T> the payload type
+ */
+public class MessageCodec<T> {
+
+    public static final String CONTENT_ENCODING_PROPERTY = "Content-Encoding";
+    public static final String DEFLATE = "deflate";
+    public static final int DEFAULT_MAX_INFLATED_BYTES = 256 * 1024;
+
+    private static final BlockingQueue<Deflater> DEFLATERS = new ArrayBlockingQueue<>(64);
+    private static final BlockingQueue<Inflater> INFLATERS = new ArrayBlockingQueue<>(64);
+
+    private final PayloadCodec<T> codec;
+    private final int compressionThreshold;
+    private final BufferPool pool;
+    private final int maxInflatedBytes;
+
+    /**
+     * Creates a codec that never compresses, using the shared buffer pool.
+     *
+     * @param codec the payload format
+     */
+    public MessageCodec(PayloadCodec<T> codec) {
+        this(codec, 0, BufferPool.shared());
+    }
+
+    /**
+     * @param codec                the payload format
+     * @param compressionThreshold bodies at least this large are deflated, or zero to never compress
+     * @param pool                 the buffers to encode into
+     */
+    public MessageCodec(PayloadCodec<T> codec, int compressionThreshold, BufferPool pool) {
+        this(codec, compressionThreshold, pool, DEFAULT_MAX_INFLATED_BYTES);
+    }
+
+    /**
+     * @param codec                the payload format
+     * @param compressionThreshold bodies at least this large are deflated, or zero to never compress
+     * @param pool                 the buffers to encode into
+     * @param maxInflatedBytes     the largest body a deflated message may inflate to, usually the entity's maximum
+     *                             message size
+     */
+    public MessageCodec(PayloadCodec<T> codec, int compressionThreshold, BufferPool pool, int maxInflatedBytes) {
+        if (compressionThreshold < 0) {
+            throw new IllegalArgumentException("compressionThreshold must not be negative but was "
+                    + compressionThreshold);
+        }
+        if (maxInflatedBytes <= 0) {
+            throw new IllegalArgumentException("maxInflatedBytes must be positive but was " + maxInflatedBytes);
+        }
+        this.codec = codec;
+        this.compressionThreshold = compressionThreshold;
+        this.pool = pool;
+        this.maxInflatedBytes = maxInflatedBytes;
+    }
+
+    /**
+     * @param value the object to send
+     * @return a message with the encoded body and the codec's content type
+     */
+    public ServiceBusMessage encode(T value) {
+        PayloadBuffer buffer = pool.acquire();
+        try {
+            codec.encode(value, buffer);
+            if (compressionThreshold > 0 && buffer.size() >= compressionThreshold) {
+                PayloadBuffer compressed = pool.acquire();
+                try {
+                    if (deflate(buffer, compressed)) {
+                        ServiceBusMessage message = newMessage(compressed);
+                        message.getApplicationProperties().put(CONTENT_ENCODING_PROPERTY, DEFLATE);
+                        return message;
+                    }
+                } finally {
+                    pool.release(compressed);
+                }
+            }
+            return newMessage(buffer);
+        } finally {
+            pool.release(buffer);
+        }
+    }
+
+    private ServiceBusMessage newMessage(PayloadBuffer body) {
+        return new ServiceBusMessage(AmqpMessageBody.fromData(body.toByteArray()))
+                .setContentType(codec.getContentType());
+    }
+
+    /**
+     * @param message a received message
+     * @return the decoded body
+     * @throws IllegalArgumentException if the message has another content type or a malformed body
+     * @throws InflatedSizeExceededException if the body inflates to more than {@code maxInflatedBytes}
+     */
+    public T decode(ServiceBusReceivedMessage message) {
+        return decode(bodyOf(message), contentEncodingOf(message));
+    }
+
+    /**
+     * Defers decoding until the payload is first read, e.g. for handlers that route on application properties and
+     * only look at the body of some messages.
+     *
+     * @param message a received message
+     * @return the undecoded payload
+     */
+    public LazyPayload<T> decodeLazily(ServiceBusReceivedMessage message) {
+        return new LazyPayload<>(this, bodyOf(message), contentEncodingOf(message));
+    }
+
+    /**
+     * @param body            the received body bytes
+     * @param contentEncoding the {@value #CONTENT_ENCODING_PROPERTY} property of the message, or {@code null}
+     * @return the decoded body
+     * @throws InflatedSizeExceededException if the body inflates to more than {@code maxInflatedBytes}
+     */
+    public T decode(byte[] body, String contentEncoding) {
+        if (contentEncoding == null) {
+            return codec.decode(body, 0, body.length);
+        }
+        if (!DEFLATE.equals(contentEncoding)) {
+            throw new IllegalArgumentException("Unsupported content encoding " + contentEncoding);
+        }
+        PayloadBuffer inflated = pool.acquire();
+        try {
+            inflate(body, inflated, maxInflatedBytes);
+            return codec.decode(inflated.array(), 0, inflated.size());
+        } finally {
+            pool.release(inflated);
+        }
+    }
+
+    private byte[] bodyOf(ServiceBusReceivedMessage message) {
+        String contentType = message.getContentType();
+        if (contentType != null && !contentType.equals(codec.getContentType())) {
+            throw new IllegalArgumentException("Message " + message.getMessageId() + " has content type "
+                    + contentType + ", expected " + codec.getContentType());
+        }
+        AmqpMessageBody body = message.getRawAmqpMessage().getBody();
+        return body.getBodyType() == AmqpMessageBodyType.DATA ? body.getFirstData() : message.getBody().toBytes();
+    }
+
+    private static String contentEncodingOf(ServiceBusReceivedMessage message) {
+        Object encoding = message.getApplicationProperties().get(CONTENT_ENCODING_PROPERTY);
+        return encoding != null ? encoding.toString() : null;
+    }
+
+    /**
+     * @return whether the deflated body in {@code out} is smaller than the input
+     */
+    private static boolean deflate(PayloadBuffer in, PayloadBuffer out) {
+        Deflater deflater = DEFLATERS.poll();
+        if (deflater == null) {
+            deflater = new Deflater(Deflater.BEST_SPEED);
+        }
+        try {
+            deflater.setInput(in.array(), 0, in.size());
+            deflater.finish();
+            while (!deflater.finished()) {
+                if (out.size() >= in.size()) {
+                    return false;
+                }
+                out.ensure(Math.max(256, in.size() / 4));
+                int written = deflater.deflate(out.array(), out.size(), out.capacity() - out.size());
+                out.setSize(out.size() + written);
+            }
+            return out.size() < in.size();
+        } finally {
+            deflater.reset();
+            if (!DEFLATERS.offer(deflater)) {
+                deflater.end();
+            }
+        }
+    }
+
+    private static void inflate(byte[] body, PayloadBuffer out, int maxBytes) {
+        Inflater inflater = INFLATERS.poll();
+        if (inflater == null) {
+            inflater = new Inflater();
+        }
+        try {
+            inflater.setInput(body);
+            while (!inflater.finished()) {
+                // Room for one byte past the limit, to tell a body of exactly maxBytes from a larger one
+                int limit = maxBytes + 1 - out.size();
+                if (limit <= 0) {
+                    throw new InflatedSizeExceededException(maxBytes);
+                }
+                out.ensure(Math.min(Math.max(256, body.length * 2), limit));
+                int read = inflater.inflate(out.array(), out.size(), Math.min(out.capacity() - out.size(), limit));
+                out.setSize(out.size() + read);
+                if (read == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    throw new IllegalArgumentException("Truncated deflated payload");
+                }
+            }
+            if (out.size() > maxBytes) {
+                throw new InflatedSizeExceededException(maxBytes);
+            }
+        } catch (DataFormatException e) {
+            throw new IllegalArgumentException("Malformed deflated payload: " + e.getMessage(), e);
+        } finally {
+            inflater.reset();
+            if (!INFLATERS.offer(inflater)) {
+                inflater.end();
+            }
+        }
+    }
+}
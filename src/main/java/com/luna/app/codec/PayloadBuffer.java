@@ -0,0 +1,189 @@
+package com.luna.app.codec;
+
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Growable byte buffer that codecs write message bodies into. Buffers come from a {@link BufferPool} and are reused, so
+ * after warm-up encoding a message does not allocate scratch space.
+ * <p>
+ * The primitive writes use the same layout as {@link PayloadReader}: varints for lengths and counts, zig-zag varints
+ * for signed integers, big-endian fixed-width longs and doubles, and length-prefixed UTF-8 strings encoded straight
+ * from the characters without an intermediate {@code byte[]}.
+ */
+public final class PayloadBuffer {
+
+    private byte[] bytes;
+    private int size;
+    private final OutputStream stream = new OutputStream() {
+        @Override
+        public void write(int b) {
+            writeByte(b);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            writeBytes(b, off, len);
+        }
+    };
+
+    public PayloadBuffer(int initialCapacity) {
+        this.bytes = new byte[Math.max(16, initialCapacity)];
+    }
+
+    public void writeByte(int b) {
+        ensure(1);
+        bytes[size++] = (byte) b;
+    }
+
+    public void writeBytes(byte[] source, int offset, int length) {
+        ensure(length);
+        System.arraycopy(source, offset, bytes, size, length);
+        size += length;
+    }
+
+    public void writeBoolean(boolean value) {
+        writeByte(value ? 1 : 0);
+    }
+
+    /**
+     * Writes a non-negative number in 1 to 10 bytes, 7 bits per byte.
+     */
+    public void writeVarint(long value) {
+        ensure(10);
+        while ((value & ~0x7FL) != 0) {
+            bytes[size++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        bytes[size++] = (byte) value;
+    }
+
+    /**
+     * Writes a signed number as a zig-zag varint, so small negative numbers stay short.
+     */
+    public void writeSignedVarint(long value) {
+        writeVarint((value << 1) ^ (value >> 63));
+    }
+
+    public void writeLong(long value) {
+        ensure(8);
+        for (int shift = 56; shift >= 0; shift -= 8) {
+            bytes[size++] = (byte) (value >>> shift);
+        }
+    }
+
+    public void writeDouble(double value) {
+        writeLong(Double.doubleToRawLongBits(value));
+    }
+
+    /**
+     * Writes a varint length followed by the UTF-8 encoding of {@code value}, or a single {@code 0} byte for
+     * {@code null} (lengths are stored plus one).
+     */
+    public void writeString(String value) {
+        if (value == null) {
+            writeVarint(0);
+            return;
+        }
+        int length = value.length();
+        int encodedLength = utf8Length(value);
+        writeVarint(encodedLength + 1L);
+        ensure(encodedLength);
+        if (encodedLength == length) {
+            for (int i = 0; i < length; i++) {
+                bytes[size++] = (byte) value.charAt(i);
+            }
+            return;
+        }
+        for (int i = 0; i < length; i++) {
+            char c = value.charAt(i);
+            if (c < 0x80) {
+                bytes[size++] = (byte) c;
+            } else if (c < 0x800) {
+                bytes[size++] = (byte) (0xC0 | (c >> 6));
+                bytes[size++] = (byte) (0x80 | (c & 0x3F));
+            } else if (Character.isHighSurrogate(c) && i + 1 < length
+                    && Character.isLowSurrogate(value.charAt(i + 1))) {
+                int codePoint = Character.toCodePoint(c, value.charAt(++i));
+                bytes[size++] = (byte) (0xF0 | (codePoint >> 18));
+                bytes[size++] = (byte) (0x80 | ((codePoint >> 12) & 0x3F));
+                bytes[size++] = (byte) (0x80 | ((codePoint >> 6) & 0x3F));
+                bytes[size++] = (byte) (0x80 | (codePoint & 0x3F));
+            } else if (Character.isSurrogate(c)) {
+                bytes[size++] = '?';
+            } else {
+                bytes[size++] = (byte) (0xE0 | (c >> 12));
+                bytes[size++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+                bytes[size++] = (byte) (0x80 | (c & 0x3F));
+            }
+        }
+    }
+
+    private static int utf8Length(String value) {
+        int length = value.length();
+        int encoded = length;
+        for (int i = 0; i < length; i++) {
+            char c = value.charAt(i);
+            if (c >= 0x80) {
+                if (c < 0x800) {
+                    encoded += 1;
+                } else if (Character.isHighSurrogate(c) && i + 1 < length
+                        && Character.isLowSurrogate(value.charAt(i + 1))) {
+                    encoded += 2;
+                    i++;
+                } else if (!Character.isSurrogate(c)) {
+                    encoded += 2;
+                }
+            }
+        }
+        return encoded;
+    }
+
+    /**
+     * @return a stream appending to this buffer, for serializers that write to an {@link OutputStream}
+     */
+    public OutputStream asOutputStream() {
+        return stream;
+    }
+
+    /**
+     * @return a read-only view of the written bytes, valid until the buffer is written to or released
+     */
+    public ByteBuffer asByteBuffer() {
+        return ByteBuffer.wrap(bytes, 0, size).asReadOnlyBuffer();
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return the written bytes, copied into an array of exactly {@link #size()} bytes
+     */
+    public byte[] toByteArray() {
+        return Arrays.copyOf(bytes, size);
+    }
+
+    byte[] array() {
+        return bytes;
+    }
+
+    int capacity() {
+        return bytes.length;
+    }
+
+    void setSize(int size) {
+        this.size = size;
+    }
+
+    void ensure(int extra) {
+        if (size + extra > bytes.length) {
+            bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, size + extra));
+        }
+    }
+
+    void reset() {
+        size = 0;
+    }
+}
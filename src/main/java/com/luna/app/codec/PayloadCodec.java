@@ -0,0 +1,29 @@
+package com.luna.app.codec;
+
+/**
+ * Converts a domain object to and from message body bytes, without going through a {@code String}.
+ *
+ * @param <T> the payload type
+ */
+public interface PayloadCodec<T> {
+
+    /**
+     * @param value  the object to encode
+     * @param buffer receives the encoded bytes; owned by the caller and reused after this call returns
+     */
+    void encode(T value, PayloadBuffer buffer);
+
+    /**
+     * @param bytes  the array holding the encoded body, e.g. the received AMQP data section; must not be modified
+     *               or referenced after this call returns, since it may be a pooled buffer
+     * @param offset the start of the body in {@code bytes}
+     * @param length the length of the body
+     * @return the decoded object
+     */
+    T decode(byte[] bytes, int offset, int length);
+
+    /**
+     * @return the content type set on encoded messages, e.g. {@code application/json}
+     */
+    String getContentType();
+}
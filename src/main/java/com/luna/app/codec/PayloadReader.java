@@ -0,0 +1,88 @@
+package com.luna.app.codec;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Reads the layout written by {@link PayloadBuffer} directly from a received body, without copying it first.
+ */
+public final class PayloadReader {
+
+    private final byte[] bytes;
+    private final int end;
+    private int position;
+
+    public PayloadReader(byte[] bytes, int offset, int length) {
+        if (offset < 0 || length < 0 || offset + length > bytes.length) {
+            throw new IndexOutOfBoundsException("Range [" + offset + ", " + (offset + length) + ") outside of "
+                    + bytes.length + " bytes");
+        }
+        this.bytes = bytes;
+        this.position = offset;
+        this.end = offset + length;
+    }
+
+    public int readByte() {
+        require(1);
+        return bytes[position++] & 0xFF;
+    }
+
+    public boolean readBoolean() {
+        return readByte() != 0;
+    }
+
+    public long readVarint() {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            int b = readByte();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IllegalArgumentException("Malformed varint at byte " + position);
+    }
+
+    public long readSignedVarint() {
+        long zigzag = readVarint();
+        return (zigzag >>> 1) ^ -(zigzag & 1);
+    }
+
+    public long readLong() {
+        require(8);
+        long value = 0;
+        for (int i = 0; i < 8; i++) {
+            value = (value << 8) | (bytes[position++] & 0xFF);
+        }
+        return value;
+    }
+
+    public double readDouble() {
+        return Double.longBitsToDouble(readLong());
+    }
+
+    /**
+     * @return the string written by {@link PayloadBuffer#writeString(String)}, possibly {@code null}
+     */
+    public String readString() {
+        long stored = readVarint();
+        if (stored == 0) {
+            return null;
+        }
+        int length = (int) (stored - 1);
+        require(length);
+        String value = new String(bytes, position, length, StandardCharsets.UTF_8);
+        position += length;
+        return value;
+    }
+
+    public int remaining() {
+        return end - position;
+    }
+
+    private void require(int count) {
+        if (count < 0 || position + count > end) {
+            throw new IllegalArgumentException("Payload truncated: needed " + count + " bytes at byte " + position
+                    + " of " + end);
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package com.luna.app.deduplicate;
+
+import com.azure.core.util.BinaryData;
+import com.azure.messaging.servicebus.ServiceBusMessage;
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Derives a stable MessageId from the content of a message, so that a retried or replayed send carries the same ID as
+ * the original and is dropped by the broker's duplicate detection.
+ * <p>
+ * The ID is the 128-bit murmur3 hash, in hex, of the body and the values of a fixed set of application properties.
+ * The body is hashed straight from the buffer backing the message, without copying it. Messages that should count as
+ * different despite identical bodies need a distinguishing property in the set (an order number, a tenant, an event
+ * time), otherwise they are deduplicated against each other.
+ */
+public class ContentMessageIdGenerator {
+
+    private static final HashFunction HASH = Hashing.murmur3_128();
+
+    // Below this many body bytes per batch, forking costs more than hashing
+    private static final long PARALLEL_THRESHOLD_BYTES = 256 * 1024;
+
+    private final String[] propertyNames;
+
+    /**
+     * @param propertyNames application properties included in the hash, in addition to the body
+     */
+    public ContentMessageIdGenerator(String... propertyNames) {
+        this.propertyNames = propertyNames.clone();
+        Arrays.sort(this.propertyNames);
+    }
+
+    /**
+     * @param message the message
+     * @return the content-derived ID of the message
+     */
+    public String messageIdOf(ServiceBusMessage message) {
+        Hasher hasher = HASH.newHasher();
+        BinaryData body = message.getBody();
+        if (body != null) {
+            // returns the array backing the message for byte bodies, so the body is not copied
+            byte[] bytes = body.toBytes();
+            hasher.putInt(bytes.length);
+            hasher.putBytes(bytes);
+        }
+        Map<String, Object> properties = message.getApplicationProperties();
+        for (String name : propertyNames) {
+            Object value = properties.get(name);
+            hasher.putString(name, StandardCharsets.UTF_8);
+            if (value == null) {
+                hasher.putByte((byte) 0);
+            } else {
+                // the type is part of the hash so that 1 and "1" give different IDs
+                hasher.putByte((byte) 1);
+                hasher.putString(value.getClass().getSimpleName(), StandardCharsets.UTF_8);
+                hasher.putString(value.toString(), StandardCharsets.UTF_8);
+            }
+        }
+        return hasher.hash().toString();
+    }
+
+    /**
+     * Sets the content-derived ID on a message.
+     *
+     * @param message the message
+     * @return the same message
+     */
+    public ServiceBusMessage apply(ServiceBusMessage message) {
+        return message.setMessageId(messageIdOf(message));
+    }
+
+    /**
+     * Sets the content-derived ID on every message of a batch, hashing in parallel when the bodies are large enough for
+     * it to pay off.
+     *
+     * @param messages the messages
+     * @return the same list
+     */
+    public List<ServiceBusMessage> applyAll(List<ServiceBusMessage> messages) {
+        long totalBytes = 0;
+        for (ServiceBusMessage message : messages) {
+            BinaryData body = message.getBody();
+            Long length = body == null ? null : body.getLength();
+            totalBytes += length == null ? 0 : length;
+        }
+        if (totalBytes >= PARALLEL_THRESHOLD_BYTES && messages.size() > 1
+                && ForkJoinPool.getCommonPoolParallelism() > 1) {
+            messages.parallelStream().forEach(this::apply);
+        } else {
+            messages.forEach(this::apply);
+        }
+        return messages;
+    }
+}
@@ -1,12 +1,21 @@
 package com.luna.app.deduplicate;
 
-import com.azure.messaging.servicebus.ServiceBusClientBuilder;
+import com.azure.messaging.servicebus.ServiceBusReceivedMessage;
 import com.azure.messaging.servicebus.ServiceBusSenderClient;
 import com.azure.messaging.servicebus.ServiceBusMessage;
+import com.luna.app.client.SenderLease;
+import com.luna.app.client.ServiceBusClientFactory;
+import com.luna.app.queue.ConsumerEngine;
+import com.luna.app.queue.ConsumerOptions;
+import com.luna.app.queue.Disposition;
+import com.luna.app.queue.ServiceBusMessageSource;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.time.Duration;
+import java.util.List;
 import java.util.UUID;
+import java.util.concurrent.TimeUnit;
 
 public class DuplicateDetectionExample {
 
@@ -19,19 +28,26 @@ public class DuplicateDetectionExample {
     private static final String QUEUE_DUP002 = "dup002";
     private static final String QUEUE_DUP003 = "dup003";
 
-    public static void main(String[] args) {
+    private static final ContentMessageIdGenerator CONTENT_IDS = new ContentMessageIdGenerator("orderId");
+
+    // Message IDs processed during the last hour, shared by all receivers in this process
+    private static final IdempotencyStore PROCESSED_IDS = new IdempotencyStore(1_000_000, Duration.ofHours(1));
+
+    public static void main(String[] args) throws InterruptedException {
         DuplicateDetectionExample example = new DuplicateDetectionExample();
         example.sendWithoutDuplication(QUEUE_DUP001);
         example.sendWithDuplicationWithoutMessageId(QUEUE_DUP002);
         example.sendWithDuplicationWithMessageId(QUEUE_DUP003);
+        example.sendWithContentMessageId(QUEUE_DUP002);
+        example.receiveSkippingDuplicates(QUEUE_DUP003);
     }
 
     /**
      * Sends messages to a queue without duplication.
      */
     public void sendWithoutDuplication(String queueName) {
-        try (ServiceBusSenderClient senderClient = createSenderClient(queueName)) {
-            sendMessages(senderClient, "message 001", "message 002");
+        try (SenderLease senderClient = createSenderClient(queueName)) {
+            sendMessages(senderClient.getClient(), "message 001", "message 002");
             logger.info("Messages sent to queue: {}", queueName);
         } catch (Exception e) {
             logger.error("Error sending messages to queue {}: {}", queueName, e.getMessage(), e);
@@ -42,8 +58,8 @@ public class DuplicateDetectionExample {
      * Sends messages with duplication but without message IDs.
      */
     public void sendWithDuplicationWithoutMessageId(String queueName) {
-        try (ServiceBusSenderClient senderClient = createSenderClient(queueName)) {
-            sendMessages(senderClient, "message 001", "message 002");
+        try (SenderLease senderClient = createSenderClient(queueName)) {
+            sendMessages(senderClient.getClient(), "message 001", "message 002");
             logger.info("Messages sent to queue: {}", queueName);
         } catch (Exception e) {
             logger.error("Error sending messages to queue {}: {}", queueName, e.getMessage(), e);
@@ -54,10 +70,10 @@ public class DuplicateDetectionExample {
      * Sends messages with duplication and identical message IDs.
      */
     public void sendWithDuplicationWithMessageId(String queueName) {
-        try (ServiceBusSenderClient senderClient = createSenderClient(queueName)) {
+        try (SenderLease senderClient = createSenderClient(queueName)) {
             String messageId = UUID.randomUUID().toString();
             logger.info("Using messageId: {}", messageId);
-            sendMessagesWithId(senderClient, messageId, "message 001", "message 002");
+            sendMessagesWithId(senderClient.getClient(), messageId, "message 001", "message 002");
             logger.info("Messages sent to queue: {}", queueName);
         } catch (Exception e) {
             logger.error("Error sending messages to queue {}: {}", queueName, e.getMessage(), e);
@@ -65,17 +81,61 @@ public class DuplicateDetectionExample {
     }
 
     /**
-     * Creates a Service Bus sender client for the specified queue.
+     * Sends the same orders twice, as a retry after an unacknowledged send would. Each message gets an ID derived from
+     * its body and order number, so the broker drops the second copy without the sender tracking anything.
+     */
+    public void sendWithContentMessageId(String queueName) {
+        try (SenderLease senderClient = createSenderClient(queueName)) {
+            for (int attempt = 1; attempt <= 2; attempt++) {
+                List<ServiceBusMessage> messages = CONTENT_IDS.applyAll(List.of(
+                        createOrderMessage("order-001", "message 001"),
+                        createOrderMessage("order-002", "message 002")));
+                senderClient.sendMessages(messages);
+                logger.info("Attempt {} sent message IDs {} and {} to queue: {}", attempt,
+                        messages.get(0).getMessageId(), messages.get(1).getMessageId(), queueName);
+            }
+        } catch (Exception e) {
+            logger.error("Error sending messages to queue {}: {}", queueName, e.getMessage(), e);
+        }
+    }
+
+    private ServiceBusMessage createOrderMessage(String orderId, String body) {
+        ServiceBusMessage message = new ServiceBusMessage(body);
+        message.getApplicationProperties().put("orderId", orderId);
+        return message;
+    }
+
+    /**
+     * Receives from a queue for ten seconds, skipping messages whose ID was already processed. This catches the
+     * redeliveries that follow a lost lock, which the broker's duplicate detection does not see.
+     */
+    public void receiveSkippingDuplicates(String queueName) throws InterruptedException {
+        IdempotentHandler<ServiceBusReceivedMessage> handler = new IdempotentHandler<>(PROCESSED_IDS,
+                ServiceBusReceivedMessage::getMessageId, message -> {
+            logger.info("Processing message {} from queue {}: {}", message.getMessageId(), queueName,
+                    message.getBody());
+            return Disposition.COMPLETE;
+        });
+        try (ConsumerEngine<ServiceBusReceivedMessage> engine = new ConsumerEngine<>(queueName,
+                () -> new ServiceBusMessageSource(ServiceBusClientFactory.forConnectionString(CONNECTION_STRING)
+                        .receiver()
+                        .queueName(queueName)
+                        .buildClient()), handler, new ConsumerOptions())) {
+            engine.start();
+            TimeUnit.SECONDS.sleep(10);
+        }
+        logger.info("Skipped {} duplicate messages on queue {}", handler.getSkippedCount(), queueName);
+    }
+
+    /**
+     * Leases the shared Service Bus sender client for the specified queue.
      *
      * @param queueName the name of the queue
-     * @return the Service Bus sender client
+     * @return the lease on the Service Bus sender client
      */
-    private ServiceBusSenderClient createSenderClient(String queueName) {
-        return new ServiceBusClientBuilder()
-                .connectionString(CONNECTION_STRING)
-                .sender()
-                .queueName(queueName)
-                .buildClient();
+    private SenderLease createSenderClient(String queueName) {
+        return ServiceBusClientFactory.forConnectionString(CONNECTION_STRING)
+                .leaseQueueSender(queueName);
     }
 
     /**
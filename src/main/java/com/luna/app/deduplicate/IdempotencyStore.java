@@ -0,0 +1,310 @@
+package com.luna.app.deduplicate;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * Bounded, time-windowed set of processed message IDs, used by consumers to skip redeliveries the broker's duplicate
+ * detection does not catch (for example after a lock is lost mid-handler).
+ * <p>
+ * IDs are reduced to 64-bit fingerprints and stored in primitive open-addressing tables, so memory is fixed at
+ * construction and adding an ID allocates nothing. Each shard keeps a ring of generations; a generation covers a slice
+ * of the window and, once the window has moved past it, its arrays are cleared and reused for new IDs. Every
+ * generation has a blocked Bloom filter in front of its exact table, so an ID that has not been seen, the common case,
+ * is usually rejected after one cache line instead of a probe sequence per generation.
+ * <p>
+ * IDs are remembered for at least the window, as long as no more than {@code capacity} IDs arrive per window. Beyond
+ * that a generation fills up early and is rotated out sooner, which shortens the effective window; see
+ * {@link #getEarlyRotationCount()}. Two distinct IDs share a fingerprint with probability about
+ * {@code n^2 / 2^65}, roughly one in 300,000 for ten million IDs, in which case the later one is reported as seen.
+ */
+public class IdempotencyStore {
+
+    private static final int GENERATIONS = 4;
+    private static final double MAX_LOAD = 0.7;
+    private static final int BLOOM_BITS_PER_ID = 10;
+    private static final int BLOOM_HASHES = 4;
+    // 512-bit blocks: one cache line per lookup
+    private static final int BLOOM_BLOCK_LONGS = 8;
+    private static final int MAX_SHARDS = 64;
+    private static final double SHARD_HEADROOM = 1.1;
+
+    private final Shard[] shards;
+    private final long sliceNanos;
+    private final LongSupplier clock;
+    private final LongAdder earlyRotations = new LongAdder();
+
+    /**
+     * @param capacity the number of IDs to remember per window
+     * @param window   how long an ID is remembered
+     */
+    public IdempotencyStore(int capacity, Duration window) {
+        this(capacity, window, Math.min(MAX_SHARDS,
+                Integer.highestOneBit(Runtime.getRuntime().availableProcessors() * 4)), System::nanoTime);
+    }
+
+    IdempotencyStore(int capacity, Duration window, int shardCount, LongSupplier clock) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("capacity must be positive but was " + capacity);
+        }
+        if (window == null || window.isNegative() || window.isZero()) {
+            throw new IllegalArgumentException("window must be positive");
+        }
+        if (Integer.bitCount(shardCount) != 1 || shardCount > MAX_SHARDS) {
+            throw new IllegalArgumentException("shardCount must be a power of two up to " + MAX_SHARDS + " but was "
+                    + shardCount);
+        }
+        // the current, partly filled generation plus GENERATIONS - 1 full ones always cover the window
+        this.sliceNanos = window.toNanos() / (GENERATIONS - 1);
+        this.clock = clock;
+        // IDs do not spread perfectly over shards and slices, so leave some headroom before rotating early
+        int perGeneration = (int) Math.ceil((double) capacity / (GENERATIONS - 1) / shardCount * SHARD_HEADROOM) + 16;
+        long now = clock.getAsLong();
+        this.shards = new Shard[shardCount];
+        for (int i = 0; i < shardCount; i++) {
+            shards[i] = new Shard(perGeneration, now);
+        }
+    }
+
+    /**
+     * Records a message ID.
+     *
+     * @param messageId the message ID
+     * @return {@code true} if the ID was not seen within the window, i.e. the message should be processed
+     */
+    public boolean markIfAbsent(String messageId) {
+        return markIfAbsent(fingerprint(messageId));
+    }
+
+    /**
+     * @param messageId the message ID
+     * @return whether the ID was seen within the window
+     */
+    public boolean contains(String messageId) {
+        return contains(fingerprint(messageId));
+    }
+
+    public boolean markIfAbsent(long fingerprint) {
+        long key = fingerprint == 0 ? 1 : fingerprint;
+        return shard(key).markIfAbsent(key, clock.getAsLong());
+    }
+
+    public boolean contains(long fingerprint) {
+        long key = fingerprint == 0 ? 1 : fingerprint;
+        return shard(key).contains(key, clock.getAsLong());
+    }
+
+    /**
+     * @return the number of IDs currently remembered
+     */
+    public long size() {
+        long size = 0;
+        for (Shard shard : shards) {
+            size += shard.size();
+        }
+        return size;
+    }
+
+    /**
+     * @return the heap used by the tables and filters, fixed at construction
+     */
+    public long getMemoryBytes() {
+        long bytes = 0;
+        for (Shard shard : shards) {
+            bytes += shard.memoryBytes();
+        }
+        return bytes;
+    }
+
+    /**
+     * @return how often a generation was retired because it filled up before its time slice ended
+     */
+    public long getEarlyRotationCount() {
+        return earlyRotations.sum();
+    }
+
+    // Fingerprint bits: 58-63 select the shard, 26-57 the Bloom block, 0-35 the Bloom bits and 0-31 the table slot
+    private Shard shard(long key) {
+        return shards[(int) (key >>> 58) & (shards.length - 1)];
+    }
+
+    /**
+     * Allocation-free 64-bit hash of the UTF-16 code units of an ID: FNV-1a followed by the murmur3 finalizer to spread
+     * the bits used for shard, table and Bloom filter selection.
+     *
+     * @param messageId the message ID
+     * @return the fingerprint
+     */
+    static long fingerprint(String messageId) {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < messageId.length(); i++) {
+            hash ^= messageId.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+
+    private final class Shard {
+
+        private final Generation[] generations = new Generation[GENERATIONS];
+        private int current;
+        private long currentStartNanos;
+
+        Shard(int perGeneration, long nowNanos) {
+            for (int i = 0; i < GENERATIONS; i++) {
+                generations[i] = new Generation(perGeneration);
+            }
+            currentStartNanos = nowNanos;
+        }
+
+        synchronized boolean markIfAbsent(long key, long nowNanos) {
+            advance(nowNanos);
+            if (find(key)) {
+                return false;
+            }
+            Generation generation = generations[current];
+            if (generation.isFull()) {
+                earlyRotations.increment();
+                rotate();
+                currentStartNanos = nowNanos;
+                generation = generations[current];
+            }
+            generation.add(key);
+            return true;
+        }
+
+        synchronized boolean contains(long key, long nowNanos) {
+            advance(nowNanos);
+            return find(key);
+        }
+
+        synchronized long size() {
+            long size = 0;
+            for (Generation generation : generations) {
+                size += generation.size;
+            }
+            return size;
+        }
+
+        long memoryBytes() {
+            long bytes = 0;
+            for (Generation generation : generations) {
+                bytes += (generation.table.length + generation.bloom.length) * 8L;
+            }
+            return bytes;
+        }
+
+        private boolean find(long key) {
+            for (int i = 0; i < GENERATIONS; i++) {
+                Generation generation = generations[(current - i + GENERATIONS) % GENERATIONS];
+                if (generation.size > 0 && generation.mightContain(key) && generation.contains(key)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private void advance(long nowNanos) {
+            long elapsed = nowNanos - currentStartNanos;
+            if (elapsed < sliceNanos) {
+                return;
+            }
+            long slices = elapsed / sliceNanos;
+            for (long i = 0; i < Math.min(slices, GENERATIONS); i++) {
+                rotate();
+            }
+            currentStartNanos += slices * sliceNanos;
+        }
+
+        private void rotate() {
+            current = (current + 1) % GENERATIONS;
+            generations[current].clear();
+        }
+    }
+
+    private static final class Generation {
+
+        private final long[] table;
+        private final long[] bloom;
+        private final int maxSize;
+        private int size;
+
+        Generation(int capacity) {
+            this.maxSize = capacity;
+            this.table = new long[Math.max(2, (int) Math.ceil(capacity / MAX_LOAD))];
+            long bloomBits = Math.max(512L, (long) capacity * BLOOM_BITS_PER_ID);
+            int blocks = (int) ((bloomBits + 511) / 512);
+            this.bloom = new long[blocks * BLOOM_BLOCK_LONGS];
+        }
+
+        boolean isFull() {
+            return size >= maxSize;
+        }
+
+        void add(long key) {
+            int slot = slot(key);
+            while (table[slot] != 0) {
+                slot = slot + 1 == table.length ? 0 : slot + 1;
+            }
+            table[slot] = key;
+            size++;
+            int block = block(key);
+            long bits = key;
+            for (int i = 0; i < BLOOM_HASHES; i++) {
+                int bit = (int) (bits & 511);
+                bloom[block + (bit >>> 6)] |= 1L << bit;
+                bits >>>= 9;
+            }
+        }
+
+        boolean mightContain(long key) {
+            int block = block(key);
+            long bits = key;
+            for (int i = 0; i < BLOOM_HASHES; i++) {
+                int bit = (int) (bits & 511);
+                if ((bloom[block + (bit >>> 6)] & (1L << bit)) == 0) {
+                    return false;
+                }
+                bits >>>= 9;
+            }
+            return true;
+        }
+
+        boolean contains(long key) {
+            int slot = slot(key);
+            long value;
+            while ((value = table[slot]) != 0) {
+                if (value == key) {
+                    return true;
+                }
+                slot = slot + 1 == table.length ? 0 : slot + 1;
+            }
+            return false;
+        }
+
+        void clear() {
+            if (size > 0) {
+                Arrays.fill(table, 0L);
+                Arrays.fill(bloom, 0L);
+                size = 0;
+            }
+        }
+
+        // Lemire's multiply-shift range reduction: maps 32 hash bits onto [0, n) without a division
+        private int slot(long key) {
+            return (int) (((key & 0xFFFFFFFFL) * table.length) >>> 32);
+        }
+
+        private int block(long key) {
+            int blocks = bloom.length / BLOOM_BLOCK_LONGS;
+            return (int) ((((key >>> 26) & 0xFFFFFFFFL) * blocks) >>> 32) * BLOOM_BLOCK_LONGS;
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package com.luna.app.deduplicate;
+
+import com.luna.app.queue.Disposition;
+import com.luna.app.queue.MessageHandler;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * Wraps a {@link MessageHandler} so that messages whose ID was already processed within the store's window are
+ * completed without running the handler again.
+ * <p>
+ * An ID is recorded only after the handler returns {@link Disposition#COMPLETE}, so abandoned or failed messages are
+ * retried normally. Two deliveries of the same ID handled at exactly the same time can both run; the store catches
+ * redeliveries, not concurrent copies.
+ *
+ * @param <M> the message type
+ */
+public class IdempotentHandler<M> implements MessageHandler<M> {
+
+    private static final Logger logger = LoggerFactory.getLogger(IdempotentHandler.class);
+
+    private final IdempotencyStore store;
+    private final Function<M, String> messageId;
+    private final MessageHandler<M> delegate;
+    private final LongAdder skipped = new LongAdder();
+
+    /**
+     * @param store     the processed-ID store, usually shared by all receivers of an entity
+     * @param messageId extracts the ID used for duplicate detection
+     * @param delegate  the handler doing the actual work
+     */
+    public IdempotentHandler(IdempotencyStore store, Function<M, String> messageId, MessageHandler<M> delegate) {
+        this.store = store;
+        this.messageId = messageId;
+        this.delegate = delegate;
+    }
+
+    @Override
+    public Disposition handle(M message) throws Exception {
+        String id = messageId.apply(message);
+        if (id == null) {
+            return delegate.handle(message);
+        }
+        if (store.contains(id)) {
+            skipped.increment();
+            logger.debug("Skipping duplicate message {}", id);
+            return Disposition.COMPLETE;
+        }
+        Disposition disposition = delegate.handle(message);
+        if (disposition == Disposition.COMPLETE) {
+            store.markIfAbsent(id);
+        }
+        return disposition;
+    }
+
+    public long getSkippedCount() {
+        return skipped.sum();
+    }
+}
@@ -1,7 +1,15 @@
 package com.luna.app.dlq;
 
-import com.azure.messaging.servicebus.ServiceBusClientBuilder;
+import com.azure.messaging.servicebus.ServiceBusReceivedMessage;
 import com.azure.messaging.servicebus.ServiceBusReceiverClient;
+import com.luna.app.client.ServiceBusClientFactory;
+import com.luna.app.logging.MessageEvent;
+import com.luna.app.logging.MessageLog;
+import com.luna.app.logging.MessageLogOptions;
+import com.luna.app.logging.MessageLogger;
+import com.luna.app.queue.Disposition;
+import com.luna.app.queue.ServiceBusMessageSource;
+import com.luna.app.queue.SettlementPipeline;
 
 import java.time.Duration;
 import java.time.Instant;
@@ -14,6 +22,11 @@ public class DLQMaxDeliveryCount {
     private static final String QUEUE_NAME = System.getenv("AZURE_SERVICE_BUS_QUEUE_NAME");
     // Set the duration for receiving messages (60 seconds)
     private static final Duration RECEIVE_DURATION = Duration.ofSeconds(60);
+    private static final int MAX_BATCH_SIZE = 100;
+    private static final Duration MAX_WAIT_TIME = Duration.ofSeconds(1);
+    private static final int MAX_OUTSTANDING_SETTLEMENTS = 100;
+    private static final MessageLog MESSAGE_LOG = new MessageLog(new MessageLogOptions(), System.out::print);
+    private static final MessageLogger MESSAGES = MESSAGE_LOG.forEntity(QUEUE_NAME);
 
     public static void main(String[] args) {
         DLQMaxDeliveryCount receiver = new DLQMaxDeliveryCount();
@@ -24,42 +37,46 @@ public class DLQMaxDeliveryCount {
      * Receives messages from the Azure Service Bus queue for a specified duration and abandons them.
      */
     public void receiveMessages() {
-        try (ServiceBusReceiverClient receiverClient = createReceiverClient()) {
+        ServiceBusMessageSource source = new ServiceBusMessageSource(createReceiverClient());
+        try (SettlementPipeline<ServiceBusReceivedMessage> settlements = new SettlementPipeline<>(QUEUE_NAME,
+                MAX_OUTSTANDING_SETTLEMENTS)) {
             Instant startTime = Instant.now();
-            System.out.println("Receiving messages from queue: {}" + QUEUE_NAME);
+            System.out.println("Receiving messages from queue: " + QUEUE_NAME);
 
             while (Instant.now().isBefore(startTime.plus(RECEIVE_DURATION))) {
-                receiverClient.receiveMessages(1).forEach(message -> {
-                    System.out.println("Message received: {}" + message.getBody());
-                    abandonMessage(receiverClient, message);
-                });
-                Thread.sleep(1000);  // Poll every second
+                // Long-polls for up to a second instead of sleeping between single-message receives
+                for (ServiceBusReceivedMessage message : source.receive(MAX_BATCH_SIZE, MAX_WAIT_TIME)) {
+                    MESSAGES.log(MessageEvent.RECEIVED, message);
+                    abandonMessage(settlements, source, message);
+                }
             }
 
-        } catch (InterruptedException e) {
-            Thread.currentThread().interrupt();
-            System.out.println("Message receiving interrupted: {}" + e.getMessage());
         } catch (Exception e) {
-            System.out.println("Error occurred while receiving messages: {}" + e.getMessage());
+            System.out.println("Error occurred while receiving messages: " + e.getMessage());
+        } finally {
+            source.close();
+            MESSAGE_LOG.close();
         }
     }
 
 
     private ServiceBusReceiverClient createReceiverClient() {
-        return new ServiceBusClientBuilder()
-                .connectionString(CONNECTION_STRING)
+        return ServiceBusClientFactory.forConnectionString(CONNECTION_STRING)
                 .receiver()
                 .queueName(QUEUE_NAME)
                 .buildClient();
     }
 
 
-    private void abandonMessage(ServiceBusReceiverClient receiverClient, com.azure.messaging.servicebus.ServiceBusReceivedMessage message) {
-        try {
-            receiverClient.abandon(message);
-            System.out.println("Message abandoned: {}" + message.getBody());
-        } catch (Exception e) {
-            System.out.println("Error abandoning message: {}" + e.getMessage());
-        }
+    private void abandonMessage(SettlementPipeline<ServiceBusReceivedMessage> settlements,
+                                ServiceBusMessageSource source, ServiceBusReceivedMessage message) {
+        // Abandons are pipelined so the next batch is received without waiting for each round trip
+        settlements.submit(source, message, Disposition.ABANDON).whenComplete((ignored, e) -> {
+            if (e == null) {
+                MESSAGES.log(MessageEvent.ABANDONED, message);
+            } else {
+                System.out.println("Error abandoning message: " + e.getMessage());
+            }
+        });
     }
 }
@@ -0,0 +1,52 @@
+package com.luna.app.dlq;
+
+import com.azure.messaging.servicebus.ServiceBusMessage;
+import com.azure.messaging.servicebus.ServiceBusReceivedMessage;
+
+/**
+ * Reads what a {@link DlqDrainer} needs from a dead-lettered message of type {@code M}.
+ *
+ * @param <M> the received message type
+ */
+public interface DeadLetterAdapter<M> {
+
+    /**
+     * @param message a dead-lettered message
+     * @return the dead-letter reason, or {@code null} if none was given
+     */
+    String reasonOf(M message);
+
+    /**
+     * @param message a dead-lettered message
+     * @return a number identifying the message within its entity
+     */
+    long sequenceNumberOf(M message);
+
+    /**
+     * @param message a dead-lettered message
+     * @return a new message with the same body and properties, ready to be sent to the main entity
+     */
+    ServiceBusMessage toResubmit(M message);
+
+    /**
+     * @return the adapter for messages received with the Service Bus SDK
+     */
+    static DeadLetterAdapter<ServiceBusReceivedMessage> serviceBus() {
+        return new DeadLetterAdapter<>() {
+            @Override
+            public String reasonOf(ServiceBusReceivedMessage message) {
+                return message.getDeadLetterReason();
+            }
+
+            @Override
+            public long sequenceNumberOf(ServiceBusReceivedMessage message) {
+                return message.getSequenceNumber();
+            }
+
+            @Override
+            public ServiceBusMessage toResubmit(ServiceBusReceivedMessage message) {
+                return new ServiceBusMessage(message);
+            }
+        };
+    }
+}
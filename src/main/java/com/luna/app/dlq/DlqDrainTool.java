@@ -0,0 +1,50 @@
+package com.luna.app.dlq;
+
+import com.azure.messaging.servicebus.ServiceBusReceivedMessage;
+import com.azure.messaging.servicebus.models.SubQueue;
+import com.luna.app.client.ServiceBusClientFactory;
+import com.luna.app.queue.ServiceBusMessageSink;
+import com.luna.app.queue.ServiceBusMessageSource;
+
+import java.time.Duration;
+
+/**
+ * Replays the dead-letter queue of a queue back into the queue.
+ * <p>
+ * Usage: {@code DlqDrainTool [queueName] [drainers]}. Messages that exceeded the max delivery count are resubmitted,
+ * expired messages are discarded, and everything else is resubmitted up to three times. Progress is printed every five
+ * seconds.
+ */
+public class DlqDrainTool {
+
+    private static final String CONNECTION_STRING = System.getenv("AZURE_SERVICE_BUS_CONNECTION_STRING");
+    private static final String QUEUE_NAME = System.getenv("AZURE_SERVICE_BUS_QUEUE_NAME");
+    private static final int RECEIVE_BATCH_SIZE = 256;
+
+    public static void main(String[] args) throws InterruptedException {
+        String queueName = args.length > 0 ? args[0] : QUEUE_NAME;
+        int drainers = args.length > 1 ? Integer.parseInt(args[1]) : 8;
+        ServiceBusClientFactory factory = ServiceBusClientFactory.forConnectionString(CONNECTION_STRING);
+
+        DrainOptions options = new DrainOptions()
+                .setDrainerCount(drainers)
+                .setReceiveBatchSize(RECEIVE_BATCH_SIZE)
+                .setAction("MaxDeliveryCountExceeded", DrainAction.RESUBMIT)
+                .setAction("TTLExpiredException", DrainAction.DISCARD)
+                .setProgressListener(Duration.ofSeconds(5), report -> System.out.println("Draining: " + report));
+
+        DlqDrainer<ServiceBusReceivedMessage> drainer = new DlqDrainer<>(queueName,
+                () -> new ServiceBusMessageSource(factory.receiver()
+                        .queueName(queueName)
+                        .subQueue(SubQueue.DEAD_LETTER_QUEUE)
+                        .prefetchCount(RECEIVE_BATCH_SIZE * 2)
+                        .buildClient()),
+                () -> new ServiceBusMessageSink(factory.sender().queueName(queueName).buildClient()),
+                DeadLetterAdapter.serviceBus(), options);
+        Runtime.getRuntime().addShutdownHook(new Thread(drainer::close));
+
+        System.out.println("Draining dead-letter queue of " + queueName + " with " + drainers + " drainers");
+        DrainReport report = drainer.drain();
+        System.out.println("Done: " + report);
+    }
+}
@@ -0,0 +1,252 @@
+package com.luna.app.dlq;
+
+import com.azure.messaging.servicebus.ServiceBusMessage;
+import com.luna.app.queue.MessageSink;
+import com.luna.app.queue.MessageSource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Drains a dead-letter queue: receives in large batches, classifies each message by its dead-letter reason, and
+ * resubmits, discards or skips it according to {@link DrainOptions}.
+ * <p>
+ * Several drain loops run in parallel, each with its own receive link on the dead-letter queue and send link on the
+ * main entity. Copies to resubmit are packed into size-bounded batches; the originals are completed only after their
+ * batch has been sent, so a failed send leaves them in the dead-letter queue (at-least-once). Each resubmitted copy
+ * carries a {@value #RESUBMIT_COUNT_PROPERTY} property, and messages over {@link DrainOptions#getMaxResubmits()} are
+ * skipped.
+ * <p>
+ * Skipped messages are abandoned and come straight back; a drain loop remembers them and stops once a number of
+ * consecutive receives bring nothing it has not already seen.
+ *
+ * @param <M> the received message type
+ */
+public class DlqDrainer<M> implements AutoCloseable {
+
+    private static final Logger logger = LoggerFactory.getLogger(DlqDrainer.class);
+
+    /**
+     * Application property counting how often a message has been resubmitted from the dead-letter queue.
+     */
+    public static final String RESUBMIT_COUNT_PROPERTY = "DeadLetterResubmitCount";
+
+    private final String name;
+    private final Supplier<? extends MessageSource<M>> deadLetterSourceFactory;
+    private final Supplier<? extends MessageSink> resubmitSinkFactory;
+    private final DeadLetterAdapter<M> adapter;
+    private final DrainOptions options;
+
+    private final Set<Long> skippedSequenceNumbers = ConcurrentHashMap.newKeySet();
+    private final Map<String, LongAdder> byReason = new ConcurrentHashMap<>();
+    private final LongAdder received = new LongAdder();
+    private final LongAdder resubmitted = new LongAdder();
+    private final LongAdder discarded = new LongAdder();
+    private final LongAdder skipped = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private long startNanos;
+
+    private volatile boolean running;
+
+    /**
+     * @param name                    name used for thread names and logging, usually the entity path
+     * @param deadLetterSourceFactory opens one receive link on the dead-letter queue per drain loop
+     * @param resubmitSinkFactory     opens one send link on the main entity per drain loop
+     * @param adapter                 reads reason, sequence number and resubmit copy from a message
+     * @param options                 parallelism and per-reason policy
+     */
+    public DlqDrainer(String name, Supplier<? extends MessageSource<M>> deadLetterSourceFactory,
+                      Supplier<? extends MessageSink> resubmitSinkFactory, DeadLetterAdapter<M> adapter,
+                      DrainOptions options) {
+        this.name = name;
+        this.deadLetterSourceFactory = deadLetterSourceFactory;
+        this.resubmitSinkFactory = resubmitSinkFactory;
+        this.adapter = adapter;
+        this.options = options;
+    }
+
+    /**
+     * Drains until the dead-letter queue has nothing left to act on, {@link DrainOptions#getMaxMessages()} is
+     * reached, or {@link #close()} is called.
+     *
+     * @return the final report
+     * @throws InterruptedException if interrupted while waiting for the drain loops
+     */
+    public DrainReport drain() throws InterruptedException {
+        running = true;
+        startNanos = System.nanoTime();
+        ScheduledExecutorService reporter = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, name + "-drain-progress");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long intervalNanos = options.getProgressInterval().toNanos();
+        reporter.scheduleAtFixedRate(() -> options.getProgressListener().accept(getReport()), intervalNanos,
+                intervalNanos, TimeUnit.NANOSECONDS);
+
+        List<Thread> drainers = new ArrayList<>();
+        for (int i = 0; i < options.getDrainerCount(); i++) {
+            Thread drainer = new Thread(this::drainLoop, name + "-drainer-" + i);
+            drainers.add(drainer);
+            drainer.start();
+        }
+        try {
+            for (Thread drainer : drainers) {
+                drainer.join();
+            }
+        } finally {
+            running = false;
+            reporter.shutdownNow();
+        }
+        DrainReport report = getReport();
+        logger.info("Drained dead-letter queue of {}: {}", name, report);
+        return report;
+    }
+
+    private void drainLoop() {
+        try (MessageSource<M> source = deadLetterSourceFactory.get();
+             MessageSink sink = resubmitSinkFactory.get()) {
+            int emptyReceives = 0;
+            while (running && emptyReceives < options.getEmptyReceivesBeforeStop()) {
+                long remaining = options.getMaxMessages() - received.sum();
+                if (remaining <= 0) {
+                    break;
+                }
+                List<M> messages;
+                try {
+                    messages = source.receive((int) Math.min(options.getReceiveBatchSize(), remaining),
+                            options.getMaxWaitTime());
+                } catch (RuntimeException e) {
+                    logger.warn("Receive from dead-letter queue of {} failed: {}", name, e.getMessage());
+                    emptyReceives++;
+                    continue;
+                }
+                emptyReceives = process(source, sink, messages) ? 0 : emptyReceives + 1;
+            }
+        } catch (Exception e) {
+            logger.error("Drain loop of {} failed: {}", name, e.getMessage(), e);
+        }
+    }
+
+    /**
+     * @return whether the batch contained a message not seen before in this drain
+     */
+    private boolean process(MessageSource<M> source, MessageSink sink, List<M> messages) {
+        boolean progress = false;
+        List<M> originals = new ArrayList<>(messages.size());
+        List<ServiceBusMessage> copies = new ArrayList<>(messages.size());
+        for (M message : messages) {
+            if (skippedSequenceNumbers.contains(adapter.sequenceNumberOf(message))) {
+                settle(source, message, DrainAction.SKIP);
+                continue;
+            }
+            progress = true;
+            received.increment();
+            String reason = adapter.reasonOf(message);
+            reason = reason == null || reason.isEmpty() ? DrainOptions.NO_REASON : reason;
+            byReason.computeIfAbsent(reason, r -> new LongAdder()).increment();
+
+            DrainAction action = options.getAction(reason);
+            if (action == DrainAction.RESUBMIT) {
+                ServiceBusMessage copy = adapter.toResubmit(message);
+                Object previous = copy.getApplicationProperties().get(RESUBMIT_COUNT_PROPERTY);
+                int count = previous instanceof Number number ? number.intValue() : 0;
+                if (count < options.getMaxResubmits()) {
+                    copy.getApplicationProperties().put(RESUBMIT_COUNT_PROPERTY, count + 1);
+                    originals.add(message);
+                    copies.add(copy);
+                    continue;
+                }
+                action = DrainAction.SKIP;
+            }
+            if (action == DrainAction.SKIP) {
+                skippedSequenceNumbers.add(adapter.sequenceNumberOf(message));
+                skipped.increment();
+            } else {
+                discarded.increment();
+            }
+            settle(source, message, action);
+        }
+        resubmit(source, sink, originals, copies);
+        return progress;
+    }
+
+    private void resubmit(MessageSource<M> source, MessageSink sink, List<M> originals,
+                          List<ServiceBusMessage> copies) {
+        int batchStart = 0;
+        while (batchStart < copies.size()) {
+            MessageSink.Batch batch = sink.createBatch();
+            int batchEnd = batchStart;
+            while (batchEnd < copies.size() && batch.tryAddMessage(copies.get(batchEnd))) {
+                batchEnd++;
+            }
+            if (batchEnd == batchStart) {
+                // too large for a batch of its own; leave it for manual handling
+                logger.warn("Dead-lettered message too large to resubmit on {}", name);
+                failed.increment();
+                skippedSequenceNumbers.add(adapter.sequenceNumberOf(originals.get(batchStart)));
+                settle(source, originals.get(batchStart), DrainAction.SKIP);
+                batchStart++;
+                continue;
+            }
+            List<M> sent = originals.subList(batchStart, batchEnd);
+            try {
+                sink.send(batch);
+                for (M message : sent) {
+                    settle(source, message, DrainAction.DISCARD);
+                }
+                resubmitted.add(sent.size());
+            } catch (RuntimeException e) {
+                logger.warn("Resubmitting {} messages to {} failed: {}", sent.size(), name, e.getMessage());
+                failed.add(sent.size());
+                for (M message : sent) {
+                    settle(source, message, DrainAction.SKIP);
+                }
+            }
+            batchStart = batchEnd;
+        }
+    }
+
+    private void settle(MessageSource<M> source, M message, DrainAction action) {
+        try {
+            if (action == DrainAction.SKIP) {
+                source.abandon(message);
+            } else {
+                source.complete(message);
+            }
+        } catch (RuntimeException e) {
+            logger.warn("Failed to settle dead-lettered message on {}: {}", name, e.getMessage());
+        }
+    }
+
+    /**
+     * @return a snapshot of the drain's progress
+     */
+    public DrainReport getReport() {
+        Map<String, Long> reasons = new TreeMap<>();
+        byReason.forEach((reason, count) -> reasons.put(reason, count.sum()));
+        Duration elapsed = startNanos == 0 ? Duration.ZERO : Duration.ofNanos(System.nanoTime() - startNanos);
+        return new DrainReport(received.sum(), resubmitted.sum(), discarded.sum(), skipped.sum(), failed.sum(),
+                reasons, elapsed);
+    }
+
+    /**
+     * Stops the drain after the batches being processed.
+     */
+    @Override
+    public void close() {
+        running = false;
+    }
+}
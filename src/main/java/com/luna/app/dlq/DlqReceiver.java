@@ -1,10 +1,23 @@
 package com.luna.app.dlq;
 
-import com.azure.core.util.IterableStream;
-import com.azure.messaging.servicebus.ServiceBusClientBuilder;
 import com.azure.messaging.servicebus.ServiceBusReceivedMessage;
 import com.azure.messaging.servicebus.ServiceBusReceiverClient;
+import com.luna.app.client.ServiceBusClientFactory;
+import com.luna.app.logging.MessageEvent;
+import com.luna.app.logging.MessageLog;
+import com.luna.app.logging.MessageLogOptions;
+import com.luna.app.logging.MessageLogger;
+import com.luna.app.metrics.MetricsRegistry;
+import com.luna.app.metrics.MetricsReporter;
+import com.luna.app.queue.ConsumerEngine;
+import com.luna.app.queue.ConsumerOptions;
+import com.luna.app.queue.Disposition;
+import com.luna.app.queue.ExecutionMode;
+import com.luna.app.queue.LockRenewer;
+import com.luna.app.queue.ServiceBusMessageSource;
+import com.luna.app.queue.VirtualThreads;
 
+import java.time.Duration;
 import java.util.List;
 
 public class DlqReceiver {
@@ -13,6 +26,14 @@ public class DlqReceiver {
     private static final String CONNECTION_STRING = System.getenv("AZURE_SERVICE_BUS_CONNECTION_STRING");
     private static final String QUEUE_NAME = System.getenv("AZURE_SERVICE_BUS_QUEUE_NAME");
     private static final List<String> MOONS = List.of("Io", "Europa", "Ganymede", "Callisto", "Himalia");
+    private static final int MAX_IN_FLIGHT = VirtualThreads.isAvailable() ? 1000 : 64;
+    private static final int PREFETCH_COUNT = 50;
+    private static final int MAX_OUTSTANDING_SETTLEMENTS = 256;
+    private static final LockRenewer LOCK_RENEWER = new LockRenewer(Duration.ofSeconds(10), Duration.ofMinutes(5));
+    private static final Duration METRICS_INTERVAL = Duration.ofSeconds(30);
+    private static final MessageLog MESSAGE_LOG = new MessageLog(new MessageLogOptions().setBodyPreviewBytes(32),
+            System.out::print);
+    private static final MessageLogger MESSAGES = MESSAGE_LOG.forEntity(QUEUE_NAME);
 
     public static void main(String[] args) {
         DlqReceiver receiver = new DlqReceiver();
@@ -21,45 +42,54 @@ public class DlqReceiver {
 
 
     public void receiveMessages() {
-        try (ServiceBusReceiverClient receiverClient = createReceiverClient()) {
-            System.out.println("Receiving messages from queue: {}" + QUEUE_NAME);
-
-            while (true) {
-                IterableStream<ServiceBusReceivedMessage> messages = receiverClient.receiveMessages(1);
-                messages.forEach(message -> {
-                    processMessage(receiverClient, message);
-                });
-                Thread.sleep(1000);
-            }
+        ConsumerOptions options = new ConsumerOptions()
+                .setExecutionMode(ExecutionMode.VIRTUAL_THREAD_PER_MESSAGE)
+                .setMaxInFlight(MAX_IN_FLIGHT)
+                .setMaxOutstandingSettlements(MAX_OUTSTANDING_SETTLEMENTS)
+                .setLockRenewer(LOCK_RENEWER)
+                .setMetricsRegistry(MetricsRegistry.global());
+        ConsumerEngine<ServiceBusReceivedMessage> engine = new ConsumerEngine<>(QUEUE_NAME,
+                () -> new ServiceBusMessageSource(createReceiverClient()), this::processMessage, options);
+        MetricsReporter reporter = new MetricsReporter(MetricsRegistry.global(), METRICS_INTERVAL, System.out::print);
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            engine.close();
+            reporter.close();
+        }));
 
+        try {
+            System.out.println("Receiving messages from queue: " + QUEUE_NAME);
+            engine.start();
+            engine.awaitTermination();
         } catch (InterruptedException e) {
             Thread.currentThread().interrupt();
-            System.err.println("Polling interrupted: {}" + e.getMessage());
+            System.err.println("Receiving interrupted: " + e.getMessage());
+            engine.close();
         } catch (Exception e) {
-            System.err.println("Error receiving messages: {}" + e.getMessage());
+            System.err.println("Error receiving messages: " + e.getMessage());
+            engine.close();
         }
     }
 
 
     private ServiceBusReceiverClient createReceiverClient() {
-        return new ServiceBusClientBuilder()
-                .connectionString(CONNECTION_STRING)
+        return ServiceBusClientFactory.forConnectionString(CONNECTION_STRING)
                 .receiver()
                 .queueName(QUEUE_NAME)
+                .prefetchCount(PREFETCH_COUNT)
                 .buildClient();
     }
 
 
-    private void processMessage(ServiceBusReceiverClient receiverClient, ServiceBusReceivedMessage message) {
+    private Disposition processMessage(ServiceBusReceivedMessage message) {
         String messageBody = message.getBody().toString();
 
         if (MOONS.contains(messageBody)) {
-            System.out.println("Valid message: {}. Completing the message." + messageBody);
-            receiverClient.complete(message);
+            MESSAGES.log(MessageEvent.COMPLETED, message);
+            return Disposition.COMPLETE;
         } else {
-            System.out.println("Invalid message: {}. Dead-lettering the message." + messageBody);
+            MESSAGES.log(MessageEvent.DEAD_LETTERED, message);
             //main story happens here
-            receiverClient.deadLetter(message);
+            return Disposition.DEAD_LETTER;
         }
     }
 }
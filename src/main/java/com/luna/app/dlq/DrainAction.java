@@ -0,0 +1,19 @@
+package com.luna.app.dlq;
+
+/**
+ * What a {@link DlqDrainer} does with a dead-lettered message, chosen per dead-letter reason.
+ */
+public enum DrainAction {
+    /**
+     * Send a copy to the main entity and remove the message from the dead-letter queue.
+     */
+    RESUBMIT,
+    /**
+     * Remove the message from the dead-letter queue without resubmitting it.
+     */
+    DISCARD,
+    /**
+     * Leave the message in the dead-letter queue.
+     */
+    SKIP
+}
@@ -0,0 +1,183 @@
+package com.luna.app.dlq;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Settings and per-reason policy for a {@link DlqDrainer}.
+ */
+public class DrainOptions {
+
+    /**
+     * Reason used to classify messages dead-lettered without one.
+     */
+    public static final String NO_REASON = "<none>";
+
+    private int drainerCount = 4;
+    private int receiveBatchSize = 256;
+    private Duration maxWaitTime = Duration.ofSeconds(5);
+    private int emptyReceivesBeforeStop = 2;
+    private long maxMessages = Long.MAX_VALUE;
+    private int maxResubmits = 3;
+    private DrainAction defaultAction = DrainAction.RESUBMIT;
+    private final Map<String, DrainAction> actions = new HashMap<>();
+    private Duration progressInterval = Duration.ofSeconds(5);
+    private Consumer<DrainReport> progressListener = report -> {
+    };
+
+    public int getDrainerCount() {
+        return drainerCount;
+    }
+
+    /**
+     * Sets the number of parallel drain loops, each with its own receive and send link.
+     *
+     * @param drainerCount the number of drain loops
+     * @return the updated options
+     */
+    public DrainOptions setDrainerCount(int drainerCount) {
+        this.drainerCount = requirePositive(drainerCount, "drainerCount");
+        return this;
+    }
+
+    public int getReceiveBatchSize() {
+        return receiveBatchSize;
+    }
+
+    /**
+     * Sets how many messages one receive call asks for. Pair it with a receiver prefetch of about twice this value.
+     *
+     * @param receiveBatchSize the receive batch size
+     * @return the updated options
+     */
+    public DrainOptions setReceiveBatchSize(int receiveBatchSize) {
+        this.receiveBatchSize = requirePositive(receiveBatchSize, "receiveBatchSize");
+        return this;
+    }
+
+    public Duration getMaxWaitTime() {
+        return maxWaitTime;
+    }
+
+    public DrainOptions setMaxWaitTime(Duration maxWaitTime) {
+        if (maxWaitTime == null || maxWaitTime.isNegative() || maxWaitTime.isZero()) {
+            throw new IllegalArgumentException("maxWaitTime must be positive");
+        }
+        this.maxWaitTime = maxWaitTime;
+        return this;
+    }
+
+    public int getEmptyReceivesBeforeStop() {
+        return emptyReceivesBeforeStop;
+    }
+
+    /**
+     * Sets how many consecutive receives without new messages a drain loop waits for before it considers the
+     * dead-letter queue drained.
+     *
+     * @param emptyReceivesBeforeStop the number of empty receives
+     * @return the updated options
+     */
+    public DrainOptions setEmptyReceivesBeforeStop(int emptyReceivesBeforeStop) {
+        this.emptyReceivesBeforeStop = requirePositive(emptyReceivesBeforeStop, "emptyReceivesBeforeStop");
+        return this;
+    }
+
+    public long getMaxMessages() {
+        return maxMessages;
+    }
+
+    /**
+     * Caps the number of messages received in one drain, e.g. to replay a sample first.
+     *
+     * @param maxMessages the maximum number of messages to receive
+     * @return the updated options
+     */
+    public DrainOptions setMaxMessages(long maxMessages) {
+        if (maxMessages <= 0) {
+            throw new IllegalArgumentException("maxMessages must be positive but was " + maxMessages);
+        }
+        this.maxMessages = maxMessages;
+        return this;
+    }
+
+    public int getMaxResubmits() {
+        return maxResubmits;
+    }
+
+    /**
+     * Sets how often a message may be resubmitted from the dead-letter queue. Messages that have come back more often
+     * are skipped, so a poison message does not cycle between the entity and its dead-letter queue forever.
+     *
+     * @param maxResubmits the resubmit limit
+     * @return the updated options
+     */
+    public DrainOptions setMaxResubmits(int maxResubmits) {
+        this.maxResubmits = requirePositive(maxResubmits, "maxResubmits");
+        return this;
+    }
+
+    /**
+     * @param reason a dead-letter reason, or {@link #NO_REASON}
+     * @return the action configured for the reason, or the default action
+     */
+    public DrainAction getAction(String reason) {
+        return actions.getOrDefault(reason, defaultAction);
+    }
+
+    /**
+     * Sets the action for messages dead-lettered with the given reason.
+     *
+     * @param reason the dead-letter reason, e.g. {@code MaxDeliveryCountExceeded} or {@code TTLExpiredException}
+     * @param action the action to take
+     * @return the updated options
+     */
+    public DrainOptions setAction(String reason, DrainAction action) {
+        if (reason == null || action == null) {
+            throw new IllegalArgumentException("reason and action must not be null");
+        }
+        actions.put(reason, action);
+        return this;
+    }
+
+    public DrainOptions setDefaultAction(DrainAction defaultAction) {
+        if (defaultAction == null) {
+            throw new IllegalArgumentException("defaultAction must not be null");
+        }
+        this.defaultAction = defaultAction;
+        return this;
+    }
+
+    public Duration getProgressInterval() {
+        return progressInterval;
+    }
+
+    public Consumer<DrainReport> getProgressListener() {
+        return progressListener;
+    }
+
+    /**
+     * Sets a callback receiving a {@link DrainReport} every {@code interval} while the drain runs.
+     *
+     * @param interval         how often to report
+     * @param progressListener the callback
+     * @return the updated options
+     */
+    public DrainOptions setProgressListener(Duration interval, Consumer<DrainReport> progressListener) {
+        if (interval == null || interval.isNegative() || interval.isZero() || progressListener == null) {
+            throw new IllegalArgumentException("interval must be positive and progressListener not null");
+        }
+        this.progressInterval = interval;
+        this.progressListener = progressListener;
+        return this;
+    }
+
+    private static int requirePositive(int value, String name) {
+        if (value <= 0) {
+            throw new IllegalArgumentException(name + " must be positive but was " + value);
+        }
+        return value;
+    }
+}
@@ -0,0 +1,25 @@
+package com.luna.app.dlq;
+
+import java.time.Duration;
+import java.util.Map;
+
+/**
+ * Progress of a {@link DlqDrainer}: totals so far and the number of messages seen per dead-letter reason.
+ */
+public record DrainReport(long received, long resubmitted, long discarded, long skipped, long failed,
+                          Map<String, Long> byReason, Duration elapsed) {
+
+    /**
+     * @return messages taken off the dead-letter queue (resubmitted or discarded) per second
+     */
+    public double rate() {
+        long millis = Math.max(1, elapsed.toMillis());
+        return (resubmitted + discarded) * 1000.0 / millis;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("received=%d resubmitted=%d discarded=%d skipped=%d failed=%d rate=%.0f msg/s "
+                + "reasons=%s", received, resubmitted, discarded, skipped, failed, rate(), byReason);
+    }
+}
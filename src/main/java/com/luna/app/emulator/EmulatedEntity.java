@@ -0,0 +1,452 @@
+package com.luna.app.emulator;
+
+import com.azure.messaging.servicebus.ServiceBusErrorSource;
+import com.azure.messaging.servicebus.ServiceBusMessage;
+import com.luna.app.queue.InMemoryMessage;
+import com.luna.app.queue.MessageSource;
+import com.luna.app.session.InMemorySessionQueue;
+import com.luna.app.session.SessionLink;
+import com.luna.app.session.SessionSource;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A queue or topic subscription of a {@link ServiceBusEmulator}: the entity receivers attach to.
+ * <p>
+ * Received messages are locked for the entity's lock duration. Settling or renewing an expired lock fails with
+ * {@code MESSAGE_LOCK_LOST}, and the emulator's sweeper returns messages whose lock expired to the entity even if
+ * their receiver never comes back. A message delivered {@code maxDeliveryCount} times is dead-lettered with reason
+ * {@value #MAX_DELIVERY_COUNT_EXCEEDED} instead of being made available again; a message dead-lettered by
+ * its receiver gets reason {@value #DEAD_LETTERED_BY_RECEIVER}. Both carry an error description, as on the broker.
+ * <p>
+ * The dead-letter sub-queue is received with the same peek-lock semantics: its messages are locked, their delivery
+ * count grows, and abandoned or expired messages go back to the sub-queue, which has no delivery limit.
+ * <p>
+ * Session-enabled entities are received through {@link #newSessionSource()}; a session is held by one link at a time,
+ * its messages are delivered in order and it is released when the link is closed. Their messages are covered by the
+ * session lock rather than by per-message locks: messages still unsettled when their link is closed go back to the
+ * session.
+ */
+public final class EmulatedEntity {
+
+    public static final String MAX_DELIVERY_COUNT_EXCEEDED = "MaxDeliveryCountExceeded";
+    public static final String DEAD_LETTERED_BY_RECEIVER = "DeadLetteredByReceiver";
+
+    private final String path;
+    private final long lockDurationMillis;
+    private final int maxDeliveryCount;
+    private final Faults faults;
+    private final BlockingQueue<InMemoryMessage> ready = new LinkedBlockingQueue<>();
+    private final BlockingQueue<InMemoryMessage> deadLetters = new LinkedBlockingQueue<>();
+    // Lock expiry in epoch milliseconds of every message held by a receiver, of the entity and its dead-letter queue
+    private final Map<InMemoryMessage, Long> locks = new ConcurrentHashMap<>();
+    private final Map<InMemoryMessage, Long> deadLetterLocks = new ConcurrentHashMap<>();
+    private final InMemorySessionQueue sessions;
+    private final AtomicLong sequence = new AtomicLong();
+    private final AtomicInteger scheduledCount = new AtomicInteger();
+    private final AtomicInteger sessionLockedCount = new AtomicInteger();
+    private final LongAdder completed = new LongAdder();
+    private final LongAdder lockExpirations = new LongAdder();
+
+    EmulatedEntity(String path, Duration lockDuration, int maxDeliveryCount, boolean sessionRequired,
+                   Duration sessionAcceptTimeout, Faults faults) {
+        this.path = path;
+        this.lockDurationMillis = lockDuration.toMillis();
+        this.maxDeliveryCount = maxDeliveryCount;
+        this.faults = faults;
+        // Delivery counts are enforced here so that dead-lettered session messages carry a reason
+        this.sessions = sessionRequired
+                ? new InMemorySessionQueue(Duration.ZERO, sessionAcceptTimeout, Integer.MAX_VALUE) : null;
+    }
+
+    public String getPath() {
+        return path;
+    }
+
+    public boolean isSessionRequired() {
+        return sessions != null;
+    }
+
+    /**
+     * Opens a peek-lock receive link on this entity.
+     *
+     * @return a message source bound to this entity
+     * @throws IllegalStateException if the entity requires sessions
+     */
+    public MessageSource<InMemoryMessage> newSource() {
+        if (sessions != null) {
+            throw new IllegalStateException(path + " requires sessions; use newSessionSource()");
+        }
+        return new Source(false);
+    }
+
+    /**
+     * Opens a peek-lock receive link on the dead-letter sub-queue. Completing a message removes it; abandoning or
+     * dead-lettering it, or letting its lock expire, returns it to the sub-queue.
+     *
+     * @return a message source bound to the dead-letter sub-queue
+     */
+    public MessageSource<InMemoryMessage> newDeadLetterSource() {
+        return new Source(true);
+    }
+
+    /**
+     * @return a source of session links on this entity
+     * @throws IllegalStateException if the entity does not require sessions
+     */
+    public SessionSource<InMemoryMessage> newSessionSource() {
+        if (sessions == null) {
+            throw new IllegalStateException(path + " does not require sessions; use newSource()");
+        }
+        return () -> {
+            faults.call(faults.receiveLatencyNanos, ServiceBusErrorSource.ACCEPT_SESSION);
+            SessionLink<InMemoryMessage> link = sessions.acceptNextSession();
+            return link != null ? new EmulatedSessionLink(link) : null;
+        };
+    }
+
+    public int getActiveMessageCount() {
+        return sessions != null ? sessions.getActiveMessageCount() : ready.size();
+    }
+
+    /**
+     * @return the number of messages held by receivers
+     */
+    public int getLockedMessageCount() {
+        return locks.size() + deadLetterLocks.size() + sessionLockedCount.get();
+    }
+
+    /**
+     * @return the number of messages waiting for their scheduled enqueue time
+     */
+    public int getScheduledMessageCount() {
+        return scheduledCount.get();
+    }
+
+    /**
+     * @return the number of messages in the dead-letter sub-queue, including those locked by a receiver
+     */
+    public int getDeadLetterMessageCount() {
+        return deadLetters.size() + deadLetterLocks.size();
+    }
+
+    public long getCompletedCount() {
+        return completed.sum();
+    }
+
+    /**
+     * @return the number of locks that expired before their message was settled
+     */
+    public long getLockExpiredCount() {
+        return lockExpirations.sum();
+    }
+
+    public List<InMemoryMessage> getDeadLetters() {
+        return new ArrayList<>(deadLetters);
+    }
+
+    /**
+     * @throws IllegalArgumentException if the entity cannot accept the message
+     */
+    void checkAcceptable(ServiceBusMessage message) {
+        if (sessions != null && message.getSessionId() == null) {
+            throw new IllegalArgumentException(path + " requires a session ID on every message");
+        }
+    }
+
+    void enqueue(ServiceBusMessage message, byte[] body, ScheduledExecutorService scheduler) {
+        long sequenceNumber = sequence.incrementAndGet();
+        String messageId = message.getMessageId() != null ? message.getMessageId() : Long.toString(sequenceNumber);
+        InMemoryMessage copy = new InMemoryMessage(sequenceNumber, messageId, message.getSessionId(), body);
+        copy.getApplicationProperties().putAll(message.getApplicationProperties());
+        long delayNanos = message.getScheduledEnqueueTime() == null ? 0
+                : Duration.between(Instant.now(), message.getScheduledEnqueueTime()).toNanos();
+        if (delayNanos > 0) {
+            scheduledCount.incrementAndGet();
+            scheduler.schedule(() -> {
+                scheduledCount.decrementAndGet();
+                makeAvailable(copy);
+            }, delayNanos, TimeUnit.NANOSECONDS);
+        } else {
+            makeAvailable(copy);
+        }
+    }
+
+    /**
+     * Returns messages whose lock expired to the entity. Called periodically by the emulator.
+     */
+    void expireLocks(long nowMillis) {
+        locks.forEach((message, lockedUntil) -> {
+            if (nowMillis > lockedUntil && locks.remove(message, lockedUntil)) {
+                lockExpirations.increment();
+                release(message);
+            }
+        });
+        deadLetterLocks.forEach((message, lockedUntil) -> {
+            if (nowMillis > lockedUntil && deadLetterLocks.remove(message, lockedUntil)) {
+                lockExpirations.increment();
+                releaseDeadLetter(message);
+            }
+        });
+    }
+
+    private void makeAvailable(InMemoryMessage message) {
+        if (sessions != null) {
+            sessions.send(message);
+        } else {
+            ready.add(message);
+        }
+    }
+
+    private void release(InMemoryMessage message) {
+        message.setLockedUntilMillis(0);
+        if (message.getDeliveryCount() >= maxDeliveryCount) {
+            deadLetterAfterMaxDeliveries(message);
+        } else {
+            ready.add(message);
+        }
+    }
+
+    private void releaseDeadLetter(InMemoryMessage message) {
+        message.setLockedUntilMillis(0);
+        deadLetters.add(message);
+    }
+
+    private void deadLetterAfterMaxDeliveries(InMemoryMessage message) {
+        deadLetter(message, MAX_DELIVERY_COUNT_EXCEEDED,
+                "Message could not be consumed after " + maxDeliveryCount + " delivery attempts.");
+    }
+
+    private void deadLetterByReceiver(InMemoryMessage message) {
+        deadLetter(message, DEAD_LETTERED_BY_RECEIVER,
+                "Dead-lettered by the receiver after " + message.getDeliveryCount() + " delivery attempts.");
+    }
+
+    private void deadLetter(InMemoryMessage message, String reason, String description) {
+        message.setDeadLetterReason(reason);
+        message.setDeadLetterErrorDescription(description);
+        deadLetters.add(message);
+    }
+
+    private class Source implements MessageSource<InMemoryMessage> {
+
+        private final boolean deadLetterQueue;
+        private final BlockingQueue<InMemoryMessage> entity;
+        private final Map<InMemoryMessage, Long> entityLocks;
+
+        Source(boolean deadLetterQueue) {
+            this.deadLetterQueue = deadLetterQueue;
+            this.entity = deadLetterQueue ? deadLetters : ready;
+            this.entityLocks = deadLetterQueue ? deadLetterLocks : locks;
+        }
+
+        @Override
+        public List<InMemoryMessage> receive(int maxMessages, Duration maxWaitTime) {
+            faults.call(faults.receiveLatencyNanos, ServiceBusErrorSource.RECEIVE);
+            List<InMemoryMessage> messages = new ArrayList<>(maxMessages);
+            try {
+                InMemoryMessage first = entity.poll(maxWaitTime.toNanos(), TimeUnit.NANOSECONDS);
+                if (first == null) {
+                    return messages;
+                }
+                messages.add(first);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return messages;
+            }
+            entity.drainTo(messages, maxMessages - 1);
+            long lockedUntil = System.currentTimeMillis() + lockDurationMillis;
+            for (InMemoryMessage message : messages) {
+                message.incrementDeliveryCount();
+                message.setLockedUntilMillis(lockedUntil);
+                entityLocks.put(message, lockedUntil);
+            }
+            return messages;
+        }
+
+        @Override
+        public void complete(InMemoryMessage message) {
+            faults.call(faults.settleLatencyNanos, ServiceBusErrorSource.COMPLETE);
+            unlock(message, ServiceBusErrorSource.COMPLETE);
+            if (!deadLetterQueue) {
+                completed.increment();
+            }
+        }
+
+        @Override
+        public void abandon(InMemoryMessage message) {
+            faults.call(faults.settleLatencyNanos, ServiceBusErrorSource.ABANDON);
+            unlock(message, ServiceBusErrorSource.ABANDON);
+            release(message);
+        }
+
+        /**
+         * Moves the message to the dead-letter sub-queue with reason {@value EmulatedEntity#DEAD_LETTERED_BY_RECEIVER};
+         * on the dead-letter sub-queue itself the message just goes back, keeping its original reason.
+         */
+        @Override
+        public void deadLetter(InMemoryMessage message) {
+            faults.call(faults.settleLatencyNanos, ServiceBusErrorSource.COMPLETE);
+            unlock(message, ServiceBusErrorSource.COMPLETE);
+            if (deadLetterQueue) {
+                releaseDeadLetter(message);
+            } else {
+                deadLetterByReceiver(message);
+            }
+        }
+
+        @Override
+        public Instant getLockedUntil(InMemoryMessage message) {
+            return message.getLockedUntil();
+        }
+
+        @Override
+        public Instant renewLock(InMemoryMessage message) {
+            faults.call(faults.settleLatencyNanos, ServiceBusErrorSource.RENEW_LOCK);
+            long now = System.currentTimeMillis();
+            Long lockedUntil = entityLocks.get(message);
+            if (lockedUntil == null || now > lockedUntil) {
+                expireIfHeld(message, lockedUntil);
+                throw faults.lockLost(message.getMessageId(), ServiceBusErrorSource.RENEW_LOCK);
+            }
+            long renewed = now + lockDurationMillis;
+            if (!entityLocks.replace(message, lockedUntil, renewed)) {
+                throw faults.lockLost(message.getMessageId(), ServiceBusErrorSource.RENEW_LOCK);
+            }
+            message.setLockedUntilMillis(renewed);
+            return Instant.ofEpochMilli(renewed);
+        }
+
+        private void unlock(InMemoryMessage message, ServiceBusErrorSource source) {
+            Long lockedUntil = entityLocks.remove(message);
+            if (lockedUntil == null) {
+                throw faults.lockLost(message.getMessageId(), source);
+            }
+            if (System.currentTimeMillis() > lockedUntil) {
+                lockExpirations.increment();
+                release(message);
+                throw faults.lockLost(message.getMessageId(), source);
+            }
+            message.setLockedUntilMillis(0);
+        }
+
+        private void expireIfHeld(InMemoryMessage message, Long lockedUntil) {
+            if (lockedUntil != null && entityLocks.remove(message, lockedUntil)) {
+                lockExpirations.increment();
+                release(message);
+            }
+        }
+
+        private void release(InMemoryMessage message) {
+            if (deadLetterQueue) {
+                releaseDeadLetter(message);
+            } else {
+                EmulatedEntity.this.release(message);
+            }
+        }
+    }
+
+    private final class EmulatedSessionLink implements SessionLink<InMemoryMessage> {
+
+        private final SessionLink<InMemoryMessage> link;
+        private final Set<InMemoryMessage> unsettled = ConcurrentHashMap.newKeySet();
+
+        EmulatedSessionLink(SessionLink<InMemoryMessage> link) {
+            this.link = link;
+        }
+
+        @Override
+        public String getSessionId() {
+            return link.getSessionId();
+        }
+
+        @Override
+        public List<InMemoryMessage> receive(int maxMessages, Duration maxWaitTime) {
+            faults.call(faults.receiveLatencyNanos, ServiceBusErrorSource.RECEIVE);
+            List<InMemoryMessage> messages = link.receive(maxMessages, maxWaitTime);
+            unsettled.addAll(messages);
+            sessionLockedCount.addAndGet(messages.size());
+            return messages;
+        }
+
+        @Override
+        public void complete(InMemoryMessage message) {
+            faults.call(faults.settleLatencyNanos, ServiceBusErrorSource.COMPLETE);
+            settled(message, ServiceBusErrorSource.COMPLETE);
+            link.complete(message);
+            completed.increment();
+        }
+
+        @Override
+        public void abandon(InMemoryMessage message) {
+            faults.call(faults.settleLatencyNanos, ServiceBusErrorSource.ABANDON);
+            settled(message, ServiceBusErrorSource.ABANDON);
+            returnToSession(message);
+        }
+
+        @Override
+        public void deadLetter(InMemoryMessage message) {
+            faults.call(faults.settleLatencyNanos, ServiceBusErrorSource.COMPLETE);
+            settled(message, ServiceBusErrorSource.COMPLETE);
+            deadLetterByReceiver(message);
+        }
+
+        @Override
+        public Instant renewLock(InMemoryMessage message) {
+            faults.call(faults.settleLatencyNanos, ServiceBusErrorSource.RENEW_LOCK);
+            return link.renewLock(message);
+        }
+
+        @Override
+        public byte[] getSessionState() {
+            faults.call(faults.settleLatencyNanos, ServiceBusErrorSource.MANAGEMENT);
+            return link.getSessionState();
+        }
+
+        @Override
+        public void setSessionState(byte[] state) {
+            faults.call(faults.settleLatencyNanos, ServiceBusErrorSource.MANAGEMENT);
+            link.setSessionState(state);
+        }
+
+        @Override
+        public void close() {
+            // Returned while the session is still held, so that closing makes it available again
+            for (InMemoryMessage message : unsettled) {
+                if (unsettled.remove(message)) {
+                    sessionLockedCount.decrementAndGet();
+                    returnToSession(message);
+                }
+            }
+            link.close();
+        }
+
+        private void settled(InMemoryMessage message, ServiceBusErrorSource source) {
+            if (!unsettled.remove(message)) {
+                throw faults.lockLost(message.getMessageId(), source);
+            }
+            sessionLockedCount.decrementAndGet();
+        }
+
+        private void returnToSession(InMemoryMessage message) {
+            if (message.getDeliveryCount() >= maxDeliveryCount) {
+                deadLetterAfterMaxDeliveries(message);
+            } else {
+                link.abandon(message);
+            }
+        }
+    }
+}
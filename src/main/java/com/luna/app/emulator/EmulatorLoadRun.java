@@ -0,0 +1,165 @@
+package com.luna.app.emulator;
+
+import com.azure.messaging.servicebus.ServiceBusException;
+import com.azure.messaging.servicebus.ServiceBusMessage;
+import com.google.common.base.Stopwatch;
+import com.luna.app.metrics.MetricsRegistry;
+import com.luna.app.provisioning.DesiredState;
+import com.luna.app.provisioning.QueueSpec;
+import com.luna.app.provisioning.SubscriptionSpec;
+import com.luna.app.provisioning.TopicSpec;
+import com.luna.app.queue.BatchingOptions;
+import com.luna.app.queue.BatchingSender;
+import com.luna.app.queue.ConsumerEngine;
+import com.luna.app.queue.ConsumerOptions;
+import com.luna.app.queue.Disposition;
+import com.luna.app.queue.InMemoryMessage;
+import com.luna.app.session.SessionProcessor;
+import com.luna.app.session.SessionProcessorOptions;
+import com.luna.app.topic.PublisherOptions;
+import com.luna.app.topic.TopicPublisher;
+import reactor.core.publisher.Flux;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs the queue, topic and session flows end to end against a {@link ServiceBusEmulator}, with no namespace.
+ * <p>
+ * Usage: {@code EmulatorLoadRun [messages] [latencyMillis] [throttleProbability]}. The queue flow sends through a
+ * {@link BatchingSender} and receives with a {@link ConsumerEngine}; the topic flow publishes with a
+ * {@link TopicPublisher} to a topic whose {@code eu} subscription filters on a property; the session flow receives
+ * with a {@link SessionProcessor}. Each call to the emulator takes {@code latencyMillis}, and
+ * {@code throttleProbability} of them fail as throttled so the retry and lock-expiry paths run too.
+ */
+public class EmulatorLoadRun {
+
+    private static final String QUEUE = "orders";
+    private static final String TOPIC = "events";
+    private static final String SESSION_QUEUE = "carts";
+    private static final int SESSIONS = 100;
+    // Short locks so that messages whose settlement was throttled come back quickly
+    private static final Duration LOCK_DURATION = Duration.ofSeconds(5);
+
+    public static void main(String[] args) throws InterruptedException {
+        int messageCount = args.length > 0 ? Integer.parseInt(args[0]) : 100_000;
+        Duration latency = Duration.ofMillis(args.length > 1 ? Long.parseLong(args[1]) : 0);
+        double throttleProbability = args.length > 2 ? Double.parseDouble(args[2]) : 0;
+
+        EmulatorOptions options = new EmulatorOptions()
+                .setSendLatency(latency)
+                .setReceiveLatency(latency)
+                .setSettleLatency(latency)
+                .setThrottleProbability(throttleProbability);
+        MetricsRegistry registry = new MetricsRegistry();
+        try (ServiceBusEmulator emulator = new ServiceBusEmulator(options).provision(new DesiredState(
+                List.of(new QueueSpec(QUEUE, LOCK_DURATION, null, null, null, null),
+                        new QueueSpec(SESSION_QUEUE, LOCK_DURATION, null, null, true, null)),
+                List.of(new TopicSpec(TOPIC, List.of(
+                        new SubscriptionSpec("all", LOCK_DURATION, null, null, null, Map.of()),
+                        new SubscriptionSpec("eu", LOCK_DURATION, null, null, null,
+                                Map.of("eu-only", "region = 'eu'")))))))) {
+            System.out.printf("%d messages, %d ms latency, %.3f throttled%n%-10s %12s %12s %12s%n", messageCount,
+                    latency.toMillis(), throttleProbability, "flow", "elapsed ms", "completed", "msg/s");
+            runQueue(emulator, registry, messageCount);
+            runTopic(emulator, registry, messageCount);
+            runSessions(emulator, registry, messageCount);
+            System.out.printf("throttled calls: %d%n", emulator.getThrottledCount());
+        }
+        System.out.println(registry.report());
+    }
+
+    private static void runQueue(ServiceBusEmulator emulator, MetricsRegistry registry, int messageCount)
+            throws InterruptedException {
+        EmulatedEntity queue = emulator.getQueue(QUEUE);
+        Stopwatch stopwatch = Stopwatch.createStarted();
+        try (ConsumerEngine<InMemoryMessage> engine = newConsumer(QUEUE, queue, registry);
+             BatchingSender sender = new BatchingSender(QUEUE, emulator.newSink(QUEUE),
+                     new BatchingOptions().setMetricsRegistry(registry))) {
+            engine.start();
+            CompletableFuture<?>[] sends = new CompletableFuture<?>[messageCount];
+            for (int i = 0; i < messageCount; i++) {
+                sends[i] = sender.send(new ServiceBusMessage("order " + i));
+            }
+            // Throttled batches fail their futures; the rest is what the consumer has to drain
+            CompletableFuture.allOf(sends).exceptionally(e -> null).join();
+            awaitDrained(queue);
+        }
+        print("queue", stopwatch, queue);
+    }
+
+    private static void runTopic(ServiceBusEmulator emulator, MetricsRegistry registry, int messageCount)
+            throws InterruptedException {
+        EmulatedEntity all = emulator.getSubscription(TOPIC, "all");
+        EmulatedEntity eu = emulator.getSubscription(TOPIC, "eu");
+        Stopwatch stopwatch = Stopwatch.createStarted();
+        TopicPublisher publisher = new TopicPublisher(TOPIC, message -> emulator.sendAsync(TOPIC, message),
+                new PublisherOptions().setMaxConcurrency(64).setMetricsRegistry(registry));
+        try (ConsumerEngine<InMemoryMessage> allConsumer = newConsumer(all.getPath(), all, registry);
+             ConsumerEngine<InMemoryMessage> euConsumer = newConsumer(eu.getPath(), eu, registry)) {
+            allConsumer.start();
+            euConsumer.start();
+            publisher.publish(Flux.range(0, messageCount).map(i -> {
+                ServiceBusMessage message = new ServiceBusMessage("event " + i);
+                message.getApplicationProperties().put("region", i % 2 == 0 ? "us" : "eu");
+                return message;
+            })).blockLast();
+            awaitDrained(all);
+            awaitDrained(eu);
+        }
+        print("topic/all", stopwatch, all);
+        print("topic/eu", stopwatch, eu);
+    }
+
+    private static void runSessions(ServiceBusEmulator emulator, MetricsRegistry registry, int messageCount)
+            throws InterruptedException {
+        EmulatedEntity queue = emulator.getQueue(SESSION_QUEUE);
+        Stopwatch stopwatch = Stopwatch.createStarted();
+        try (SessionProcessor<InMemoryMessage> processor = new SessionProcessor<>(SESSION_QUEUE,
+                queue.newSessionSource(), message -> Disposition.COMPLETE, new SessionProcessorOptions()
+                .setMaxConcurrentSessions(SESSIONS)
+                .setMaxWaitTime(Duration.ofMillis(20))
+                .setSessionIdleTimeout(Duration.ofMillis(20))
+                .setMetricsRegistry(registry))) {
+            processor.start();
+            for (int i = 0; i < messageCount; i++) {
+                ServiceBusMessage message = new ServiceBusMessage("item " + i).setSessionId("cart-" + i % SESSIONS);
+                try {
+                    emulator.send(SESSION_QUEUE, message);
+                } catch (ServiceBusException e) {
+                    // Throttled sends are dropped, as the queue flow drops failed batches
+                }
+            }
+            awaitDrained(queue);
+        }
+        print("sessions", stopwatch, queue);
+    }
+
+    private static ConsumerEngine<InMemoryMessage> newConsumer(String name, EmulatedEntity entity,
+                                                               MetricsRegistry registry) {
+        return new ConsumerEngine<>(name, entity::newSource, message -> Disposition.COMPLETE,
+                new ConsumerOptions().setMaxWaitTime(Duration.ofMillis(100)).setMetricsRegistry(registry));
+    }
+
+    private static void awaitDrained(EmulatedEntity entity) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.MINUTES.toNanos(5);
+        while (entity.getActiveMessageCount() + entity.getLockedMessageCount() + entity.getScheduledMessageCount()
+                > 0) {
+            if (System.nanoTime() > deadline) {
+                System.out.printf("gave up on %s with %d messages left%n", entity.getPath(),
+                        entity.getActiveMessageCount() + entity.getLockedMessageCount());
+                return;
+            }
+            TimeUnit.MILLISECONDS.sleep(5);
+        }
+    }
+
+    private static void print(String flow, Stopwatch stopwatch, EmulatedEntity entity) {
+        long elapsedMs = Math.max(1, stopwatch.elapsed(TimeUnit.MILLISECONDS));
+        System.out.printf("%-10s %12d %12d %12d%n", flow, elapsedMs, entity.getCompletedCount(),
+                entity.getCompletedCount() * 1000 / elapsedMs);
+    }
+}
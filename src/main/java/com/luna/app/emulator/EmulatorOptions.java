@@ -0,0 +1,164 @@
+package com.luna.app.emulator;
+
+import java.time.Duration;
+
+/**
+ * Latency, throttling and duplicate-detection settings for a {@link ServiceBusEmulator}. The defaults add no latency
+ * and never throttle, so flows run as fast as the process allows.
+ */
+public class EmulatorOptions {
+
+    private Duration sendLatency = Duration.ZERO;
+    private Duration receiveLatency = Duration.ZERO;
+    private Duration settleLatency = Duration.ZERO;
+    private double maxOperationsPerSecond;
+    private double throttleProbability;
+    private Duration duplicateDetectionWindow = Duration.ofMinutes(10);
+    private int duplicateDetectionCapacity = 100_000;
+    private Duration sessionAcceptTimeout = Duration.ofSeconds(1);
+
+    public Duration getSendLatency() {
+        return sendLatency;
+    }
+
+    /**
+     * Sets the simulated round trip of one send call; a batch is one call.
+     *
+     * @param sendLatency the send latency
+     * @return the updated options
+     */
+    public EmulatorOptions setSendLatency(Duration sendLatency) {
+        this.sendLatency = requireNotNegative("sendLatency", sendLatency);
+        return this;
+    }
+
+    public Duration getReceiveLatency() {
+        return receiveLatency;
+    }
+
+    /**
+     * Sets the simulated round trip of one receive or session accept call.
+     *
+     * @param receiveLatency the receive latency
+     * @return the updated options
+     */
+    public EmulatorOptions setReceiveLatency(Duration receiveLatency) {
+        this.receiveLatency = requireNotNegative("receiveLatency", receiveLatency);
+        return this;
+    }
+
+    public Duration getSettleLatency() {
+        return settleLatency;
+    }
+
+    /**
+     * Sets the simulated round trip of one settlement, lock renewal or session-state call.
+     *
+     * @param settleLatency the settlement latency
+     * @return the updated options
+     */
+    public EmulatorOptions setSettleLatency(Duration settleLatency) {
+        this.settleLatency = requireNotNegative("settleLatency", settleLatency);
+        return this;
+    }
+
+    public double getMaxOperationsPerSecond() {
+        return maxOperationsPerSecond;
+    }
+
+    /**
+     * Sets the namespace-wide rate of send, receive and settlement calls above which calls fail with a transient
+     * {@code SERVICE_BUSY} error, as a throttled namespace does.
+     *
+     * @param maxOperationsPerSecond the call rate, or zero for no limit
+     * @return the updated options
+     */
+    public EmulatorOptions setMaxOperationsPerSecond(double maxOperationsPerSecond) {
+        if (!(maxOperationsPerSecond >= 0)) {
+            throw new IllegalArgumentException("maxOperationsPerSecond must not be negative but was "
+                    + maxOperationsPerSecond);
+        }
+        this.maxOperationsPerSecond = maxOperationsPerSecond;
+        return this;
+    }
+
+    public double getThrottleProbability() {
+        return throttleProbability;
+    }
+
+    /**
+     * Sets the fraction of calls that fail with a transient {@code SERVICE_BUSY} error regardless of rate, to exercise
+     * retry paths.
+     *
+     * @param throttleProbability the probability in [0, 1]
+     * @return the updated options
+     */
+    public EmulatorOptions setThrottleProbability(double throttleProbability) {
+        if (!(throttleProbability >= 0 && throttleProbability <= 1)) {
+            throw new IllegalArgumentException("throttleProbability must be in [0, 1] but was "
+                    + throttleProbability);
+        }
+        this.throttleProbability = throttleProbability;
+        return this;
+    }
+
+    public Duration getDuplicateDetectionWindow() {
+        return duplicateDetectionWindow;
+    }
+
+    /**
+     * Sets how long message IDs are remembered by entities that require duplicate detection.
+     *
+     * @param duplicateDetectionWindow the detection window
+     * @return the updated options
+     */
+    public EmulatorOptions setDuplicateDetectionWindow(Duration duplicateDetectionWindow) {
+        if (duplicateDetectionWindow.isNegative() || duplicateDetectionWindow.isZero()) {
+            throw new IllegalArgumentException("duplicateDetectionWindow must be positive but was "
+                    + duplicateDetectionWindow);
+        }
+        this.duplicateDetectionWindow = duplicateDetectionWindow;
+        return this;
+    }
+
+    public int getDuplicateDetectionCapacity() {
+        return duplicateDetectionCapacity;
+    }
+
+    /**
+     * Sets the number of message IDs each entity remembers per detection window.
+     *
+     * @param duplicateDetectionCapacity the capacity per entity
+     * @return the updated options
+     */
+    public EmulatorOptions setDuplicateDetectionCapacity(int duplicateDetectionCapacity) {
+        if (duplicateDetectionCapacity <= 0) {
+            throw new IllegalArgumentException("duplicateDetectionCapacity must be positive but was "
+                    + duplicateDetectionCapacity);
+        }
+        this.duplicateDetectionCapacity = duplicateDetectionCapacity;
+        return this;
+    }
+
+    public Duration getSessionAcceptTimeout() {
+        return sessionAcceptTimeout;
+    }
+
+    /**
+     * Sets how long accepting the next session waits for an unlocked session with messages.
+     *
+     * @param sessionAcceptTimeout the accept timeout
+     * @return the updated options
+     */
+    public EmulatorOptions setSessionAcceptTimeout(Duration sessionAcceptTimeout) {
+        this.sessionAcceptTimeout = requireNotNegative("sessionAcceptTimeout", sessionAcceptTimeout);
+        return this;
+    }
+
+    private static Duration requireNotNegative(String name, Duration value) {
+        if (value.isNegative()) {
+            throw new IllegalArgumentException(name + " must not be negative but was " + value);
+        }
+        return value;
+    }
+}
@@ -0,0 +1,64 @@
+package com.luna.app.emulator;
+
+import com.azure.core.amqp.exception.AmqpErrorCondition;
+import com.azure.core.amqp.exception.AmqpErrorContext;
+import com.azure.core.amqp.exception.AmqpException;
+import com.azure.messaging.servicebus.ServiceBusErrorSource;
+import com.azure.messaging.servicebus.ServiceBusException;
+import com.google.common.util.concurrent.RateLimiter;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Injects the configured latency and throttling into every call an emulated link makes.
+ */
+class Faults {
+
+    private final AmqpErrorContext context;
+    private final RateLimiter rateLimiter;
+    private final double throttleProbability;
+    final long sendLatencyNanos;
+    final long receiveLatencyNanos;
+    final long settleLatencyNanos;
+    private final LongAdder throttled = new LongAdder();
+
+    Faults(String namespace, EmulatorOptions options) {
+        this.context = new AmqpErrorContext(namespace);
+        this.rateLimiter = options.getMaxOperationsPerSecond() > 0
+                ? RateLimiter.create(options.getMaxOperationsPerSecond()) : null;
+        this.throttleProbability = options.getThrottleProbability();
+        this.sendLatencyNanos = options.getSendLatency().toNanos();
+        this.receiveLatencyNanos = options.getReceiveLatency().toNanos();
+        this.settleLatencyNanos = options.getSettleLatency().toNanos();
+    }
+
+    /**
+     * Fails the call if it is throttled, otherwise parks for its round trip.
+     */
+    void call(long latencyNanos, ServiceBusErrorSource source) {
+        checkThrottle(source);
+        if (latencyNanos > 0) {
+            LockSupport.parkNanos(latencyNanos);
+        }
+    }
+
+    void checkThrottle(ServiceBusErrorSource source) {
+        if ((rateLimiter != null && !rateLimiter.tryAcquire())
+                || (throttleProbability > 0 && ThreadLocalRandom.current().nextDouble() < throttleProbability)) {
+            throttled.increment();
+            throw new ServiceBusException(new AmqpException(true, AmqpErrorCondition.SERVER_BUSY_ERROR,
+                    "The request was throttled by the emulated namespace", context), source);
+        }
+    }
+
+    ServiceBusException lockLost(String messageId, ServiceBusErrorSource source) {
+        return new ServiceBusException(new AmqpException(false, AmqpErrorCondition.MESSAGE_LOCK_LOST,
+                "The lock on message " + messageId + " has expired or was already released", context), source);
+    }
+
+    long getThrottledCount() {
+        return throttled.sum();
+    }
+}
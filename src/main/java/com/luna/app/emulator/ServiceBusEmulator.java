@@ -0,0 +1,369 @@
+package com.luna.app.emulator;
+
+import com.azure.core.amqp.models.AmqpMessageBody;
+import com.azure.core.amqp.models.AmqpMessageBodyType;
+import com.azure.messaging.servicebus.ServiceBusErrorSource;
+import com.azure.messaging.servicebus.ServiceBusMessage;
+import com.luna.app.deduplicate.IdempotencyStore;
+import com.luna.app.filter.FilterRouter;
+import com.luna.app.provisioning.DesiredState;
+import com.luna.app.provisioning.Provisioner;
+import com.luna.app.provisioning.QueueSpec;
+import com.luna.app.provisioning.SubscriptionSpec;
+import com.luna.app.provisioning.TopicSpec;
+import com.luna.app.queue.MessageLimits;
+import com.luna.app.queue.MessageSink;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * In-process Service Bus namespace for running the send and receive flows without a network, e.g. for load tests on a
+ * laptop or CI box.
+ * <p>
+ * Entities are declared with the provisioning specs, either one by one or from a {@link DesiredState}. Queues and
+ * subscriptions are {@link EmulatedEntity EmulatedEntities} that model peek-lock, lock expiry, max delivery count with
+ * dead-lettering, sessions and scheduled enqueue. Topics copy each message to every subscription with a matching SQL
+ * filter rule, evaluated by a {@link FilterRouter}. Queues and topics that require duplicate detection drop messages
+ * whose ID was sent within the detection window.
+ * <p>
+ * Sends go through {@link #send(String, ServiceBusMessage)}, {@link #newSink(String)} for the {@code BatchingSender}
+ * or {@link #sendAsync(String, ServiceBusMessage)} for the {@code TopicPublisher}; received messages are
+ * {@link com.luna.app.queue.InMemoryMessage InMemoryMessages}. Every call is subject to the latency and throttling
+ * configured in {@link EmulatorOptions}; throttled calls fail with the same transient {@code SERVICE_BUSY}
+ * {@link com.azure.messaging.servicebus.ServiceBusException} a real namespace returns.
+ * <p>
+ * Not modelled: message time-to-live, auto-forwarding, transactions and the size quota of an entity.
+ */
+public class ServiceBusEmulator implements AutoCloseable {
+
+    static final Duration DEFAULT_LOCK_DURATION = Duration.ofMinutes(1);
+    static final int DEFAULT_MAX_DELIVERY_COUNT = 10;
+
+    private static final String NAMESPACE = "emulator.servicebus.local";
+    private static final long LOCK_SWEEP_INTERVAL_MS = 100;
+
+    private final EmulatorOptions options;
+    private final Faults faults;
+    private final ConcurrentMap<String, EmulatedEntity> queues = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, IdempotencyStore> queueDuplicates = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, Topic> topics = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService scheduler;
+    private final LongAdder duplicates = new LongAdder();
+
+    public ServiceBusEmulator() {
+        this(new EmulatorOptions());
+    }
+
+    public ServiceBusEmulator(EmulatorOptions options) {
+        this.options = options;
+        this.faults = new Faults(NAMESPACE, options);
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "servicebus-emulator");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(this::expireLocks, LOCK_SWEEP_INTERVAL_MS, LOCK_SWEEP_INTERVAL_MS,
+                TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Creates every queue, topic, subscription and rule of a desired state.
+     *
+     * @param state the entities to create
+     * @return this emulator
+     */
+    public ServiceBusEmulator provision(DesiredState state) {
+        state.queues().forEach(this::createQueue);
+        state.topics().forEach(this::createTopic);
+        return this;
+    }
+
+    public EmulatedEntity createQueue(String name) {
+        return createQueue(new QueueSpec(name));
+    }
+
+    /**
+     * @param spec the queue settings; unset settings take the broker's defaults
+     * @return the new queue
+     * @throws IllegalArgumentException if an entity with the name exists
+     */
+    public EmulatedEntity createQueue(QueueSpec spec) {
+        checkNameAvailable(spec.name());
+        EmulatedEntity queue = newEntity(spec.name(), spec.lockDuration(), spec.maxDeliveryCount(),
+                spec.sessionRequired());
+        if (Boolean.TRUE.equals(spec.duplicateDetectionRequired())) {
+            queueDuplicates.put(spec.name(), newDuplicateStore());
+        }
+        queues.put(spec.name(), queue);
+        return queue;
+    }
+
+    /**
+     * Creates a topic with its subscriptions. Subscriptions without rules get the {@value Provisioner#DEFAULT_RULE}
+     * rule, which matches every message.
+     *
+     * @param spec the topic settings and subscriptions
+     * @throws IllegalArgumentException if an entity with the name exists or a rule is not valid SQL
+     */
+    public void createTopic(TopicSpec spec) {
+        checkNameAvailable(spec.name());
+        topics.put(spec.name(), new Topic(Boolean.TRUE.equals(spec.duplicateDetectionRequired())
+                ? newDuplicateStore() : null));
+        if (spec.subscriptions() != null) {
+            spec.subscriptions().forEach(subscription -> createSubscription(spec.name(), subscription));
+        }
+    }
+
+    /**
+     * @param topicName    the topic
+     * @param subscription the subscription settings and rules
+     * @return the new subscription
+     */
+    public EmulatedEntity createSubscription(String topicName, SubscriptionSpec subscription) {
+        Topic topic = topic(topicName);
+        String path = topicName + "/subscriptions/" + subscription.name();
+        EmulatedEntity entity = newEntity(path, subscription.lockDuration(), subscription.maxDeliveryCount(),
+                subscription.sessionRequired());
+        if (topic.subscriptions.putIfAbsent(subscription.name(), entity) != null) {
+            throw new IllegalArgumentException("Subscription " + path + " already exists");
+        }
+        Map<String, String> rules = subscription.rules() == null || subscription.rules().isEmpty()
+                ? Map.of(Provisioner.DEFAULT_RULE, Provisioner.DEFAULT_RULE_EXPRESSION) : subscription.rules();
+        rules.forEach((rule, expression) -> topic.router.addRule(subscription.name() + "/" + rule, expression,
+                entity));
+        return entity;
+    }
+
+    /**
+     * Adds or replaces a rule of a subscription.
+     */
+    public void addRule(String topicName, String subscriptionName, String ruleName, String sqlExpression) {
+        topic(topicName).router.addRule(subscriptionName + "/" + ruleName, sqlExpression,
+                getSubscription(topicName, subscriptionName));
+    }
+
+    public boolean removeRule(String topicName, String subscriptionName, String ruleName) {
+        return topic(topicName).router.removeRule(subscriptionName + "/" + ruleName);
+    }
+
+    public EmulatedEntity getQueue(String queueName) {
+        EmulatedEntity queue = queues.get(queueName);
+        if (queue == null) {
+            throw new IllegalArgumentException("Queue " + queueName + " does not exist");
+        }
+        return queue;
+    }
+
+    public EmulatedEntity getSubscription(String topicName, String subscriptionName) {
+        EmulatedEntity subscription = topic(topicName).subscriptions.get(subscriptionName);
+        if (subscription == null) {
+            throw new IllegalArgumentException("Subscription " + topicName + "/subscriptions/" + subscriptionName
+                    + " does not exist");
+        }
+        return subscription;
+    }
+
+    /**
+     * Sends a message to a queue or topic.
+     *
+     * @param entityPath the queue or topic name
+     * @param message    the message
+     */
+    public void send(String entityPath, ServiceBusMessage message) {
+        send(entityPath, List.of(message));
+    }
+
+    /**
+     * Sends messages to a queue or topic in one call. The messages are validated before any is enqueued.
+     *
+     * @param entityPath the queue or topic name
+     * @param messages   the messages
+     */
+    public void send(String entityPath, Iterable<ServiceBusMessage> messages) {
+        faults.call(faults.sendLatencyNanos, ServiceBusErrorSource.SEND);
+        deliver(entityPath, messages);
+    }
+
+    /**
+     * Sends a message without blocking, e.g. {@code new TopicPublisher(topic, m -> emulator.sendAsync(topic, m),
+     * options)}. The send latency delays the returned {@link Mono} instead of parking a thread.
+     *
+     * @param entityPath the queue or topic name
+     * @param message    the message
+     * @return completes when the message is enqueued
+     */
+    public Mono<Void> sendAsync(String entityPath, ServiceBusMessage message) {
+        Mono<Void> send = Mono.fromRunnable(() -> {
+            faults.checkThrottle(ServiceBusErrorSource.SEND);
+            deliver(entityPath, List.of(message));
+        });
+        return faults.sendLatencyNanos > 0 ? send.delaySubscription(Duration.ofNanos(faults.sendLatencyNanos)) : send;
+    }
+
+    /**
+     * Opens a send link on a queue or topic, e.g. for a {@code BatchingSender}.
+     *
+     * @param entityPath the queue or topic name
+     * @return a message sink bound to the entity
+     */
+    public MessageSink newSink(String entityPath) {
+        if (!queues.containsKey(entityPath)) {
+            topic(entityPath);
+        }
+        return new MessageSink() {
+            @Override
+            public Batch createBatch() {
+                return new SizedBatch();
+            }
+
+            @Override
+            public void send(Batch batch) {
+                ServiceBusEmulator.this.send(entityPath, ((SizedBatch) batch).messages);
+            }
+        };
+    }
+
+    /**
+     * @return the number of messages dropped by duplicate detection
+     */
+    public long getDuplicateCount() {
+        return duplicates.sum();
+    }
+
+    /**
+     * @return the number of calls that failed because they were throttled
+     */
+    public long getThrottledCount() {
+        return faults.getThrottledCount();
+    }
+
+    @Override
+    public void close() {
+        scheduler.shutdownNow();
+    }
+
+    private void deliver(String entityPath, Iterable<ServiceBusMessage> messages) {
+        EmulatedEntity queue = queues.get(entityPath);
+        if (queue != null) {
+            messages.forEach(queue::checkAcceptable);
+            IdempotencyStore duplicateStore = queueDuplicates.get(entityPath);
+            for (ServiceBusMessage message : messages) {
+                if (isNew(duplicateStore, message)) {
+                    queue.enqueue(message, bodyOf(message), scheduler);
+                }
+            }
+            return;
+        }
+        Topic topic = topic(entityPath);
+        List<List<EmulatedEntity>> routes = new ArrayList<>();
+        for (ServiceBusMessage message : messages) {
+            List<EmulatedEntity> subscriptions = topic.router.route(message.getApplicationProperties());
+            subscriptions.forEach(subscription -> subscription.checkAcceptable(message));
+            routes.add(subscriptions);
+        }
+        int index = 0;
+        for (ServiceBusMessage message : messages) {
+            List<EmulatedEntity> subscriptions = routes.get(index++);
+            if (!isNew(topic.duplicates, message)) {
+                continue;
+            }
+            byte[] body = bodyOf(message);
+            for (int i = 0; i < subscriptions.size(); i++) {
+                EmulatedEntity subscription = subscriptions.get(i);
+                // A subscription gets one copy even if several of its rules match
+                if (subscriptions.subList(0, i).contains(subscription)) {
+                    continue;
+                }
+                subscription.enqueue(message, body, scheduler);
+            }
+        }
+    }
+
+    private boolean isNew(IdempotencyStore duplicateStore, ServiceBusMessage message) {
+        if (duplicateStore == null || message.getMessageId() == null
+                || duplicateStore.markIfAbsent(message.getMessageId())) {
+            return true;
+        }
+        duplicates.increment();
+        return false;
+    }
+
+    // The SDK keeps a data body as one array; enqueued copies share it since neither side modifies it
+    private static byte[] bodyOf(ServiceBusMessage message) {
+        AmqpMessageBody body = message.getRawAmqpMessage().getBody();
+        return body.getBodyType() == AmqpMessageBodyType.DATA ? body.getFirstData() : message.getBody().toBytes();
+    }
+
+    private void expireLocks() {
+        long now = System.currentTimeMillis();
+        queues.values().forEach(queue -> queue.expireLocks(now));
+        topics.values().forEach(topic -> topic.subscriptions.values().forEach(
+                subscription -> subscription.expireLocks(now)));
+    }
+
+    private EmulatedEntity newEntity(String path, Duration lockDuration, Integer maxDeliveryCount,
+                                     Boolean sessionRequired) {
+        return new EmulatedEntity(path, lockDuration != null ? lockDuration : DEFAULT_LOCK_DURATION,
+                maxDeliveryCount != null ? maxDeliveryCount : DEFAULT_MAX_DELIVERY_COUNT,
+                Boolean.TRUE.equals(sessionRequired), options.getSessionAcceptTimeout(), faults);
+    }
+
+    private IdempotencyStore newDuplicateStore() {
+        return new IdempotencyStore(options.getDuplicateDetectionCapacity(), options.getDuplicateDetectionWindow());
+    }
+
+    private void checkNameAvailable(String name) {
+        if (queues.containsKey(name) || topics.containsKey(name)) {
+            throw new IllegalArgumentException("An entity named " + name + " already exists");
+        }
+    }
+
+    private Topic topic(String topicName) {
+        Topic topic = topics.get(topicName);
+        if (topic == null) {
+            throw new IllegalArgumentException("Queue or topic " + topicName + " does not exist");
+        }
+        return topic;
+    }
+
+    private static final class Topic {
+        private final FilterRouter<EmulatedEntity> router = new FilterRouter<>();
+        private final ConcurrentMap<String, EmulatedEntity> subscriptions = new ConcurrentHashMap<>();
+        private final IdempotencyStore duplicates;
+
+        Topic(IdempotencyStore duplicates) {
+            this.duplicates = duplicates;
+        }
+    }
+
+    private static final class SizedBatch implements MessageSink.Batch {
+        private final List<ServiceBusMessage> messages = new ArrayList<>();
+        private int sizeInBytes;
+
+        @Override
+        public boolean tryAddMessage(ServiceBusMessage message) {
+            int size = MessageLimits.estimateSize(message);
+            if (sizeInBytes + size > MessageLimits.MAX_MESSAGE_SIZE) {
+                return false;
+            }
+            sizeInBytes += size;
+            messages.add(message);
+            return true;
+        }
+
+        @Override
+        public int getCount() {
+            return messages.size();
+        }
+    }
+}
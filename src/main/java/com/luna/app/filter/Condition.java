@@ -0,0 +1,16 @@
+package com.luna.app.filter;
+
+import java.util.Map;
+
+/**
+ * Compiled node of a SQL filter. Evaluation uses SQL three-valued logic without boxing: {@link #TRUE},
+ * {@link #FALSE} or {@link #UNKNOWN} (a comparison involving a missing property or mismatched types).
+ */
+interface Condition {
+
+    int TRUE = 1;
+    int FALSE = 0;
+    int UNKNOWN = -1;
+
+    int test(Map<String, Object> properties);
+}
@@ -0,0 +1,284 @@
+package com.luna.app.filter;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * Operand and condition nodes produced by {@link SqlFilterParser}.
+ */
+final class Conditions {
+
+    private Conditions() {
+    }
+
+    /**
+     * Something that yields a value: a property reference or a literal.
+     */
+    interface Operand {
+        Object value(Map<String, Object> properties);
+    }
+
+    record Property(String name) implements Operand {
+        @Override
+        public Object value(Map<String, Object> properties) {
+            return properties.get(name);
+        }
+    }
+
+    record Constant(Object constant) implements Operand {
+        @Override
+        public Object value(Map<String, Object> properties) {
+            return constant;
+        }
+    }
+
+    enum Operator { EQ, NE, LT, LE, GT, GE }
+
+    record Comparison(Operator operator, Operand left, Operand right) implements Condition {
+        @Override
+        public int test(Map<String, Object> properties) {
+            Object l = left.value(properties);
+            Object r = right.value(properties);
+            if (l == null || r == null) {
+                return UNKNOWN;
+            }
+            if (operator == Operator.EQ || operator == Operator.NE) {
+                int equal = equal(l, r);
+                if (equal == UNKNOWN) {
+                    return UNKNOWN;
+                }
+                return operator == Operator.EQ ? equal : 1 - equal;
+            }
+            Integer order = compare(l, r);
+            if (order == null) {
+                return UNKNOWN;
+            }
+            return switch (operator) {
+                case LT -> order < 0 ? TRUE : FALSE;
+                case LE -> order <= 0 ? TRUE : FALSE;
+                case GT -> order > 0 ? TRUE : FALSE;
+                case GE -> order >= 0 ? TRUE : FALSE;
+                default -> throw new IllegalStateException("Unexpected operator " + operator);
+            };
+        }
+    }
+
+    record IsNull(Operand operand, boolean negated) implements Condition {
+        @Override
+        public int test(Map<String, Object> properties) {
+            boolean isNull = operand.value(properties) == null;
+            return isNull != negated ? TRUE : FALSE;
+        }
+    }
+
+    record Exists(String name) implements Condition {
+        @Override
+        public int test(Map<String, Object> properties) {
+            return properties.containsKey(name) ? TRUE : FALSE;
+        }
+    }
+
+    /**
+     * {@code IN} against a set of literals normalized with {@link #normalize(Object)}, so lookup is a hash probe.
+     */
+    record In(Operand operand, Set<Object> values, boolean negated) implements Condition {
+        @Override
+        public int test(Map<String, Object> properties) {
+            Object value = operand.value(properties);
+            if (value == null) {
+                return UNKNOWN;
+            }
+            return values.contains(normalize(value)) != negated ? TRUE : FALSE;
+        }
+    }
+
+    /**
+     * {@code LIKE} compiled to a prefix, suffix, substring or exact check when the pattern allows it, and to a regular
+     * expression otherwise.
+     */
+    record Like(Operand operand, LikeMatcher matcher, boolean negated) implements Condition {
+        @Override
+        public int test(Map<String, Object> properties) {
+            Object value = operand.value(properties);
+            if (!(value instanceof String text)) {
+                return UNKNOWN;
+            }
+            return matcher.matches(text) != negated ? TRUE : FALSE;
+        }
+    }
+
+    record BooleanOperand(Operand operand) implements Condition {
+        @Override
+        public int test(Map<String, Object> properties) {
+            Object value = operand.value(properties);
+            if (value instanceof Boolean bool) {
+                return bool ? TRUE : FALSE;
+            }
+            return UNKNOWN;
+        }
+    }
+
+    record Not(Condition condition) implements Condition {
+        @Override
+        public int test(Map<String, Object> properties) {
+            int result = condition.test(properties);
+            return result == UNKNOWN ? UNKNOWN : 1 - result;
+        }
+    }
+
+    record And(Condition[] conditions) implements Condition {
+        And(List<Condition> conditions) {
+            this(conditions.toArray(new Condition[0]));
+        }
+
+        @Override
+        public int test(Map<String, Object> properties) {
+            int result = TRUE;
+            for (Condition condition : conditions) {
+                int value = condition.test(properties);
+                if (value == FALSE) {
+                    return FALSE;
+                }
+                if (value == UNKNOWN) {
+                    result = UNKNOWN;
+                }
+            }
+            return result;
+        }
+    }
+
+    record Or(Condition[] conditions) implements Condition {
+        Or(List<Condition> conditions) {
+            this(conditions.toArray(new Condition[0]));
+        }
+
+        @Override
+        public int test(Map<String, Object> properties) {
+            int result = FALSE;
+            for (Condition condition : conditions) {
+                int value = condition.test(properties);
+                if (value == TRUE) {
+                    return TRUE;
+                }
+                if (value == UNKNOWN) {
+                    result = UNKNOWN;
+                }
+            }
+            return result;
+        }
+    }
+
+    @FunctionalInterface
+    interface LikeMatcher {
+        boolean matches(String text);
+
+        static LikeMatcher compile(String pattern, Character escape) {
+            StringBuilder literal = new StringBuilder();
+            StringBuilder regex = new StringBuilder();
+            boolean simple = true;
+            boolean leadingWildcard = false;
+            boolean trailingWildcard = false;
+            for (int i = 0; i < pattern.length(); i++) {
+                char c = pattern.charAt(i);
+                if (escape != null && c == escape && i + 1 < pattern.length()) {
+                    char next = pattern.charAt(++i);
+                    literal.append(next);
+                    regex.append(Pattern.quote(String.valueOf(next)));
+                    if (trailingWildcard) {
+                        simple = false;
+                    }
+                } else if (c == '%') {
+                    regex.append(".*");
+                    if (literal.length() == 0 && !trailingWildcard) {
+                        leadingWildcard = true;
+                    } else {
+                        trailingWildcard = true;
+                    }
+                } else if (c == '_') {
+                    regex.append('.');
+                    simple = false;
+                } else {
+                    if (trailingWildcard) {
+                        simple = false;
+                    }
+                    literal.append(c);
+                    regex.append(Pattern.quote(String.valueOf(c)));
+                }
+            }
+            if (simple) {
+                String text = literal.toString();
+                if (leadingWildcard && trailingWildcard) {
+                    return value -> value.contains(text);
+                }
+                if (leadingWildcard) {
+                    return value -> value.endsWith(text);
+                }
+                if (trailingWildcard) {
+                    return value -> value.startsWith(text);
+                }
+                return text::equals;
+            }
+            Pattern compiled = Pattern.compile(regex.toString(), Pattern.DOTALL);
+            return value -> compiled.matcher(value).matches();
+        }
+    }
+
+    /**
+     * Maps numbers to a canonical boxed form (integral values as {@link Long}, others as {@link Double}) so that
+     * {@code 1}, {@code 1L} and {@code 1.0} compare and hash equal.
+     *
+     * @param value a property or literal value
+     * @return the canonical value
+     */
+    static Object normalize(Object value) {
+        if (value instanceof Long || value instanceof String || value instanceof Boolean) {
+            return value;
+        }
+        if (value instanceof Integer || value instanceof Short || value instanceof Byte) {
+            return ((Number) value).longValue();
+        }
+        if (value instanceof Number number) {
+            double d = number.doubleValue();
+            long l = (long) d;
+            return l == d && !Double.isInfinite(d) ? (Object) l : (Object) d;
+        }
+        if (value instanceof Character || value instanceof java.util.UUID) {
+            return value.toString();
+        }
+        return value;
+    }
+
+    static int equal(Object left, Object right) {
+        if (left instanceof Number && right instanceof Number) {
+            Integer order = compare(left, right);
+            return order != null && order == 0 ? Condition.TRUE : Condition.FALSE;
+        }
+        Object l = normalize(left);
+        Object r = normalize(right);
+        if (l.getClass() != r.getClass()) {
+            return Condition.UNKNOWN;
+        }
+        return Objects.equals(l, r) ? Condition.TRUE : Condition.FALSE;
+    }
+
+    static Integer compare(Object left, Object right) {
+        if (left instanceof Number l && right instanceof Number r) {
+            if (isIntegral(l) && isIntegral(r)) {
+                return Long.compare(l.longValue(), r.longValue());
+            }
+            return Double.compare(l.doubleValue(), r.doubleValue());
+        }
+        if (left instanceof String l && right instanceof String r) {
+            return l.compareTo(r);
+        }
+        return null;
+    }
+
+    private static boolean isIntegral(Number number) {
+        return number instanceof Long || number instanceof Integer || number instanceof Short
+                || number instanceof Byte;
+    }
+}
@@ -0,0 +1,205 @@
+package com.luna.app.filter;
+
+import com.luna.app.filter.Conditions.Comparison;
+import com.luna.app.filter.Conditions.Constant;
+import com.luna.app.filter.Conditions.In;
+import com.luna.app.filter.Conditions.Operator;
+import com.luna.app.filter.Conditions.Property;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Routes messages to targets by evaluating a set of named SQL filter rules against their application properties.
+ * <p>
+ * Rules that pin a property to one or more literals ({@code color = 'red'}, {@code region IN ('eu', 'us')}, or
+ * either of those as a term of an {@code AND}) are indexed by property value, so a message only evaluates the rules
+ * its properties can satisfy plus the rules that could not be indexed. Routing cost therefore grows with the number
+ * of distinct indexed properties rather than with the number of rules.
+ * <p>
+ * Routing is thread-safe; adding or removing rules swaps in a new immutable snapshot.
+ *
+ * @param <T> the target type, e.g. a subscription name or a local handler
+ */
+public class FilterRouter<T> {
+
+    private record Rule<T>(int order, String name, SqlFilter filter, T target) {
+    }
+
+    private record Snapshot<T>(String[] indexedProperties,
+                               Map<Object, Rule<T>[]>[] index,
+                               Rule<T>[] unindexed,
+                               int size) {
+    }
+
+    private final Map<String, Rule<T>> rules = new LinkedHashMap<>();
+    private volatile Snapshot<T> snapshot = build(List.of());
+    private int nextOrder;
+
+    /**
+     * Adds or replaces a rule.
+     *
+     * @param name       the rule name, unique within this router
+     * @param expression the SQL filter expression
+     * @param target     the target returned when the rule matches
+     * @return this router
+     * @throws FilterSyntaxException if the expression is not valid
+     */
+    public FilterRouter<T> addRule(String name, String expression, T target) {
+        return addRule(name, SqlFilter.compile(expression), target);
+    }
+
+    public synchronized FilterRouter<T> addRule(String name, SqlFilter filter, T target) {
+        rules.put(name, new Rule<>(nextOrder++, name, filter, target));
+        snapshot = build(rules.values());
+        return this;
+    }
+
+    public synchronized boolean removeRule(String name) {
+        if (rules.remove(name) == null) {
+            return false;
+        }
+        snapshot = build(rules.values());
+        return true;
+    }
+
+    public int getRuleCount() {
+        return snapshot.size();
+    }
+
+    /**
+     * @param properties the message application properties
+     * @return the targets of all matching rules, in the order the rules were added
+     */
+    public List<T> route(Map<String, Object> properties) {
+        Snapshot<T> current = snapshot;
+        List<Rule<T>> matched = null;
+        for (int i = 0; i < current.indexedProperties().length; i++) {
+            Object value = properties.get(current.indexedProperties()[i]);
+            if (value == null) {
+                continue;
+            }
+            Rule<T>[] candidates = current.index()[i].get(Conditions.normalize(value));
+            if (candidates == null) {
+                continue;
+            }
+            for (Rule<T> rule : candidates) {
+                if (rule.filter().test(properties)) {
+                    matched = add(matched, rule);
+                }
+            }
+        }
+        for (Rule<T> rule : current.unindexed()) {
+            if (rule.filter().test(properties)) {
+                matched = add(matched, rule);
+            }
+        }
+        if (matched == null) {
+            return Collections.emptyList();
+        }
+        List<T> targets = new ArrayList<>(matched.size());
+        if (matched.size() > 1) {
+            matched.sort((a, b) -> Integer.compare(a.order(), b.order()));
+        }
+        for (Rule<T> rule : matched) {
+            targets.add(rule.target());
+        }
+        return targets;
+    }
+
+    /**
+     * @param properties the message application properties
+     * @return whether at least one rule matches, i.e. whether any subscription would receive the message
+     */
+    public boolean hasMatch(Map<String, Object> properties) {
+        Snapshot<T> current = snapshot;
+        for (int i = 0; i < current.indexedProperties().length; i++) {
+            Object value = properties.get(current.indexedProperties()[i]);
+            if (value == null) {
+                continue;
+            }
+            Rule<T>[] candidates = current.index()[i].get(Conditions.normalize(value));
+            if (candidates == null) {
+                continue;
+            }
+            for (Rule<T> rule : candidates) {
+                if (rule.filter().test(properties)) {
+                    return true;
+                }
+            }
+        }
+        for (Rule<T> rule : current.unindexed()) {
+            if (rule.filter().test(properties)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static <T> List<Rule<T>> add(List<Rule<T>> matched, Rule<T> rule) {
+        List<Rule<T>> list = matched == null ? new ArrayList<>(4) : matched;
+        list.add(rule);
+        return list;
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static <T> Snapshot<T> build(Iterable<Rule<T>> rules) {
+        Map<String, Map<Object, List<Rule<T>>>> index = new LinkedHashMap<>();
+        List<Rule<T>> unindexed = new ArrayList<>();
+        int size = 0;
+        for (Rule<T> rule : rules) {
+            size++;
+            IndexKey key = indexKey(rule.filter().getCondition());
+            if (key == null) {
+                unindexed.add(rule);
+                continue;
+            }
+            Map<Object, List<Rule<T>>> byValue = index.computeIfAbsent(key.property(), k -> new HashMap<>());
+            for (Object value : key.values()) {
+                byValue.computeIfAbsent(value, v -> new ArrayList<>()).add(rule);
+            }
+        }
+        String[] properties = index.keySet().toArray(new String[0]);
+        Map<Object, Rule<T>[]>[] lookups = new Map[properties.length];
+        for (int i = 0; i < properties.length; i++) {
+            Map<Object, Rule<T>[]> lookup = new HashMap<>();
+            for (Map.Entry<Object, List<Rule<T>>> entry : index.get(properties[i]).entrySet()) {
+                lookup.put(entry.getKey(), entry.getValue().toArray(new Rule[0]));
+            }
+            lookups[i] = lookup;
+        }
+        return new Snapshot<>(properties, lookups, unindexed.toArray(new Rule[0]), size);
+    }
+
+    private record IndexKey(String property, List<Object> values) {
+    }
+
+    private static IndexKey indexKey(Condition condition) {
+        if (condition instanceof Comparison comparison && comparison.operator() == Operator.EQ) {
+            if (comparison.left() instanceof Property property && comparison.right() instanceof Constant constant
+                    && constant.constant() != null) {
+                return new IndexKey(property.name(), List.of(Conditions.normalize(constant.constant())));
+            }
+            if (comparison.right() instanceof Property property && comparison.left() instanceof Constant constant
+                    && constant.constant() != null) {
+                return new IndexKey(property.name(), List.of(Conditions.normalize(constant.constant())));
+            }
+        }
+        if (condition instanceof In in && !in.negated() && in.operand() instanceof Property property) {
+            return new IndexKey(property.name(), new ArrayList<>(in.values()));
+        }
+        if (condition instanceof Conditions.And and) {
+            return Arrays.stream(and.conditions())
+                    .map(FilterRouter::indexKey)
+                    .filter(key -> key != null)
+                    .findFirst()
+                    .orElse(null);
+        }
+        return null;
+    }
+}
@@ -0,0 +1,23 @@
+package com.luna.app.filter;
+
+/**
+ * Thrown when a SQL filter expression cannot be compiled.
+ */
+public class FilterSyntaxException extends IllegalArgumentException {
+
+    private static final long serialVersionUID = 1L;
+
+    private final int position;
+
+    public FilterSyntaxException(String message, String expression, int position) {
+        super(message + " at position " + position + " in: " + expression);
+        this.position = position;
+    }
+
+    /**
+     * @return zero-based offset in the expression where the problem was detected
+     */
+    public int getPosition() {
+        return position;
+    }
+}
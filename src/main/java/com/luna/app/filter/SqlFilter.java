@@ -0,0 +1,63 @@
+package com.luna.app.filter;
+
+import com.azure.messaging.servicebus.ServiceBusMessage;
+import com.azure.messaging.servicebus.ServiceBusReceivedMessage;
+
+import java.util.Map;
+import java.util.function.Predicate;
+
+/**
+ * A subscription SQL filter compiled into an in-process predicate over application properties, so a rule can be
+ * checked before it is deployed and messages can be routed or dropped without a round trip to the broker.
+ * <p>
+ * Property names may be written bare or with the {@code user.} prefix. System properties ({@code sys.*}) are looked
+ * up verbatim, so callers that need them should put them into the map under that name. As on the broker, a
+ * comparison against a missing property is unknown and the filter does not match.
+ */
+public final class SqlFilter implements Predicate<Map<String, Object>> {
+
+    private final String expression;
+    private final Condition condition;
+
+    private SqlFilter(String expression, Condition condition) {
+        this.expression = expression;
+        this.condition = condition;
+    }
+
+    /**
+     * Compiles a filter expression.
+     *
+     * @param expression the SQL filter, e.g. {@code color = 'red' AND quantity > 10}
+     * @return the compiled filter
+     * @throws FilterSyntaxException if the expression is not valid
+     */
+    public static SqlFilter compile(String expression) {
+        return new SqlFilter(expression, SqlFilterParser.parse(expression));
+    }
+
+    @Override
+    public boolean test(Map<String, Object> properties) {
+        return condition.test(properties) == Condition.TRUE;
+    }
+
+    public boolean matches(ServiceBusMessage message) {
+        return test(message.getApplicationProperties());
+    }
+
+    public boolean matches(ServiceBusReceivedMessage message) {
+        return test(message.getApplicationProperties());
+    }
+
+    public String getExpression() {
+        return expression;
+    }
+
+    Condition getCondition() {
+        return condition;
+    }
+
+    @Override
+    public String toString() {
+        return expression;
+    }
+}
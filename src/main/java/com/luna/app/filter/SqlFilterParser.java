@@ -0,0 +1,349 @@
+package com.luna.app.filter;
+
+import com.luna.app.filter.Conditions.Operand;
+import com.luna.app.filter.Conditions.Operator;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Recursive-descent parser for the subset of the Service Bus SQL filter grammar that can be evaluated against
+ * application properties: comparisons, {@code [NOT] IN}, {@code [NOT] LIKE ... [ESCAPE ...]},
+ * {@code IS [NOT] NULL}, {@code EXISTS(...)}, {@code AND}/{@code OR}/{@code NOT} and parentheses.
+ */
+final class SqlFilterParser {
+
+    private static final String USER_PREFIX = "user.";
+
+    private enum Type { IDENTIFIER, KEYWORD, STRING, NUMBER, SYMBOL, END }
+
+    private record Token(Type type, String text, Object value, int position) {
+    }
+
+    private static final Set<String> KEYWORDS = Set.of(
+            "AND", "OR", "NOT", "IS", "NULL", "IN", "LIKE", "ESCAPE", "EXISTS", "TRUE", "FALSE");
+
+    private final String expression;
+    private final List<Token> tokens;
+    private int index;
+
+    private SqlFilterParser(String expression) {
+        this.expression = expression;
+        this.tokens = tokenize(expression);
+    }
+
+    static Condition parse(String expression) {
+        if (expression == null || expression.isBlank()) {
+            throw new FilterSyntaxException("Empty filter expression", String.valueOf(expression), 0);
+        }
+        SqlFilterParser parser = new SqlFilterParser(expression);
+        Condition condition = parser.parseOr();
+        if (parser.peek().type() != Type.END) {
+            throw parser.error("Unexpected '" + parser.peek().text() + "'");
+        }
+        return condition;
+    }
+
+    private Condition parseOr() {
+        List<Condition> terms = new ArrayList<>();
+        terms.add(parseAnd());
+        while (acceptKeyword("OR")) {
+            terms.add(parseAnd());
+        }
+        return terms.size() == 1 ? terms.get(0) : new Conditions.Or(terms);
+    }
+
+    private Condition parseAnd() {
+        List<Condition> terms = new ArrayList<>();
+        terms.add(parseNot());
+        while (acceptKeyword("AND")) {
+            terms.add(parseNot());
+        }
+        return terms.size() == 1 ? terms.get(0) : new Conditions.And(terms);
+    }
+
+    private Condition parseNot() {
+        if (acceptKeyword("NOT")) {
+            return new Conditions.Not(parseNot());
+        }
+        return parsePredicate();
+    }
+
+    private Condition parsePredicate() {
+        if (acceptSymbol("(")) {
+            Condition inner = parseOr();
+            expectSymbol(")");
+            return inner;
+        }
+        if (acceptKeyword("EXISTS")) {
+            expectSymbol("(");
+            Token name = next();
+            if (name.type() != Type.IDENTIFIER) {
+                throw error("EXISTS expects a property name", name);
+            }
+            expectSymbol(")");
+            return new Conditions.Exists(propertyName(name.text()));
+        }
+
+        Operand left = parseOperand();
+        Token token = peek();
+        if (token.type() == Type.SYMBOL && isComparison(token.text())) {
+            next();
+            return new Conditions.Comparison(operator(token.text()), left, parseOperand());
+        }
+        if (acceptKeyword("IS")) {
+            boolean negated = acceptKeyword("NOT");
+            expectKeyword("NULL");
+            return new Conditions.IsNull(left, negated);
+        }
+        boolean negated = acceptKeyword("NOT");
+        if (acceptKeyword("IN")) {
+            return new Conditions.In(left, parseInList(), negated);
+        }
+        if (acceptKeyword("LIKE")) {
+            return new Conditions.Like(left, parseLikePattern(), negated);
+        }
+        if (negated) {
+            throw error("Expected IN or LIKE after NOT");
+        }
+        return new Conditions.BooleanOperand(left);
+    }
+
+    private Set<Object> parseInList() {
+        expectSymbol("(");
+        Set<Object> values = new HashSet<>();
+        do {
+            Token token = peek();
+            Object value = literal();
+            if (value == null) {
+                throw error("IN list accepts only non-null literals", token);
+            }
+            values.add(Conditions.normalize(value));
+        } while (acceptSymbol(","));
+        expectSymbol(")");
+        return values;
+    }
+
+    private Conditions.LikeMatcher parseLikePattern() {
+        Token pattern = next();
+        if (pattern.type() != Type.STRING) {
+            throw error("LIKE expects a string pattern", pattern);
+        }
+        Character escape = null;
+        if (acceptKeyword("ESCAPE")) {
+            Token escapeToken = next();
+            if (escapeToken.type() != Type.STRING || ((String) escapeToken.value()).length() != 1) {
+                throw error("ESCAPE expects a single character string", escapeToken);
+            }
+            escape = ((String) escapeToken.value()).charAt(0);
+        }
+        return Conditions.LikeMatcher.compile((String) pattern.value(), escape);
+    }
+
+    private Operand parseOperand() {
+        Token token = peek();
+        if (token.type() == Type.IDENTIFIER) {
+            next();
+            return new Conditions.Property(propertyName(token.text()));
+        }
+        return new Conditions.Constant(literal());
+    }
+
+    private Object literal() {
+        Token token = next();
+        switch (token.type()) {
+            case STRING, NUMBER:
+                return token.value();
+            case KEYWORD:
+                switch (token.text()) {
+                    case "TRUE":
+                        return Boolean.TRUE;
+                    case "FALSE":
+                        return Boolean.FALSE;
+                    case "NULL":
+                        return null;
+                    default:
+                        break;
+                }
+                break;
+            case SYMBOL:
+                if (token.text().equals("-") && peek().type() == Type.NUMBER) {
+                    Object number = next().value();
+                    return number instanceof Long l ? (Object) (-l) : (Object) (-(Double) number);
+                }
+                break;
+            default:
+                break;
+        }
+        throw error("Expected a property or literal but found '" + token.text() + "'", token);
+    }
+
+    private static String propertyName(String identifier) {
+        if (identifier.regionMatches(true, 0, USER_PREFIX, 0, USER_PREFIX.length())) {
+            return identifier.substring(USER_PREFIX.length());
+        }
+        return identifier;
+    }
+
+    private static boolean isComparison(String symbol) {
+        return switch (symbol) {
+            case "=", "<>", "!=", "<", "<=", ">", ">=" -> true;
+            default -> false;
+        };
+    }
+
+    private static Operator operator(String symbol) {
+        return switch (symbol) {
+            case "=" -> Operator.EQ;
+            case "<>", "!=" -> Operator.NE;
+            case "<" -> Operator.LT;
+            case "<=" -> Operator.LE;
+            case ">" -> Operator.GT;
+            case ">=" -> Operator.GE;
+            default -> throw new IllegalStateException("Unexpected operator " + symbol);
+        };
+    }
+
+    private Token peek() {
+        return tokens.get(index);
+    }
+
+    private Token next() {
+        Token token = tokens.get(index);
+        if (token.type() != Type.END) {
+            index++;
+        }
+        return token;
+    }
+
+    private boolean acceptKeyword(String keyword) {
+        Token token = peek();
+        if (token.type() == Type.KEYWORD && token.text().equals(keyword)) {
+            index++;
+            return true;
+        }
+        return false;
+    }
+
+    private void expectKeyword(String keyword) {
+        if (!acceptKeyword(keyword)) {
+            throw error("Expected " + keyword);
+        }
+    }
+
+    private boolean acceptSymbol(String symbol) {
+        Token token = peek();
+        if (token.type() == Type.SYMBOL && token.text().equals(symbol)) {
+            index++;
+            return true;
+        }
+        return false;
+    }
+
+    private void expectSymbol(String symbol) {
+        if (!acceptSymbol(symbol)) {
+            throw error("Expected '" + symbol + "'");
+        }
+    }
+
+    private FilterSyntaxException error(String message) {
+        return error(message, peek());
+    }
+
+    private FilterSyntaxException error(String message, Token token) {
+        return new FilterSyntaxException(message, expression, token.position());
+    }
+
+    private static List<Token> tokenize(String expression) {
+        List<Token> tokens = new ArrayList<>();
+        int i = 0;
+        int length = expression.length();
+        while (i < length) {
+            char c = expression.charAt(i);
+            if (Character.isWhitespace(c)) {
+                i++;
+            } else if (c == '\'') {
+                StringBuilder text = new StringBuilder();
+                int start = i++;
+                while (true) {
+                    if (i >= length) {
+                        throw new FilterSyntaxException("Unterminated string literal", expression, start);
+                    }
+                    char ch = expression.charAt(i++);
+                    if (ch == '\'') {
+                        if (i < length && expression.charAt(i) == '\'') {
+                            text.append('\'');
+                            i++;
+                        } else {
+                            break;
+                        }
+                    } else {
+                        text.append(ch);
+                    }
+                }
+                tokens.add(new Token(Type.STRING, expression.substring(start, i), text.toString(), start));
+            } else if (c == '[') {
+                int end = expression.indexOf(']', i);
+                if (end < 0) {
+                    throw new FilterSyntaxException("Unterminated delimited identifier", expression, i);
+                }
+                tokens.add(new Token(Type.IDENTIFIER, expression.substring(i + 1, end), null, i));
+                i = end + 1;
+            } else if (Character.isDigit(c) || (c == '.' && i + 1 < length && Character.isDigit(expression.charAt(i + 1)))) {
+                int start = i;
+                boolean decimal = false;
+                while (i < length && (Character.isDigit(expression.charAt(i)) || expression.charAt(i) == '.')) {
+                    decimal |= expression.charAt(i) == '.';
+                    i++;
+                }
+                if (i < length && (expression.charAt(i) == 'e' || expression.charAt(i) == 'E')) {
+                    decimal = true;
+                    i++;
+                    if (i < length && (expression.charAt(i) == '+' || expression.charAt(i) == '-')) {
+                        i++;
+                    }
+                    while (i < length && Character.isDigit(expression.charAt(i))) {
+                        i++;
+                    }
+                }
+                String text = expression.substring(start, i);
+                try {
+                    Object value = decimal ? (Object) Double.parseDouble(text) : (Object) Long.parseLong(text);
+                    tokens.add(new Token(Type.NUMBER, text, value, start));
+                } catch (NumberFormatException e) {
+                    throw new FilterSyntaxException("Invalid number '" + text + "'", expression, start);
+                }
+            } else if (Character.isLetter(c) || c == '_' || c == '@') {
+                int start = i;
+                while (i < length && (Character.isLetterOrDigit(expression.charAt(i))
+                        || expression.charAt(i) == '_' || expression.charAt(i) == '.' || expression.charAt(i) == '@')) {
+                    i++;
+                }
+                String text = expression.substring(start, i);
+                String upper = text.toUpperCase(Locale.ROOT);
+                if (KEYWORDS.contains(upper)) {
+                    tokens.add(new Token(Type.KEYWORD, upper, null, start));
+                } else {
+                    tokens.add(new Token(Type.IDENTIFIER, text, null, start));
+                }
+            } else {
+                int start = i;
+                String two = i + 1 < length ? expression.substring(i, i + 2) : "";
+                if (two.equals("<>") || two.equals("!=") || two.equals("<=") || two.equals(">=")) {
+                    tokens.add(new Token(Type.SYMBOL, two, null, start));
+                    i += 2;
+                } else if ("()=<>,-".indexOf(c) >= 0) {
+                    tokens.add(new Token(Type.SYMBOL, String.valueOf(c), null, start));
+                    i++;
+                } else {
+                    throw new FilterSyntaxException("Unexpected character '" + c + "'", expression, start);
+                }
+            }
+        }
+        tokens.add(new Token(Type.END, "<end>", null, length));
+        return tokens;
+    }
+}
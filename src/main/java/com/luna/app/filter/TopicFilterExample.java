@@ -1,9 +1,19 @@
 package com.luna.app.filter;
 
 import com.azure.messaging.servicebus.*;
+import com.luna.app.client.ServiceBusClientFactory;
+import com.luna.app.logging.MessageEvent;
+import com.luna.app.logging.MessageLog;
+import com.luna.app.logging.MessageLogOptions;
+import com.luna.app.logging.MessageLogger;
+import com.luna.app.topic.PublishResult;
+import com.luna.app.topic.PublisherOptions;
+import com.luna.app.topic.TopicPublisher;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import reactor.core.publisher.Flux;
 
+import java.util.List;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
 
@@ -19,6 +29,14 @@ public class TopicFilterExample {
     private static final String SUB_NAME2 = "sub2";
     private static final String SUB_NAME3 = "sub3";
 
+    private static final MessageLog MESSAGE_LOG = new MessageLog(new MessageLogOptions(), MessageLog.toLogger(logger));
+
+    // Mirrors the SQL filters deployed on the subscriptions; compiling them here validates the syntax up front
+    private static final FilterRouter<String> SUBSCRIPTION_FILTERS = new FilterRouter<String>()
+            .addRule(SUB_NAME1, "color = 'red'", SUB_NAME1)
+            .addRule(SUB_NAME2, "color = 'blue'", SUB_NAME2)
+            .addRule(SUB_NAME3, "color = 'green'", SUB_NAME3);
+
     public static void main(String[] args) throws InterruptedException {
         TopicFilterExample example = new TopicFilterExample();
         example.sendMessages();
@@ -31,10 +49,18 @@ public class TopicFilterExample {
      * Sends multiple messages to the Azure Service Bus topic with different application properties.
      */
     private void sendMessages() {
-        try (ServiceBusSenderClient senderClient = createSenderClient()) {
-            sendMessageWithColor(senderClient, "topic filter example red", "red");
-            sendMessageWithColor(senderClient, "topic filter example blue", "blue");
-            sendMessageWithColor(senderClient, "topic filter example green", "green");
+        try (ServiceBusSenderAsyncClient senderClient = createSenderClient()) {
+            TopicPublisher publisher = new TopicPublisher(senderClient, new PublisherOptions());
+            Flux<ServiceBusMessage> messages = Flux.just(
+                    createMessageWithColor("topic filter example red", "red"),
+                    createMessageWithColor("topic filter example blue", "blue"),
+                    createMessageWithColor("topic filter example green", "green"),
+                    createMessageWithColor("topic filter example purple", "purple"))
+                    .filter(this::hasSubscriber);
+
+            publisher.publish(messages)
+                    .doOnNext(this::logSendResult)
+                    .blockLast();
 
             logger.info("Sent messages to the topic: {}", TOPIC_NAME);
         } catch (Exception e) {
@@ -43,30 +69,54 @@ public class TopicFilterExample {
     }
 
     /**
-     * Creates a Service Bus sender client for the topic.
+     * Creates an asynchronous Service Bus sender client for the topic on the shared connection.
      *
      * @return the Service Bus sender client
      */
-    private ServiceBusSenderClient createSenderClient() {
-        return new ServiceBusClientBuilder()
-                .connectionString(CONNECTION_STRING)
+    private ServiceBusSenderAsyncClient createSenderClient() {
+        return ServiceBusClientFactory.forConnectionString(CONNECTION_STRING)
                 .sender()
                 .topicName(TOPIC_NAME)
-                .buildClient();
+                .buildAsyncClient();
     }
 
     /**
-     * Sends a message with a color property to the topic.
+     * Creates a message with a color property.
      *
-     * @param senderClient the Service Bus sender client
-     * @param messageBody  the message content
-     * @param color        the color property to be set
+     * @param messageBody the message content
+     * @param color       the color property to be set
+     * @return the message
      */
-    private void sendMessageWithColor(ServiceBusSenderClient senderClient, String messageBody, String color) {
+    private ServiceBusMessage createMessageWithColor(String messageBody, String color) {
         ServiceBusMessage message = new ServiceBusMessage(messageBody);
         message.getApplicationProperties().put("color", color);
-        senderClient.sendMessage(message);
-        logger.info("Sent message with color: {}", color);
+        return message;
+    }
+
+    /**
+     * Drops messages that no subscription filter would accept, saving the send for messages the broker would discard.
+     *
+     * @param message the message to check
+     * @return whether at least one subscription would receive the message
+     */
+    private boolean hasSubscriber(ServiceBusMessage message) {
+        List<String> subscriptions = SUBSCRIPTION_FILTERS.route(message.getApplicationProperties());
+        if (subscriptions.isEmpty()) {
+            logger.warn("Dropping message with color {}: no subscription matches",
+                    message.getApplicationProperties().get("color"));
+            return false;
+        }
+        logger.debug("Message with color {} routes to {}", message.getApplicationProperties().get("color"), subscriptions);
+        return true;
+    }
+
+    private void logSendResult(PublishResult result) {
+        Object color = result.message().getApplicationProperties().get("color");
+        if (result.isSuccess()) {
+            logger.info("Sent message with color: {}", color);
+        } else {
+            logger.error("Failed to send message with color {}: {}", color, result.error().getMessage());
+        }
     }
 
     /**
@@ -76,14 +126,14 @@ public class TopicFilterExample {
      */
     private void receiveMessages(String subscriptionName) throws InterruptedException {
         CountDownLatch countdownLatch = new CountDownLatch(1);
+        MessageLogger messages = MESSAGE_LOG.forEntity(TOPIC_NAME + "/subscriptions/" + subscriptionName);
 
         // Create the processor client for receiving messages
-        ServiceBusProcessorClient processorClient = new ServiceBusClientBuilder()
-                .connectionString(CONNECTION_STRING)
+        ServiceBusProcessorClient processorClient = ServiceBusClientFactory.forConnectionString(CONNECTION_STRING)
                 .processor()
                 .topicName(TOPIC_NAME)
                 .subscriptionName(subscriptionName)
-                .processMessage(TopicFilterExample::processMessage)
+                .processMessage(context -> processMessage(context, messages))
                 .processError(context -> processError(context, countdownLatch))
                 .buildProcessorClient();
 
@@ -100,12 +150,11 @@ public class TopicFilterExample {
     /**
      * Processes received messages from the subscription.
      *
-     * @param context the message context
+     * @param context  the message context
+     * @param messages the message log of the subscription
      */
-    private static void processMessage(ServiceBusReceivedMessageContext context) {
-        ServiceBusReceivedMessage message = context.getMessage();
-        logger.info("Processing message. Session: {}, Sequence #: {}, Contents: {}",
-                message.getMessageId(), message.getSequenceNumber(), message.getBody());
+    private static void processMessage(ServiceBusReceivedMessageContext context, MessageLogger messages) {
+        messages.log(MessageEvent.RECEIVED, context.getMessage());
     }
 
     /**
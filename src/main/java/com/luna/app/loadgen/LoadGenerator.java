@@ -0,0 +1,203 @@
+package com.luna.app.loadgen;
+
+import com.azure.messaging.servicebus.ServiceBusException;
+import com.azure.messaging.servicebus.ServiceBusFailureReason;
+import com.azure.messaging.servicebus.ServiceBusMessage;
+import com.luna.app.queue.MessageSink;
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+
+/**
+ * Sends generated messages to a {@link MessageSink}, one message per send call, and measures the latency of every
+ * send in HdrHistogram {@link Recorder}s.
+ * <p>
+ * With a target rate, each send has a due time on a fixed schedule and its latency is measured from that time; when
+ * all workers are busy the schedule runs ahead and the wait shows up as latency, as it would for a real producer.
+ * Without a target rate, every worker sends again as soon as its previous send returns. Messages get a body sized by
+ * {@link LoadOptions#getSizeDistribution()}, the configured application properties and, optionally, a session ID.
+ */
+public class LoadGenerator {
+
+    private static final Logger logger = LoggerFactory.getLogger(LoadGenerator.class);
+
+    private static final long HIGHEST_TRACKABLE_MICROS = TimeUnit.MINUTES.toMicros(10);
+    private static final int SIGNIFICANT_DIGITS = 3;
+
+    private final MessageSink sink;
+    private final LoadOptions options;
+    private final String[] propertyNames;
+    private final String[][] propertyValues;
+    private final String[] sessionIds;
+
+    private final Recorder responseTimes = new Recorder(HIGHEST_TRACKABLE_MICROS, SIGNIFICANT_DIGITS);
+    private final Recorder serviceTimes = new Recorder(HIGHEST_TRACKABLE_MICROS, SIGNIFICANT_DIGITS);
+    private final LongAdder sent = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final LongAdder throttled = new LongAdder();
+    private final AtomicLong nextSlot = new AtomicLong();
+
+    /**
+     * @param sink    the send link to load; shared by all workers
+     * @param options rate, concurrency, duration and message shape
+     */
+    public LoadGenerator(MessageSink sink, LoadOptions options) {
+        this.sink = sink;
+        this.options = options;
+        Map<String, Integer> cardinality = options.getPropertyCardinality();
+        this.propertyNames = cardinality.keySet().toArray(new String[0]);
+        this.propertyValues = new String[propertyNames.length][];
+        for (int p = 0; p < propertyNames.length; p++) {
+            propertyValues[p] = new String[cardinality.get(propertyNames[p])];
+            for (int v = 0; v < propertyValues[p].length; v++) {
+                propertyValues[p][v] = propertyNames[p] + "-" + v;
+            }
+        }
+        this.sessionIds = new String[options.getSessionKeys()];
+        for (int s = 0; s < sessionIds.length; s++) {
+            sessionIds[s] = "session-" + s;
+        }
+    }
+
+    /**
+     * Runs the warmup and the measured duration, blocking until all workers have finished.
+     *
+     * @param progress receives a report for every {@link LoadOptions#getReportInterval()} after the warmup
+     * @return the report of the measured duration
+     * @throws InterruptedException if interrupted while waiting for the workers
+     */
+    public LoadReport run(Consumer<LoadReport> progress) throws InterruptedException {
+        long startNanos = System.nanoTime();
+        long measureNanos = startNanos + options.getWarmup().toNanos();
+        long endNanos = measureNanos + options.getDuration().toNanos();
+
+        List<Thread> workers = new ArrayList<>();
+        for (int w = 0; w < options.getConcurrency(); w++) {
+            Thread worker = new Thread(() -> work(startNanos, endNanos), "loadgen-" + w);
+            worker.setDaemon(true);
+            workers.add(worker);
+            worker.start();
+        }
+
+        sleepUntil(measureNanos);
+        // Drops whatever was recorded during the warmup
+        responseTimes.reset();
+        serviceTimes.reset();
+        Counts base = counts();
+        Histogram totalResponseTime = new Histogram(HIGHEST_TRACKABLE_MICROS, SIGNIFICANT_DIGITS);
+        Histogram totalServiceTime = new Histogram(HIGHEST_TRACKABLE_MICROS, SIGNIFICANT_DIGITS);
+        long intervalNanos = options.getReportInterval().toNanos();
+        long intervalStart = measureNanos;
+        Counts intervalBase = base;
+        for (long next = measureNanos + intervalNanos; next < endNanos; next += intervalNanos) {
+            sleepUntil(next);
+            Counts now = counts();
+            LoadReport report = report(next - intervalStart, now.minus(intervalBase),
+                    responseTimes.getIntervalHistogram(), serviceTimes.getIntervalHistogram());
+            totalResponseTime.add(report.responseTime());
+            totalServiceTime.add(report.serviceTime());
+            progress.accept(report);
+            intervalStart = next;
+            intervalBase = now;
+        }
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        totalResponseTime.add(responseTimes.getIntervalHistogram());
+        totalServiceTime.add(serviceTimes.getIntervalHistogram());
+        long elapsedNanos = Math.min(System.nanoTime(), endNanos) - measureNanos;
+        return report(elapsedNanos, counts().minus(base), totalResponseTime, totalServiceTime);
+    }
+
+    private void work(long startNanos, long endNanos) {
+        SplittableRandom random = new SplittableRandom();
+        if (options.getRatePerSecond() == 0) {
+            while (System.nanoTime() < endNanos) {
+                send(System.nanoTime(), random);
+            }
+            return;
+        }
+        double intervalNanos = 1e9 / options.getRatePerSecond();
+        while (true) {
+            long dueNanos = startNanos + (long) (nextSlot.getAndIncrement() * intervalNanos);
+            if (dueNanos >= endNanos) {
+                return;
+            }
+            sleepUntil(dueNanos);
+            send(dueNanos, random);
+        }
+    }
+
+    private void send(long dueNanos, SplittableRandom random) {
+        ServiceBusMessage message = newMessage(random);
+        long startNanos = System.nanoTime();
+        try {
+            MessageSink.Batch batch = sink.createBatch();
+            if (!batch.tryAddMessage(message)) {
+                throw new IllegalArgumentException("Message is larger than the maximum batch size");
+            }
+            sink.send(batch);
+        } catch (RuntimeException e) {
+            failed.increment();
+            if (e instanceof ServiceBusException serviceBusException
+                    && serviceBusException.getReason() == ServiceBusFailureReason.SERVICE_BUSY) {
+                throttled.increment();
+            } else {
+                logger.debug("Send failed: {}", e.getMessage());
+            }
+            return;
+        }
+        long doneNanos = System.nanoTime();
+        responseTimes.recordValue(Math.min((doneNanos - dueNanos) / 1000, HIGHEST_TRACKABLE_MICROS));
+        serviceTimes.recordValue(Math.min((doneNanos - startNanos) / 1000, HIGHEST_TRACKABLE_MICROS));
+        sent.increment();
+    }
+
+    private ServiceBusMessage newMessage(SplittableRandom random) {
+        ServiceBusMessage message = new ServiceBusMessage(new byte[options.getSizeDistribution().sample(random)]);
+        for (int p = 0; p < propertyNames.length; p++) {
+            String[] values = propertyValues[p];
+            message.getApplicationProperties().put(propertyNames[p], values[random.nextInt(values.length)]);
+        }
+        if (sessionIds.length > 0) {
+            message.setSessionId(sessionIds[random.nextInt(sessionIds.length)]);
+        }
+        return message;
+    }
+
+    private static void sleepUntil(long deadlineNanos) {
+        for (long remaining = deadlineNanos - System.nanoTime(); remaining > 0;
+             remaining = deadlineNanos - System.nanoTime()) {
+            LockSupport.parkNanos(remaining);
+        }
+    }
+
+    private Counts counts() {
+        return new Counts(sent.sum(), failed.sum(), throttled.sum());
+    }
+
+    private LoadReport report(long elapsedNanos, Counts counts, Histogram responseTime, Histogram serviceTime) {
+        // In a closed loop every send is due when it starts, so the two histograms hold the same latencies
+        return new LoadReport(Duration.ofNanos(elapsedNanos), counts.sent(), counts.failed(), counts.throttled(),
+                responseTime, options.getRatePerSecond() == 0 ? responseTime : serviceTime);
+    }
+
+    private record Counts(long sent, long failed, long throttled) {
+
+        Counts minus(Counts base) {
+            return new Counts(sent - base.sent, failed - base.failed, throttled - base.throttled);
+        }
+    }
+}
@@ -0,0 +1,184 @@
+package com.luna.app.loadgen;
+
+import com.luna.app.client.ServiceBusClientFactory;
+import com.luna.app.emulator.EmulatedEntity;
+import com.luna.app.emulator.EmulatorOptions;
+import com.luna.app.emulator.ServiceBusEmulator;
+import com.luna.app.provisioning.QueueSpec;
+import com.luna.app.provisioning.SubscriptionSpec;
+import com.luna.app.provisioning.TopicSpec;
+import com.luna.app.queue.ConsumerEngine;
+import com.luna.app.queue.ConsumerOptions;
+import com.luna.app.queue.Disposition;
+import com.luna.app.queue.InMemoryMessage;
+import com.luna.app.queue.MessageSink;
+import com.luna.app.queue.ServiceBusMessageSink;
+import com.luna.app.session.SessionProcessor;
+import com.luna.app.session.SessionProcessorOptions;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Sends a configurable load to a queue or topic and prints throughput and latency percentiles.
+ * <p>
+ * Usage: {@code LoadGeneratorTool [--emulator] [--queue name | --topic name] [--rate N] [--concurrency N]
+ * [--duration 60s] [--warmup 5s] [--size spec] [--property name=cardinality]... [--sessions N] [--latency ms]
+ * [--throttle probability]}.
+ * <p>
+ * Without {@code --rate} each of the {@code --concurrency} workers sends as soon as its previous send returns;
+ * with it, sends are scheduled at that rate and latency is measured from the scheduled time. {@code --size} takes a
+ * {@link SizeDistribution#parse(String) size distribution} such as {@code lognormal:2048,0.5}. Durations take an
+ * {@code ms}, {@code s} or {@code m} suffix.
+ * <p>
+ * Without {@code --emulator} the load goes to the namespace in {@code AZURE_SERVICE_BUS_CONNECTION_STRING}. With it,
+ * the entity is created in a {@link ServiceBusEmulator} whose calls take {@code --latency} and fail as throttled with
+ * {@code --throttle} probability; a topic gets an {@code all} subscription plus one filtered subscription per value of
+ * the first property, and every subscription is drained so that the emulator's memory stays bounded. With
+ * {@code --sessions} the emulated queue or subscriptions require sessions and are drained by a
+ * {@link SessionProcessor}, as session-enabled entities on the broker would be.
+ */
+public class LoadGeneratorTool {
+
+    private static final int MAX_DRAINED_SESSIONS = 64;
+
+    private static final String CONNECTION_STRING = System.getenv("AZURE_SERVICE_BUS_CONNECTION_STRING");
+    private static final String QUEUE_NAME = System.getenv("AZURE_SERVICE_BUS_QUEUE_NAME");
+
+    public static void main(String[] args) throws InterruptedException {
+        LoadOptions options = new LoadOptions();
+        boolean emulated = false;
+        String queueName = null;
+        String topicName = null;
+        Duration latency = Duration.ZERO;
+        double throttleProbability = 0;
+        for (int i = 0; i < args.length; i++) {
+            String arg = args[i];
+            if (arg.equals("--emulator")) {
+                emulated = true;
+                continue;
+            }
+            if (i + 1 == args.length) {
+                throw new IllegalArgumentException("Missing value for " + arg);
+            }
+            String value = args[++i];
+            switch (arg) {
+                case "--queue" -> queueName = value;
+                case "--topic" -> topicName = value;
+                case "--rate" -> options.setRatePerSecond(Double.parseDouble(value));
+                case "--concurrency" -> options.setConcurrency(Integer.parseInt(value));
+                case "--duration" -> options.setDuration(parseDuration(value));
+                case "--warmup" -> options.setWarmup(parseDuration(value));
+                case "--size" -> options.setSizeDistribution(SizeDistribution.parse(value));
+                case "--property" -> {
+                    int equals = value.indexOf('=');
+                    if (equals < 0) {
+                        throw new IllegalArgumentException("Expected name=cardinality but was " + value);
+                    }
+                    options.addProperty(value.substring(0, equals), Integer.parseInt(value.substring(equals + 1)));
+                }
+                case "--sessions" -> options.setSessionKeys(Integer.parseInt(value));
+                case "--latency" -> latency = Duration.ofMillis(Long.parseLong(value));
+                case "--throttle" -> throttleProbability = Double.parseDouble(value);
+                default -> throw new IllegalArgumentException("Unknown option " + arg);
+            }
+        }
+        if (queueName == null && topicName == null) {
+            queueName = QUEUE_NAME != null ? QUEUE_NAME : "load";
+        }
+        String entityName = topicName != null ? topicName : queueName;
+
+        System.out.printf("Sending to %s %s: %s, concurrency %d, %s for %ds, properties %s, %d session keys%n",
+                topicName != null ? "topic" : "queue", entityName,
+                options.getRatePerSecond() == 0 ? "closed loop" : options.getRatePerSecond() + " msg/s",
+                options.getConcurrency(), options.getSizeDistribution(), options.getDuration().toSeconds(),
+                options.getPropertyCardinality(), options.getSessionKeys());
+        LoadReport report;
+        if (emulated) {
+            EmulatorOptions emulatorOptions = new EmulatorOptions()
+                    .setSendLatency(latency)
+                    .setThrottleProbability(throttleProbability);
+            try (ServiceBusEmulator emulator = new ServiceBusEmulator(emulatorOptions)) {
+                List<EmulatedEntity> entities = createEntities(emulator, queueName, topicName, options);
+                List<Runnable> consumers = new ArrayList<>();
+                for (EmulatedEntity entity : entities) {
+                    consumers.add(drain(entity, options));
+                }
+                try (MessageSink sink = emulator.newSink(entityName)) {
+                    report = run(sink, options);
+                } finally {
+                    consumers.forEach(Runnable::run);
+                }
+                System.out.printf("throttled calls: %d%n", emulator.getThrottledCount());
+            }
+        } else {
+            ServiceBusClientFactory factory = ServiceBusClientFactory.forConnectionString(CONNECTION_STRING);
+            try (MessageSink sink = new ServiceBusMessageSink(topicName != null
+                    ? factory.sender().topicName(topicName).buildClient()
+                    : factory.sender().queueName(queueName).buildClient())) {
+                report = run(sink, options);
+            }
+        }
+        System.out.println("Done: " + report);
+        report.printDistribution(System.out);
+    }
+
+    private static LoadReport run(MessageSink sink, LoadOptions options) throws InterruptedException {
+        return new LoadGenerator(sink, options).run(report -> System.out.println("Sending: " + report));
+    }
+
+    /**
+     * Starts completing every message of the entity and returns what stops it.
+     */
+    private static Runnable drain(EmulatedEntity entity, LoadOptions options) {
+        if (entity.isSessionRequired()) {
+            SessionProcessor<InMemoryMessage> processor = new SessionProcessor<>(entity.getPath(),
+                    entity.newSessionSource(), message -> Disposition.COMPLETE, new SessionProcessorOptions()
+                    .setMaxConcurrentSessions(Math.min(options.getSessionKeys(), MAX_DRAINED_SESSIONS))
+                    .setMaxWaitTime(Duration.ofMillis(100))
+                    .setSessionIdleTimeout(Duration.ofMillis(100)));
+            processor.start();
+            return processor::close;
+        }
+        ConsumerEngine<InMemoryMessage> consumer = new ConsumerEngine<>(entity.getPath(), entity::newSource,
+                message -> Disposition.COMPLETE, new ConsumerOptions().setMaxWaitTime(Duration.ofMillis(100)));
+        consumer.start();
+        return consumer::close;
+    }
+
+    private static List<EmulatedEntity> createEntities(ServiceBusEmulator emulator, String queueName,
+                                                       String topicName, LoadOptions options) {
+        boolean sessions = options.getSessionKeys() > 0;
+        if (topicName == null) {
+            return List.of(emulator.createQueue(new QueueSpec(queueName, null, null, null, sessions, null)));
+        }
+        List<SubscriptionSpec> subscriptions = new ArrayList<>();
+        subscriptions.add(new SubscriptionSpec("all", null, null, null, sessions, Map.of()));
+        options.getPropertyCardinality().entrySet().stream().findFirst().ifPresent(property -> {
+            for (int v = 0; v < property.getValue(); v++) {
+                String value = property.getKey() + "-" + v;
+                subscriptions.add(new SubscriptionSpec(value, null, null, null, sessions,
+                        Map.of(value, property.getKey() + " = '" + value + "'")));
+            }
+        });
+        emulator.createTopic(new TopicSpec(topicName, subscriptions));
+        return subscriptions.stream()
+                .map(subscription -> emulator.getSubscription(topicName, subscription.name()))
+                .toList();
+    }
+
+    private static Duration parseDuration(String value) {
+        if (value.endsWith("ms")) {
+            return Duration.ofMillis(Long.parseLong(value.substring(0, value.length() - 2)));
+        }
+        if (value.endsWith("s")) {
+            return Duration.ofSeconds(Long.parseLong(value.substring(0, value.length() - 1)));
+        }
+        if (value.endsWith("m")) {
+            return Duration.ofMinutes(Long.parseLong(value.substring(0, value.length() - 1)));
+        }
+        return Duration.parse(value);
+    }
+}
@@ -0,0 +1,159 @@
+package com.luna.app.loadgen;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Shape of the traffic produced by a {@link LoadGenerator}.
+ */
+public class LoadOptions {
+
+    private double ratePerSecond;
+    private int concurrency = 16;
+    private Duration duration = Duration.ofSeconds(60);
+    private Duration warmup = Duration.ZERO;
+    private Duration reportInterval = Duration.ofSeconds(5);
+    private SizeDistribution sizeDistribution = SizeDistribution.fixed(1024);
+    private final Map<String, Integer> propertyCardinality = new LinkedHashMap<>();
+    private int sessionKeys;
+
+    public double getRatePerSecond() {
+        return ratePerSecond;
+    }
+
+    /**
+     * Sets a target send rate. Sends are scheduled at fixed intervals and latency is measured from the scheduled time,
+     * so a stalled broker shows up as latency rather than as a lower rate (no coordinated omission).
+     *
+     * @param ratePerSecond messages per second, or zero for a closed loop where each of {@link #getConcurrency()}
+     *                      workers sends as soon as its previous send returns
+     * @return the updated options
+     */
+    public LoadOptions setRatePerSecond(double ratePerSecond) {
+        if (!(ratePerSecond >= 0)) {
+            throw new IllegalArgumentException("ratePerSecond must not be negative but was " + ratePerSecond);
+        }
+        this.ratePerSecond = ratePerSecond;
+        return this;
+    }
+
+    public int getConcurrency() {
+        return concurrency;
+    }
+
+    /**
+     * Sets the number of sending workers: the number of sends in flight in a closed loop, and the most that may be in
+     * flight at a target rate.
+     *
+     * @param concurrency the number of workers
+     * @return the updated options
+     */
+    public LoadOptions setConcurrency(int concurrency) {
+        if (concurrency <= 0) {
+            throw new IllegalArgumentException("concurrency must be positive but was " + concurrency);
+        }
+        this.concurrency = concurrency;
+        return this;
+    }
+
+    public Duration getDuration() {
+        return duration;
+    }
+
+    /**
+     * @param duration how long to measure, after the warmup
+     * @return the updated options
+     */
+    public LoadOptions setDuration(Duration duration) {
+        this.duration = requirePositive(duration, "duration");
+        return this;
+    }
+
+    public Duration getWarmup() {
+        return warmup;
+    }
+
+    /**
+     * @param warmup how long to send before measuring, so connection setup and JIT compilation are not reported
+     * @return the updated options
+     */
+    public LoadOptions setWarmup(Duration warmup) {
+        if (warmup == null || warmup.isNegative()) {
+            throw new IllegalArgumentException("warmup must not be negative");
+        }
+        this.warmup = warmup;
+        return this;
+    }
+
+    public Duration getReportInterval() {
+        return reportInterval;
+    }
+
+    /**
+     * @param reportInterval how often progress is reported while running
+     * @return the updated options
+     */
+    public LoadOptions setReportInterval(Duration reportInterval) {
+        this.reportInterval = requirePositive(reportInterval, "reportInterval");
+        return this;
+    }
+
+    public SizeDistribution getSizeDistribution() {
+        return sizeDistribution;
+    }
+
+    public LoadOptions setSizeDistribution(SizeDistribution sizeDistribution) {
+        if (sizeDistribution == null) {
+            throw new IllegalArgumentException("sizeDistribution must not be null");
+        }
+        this.sizeDistribution = sizeDistribution;
+        return this;
+    }
+
+    public Map<String, Integer> getPropertyCardinality() {
+        return Collections.unmodifiableMap(propertyCardinality);
+    }
+
+    /**
+     * Adds an application property to every message, with values {@code <name>-0} to {@code <name>-<cardinality-1>}
+     * chosen uniformly, e.g. to exercise subscription filters on that property.
+     *
+     * @param name        the property name
+     * @param cardinality the number of distinct values
+     * @return the updated options
+     */
+    public LoadOptions addProperty(String name, int cardinality) {
+        if (cardinality <= 0) {
+            throw new IllegalArgumentException("cardinality must be positive but was " + cardinality);
+        }
+        propertyCardinality.put(name, cardinality);
+        return this;
+    }
+
+    public int getSessionKeys() {
+        return sessionKeys;
+    }
+
+    /**
+     * Sets how many distinct session IDs messages are spread over, uniformly.
+     *
+     * @param sessionKeys the number of session IDs, or zero to send without sessions
+     * @return the updated options
+     */
+    public LoadOptions setSessionKeys(int sessionKeys) {
+        if (sessionKeys < 0) {
+            throw new IllegalArgumentException("sessionKeys must not be negative but was " + sessionKeys);
+        }
+        this.sessionKeys = sessionKeys;
+        return this;
+    }
+
+    private static Duration requirePositive(Duration value, String name) {
+        if (value == null || value.isNegative() || value.isZero()) {
+            throw new IllegalArgumentException(name + " must be positive");
+        }
+        return value;
+    }
+}
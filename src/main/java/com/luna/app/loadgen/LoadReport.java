@@ -0,0 +1,60 @@
+package com.luna.app.loadgen;
+
+import org.HdrHistogram.Histogram;
+
+import java.io.PrintStream;
+import java.time.Duration;
+
+/**
+ * Outcome of a {@link LoadGenerator} run or of one reporting interval. Latencies are in microseconds.
+ *
+ * @param elapsed      the measured time
+ * @param sent         messages the broker accepted
+ * @param failed       sends that failed, including throttled ones
+ * @param throttled    sends rejected with {@code SERVICE_BUSY}
+ * @param responseTime latency from when each send was due; equals the service time in a closed loop
+ * @param serviceTime  latency from when each send actually started
+ */
+public record LoadReport(Duration elapsed, long sent, long failed, long throttled, Histogram responseTime,
+                         Histogram serviceTime) {
+
+    private static final double[] PERCENTILES = {50, 90, 99, 99.9};
+
+    /**
+     * @return accepted messages per second
+     */
+    public double getThroughput() {
+        return elapsed.isZero() ? 0 : sent * 1e9 / elapsed.toNanos();
+    }
+
+    /**
+     * Prints the full response time distribution in milliseconds, in HdrHistogram's percentile format.
+     *
+     * @param out where to print
+     */
+    public void printDistribution(PrintStream out) {
+        responseTime.outputPercentileDistribution(out, 1000.0);
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder line = new StringBuilder(String.format("%.0f msg/s, sent=%d, failed=%d (throttled %d), ",
+                getThroughput(), sent, failed, throttled));
+        appendPercentiles(line, "latency", responseTime);
+        if (serviceTime != responseTime) {
+            line.append(", ");
+            appendPercentiles(line, "service", serviceTime);
+        }
+        return line.toString();
+    }
+
+    private static void appendPercentiles(StringBuilder line, String label, Histogram histogram) {
+        line.append(label).append(" ms");
+        for (double percentile : PERCENTILES) {
+            line.append(String.format(" p%s=%.2f", percentile == (long) percentile
+                    ? Long.toString((long) percentile)
+                    : Double.toString(percentile), histogram.getValueAtPercentile(percentile) / 1000.0));
+        }
+        line.append(String.format(" max=%.2f", histogram.getMaxValue() / 1000.0));
+    }
+}
@@ -0,0 +1,124 @@
+package com.luna.app.loadgen;
+
+import com.luna.app.queue.MessageLimits;
+
+import java.util.random.RandomGenerator;
+
+/**
+ * Distribution of generated message body sizes, in bytes.
+ */
+public interface SizeDistribution {
+
+    /**
+     * @param random the random source of the calling thread
+     * @return the size of the next body
+     */
+    int sample(RandomGenerator random);
+
+    static SizeDistribution fixed(int bytes) {
+        return new Fixed(requireSize(bytes));
+    }
+
+    static SizeDistribution uniform(int minBytes, int maxBytes) {
+        if (requireSize(minBytes) > requireSize(maxBytes)) {
+            throw new IllegalArgumentException("minBytes " + minBytes + " is larger than maxBytes " + maxBytes);
+        }
+        return new Uniform(minBytes, maxBytes);
+    }
+
+    /**
+     * A long-tailed distribution, as payload sizes of real traffic tend to be, capped at the Standard tier message
+     * size.
+     *
+     * @param medianBytes the median size
+     * @param sigma       the standard deviation of the size's logarithm; 0.5 puts the 99th percentile at about 3.2
+     *                    times the median
+     */
+    static SizeDistribution logNormal(int medianBytes, double sigma) {
+        if (!(sigma >= 0)) {
+            throw new IllegalArgumentException("sigma must not be negative but was " + sigma);
+        }
+        return new LogNormal(requireSize(medianBytes), sigma);
+    }
+
+    /**
+     * Parses {@code fixed:<bytes>}, {@code uniform:<min>-<max>} or {@code lognormal:<median>,<sigma>}; a plain number
+     * is a fixed size.
+     *
+     * @param spec the distribution
+     * @return the parsed distribution
+     * @throws IllegalArgumentException if the spec is malformed
+     */
+    static SizeDistribution parse(String spec) {
+        int colon = spec.indexOf(':');
+        String kind = colon < 0 ? "fixed" : spec.substring(0, colon);
+        String[] values = spec.substring(colon + 1).split("[-,]");
+        SizeDistribution distribution;
+        try {
+            distribution = switch (kind) {
+                case "fixed" -> values.length == 1 ? fixed(Integer.parseInt(values[0])) : null;
+                case "uniform" -> values.length == 2
+                        ? uniform(Integer.parseInt(values[0]), Integer.parseInt(values[1]))
+                        : null;
+                case "lognormal" -> values.length == 2
+                        ? logNormal(Integer.parseInt(values[0]), Double.parseDouble(values[1]))
+                        : null;
+                default -> null;
+            };
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid size distribution: " + spec, e);
+        }
+        if (distribution == null) {
+            throw new IllegalArgumentException("Invalid size distribution: " + spec);
+        }
+        return distribution;
+    }
+
+    private static int requireSize(int bytes) {
+        if (bytes < 0 || bytes > MessageLimits.MAX_MESSAGE_SIZE) {
+            throw new IllegalArgumentException("Size must be in [0, " + MessageLimits.MAX_MESSAGE_SIZE + "] but was "
+                    + bytes);
+        }
+        return bytes;
+    }
+
+    record Fixed(int bytes) implements SizeDistribution {
+
+        @Override
+        public int sample(RandomGenerator random) {
+            return bytes;
+        }
+
+        @Override
+        public String toString() {
+            return "fixed:" + bytes;
+        }
+    }
+
+    record Uniform(int minBytes, int maxBytes) implements SizeDistribution {
+
+        @Override
+        public int sample(RandomGenerator random) {
+            return random.nextInt(minBytes, maxBytes + 1);
+        }
+
+        @Override
+        public String toString() {
+            return "uniform:" + minBytes + "-" + maxBytes;
+        }
+    }
+
+    record LogNormal(int medianBytes, double sigma) implements SizeDistribution {
+
+        @Override
+        public int sample(RandomGenerator random) {
+            double size = medianBytes * Math.exp(sigma * random.nextGaussian());
+            return (int) Math.min(Math.round(size), MessageLimits.MAX_MESSAGE_SIZE);
+        }
+
+        @Override
+        public String toString() {
+            return "lognormal:" + medianBytes + "," + sigma;
+        }
+    }
+}
@@ -0,0 +1,13 @@
+package com.luna.app.logging;
+
+/**
+ * What happened to a message, as recorded in a {@link MessageLog}.
+ */
+public enum MessageEvent {
+    SENT,
+    RECEIVED,
+    COMPLETED,
+    ABANDONED,
+    DEAD_LETTERED,
+    FAILED
+}
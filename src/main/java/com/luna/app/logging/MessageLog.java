@@ -0,0 +1,297 @@
+package com.luna.app.logging;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+
+/**
+ * Asynchronous, allocation-free log of message handling events, for per-message logging on the hot path.
+ * <p>
+ * An event is a fixed set of fields (time, entity, event, sequence number, message ID, size, latency) written into
+ * preallocated arrays of a ring buffer; a background thread formats the events and hands them to the output in
+ * batches, so the output's own locking is paid once per batch rather than once per message. Writers never block and
+ * never format: when the buffer is full the event is dropped and counted. Message bodies are not decoded unless
+ * {@link MessageLogOptions#setBodyPreviewBytes(int)} is set, and even then only the flusher decodes them.
+ * <p>
+ * Events still buffered are written when the log is closed, or at JVM shutdown. Closing waits up to
+ * {@link #CLOSE_TIMEOUT} for writers that had already claimed a slot; events they have not published by then are
+ * counted as dropped.
+ */
+public class MessageLog implements AutoCloseable {
+
+    private static final Logger logger = LoggerFactory.getLogger(MessageLog.class);
+
+    static final Duration CLOSE_TIMEOUT = Duration.ofSeconds(1);
+    // Set on the claim counter by close(), so that no slot can be claimed afterwards
+    private static final long CLOSED = Long.MIN_VALUE;
+
+    private final int capacity;
+    private final int mask;
+    private final int bodyPreviewBytes;
+    private final long flushIntervalNanos;
+    private final Consumer<CharSequence> output;
+
+    // Ring buffer: slot i holds the event whose sequence is published[i]; claimed is negative once closed
+    private final AtomicLong claimed = new AtomicLong();
+    private final AtomicLongArray published;
+    private final long[] timestamps;
+    private final int[] entities;
+    private final MessageEvent[] events;
+    private final long[] sequenceNumbers;
+    private final String[] messageIds;
+    private final int[] sizes;
+    private final long[] latencies;
+    private final byte[] bodies;
+    private final int[] bodyLengths;
+    private volatile long consumed;
+
+    private final List<String> entityNames = new CopyOnWriteArrayList<>();
+    private final ConcurrentMap<String, MessageLogger> loggers = new ConcurrentHashMap<>();
+    private final LongAdder dropped = new LongAdder();
+    private final AtomicLong written = new AtomicLong();
+    private final StringBuilder batch = new StringBuilder();
+    private long formattedSecond = Long.MIN_VALUE;
+    private String formattedSecondText;
+    private final Thread flusher;
+    private final Thread shutdownHook;
+
+    private volatile boolean running = true;
+
+    /**
+     * Creates the log and starts its flusher thread.
+     *
+     * @param options buffer size, flush interval and body preview settings
+     * @param output  receives formatted lines in batches, e.g. {@code System.out::print}; must not keep the
+     *                {@link CharSequence}, which is reused
+     */
+    public MessageLog(MessageLogOptions options, Consumer<CharSequence> output) {
+        this(options, output, true);
+    }
+
+    /**
+     * @param startFlusher whether to start the flusher thread; tests leave it off and rely on {@link #close()}
+     */
+    MessageLog(MessageLogOptions options, Consumer<CharSequence> output, boolean startFlusher) {
+        this.capacity = options.getCapacity() == 1 ? 1 : Integer.highestOneBit(options.getCapacity() - 1) << 1;
+        this.mask = capacity - 1;
+        this.bodyPreviewBytes = options.getBodyPreviewBytes();
+        this.flushIntervalNanos = options.getFlushInterval().toNanos();
+        this.output = output;
+        this.published = new AtomicLongArray(capacity);
+        for (int i = 0; i < capacity; i++) {
+            published.set(i, -1);
+        }
+        this.timestamps = new long[capacity];
+        this.entities = new int[capacity];
+        this.events = new MessageEvent[capacity];
+        this.sequenceNumbers = new long[capacity];
+        this.messageIds = new String[capacity];
+        this.sizes = new int[capacity];
+        this.latencies = new long[capacity];
+        this.bodies = new byte[capacity * bodyPreviewBytes];
+        this.bodyLengths = new int[capacity];
+        this.flusher = new Thread(this::flushLoop, "message-log-flusher");
+        flusher.setDaemon(true);
+        if (startFlusher) {
+            flusher.start();
+        }
+        this.shutdownHook = new Thread(this::close, "message-log-shutdown");
+        Runtime.getRuntime().addShutdownHook(shutdownHook);
+    }
+
+    /**
+     * Adapts an SLF4J logger as the output of a message log. The batch is only turned into a string when the logger's
+     * info level is enabled.
+     *
+     * @param target the logger to write to
+     * @return an output for {@link #MessageLog(MessageLogOptions, Consumer)}
+     */
+    public static Consumer<CharSequence> toLogger(Logger target) {
+        return text -> {
+            if (target.isInfoEnabled()) {
+                target.info(text.toString().stripTrailing());
+            }
+        };
+    }
+
+    /**
+     * @param entity the entity path the events belong to
+     * @return the logger for the entity; look it up once and keep it
+     */
+    public MessageLogger forEntity(String entity) {
+        MessageLogger existing = loggers.get(entity);
+        if (existing != null) {
+            return existing;
+        }
+        // The index is taken and the name added in one step, so concurrent lookups cannot swap indexes
+        synchronized (entityNames) {
+            return loggers.computeIfAbsent(entity, name -> {
+                int index = entityNames.size();
+                entityNames.add(name);
+                return new MessageLogger(this, index);
+            });
+        }
+    }
+
+    boolean append(int entity, MessageEvent event, long sequenceNumber, String messageId, byte[] body,
+                   long latencyNanos) {
+        long sequence;
+        do {
+            sequence = claimed.get();
+            if (sequence < 0 || sequence - consumed >= capacity) {
+                dropped.increment();
+                return false;
+            }
+        } while (!claimed.compareAndSet(sequence, sequence + 1));
+
+        int slot = (int) sequence & mask;
+        timestamps[slot] = System.currentTimeMillis();
+        entities[slot] = entity;
+        events[slot] = event;
+        sequenceNumbers[slot] = sequenceNumber;
+        messageIds[slot] = messageId;
+        sizes[slot] = body.length;
+        latencies[slot] = latencyNanos;
+        int previewLength = Math.min(body.length, bodyPreviewBytes);
+        if (previewLength > 0) {
+            System.arraycopy(body, 0, bodies, slot * bodyPreviewBytes, previewLength);
+        }
+        bodyLengths[slot] = previewLength;
+        published.lazySet(slot, sequence);
+        return true;
+    }
+
+    private void flushLoop() {
+        while (running) {
+            if (drain() == 0) {
+                LockSupport.parkNanos(flushIntervalNanos);
+            }
+        }
+    }
+
+    private synchronized int drain() {
+        int count = 0;
+        long next = consumed;
+        int slot = (int) next & mask;
+        while (published.get(slot) == next) {
+            format(slot);
+            messageIds[slot] = null;
+            consumed = ++next;
+            count++;
+            slot = (int) next & mask;
+        }
+        if (count > 0) {
+            try {
+                output.accept(batch);
+            } catch (RuntimeException e) {
+                logger.warn("Failed to write {} message log events: {}", count, e.getMessage());
+            }
+            batch.setLength(0);
+            written.addAndGet(count);
+        }
+        return count;
+    }
+
+    private void format(int slot) {
+        appendTimestamp(timestamps[slot]);
+        batch.append(' ').append(entityNames.get(entities[slot]))
+                .append(' ').append(events[slot])
+                .append(" seq=").append(sequenceNumbers[slot])
+                .append(" id=").append(messageIds[slot])
+                .append(" size=").append(sizes[slot]);
+        long latency = latencies[slot];
+        if (latency >= 0) {
+            batch.append(" latency=").append(latency / 1_000).append("us");
+        }
+        if (bodyLengths[slot] > 0) {
+            batch.append(" body=\"")
+                    .append(new String(bodies, slot * bodyPreviewBytes, bodyLengths[slot], StandardCharsets.UTF_8))
+                    .append(sizes[slot] > bodyLengths[slot] ? "...\"" : "\"");
+        }
+        batch.append(System.lineSeparator());
+    }
+
+    private void appendTimestamp(long millis) {
+        long second = Math.floorDiv(millis, 1000);
+        if (second != formattedSecond) {
+            // ISO-8601 without the trailing 'Z', rebuilt once per second rather than per event
+            String text = Instant.ofEpochSecond(second).toString();
+            formattedSecondText = text.substring(0, text.length() - 1);
+            formattedSecond = second;
+        }
+        int millisOfSecond = Math.floorMod(millis, 1000);
+        batch.append(formattedSecondText).append('.')
+                .append((char) ('0' + millisOfSecond / 100))
+                .append((char) ('0' + millisOfSecond / 10 % 10))
+                .append((char) ('0' + millisOfSecond % 10))
+                .append('Z');
+    }
+
+    /**
+     * @return events handed to the output
+     */
+    public long getWrittenCount() {
+        return written.get();
+    }
+
+    /**
+     * @return events discarded because the buffer was full or the log was closed
+     */
+    public long getDroppedCount() {
+        return dropped.sum();
+    }
+
+    /**
+     * Stops the flusher and writes the events still buffered, including those of writers still filling a claimed slot.
+     */
+    @Override
+    public void close() {
+        long last = claimed.getAndUpdate(sequence -> sequence | CLOSED);
+        if (last < 0) {
+            return;
+        }
+        running = false;
+        LockSupport.unpark(flusher);
+        try {
+            if (flusher.isAlive()) {
+                flusher.join();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        long deadline = System.nanoTime() + CLOSE_TIMEOUT.toNanos();
+        drain();
+        while (consumed < last && System.nanoTime() < deadline) {
+            LockSupport.parkNanos(100_000);
+            drain();
+        }
+        if (consumed < last) {
+            long unpublished = last - consumed;
+            dropped.add(unpublished);
+            logger.warn("Message log closed before {} claimed events were published", unpublished);
+        }
+        if (Thread.currentThread() != shutdownHook) {
+            try {
+                Runtime.getRuntime().removeShutdownHook(shutdownHook);
+            } catch (IllegalStateException e) {
+                // already shutting down
+            }
+        }
+        if (getDroppedCount() > 0) {
+            logger.warn("Message log dropped {} events because its buffer was full or it was closed",
+                    getDroppedCount());
+        }
+    }
+}
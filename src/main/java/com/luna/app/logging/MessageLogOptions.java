@@ -0,0 +1,68 @@
+package com.luna.app.logging;
+
+import java.time.Duration;
+
+/**
+ * Tuning knobs for a {@link MessageLog}.
+ */
+public class MessageLogOptions {
+
+    private int capacity = 16_384;
+    private Duration flushInterval = Duration.ofMillis(200);
+    private int bodyPreviewBytes;
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * Sets the number of events the ring buffer holds. Events logged while it is full are dropped and counted.
+     *
+     * @param capacity the buffer size, rounded up to a power of two
+     * @return the updated options
+     */
+    public MessageLogOptions setCapacity(int capacity) {
+        if (capacity <= 0 || capacity > 1 << 24) {
+            throw new IllegalArgumentException("capacity must be in [1, 2^24] but was " + capacity);
+        }
+        this.capacity = capacity;
+        return this;
+    }
+
+    public Duration getFlushInterval() {
+        return flushInterval;
+    }
+
+    /**
+     * Sets how long the flusher sleeps when the buffer is empty, i.e. the longest an event waits to be written.
+     *
+     * @param flushInterval the flush interval
+     * @return the updated options
+     */
+    public MessageLogOptions setFlushInterval(Duration flushInterval) {
+        if (flushInterval == null || flushInterval.isNegative() || flushInterval.isZero()) {
+            throw new IllegalArgumentException("flushInterval must be positive");
+        }
+        this.flushInterval = flushInterval;
+        return this;
+    }
+
+    public int getBodyPreviewBytes() {
+        return bodyPreviewBytes;
+    }
+
+    /**
+     * Records the first bytes of each message body. The bytes are copied into the buffer as they are and only decoded
+     * as UTF-8 by the flusher. Zero, the default, never touches the body beyond its length.
+     *
+     * @param bodyPreviewBytes the number of body bytes to keep per event
+     * @return the updated options
+     */
+    public MessageLogOptions setBodyPreviewBytes(int bodyPreviewBytes) {
+        if (bodyPreviewBytes < 0 || bodyPreviewBytes > 4096) {
+            throw new IllegalArgumentException("bodyPreviewBytes must be in [0, 4096] but was " + bodyPreviewBytes);
+        }
+        this.bodyPreviewBytes = bodyPreviewBytes;
+        return this;
+    }
+}
@@ -0,0 +1,52 @@
+package com.luna.app.logging;
+
+import com.azure.core.amqp.models.AmqpMessageBody;
+import com.azure.core.amqp.models.AmqpMessageBodyType;
+import com.azure.messaging.servicebus.ServiceBusReceivedMessage;
+
+/**
+ * Logs the events of one entity to a {@link MessageLog}. Obtained once per entity from {@link MessageLog#forEntity};
+ * none of the methods allocate, format or decode the message body.
+ */
+public class MessageLogger {
+
+    private static final byte[] NO_BODY = new byte[0];
+
+    private final MessageLog log;
+    private final int entity;
+
+    MessageLogger(MessageLog log, int entity) {
+        this.log = log;
+        this.entity = entity;
+    }
+
+    /**
+     * @param event          what happened to the message
+     * @param sequenceNumber the broker-assigned sequence number, or -1
+     * @param messageId      the message ID; the reference is kept until the event is written
+     * @param body           the raw body, used for its length and, if enabled, a preview
+     * @param latencyNanos   a duration worth recording with the event, e.g. handler time, or -1
+     * @return whether the event was buffered, {@code false} if it was dropped because the buffer was full
+     */
+    public boolean log(MessageEvent event, long sequenceNumber, String messageId, byte[] body, long latencyNanos) {
+        return log.append(entity, event, sequenceNumber, messageId, body != null ? body : NO_BODY, latencyNanos);
+    }
+
+    /**
+     * Logs a received message using the fields it already holds.
+     *
+     * @param event        what happened to the message
+     * @param message      the message
+     * @param latencyNanos a duration worth recording with the event, or -1
+     * @return whether the event was buffered
+     */
+    public boolean log(MessageEvent event, ServiceBusReceivedMessage message, long latencyNanos) {
+        AmqpMessageBody body = message.getRawAmqpMessage().getBody();
+        byte[] data = body.getBodyType() == AmqpMessageBodyType.DATA ? body.getFirstData() : NO_BODY;
+        return log.append(entity, event, message.getSequenceNumber(), message.getMessageId(), data, latencyNanos);
+    }
+
+    public boolean log(MessageEvent event, ServiceBusReceivedMessage message) {
+        return log(event, message, -1);
+    }
+}
@@ -0,0 +1,28 @@
+package com.luna.app.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A monotonically increasing count, such as messages dead-lettered or locks renewed.
+ */
+public class Counter {
+
+    private final LongAdder count = new LongAdder();
+
+    public void increment() {
+        count.increment();
+    }
+
+    public void add(long amount) {
+        count.add(amount);
+    }
+
+    public long getCount() {
+        return count.sum();
+    }
+
+    @Override
+    public String toString() {
+        return "count=" + getCount();
+    }
+}
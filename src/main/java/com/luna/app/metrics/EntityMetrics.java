@@ -0,0 +1,111 @@
+package com.luna.app.metrics;
+
+import java.util.function.LongSupplier;
+
+/**
+ * The standard metrics of one Service Bus entity, resolved once so senders and consumers record on them without
+ * registry lookups.
+ */
+public class EntityMetrics {
+
+    public static final String SEND_LATENCY = "servicebus.send.latency";
+    public static final String SEND_BATCH_SIZE = "servicebus.send.batch.size";
+    public static final String RECEIVE_TO_HANDLER = "servicebus.receive.to.handler";
+    public static final String HANDLER_DURATION = "servicebus.handler.duration";
+    public static final String SETTLEMENT_LATENCY = "servicebus.settlement.latency";
+    public static final String LOCK_RENEWALS = "servicebus.lock.renewals";
+    public static final String COMPLETED = "servicebus.messages.completed";
+    public static final String ABANDONED = "servicebus.messages.abandoned";
+    public static final String DEAD_LETTERED = "servicebus.messages.deadlettered";
+    public static final String IN_FLIGHT = "servicebus.messages.inflight";
+
+    private final MetricsRegistry registry;
+    private final String entity;
+    private final Timer sendLatency;
+    private final Histogram sendBatchSize;
+    private final Timer receiveToHandler;
+    private final Timer handlerDuration;
+    private final Timer settlementLatency;
+    private final Counter lockRenewals;
+    private final Counter completed;
+    private final Counter abandoned;
+    private final Counter deadLettered;
+
+    EntityMetrics(MetricsRegistry registry, String entity) {
+        this.registry = registry;
+        this.entity = entity;
+        this.sendLatency = registry.timer(SEND_LATENCY, entity);
+        this.sendBatchSize = registry.histogram(SEND_BATCH_SIZE, entity);
+        this.receiveToHandler = registry.timer(RECEIVE_TO_HANDLER, entity);
+        this.handlerDuration = registry.timer(HANDLER_DURATION, entity);
+        this.settlementLatency = registry.timer(SETTLEMENT_LATENCY, entity);
+        this.lockRenewals = registry.counter(LOCK_RENEWALS, entity);
+        this.completed = registry.counter(COMPLETED, entity);
+        this.abandoned = registry.counter(ABANDONED, entity);
+        this.deadLettered = registry.counter(DEAD_LETTERED, entity);
+    }
+
+    public String getEntity() {
+        return entity;
+    }
+
+    /**
+     * @return time from handing a message or batch to the broker to its acknowledgement
+     */
+    public Timer getSendLatency() {
+        return sendLatency;
+    }
+
+    /**
+     * @return messages per batch sent
+     */
+    public Histogram getSendBatchSize() {
+        return sendBatchSize;
+    }
+
+    /**
+     * @return time a received message waits in the consumer before its handler starts
+     */
+    public Timer getReceiveToHandler() {
+        return receiveToHandler;
+    }
+
+    /**
+     * @return time spent in the message handler, excluding settlement
+     */
+    public Timer getHandlerDuration() {
+        return handlerDuration;
+    }
+
+    /**
+     * @return time from the handler returning to the broker acknowledging the disposition
+     */
+    public Timer getSettlementLatency() {
+        return settlementLatency;
+    }
+
+    public Counter getLockRenewals() {
+        return lockRenewals;
+    }
+
+    public Counter getCompleted() {
+        return completed;
+    }
+
+    public Counter getAbandoned() {
+        return abandoned;
+    }
+
+    public Counter getDeadLettered() {
+        return deadLettered;
+    }
+
+    /**
+     * Reports the number of locked messages held by a consumer of this entity.
+     *
+     * @param inFlight sampled when metrics are reported
+     */
+    public void registerInFlight(LongSupplier inFlight) {
+        registry.gauge(IN_FLIGHT, entity, inFlight);
+    }
+}
@@ -0,0 +1,28 @@
+package com.luna.app.metrics;
+
+import java.util.function.LongSupplier;
+
+/**
+ * A value sampled when metrics are reported, such as the number of messages in flight.
+ */
+public class Gauge {
+
+    private volatile LongSupplier value;
+
+    Gauge(LongSupplier value) {
+        this.value = value;
+    }
+
+    void setValue(LongSupplier value) {
+        this.value = value;
+    }
+
+    public long getValue() {
+        return value.getAsLong();
+    }
+
+    @Override
+    public String toString() {
+        return "value=" + getValue();
+    }
+}
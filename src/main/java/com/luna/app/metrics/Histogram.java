@@ -0,0 +1,108 @@
+package com.luna.app.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lock-free histogram of non-negative values, such as latencies in nanoseconds or batch sizes.
+ * <p>
+ * Values are counted in log-linear buckets: every power of two is split into 16 sub-buckets, so a percentile is within
+ * 1/16 of the true value anywhere in the range of {@code long}. The buckets are allocated up front and
+ * {@link #record(long)} only increments counters, so recording never allocates; the count is summed from the buckets
+ * when read.
+ */
+public class Histogram {
+
+    private static final int SUB_BUCKET_BITS = 4;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    static final int BUCKET_COUNT = (Long.SIZE - SUB_BUCKET_BITS) * SUB_BUCKETS;
+
+    private final AtomicLongArray buckets = new AtomicLongArray(BUCKET_COUNT);
+    private final LongAdder sum = new LongAdder();
+    private final AtomicLong max = new AtomicLong();
+
+    /**
+     * @param value the value to record; negative values are recorded as zero
+     */
+    public void record(long value) {
+        long v = Math.max(0, value);
+        buckets.getAndIncrement(bucketOf(v));
+        sum.add(v);
+        if (v > max.get()) {
+            max.accumulateAndGet(v, Math::max);
+        }
+    }
+
+    public long getCount() {
+        long total = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            total += buckets.get(i);
+        }
+        return total;
+    }
+
+    public long getSum() {
+        return sum.sum();
+    }
+
+    public double getMean() {
+        long n = getCount();
+        return n == 0 ? 0 : (double) sum.sum() / n;
+    }
+
+    public long getMax() {
+        return max.get();
+    }
+
+    /**
+     * @param percentile a value in (0, 100]
+     * @return an upper bound of the value below which {@code percentile} percent of the recordings fall
+     */
+    public long getValueAtPercentile(double percentile) {
+        long total = getCount();
+        if (total == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(total * percentile / 100.0));
+        long seen = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            seen += buckets.get(i);
+            if (seen >= rank) {
+                return Math.min(max.get(), highestValue(i));
+            }
+        }
+        return max.get();
+    }
+
+    static int bucketOf(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        int subBucket = (int) (value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+        return ((exponent - SUB_BUCKET_BITS + 1) << SUB_BUCKET_BITS) + subBucket;
+    }
+
+    static long lowestValue(int bucket) {
+        if (bucket < SUB_BUCKETS) {
+            return bucket;
+        }
+        int group = bucket >>> SUB_BUCKET_BITS;
+        return (long) (SUB_BUCKETS + (bucket & (SUB_BUCKETS - 1))) << (group - 1);
+    }
+
+    static long highestValue(int bucket) {
+        if (bucket < SUB_BUCKETS) {
+            return bucket;
+        }
+        int group = bucket >>> SUB_BUCKET_BITS;
+        return lowestValue(bucket) + (1L << (group - 1)) - 1;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("n=%d mean=%.1f p50=%d p99=%d max=%d", getCount(), getMean(), getValueAtPercentile(50),
+                getValueAtPercentile(99), getMax());
+    }
+}
@@ -0,0 +1,35 @@
+package com.luna.app.metrics;
+
+import java.util.Comparator;
+
+/**
+ * Identifies a metric by name and the entity it is labelled with, e.g. {@code servicebus.handler.duration} for
+ * {@code orders} or {@code topic001/subscriptions/sub1}.
+ *
+ * @param name   the metric name
+ * @param entity the entity path
+ */
+public record MetricId(String name, String entity) implements Comparable<MetricId> {
+
+    private static final Comparator<MetricId> ORDER = Comparator.comparing(MetricId::entity)
+            .thenComparing(MetricId::name);
+
+    public MetricId {
+        if (name == null || name.isBlank()) {
+            throw new IllegalArgumentException("Metric name must not be blank");
+        }
+        if (entity == null || entity.isBlank()) {
+            throw new IllegalArgumentException("Entity of metric " + name + " must not be blank");
+        }
+    }
+
+    @Override
+    public int compareTo(MetricId other) {
+        return ORDER.compare(this, other);
+    }
+
+    @Override
+    public String toString() {
+        return name + "{entity=" + entity + "}";
+    }
+}
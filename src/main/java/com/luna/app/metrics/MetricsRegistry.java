@@ -0,0 +1,88 @@
+package com.luna.app.metrics;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+/**
+ * Holds the metrics of a process, keyed by name and entity.
+ * <p>
+ * Looking a metric up goes through a map, so components resolve their metrics once, usually through
+ * {@link #entity(String)}, and record on the returned objects afterwards. Recording on a {@link Timer},
+ * {@link Histogram} or {@link Counter} never allocates.
+ */
+public class MetricsRegistry {
+
+    private static final MetricsRegistry GLOBAL = new MetricsRegistry();
+
+    private final ConcurrentMap<MetricId, Object> metrics = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, EntityMetrics> entities = new ConcurrentHashMap<>();
+
+    /**
+     * @return the registry shared by everything in the process that opts into it
+     */
+    public static MetricsRegistry global() {
+        return GLOBAL;
+    }
+
+    /**
+     * @param entity the entity path, e.g. {@code orders} or {@code topic001/subscriptions/sub1}
+     * @return the standard send, receive and settlement metrics of the entity
+     */
+    public EntityMetrics entity(String entity) {
+        return entities.computeIfAbsent(entity, path -> new EntityMetrics(this, path));
+    }
+
+    public Timer timer(String name, String entity) {
+        return getOrCreate(new MetricId(name, entity), Timer.class, Timer::new);
+    }
+
+    public Histogram histogram(String name, String entity) {
+        return getOrCreate(new MetricId(name, entity), Histogram.class, Histogram::new);
+    }
+
+    public Counter counter(String name, String entity) {
+        return getOrCreate(new MetricId(name, entity), Counter.class, Counter::new);
+    }
+
+    /**
+     * Registers a gauge, replacing the value source of an existing gauge with the same name and entity.
+     *
+     * @param name   the metric name
+     * @param entity the entity path
+     * @param value  sampled when metrics are reported
+     * @return the gauge
+     */
+    public Gauge gauge(String name, String entity, LongSupplier value) {
+        Gauge gauge = getOrCreate(new MetricId(name, entity), Gauge.class, () -> new Gauge(value));
+        gauge.setValue(value);
+        return gauge;
+    }
+
+    private <T> T getOrCreate(MetricId id, Class<T> type, Supplier<T> factory) {
+        Object metric = metrics.computeIfAbsent(id, ignored -> factory.get());
+        if (!type.isInstance(metric)) {
+            throw new IllegalArgumentException("Metric " + id + " is a " + metric.getClass().getSimpleName()
+                    + ", not a " + type.getSimpleName());
+        }
+        return type.cast(metric);
+    }
+
+    /**
+     * @return every registered metric, ordered by entity and name
+     */
+    public Map<MetricId, Object> getMetrics() {
+        return Collections.unmodifiableMap(new TreeMap<>(metrics));
+    }
+
+    /**
+     * @return one line per metric that has recorded anything
+     */
+    public String report() {
+        return MetricsReporter.format(getMetrics(), Map.of(), 0);
+    }
+}
@@ -0,0 +1,92 @@
+package com.luna.app.metrics;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Periodically writes the metrics of a registry, with the per-second rate of every counter over the last interval
+ * (e.g. the dead-letter rate of each entity).
+ */
+public class MetricsReporter implements AutoCloseable {
+
+    private final MetricsRegistry registry;
+    private final Consumer<String> output;
+    private final ScheduledExecutorService scheduler;
+    private final Map<MetricId, Long> previousCounts = new HashMap<>();
+    private long previousNanos = System.nanoTime();
+
+    /**
+     * Starts reporting.
+     *
+     * @param registry the registry to report
+     * @param interval time between reports
+     * @param output   receives each report, e.g. {@code System.out::println} or a logger
+     */
+    public MetricsReporter(MetricsRegistry registry, Duration interval, Consumer<String> output) {
+        if (interval == null || interval.isNegative() || interval.isZero()) {
+            throw new IllegalArgumentException("interval must be positive");
+        }
+        this.registry = registry;
+        this.output = output;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "metrics-reporter");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleAtFixedRate(this::report, interval.toNanos(), interval.toNanos(), TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Writes a report now.
+     */
+    public synchronized void report() {
+        long now = System.nanoTime();
+        Map<MetricId, Object> metrics = registry.getMetrics();
+        output.accept(format(metrics, previousCounts, now - previousNanos));
+        metrics.forEach((id, metric) -> {
+            if (metric instanceof Counter counter) {
+                previousCounts.put(id, counter.getCount());
+            }
+        });
+        previousNanos = now;
+    }
+
+    static String format(Map<MetricId, Object> metrics, Map<MetricId, Long> previousCounts, long intervalNanos) {
+        StringBuilder report = new StringBuilder();
+        metrics.forEach((id, metric) -> {
+            String value;
+            if (metric instanceof Timer timer) {
+                value = timer.getCount() == 0 ? null : timer.toString();
+            } else if (metric instanceof Histogram histogram) {
+                value = histogram.getCount() == 0 ? null : histogram.toString();
+            } else if (metric instanceof Counter counter) {
+                long count = counter.getCount();
+                value = count == 0 ? null : counter.toString();
+                if (value != null && intervalNanos > 0) {
+                    long delta = count - previousCounts.getOrDefault(id, 0L);
+                    value += String.format(" rate=%.1f/s", delta * 1e9 / intervalNanos);
+                }
+            } else {
+                value = metric.toString();
+            }
+            if (value != null) {
+                report.append(String.format("%-36s %-32s %s%n", id.name(), id.entity(), value));
+            }
+        });
+        return report.toString();
+    }
+
+    /**
+     * Stops reporting and writes a final report.
+     */
+    @Override
+    public void close() {
+        scheduler.shutdownNow();
+        report();
+    }
+}
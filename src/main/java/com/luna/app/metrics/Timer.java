@@ -0,0 +1,55 @@
+package com.luna.app.metrics;
+
+import java.time.Duration;
+
+/**
+ * A {@link Histogram} of durations in nanoseconds.
+ */
+public class Timer {
+
+    private final Histogram histogram = new Histogram();
+
+    public void record(long nanos) {
+        histogram.record(nanos);
+    }
+
+    /**
+     * Records the time elapsed since {@code startNanos}.
+     *
+     * @param startNanos a {@link System#nanoTime()} reading
+     */
+    public void recordSince(long startNanos) {
+        histogram.record(System.nanoTime() - startNanos);
+    }
+
+    public long getCount() {
+        return histogram.getCount();
+    }
+
+    public Duration getMean() {
+        return Duration.ofNanos((long) histogram.getMean());
+    }
+
+    public Duration getMax() {
+        return Duration.ofNanos(histogram.getMax());
+    }
+
+    /**
+     * @param percentile a value in (0, 100]
+     * @return an upper bound of the duration below which {@code percentile} percent of the recordings fall
+     */
+    public Duration getPercentile(double percentile) {
+        return Duration.ofNanos(histogram.getValueAtPercentile(percentile));
+    }
+
+    public Histogram getHistogram() {
+        return histogram;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("n=%d mean=%.2fms p50=%.2fms p99=%.2fms max=%.2fms", getCount(),
+                getMean().toNanos() / 1e6, getPercentile(50).toNanos() / 1e6, getPercentile(99).toNanos() / 1e6,
+                getMax().toNanos() / 1e6);
+    }
+}
@@ -1,11 +1,19 @@
 
 package com.luna.app.miscelanous;
 
-import com.azure.core.util.IterableStream;
 import com.azure.messaging.servicebus.*;
 import com.azure.messaging.servicebus.administration.ServiceBusAdministrationClient;
 import com.azure.messaging.servicebus.administration.ServiceBusAdministrationClientBuilder;
 import com.azure.messaging.servicebus.administration.models.QueueProperties;
+import com.luna.app.client.SenderLease;
+import com.luna.app.client.ServiceBusClientFactory;
+import com.luna.app.logging.MessageEvent;
+import com.luna.app.logging.MessageLog;
+import com.luna.app.logging.MessageLogOptions;
+import com.luna.app.logging.MessageLogger;
+import com.luna.app.queue.Disposition;
+import com.luna.app.queue.ServiceBusMessageSource;
+import com.luna.app.queue.SettlementPipeline;
 
 import java.time.Duration;
 import java.util.ArrayList;
@@ -14,6 +22,7 @@ import java.util.List;
 public class AdministrationClientUpdateQueueExample {
     static String connectionString = "";
     static String queueName = "queue001";
+    private static final MessageLog MESSAGE_LOG = new MessageLog(new MessageLogOptions(), System.out::print);
 
     public static void main(String[] args) {
         ServiceBusAdministrationClient adminClient = new ServiceBusAdministrationClientBuilder()
@@ -55,37 +64,35 @@ public class AdministrationClientUpdateQueueExample {
     }
 
     private static void sendMessagesToQueue(String connectionString, String queueName) {
-        ServiceBusSenderClient senderClient = new ServiceBusClientBuilder()
-                .connectionString(connectionString)
-                .sender()
-                .queueName(queueName)
-                .buildClient();
-
-        List<ServiceBusMessage> messages = new ArrayList<>();
-        for (int i = 0; i < 10; i++) {
-            messages.add(new ServiceBusMessage("Message " + i));
+        try (SenderLease senderClient = ServiceBusClientFactory.forConnectionString(connectionString)
+                .leaseQueueSender(queueName)) {
+            List<ServiceBusMessage> messages = new ArrayList<>();
+            for (int i = 0; i < 10; i++) {
+                messages.add(new ServiceBusMessage("Message " + i));
+            }
+            senderClient.sendMessages(messages);
         }
-        senderClient.sendMessages(messages);
         System.out.println("Sent messages to queue: " + queueName);
     }
 
     private static void receiveMessagesFromQueue(String connectionString, String queueName) {
-        ServiceBusReceiverClient receiverClient = new ServiceBusClientBuilder()
-                .connectionString(connectionString)
-                .receiver()
-                .queueName(queueName)
-                .buildClient();
-        IterableStream<ServiceBusReceivedMessage> messages = receiverClient.receiveMessages(10, Duration.ofSeconds(10));
-        for (ServiceBusReceivedMessage message : messages) {
-            System.out.printf("Received message with sequence number '%s': %s%n",
-                    message.getSequenceNumber(), message.getBody().toString());
-            // receiverClient.complete(message) is a method that completes the receive operation of a
-            // message and indicates that the message should be marked as processed and deleted.
-            // It requires the lock token of the message as a parameter.
-            // This method is used with Microsoft.Azure.ServiceBus.Core.Message class.
-            receiverClient.complete(message);
+        ServiceBusMessageSource source = new ServiceBusMessageSource(
+                ServiceBusClientFactory.forConnectionString(connectionString)
+                        .receiver()
+                        .queueName(queueName)
+                        .buildClient());
+        MessageLogger messages = MESSAGE_LOG.forEntity(queueName);
+        // Completions go out concurrently while the loop moves on to the next message
+        SettlementPipeline<ServiceBusReceivedMessage> settlements = new SettlementPipeline<>(queueName, 32);
+        try (settlements) {
+            for (ServiceBusReceivedMessage message : source.receive(10, Duration.ofSeconds(10))) {
+                messages.log(MessageEvent.RECEIVED, message);
+                settlements.submit(source, message, Disposition.COMPLETE);
+            }
+        } finally {
+            source.close();
+            MESSAGE_LOG.close();
         }
-        System.out.println("received all messages");
-        receiverClient.close();
+        System.out.println("received all messages, settlement latency: " + settlements.getLatency());
     }
 }
@@ -0,0 +1,741 @@
+package com.luna.app.outbox;
+
+import com.azure.core.amqp.exception.AmqpException;
+import com.azure.messaging.servicebus.ServiceBusException;
+import com.azure.messaging.servicebus.ServiceBusMessage;
+import com.luna.app.codec.BufferPool;
+import com.luna.app.codec.PayloadBuffer;
+import com.luna.app.queue.MessageSink;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+/**
+ * Local write-ahead outbox in front of a {@link MessageSink}: sends are acknowledged once they are on local disk, and a
+ * drainer thread forwards them to the entity in batches, so broker throttling or an outage delays delivery instead of
+ * failing or stalling the caller.
+ * <p>
+ * Messages are appended to a log of memory-mapped segment files. Each record is a length, a CRC-32C and the serialized
+ * message; a record never spans segments. Appending only copies the record into the mapping; a commit thread then
+ * forces everything appended since the previous commit in one call and completes the futures of all those sends at
+ * once, so concurrent senders share the cost of a flush. The drainer sends committed records in log order, one batch
+ * at a time, and records how far it got in a checkpoint file; segments behind the checkpoint are deleted.
+ * <p>
+ * Delivery is at least once: a crash between a send and the next checkpoint sends that batch again on restart. Messages
+ * without an ID get a random one when appended, so duplicate detection on the entity can drop the repeat. On opening,
+ * the log is read from the checkpoint and a torn record left by a crash ends it; that record was never acknowledged.
+ * <p>
+ * Failed batches are retried with backoff as long as the failure is transient. A failure the entity will keep
+ * returning, such as a missing entity or a message it refuses, would otherwise block the log for good: the batch is
+ * resent one message at a time, and each message still refused is moved to a quarantine file in the outbox directory,
+ * where {@link #readQuarantine(Path)} finds it, before draining moves on.
+ */
+public class Outbox implements AutoCloseable {
+
+    private static final Logger logger = LoggerFactory.getLogger(Outbox.class);
+
+    private static final int HEADER_BYTES = 8;
+    private static final Pattern SEGMENT_FILE = Pattern.compile("(\\d{20})\\.segment");
+    private static final String CHECKPOINT_FILE = "checkpoint";
+    private static final String QUARANTINE_FILE = "quarantine";
+    private static final MethodHandle INVOKE_CLEANER = findCleaner();
+
+    private final String name;
+    private final Path directory;
+    private final MessageSink sink;
+    private final OutboxOptions options;
+    private final ConcurrentSkipListMap<Long, Segment> segments = new ConcurrentSkipListMap<>();
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition appended = lock.newCondition();
+    private final Condition progressed = lock.newCondition();
+    private final Condition stopped = lock.newCondition();
+    private final ArrayDeque<Pending> uncommitted = new ArrayDeque<>();
+    private Segment head;
+    private long written;
+    private long committed;
+    private long drained;
+    private RuntimeException commitFailure;
+    private volatile boolean running = true;
+    // Owned by the drainer: records before this position are sent one at a time, to isolate a refused message
+    private long isolateUntil;
+
+    private final LongAdder appendedCount = new LongAdder();
+    private final LongAdder commitCount = new LongAdder();
+    private final LongAdder drainedCount = new LongAdder();
+    private final LongAdder batchCount = new LongAdder();
+    private final LongAdder drainFailures = new LongAdder();
+    private final LongAdder quarantinedCount = new LongAdder();
+    private final long recoveredCount;
+
+    private final Thread committer;
+    private final Thread drainer;
+
+    /**
+     * Opens the outbox in {@code directory}, recovering any messages a previous instance left undrained, and starts
+     * its commit and drain threads.
+     *
+     * @param name      name used for thread names and logging, usually the entity path
+     * @param directory where segments and the checkpoint are kept; one outbox per directory
+     * @param sink      the send link messages are drained to; closed with the outbox
+     * @param options   segment, batching and retry settings
+     */
+    public Outbox(String name, Path directory, MessageSink sink, OutboxOptions options) {
+        this.name = name;
+        this.directory = directory;
+        this.sink = sink;
+        this.options = options;
+        try {
+            Files.createDirectories(directory);
+            this.recoveredCount = recover();
+        } catch (IOException e) {
+            sink.close();
+            throw new UncheckedIOException(e);
+        }
+        if (recoveredCount > 0) {
+            logger.info("Outbox {} recovered {} undrained messages", name, recoveredCount);
+        }
+        this.committer = new Thread(this::commitLoop, name + "-outbox-commit");
+        this.drainer = new Thread(this::drainLoop, name + "-outbox-drain");
+        this.committer.start();
+        this.drainer.start();
+    }
+
+    /**
+     * Appends a message to the log. The message is assigned a random ID first if it has none.
+     *
+     * @param message the message to send
+     * @return a future completed once the message is durable on local disk, or failed if it cannot be stored
+     * @throws IllegalArgumentException if the message cannot be stored or could never be delivered: its body is not a
+     *                                  data body, a property has an unsupported type, or it is larger than
+     *                                  {@link OutboxOptions#getMaxMessageBytes()} or a segment
+     */
+    public CompletableFuture<Void> send(ServiceBusMessage message) {
+        CompletableFuture<Void> future = new CompletableFuture<>();
+        if (message.getMessageId() == null) {
+            message.setMessageId(UUID.randomUUID().toString());
+        }
+        PayloadBuffer buffer = BufferPool.shared().acquire();
+        try {
+            OutboxRecords.encode(message, buffer);
+            checkSize(message, buffer.size());
+            ByteBuffer record = buffer.asByteBuffer();
+            CRC32C crc = new CRC32C();
+            crc.update(record.duplicate());
+            try {
+                append(record, (int) crc.getValue(), future);
+            } catch (RuntimeException e) {
+                future.completeExceptionally(e);
+            }
+        } finally {
+            BufferPool.shared().release(buffer);
+        }
+        return future;
+    }
+
+    private void checkSize(ServiceBusMessage message, int recordBytes) {
+        // The record holds the body and properties, so it is close to the size the entity will see
+        if (recordBytes > options.getMaxMessageBytes()) {
+            throw new IllegalArgumentException("Message " + message.getMessageId() + " of about " + recordBytes
+                    + " bytes exceeds the maximum message size of " + options.getMaxMessageBytes() + " bytes");
+        }
+        if (HEADER_BYTES + recordBytes > options.getSegmentBytes()) {
+            throw new IllegalArgumentException("Message " + message.getMessageId() + " of " + recordBytes
+                    + " bytes does not fit in a segment of " + options.getSegmentBytes() + " bytes");
+        }
+    }
+
+    /**
+     * Waits until everything sent so far has been drained to the entity.
+     *
+     * @param timeout how long to wait
+     * @return {@code false} if messages were still undrained when the timeout elapsed
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public boolean awaitDrained(Duration timeout) throws InterruptedException {
+        long remainingNanos = timeout.toNanos();
+        lock.lock();
+        try {
+            while (drained != written) {
+                if (remainingNanos <= 0) {
+                    return false;
+                }
+                remainingNanos = progressed.awaitNanos(remainingNanos);
+            }
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return the number of messages stored but not yet drained, including those recovered on opening
+     */
+    public long getBacklog() {
+        return recoveredCount + appendedCount.sum() - drainedCount.sum() - quarantinedCount.sum();
+    }
+
+    public long getAppendedCount() {
+        return appendedCount.sum();
+    }
+
+    /**
+     * @return the number of flushes; {@link #getAppendedCount()} divided by this is the average commit group size
+     */
+    public long getCommitCount() {
+        return commitCount.sum();
+    }
+
+    public long getDrainedCount() {
+        return drainedCount.sum();
+    }
+
+    public long getBatchCount() {
+        return batchCount.sum();
+    }
+
+    /**
+     * @return the number of batch sends that failed, transiently or not
+     */
+    public long getDrainFailures() {
+        return drainFailures.sum();
+    }
+
+    /**
+     * @return the number of messages moved to the quarantine file instead of being sent
+     */
+    public long getQuarantinedCount() {
+        return quarantinedCount.sum();
+    }
+
+    /**
+     * Reads the messages an outbox moved to quarantine, oldest first, e.g. to inspect them or send them again once the
+     * entity accepts them. Quarantined messages are kept until the file is deleted.
+     *
+     * @param directory the outbox directory
+     * @return the quarantined messages, empty if there are none
+     * @throws IOException if the quarantine file cannot be read
+     */
+    public static List<ServiceBusMessage> readQuarantine(Path directory) throws IOException {
+        List<ServiceBusMessage> messages = new ArrayList<>();
+        ByteBuffer buffer;
+        try {
+            buffer = ByteBuffer.wrap(Files.readAllBytes(directory.resolve(QUARANTINE_FILE)));
+        } catch (NoSuchFileException e) {
+            return messages;
+        }
+        while (buffer.remaining() >= HEADER_BYTES) {
+            int length = buffer.getInt();
+            int crc = buffer.getInt();
+            if (length <= 0 || length > buffer.remaining()) {
+                break;
+            }
+            byte[] record = new byte[length];
+            buffer.get(record);
+            CRC32C actual = new CRC32C();
+            actual.update(record);
+            if ((int) actual.getValue() != crc) {
+                break;
+            }
+            messages.add(OutboxRecords.decode(record));
+        }
+        return messages;
+    }
+
+    /**
+     * Commits everything already appended, stops the drainer after its current batch and closes the sink. Undrained
+     * messages stay in the log for the next instance; call {@link #awaitDrained(Duration)} first to deliver them now.
+     */
+    @Override
+    public void close() {
+        lock.lock();
+        try {
+            if (!running) {
+                return;
+            }
+            running = false;
+            appended.signalAll();
+            progressed.signalAll();
+            stopped.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        try {
+            committer.join();
+            drainer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        sink.close();
+        segments.values().forEach(segment -> unmap(segment.buffer()));
+        segments.clear();
+        logger.info("Outbox {} closed: appended={}, commits={}, drained={}, quarantined={}, backlog={}", name,
+                getAppendedCount(), getCommitCount(), getDrainedCount(), getQuarantinedCount(), getBacklog());
+    }
+
+    private void append(ByteBuffer record, int crc, CompletableFuture<Void> future) {
+        int recordBytes = HEADER_BYTES + record.remaining();
+        lock.lock();
+        try {
+            if (!running) {
+                throw new IllegalStateException("Outbox " + name + " is closed");
+            }
+            if (commitFailure != null) {
+                throw new IllegalStateException("Outbox " + name + " failed to commit", commitFailure);
+            }
+            int offset = offsetOf(written);
+            if (offset + recordBytes > head.capacity()) {
+                head = createSegment(head.index() + 1, options.getSegmentBytes());
+                offset = 0;
+            }
+            // The length goes in last: a record whose length is still zero is treated as the end of the segment
+            MappedByteBuffer buffer = head.buffer();
+            buffer.put(offset + HEADER_BYTES, record, record.position(), record.remaining());
+            buffer.putInt(offset + 4, crc);
+            buffer.putInt(offset, record.remaining());
+            written = position(head.index(), offset + recordBytes);
+            uncommitted.add(new Pending(written, future));
+            appendedCount.increment();
+            appended.signal();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void commitLoop() {
+        while (true) {
+            long from;
+            long to;
+            lock.lock();
+            try {
+                while (committed == written && running) {
+                    appended.awaitUninterruptibly();
+                }
+                if (committed == written) {
+                    return;
+                }
+                from = committed;
+                to = written;
+            } finally {
+                lock.unlock();
+            }
+
+            RuntimeException failure = null;
+            try {
+                force(from, to);
+                commitCount.increment();
+            } catch (RuntimeException e) {
+                logger.error("Outbox {} failed to commit, no further messages are accepted: {}", name,
+                        e.getMessage(), e);
+                failure = e;
+            }
+
+            List<Pending> completed = new ArrayList<>();
+            lock.lock();
+            try {
+                if (failure == null) {
+                    committed = to;
+                    while (!uncommitted.isEmpty() && uncommitted.peek().end() <= to) {
+                        completed.add(uncommitted.poll());
+                    }
+                    progressed.signalAll();
+                } else {
+                    commitFailure = failure;
+                    completed.addAll(uncommitted);
+                    uncommitted.clear();
+                }
+            } finally {
+                lock.unlock();
+            }
+            for (Pending pending : completed) {
+                if (failure == null) {
+                    pending.future().complete(null);
+                } else {
+                    pending.future().completeExceptionally(failure);
+                }
+            }
+            if (failure != null) {
+                return;
+            }
+        }
+    }
+
+    private void force(long from, long to) {
+        for (long index = segmentOf(from); index <= segmentOf(to); index++) {
+            Segment segment = segments.get(index);
+            if (segment == null) {
+                continue;
+            }
+            int start = index == segmentOf(from) ? offsetOf(from) : 0;
+            int end = index == segmentOf(to) ? offsetOf(to) : segment.capacity();
+            if (end > start) {
+                segment.buffer().force(start, end - start);
+            }
+        }
+    }
+
+    private void drainLoop() {
+        int attempt = 0;
+        while (running) {
+            long from;
+            long to;
+            lock.lock();
+            try {
+                while (drained == committed && running) {
+                    progressed.awaitUninterruptibly();
+                }
+                if (!running) {
+                    return;
+                }
+                from = drained;
+                to = committed;
+            } finally {
+                lock.unlock();
+            }
+
+            try {
+                drainBatch(from, to);
+                attempt = 0;
+            } catch (RuntimeException e) {
+                // Only transient failures get here; refused messages are isolated and quarantined by drainBatch
+                drainFailures.increment();
+                Duration delay = options.getRetryPolicy().delayFor(++attempt);
+                logger.warn("Outbox {} failed to send a batch (attempt {}), retrying in {} ms: {}", name, attempt,
+                        delay.toMillis(), e.getMessage());
+                backOff(delay);
+            }
+        }
+    }
+
+    private void drainBatch(long from, long to) {
+        int maxMessages = from < isolateUntil ? 1 : options.getMaxBatchMessages();
+        MessageSink.Batch batch = sink.createBatch();
+        long position = from;
+        int count = 0;
+        byte[] first = null;
+        while (position != to && count < maxMessages) {
+            Segment segment = segments.get(segmentOf(position));
+            int offset = offsetOf(position);
+            int length = offset + HEADER_BYTES <= segment.capacity() ? segment.buffer().getInt(offset) : 0;
+            if (length == 0) {
+                position = position(segment.index() + 1, 0);
+                continue;
+            }
+            byte[] record = new byte[length];
+            segment.buffer().get(offset + HEADER_BYTES, record);
+            ServiceBusMessage message = OutboxRecords.decode(record);
+            if (batch.tryAddMessage(message)) {
+                count++;
+                first = first == null ? record : first;
+            } else if (count == 0) {
+                quarantine(record, message, "it does not fit in an empty batch");
+                position += HEADER_BYTES + length;
+                break;
+            } else {
+                break;
+            }
+            position += HEADER_BYTES + length;
+        }
+        if (count > 0) {
+            try {
+                sink.send(batch);
+            } catch (RuntimeException e) {
+                if (isTransient(e)) {
+                    throw e;
+                }
+                drainFailures.increment();
+                if (count > 1) {
+                    logger.warn("Outbox {} had a batch of {} refused, resending it one message at a time: {}", name,
+                            count, e.getMessage());
+                    isolateUntil = position;
+                    return;
+                }
+                quarantine(first, OutboxRecords.decode(first), e.getMessage());
+                advance(position);
+                return;
+            }
+            batchCount.increment();
+        }
+        drainedCount.add(count);
+        advance(position);
+    }
+
+    /**
+     * Whether a send may succeed if retried. Failures the client does not classify, e.g. an I/O error, are retried
+     * rather than quarantined, so that the outbox never gives up on a message it could still deliver.
+     */
+    private static boolean isTransient(RuntimeException error) {
+        if (error instanceof ServiceBusException serviceBusException) {
+            return serviceBusException.isTransient();
+        }
+        if (error instanceof AmqpException amqpException) {
+            return amqpException.isTransient();
+        }
+        return true;
+    }
+
+    private void quarantine(byte[] record, ServiceBusMessage message, String reason) {
+        CRC32C crc = new CRC32C();
+        crc.update(record);
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).putInt(record.length).putInt((int) crc.getValue())
+                .flip();
+        try (FileChannel channel = FileChannel.open(directory.resolve(QUARANTINE_FILE), StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+            channel.write(new ByteBuffer[] {header, ByteBuffer.wrap(record)});
+            channel.force(false);
+        } catch (IOException e) {
+            // Retried like a transient send failure: the record stays at the head of the log until it is stored
+            throw new UncheckedIOException(e);
+        }
+        quarantinedCount.increment();
+        logger.error("Outbox {} quarantined message {} because {}", name, message.getMessageId(), reason);
+    }
+
+    private void advance(long position) {
+        lock.lock();
+        try {
+            drained = position;
+            progressed.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        try {
+            writeCheckpoint(position);
+        } catch (IOException e) {
+            logger.warn("Outbox {} failed to write its checkpoint; drained messages may be sent again after a "
+                    + "restart: {}", name, e.getMessage());
+        }
+        for (Map.Entry<Long, Segment> drainedSegment : segments.headMap(segmentOf(position)).entrySet()) {
+            segments.remove(drainedSegment.getKey());
+            try {
+                delete(drainedSegment.getValue());
+            } catch (IOException e) {
+                logger.warn("Outbox {} failed to delete segment {}: {}", name, drainedSegment.getValue().path(),
+                        e.getMessage());
+            }
+        }
+    }
+
+    private void backOff(Duration delay) {
+        long remainingNanos = delay.toNanos();
+        lock.lock();
+        try {
+            while (running && remainingNanos > 0) {
+                remainingNanos = stopped.awaitNanos(remainingNanos);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Maps the existing segments, finds the end of the log and returns the number of undrained records.
+     */
+    private long recover() throws IOException {
+        long checkpoint = readCheckpoint();
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path path : (Iterable<Path>) files::iterator) {
+                Matcher matcher = SEGMENT_FILE.matcher(path.getFileName().toString());
+                if (!matcher.matches()) {
+                    continue;
+                }
+                long index = Long.parseLong(matcher.group(1));
+                if (index < segmentOf(checkpoint)) {
+                    Files.delete(path);
+                } else {
+                    segments.put(index, mapSegment(path, index, (int) Files.size(path)));
+                }
+            }
+        }
+        if (segments.isEmpty()) {
+            head = createSegment(segmentOf(checkpoint), options.getSegmentBytes());
+            written = position(head.index(), 0);
+            committed = written;
+            drained = written;
+            return 0;
+        }
+        if (segments.firstKey() > segmentOf(checkpoint)) {
+            checkpoint = position(segments.firstKey(), 0);
+        }
+
+        long position = checkpoint;
+        long count = 0;
+        while (true) {
+            Segment segment = segments.get(segmentOf(position));
+            int offset = offsetOf(position);
+            int length = offset + HEADER_BYTES <= segment.capacity() ? segment.buffer().getInt(offset) : 0;
+            if (length == 0 && segments.higherKey(segment.index()) != null) {
+                position = position(segments.higherKey(segment.index()), 0);
+            } else if (length > 0 && isValid(segment, offset, length)) {
+                position += HEADER_BYTES + length;
+                count++;
+            } else {
+                break;
+            }
+        }
+
+        head = segments.get(segmentOf(position));
+        for (Segment later : segments.tailMap(head.index(), false).values()) {
+            segments.remove(later.index());
+            delete(later);
+        }
+        // Clear whatever a crash left after the last complete record, so it cannot be mistaken for a record later
+        MappedByteBuffer buffer = head.buffer();
+        for (int i = offsetOf(position); i < head.capacity(); i++) {
+            if (buffer.get(i) != 0) {
+                buffer.put(i, (byte) 0);
+            }
+        }
+        buffer.force();
+        written = position;
+        committed = position;
+        drained = checkpoint;
+        return count;
+    }
+
+    private static boolean isValid(Segment segment, int offset, int length) {
+        if ((long) offset + HEADER_BYTES + length > segment.capacity()) {
+            return false;
+        }
+        CRC32C crc = new CRC32C();
+        crc.update(segment.buffer().slice(offset + HEADER_BYTES, length));
+        return (int) crc.getValue() == segment.buffer().getInt(offset + 4);
+    }
+
+    private Segment createSegment(long index, int capacity) {
+        Path path = directory.resolve(String.format("%020d.segment", index));
+        try {
+            Segment segment = mapSegment(path, index, capacity);
+            forceDirectory();
+            segments.put(index, segment);
+            return segment;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static Segment mapSegment(Path path, long index, int capacity) throws IOException {
+        // The mapping stays valid after the channel is closed
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE)) {
+            return new Segment(index, path, channel.map(FileChannel.MapMode.READ_WRITE, 0, capacity), capacity);
+        }
+    }
+
+    private long readCheckpoint() throws IOException {
+        try {
+            return ByteBuffer.wrap(Files.readAllBytes(directory.resolve(CHECKPOINT_FILE))).getLong();
+        } catch (NoSuchFileException e) {
+            return 0;
+        }
+    }
+
+    private void writeCheckpoint(long position) throws IOException {
+        Path temporary = directory.resolve(CHECKPOINT_FILE + ".tmp");
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            channel.write(ByteBuffer.allocate(Long.BYTES).putLong(0, position));
+            channel.force(false);
+        }
+        Files.move(temporary, directory.resolve(CHECKPOINT_FILE), StandardCopyOption.ATOMIC_MOVE,
+                StandardCopyOption.REPLACE_EXISTING);
+        forceDirectory();
+    }
+
+    /**
+     * Makes created, renamed and deleted directory entries durable, where the platform allows forcing a directory.
+     */
+    private void forceDirectory() {
+        try (FileChannel channel = FileChannel.open(directory, StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch (IOException e) {
+            logger.debug("Cannot force directory {}: {}", directory, e.getMessage());
+        }
+    }
+
+    private static void delete(Segment segment) throws IOException {
+        unmap(segment.buffer());
+        Files.deleteIfExists(segment.path());
+    }
+
+    /**
+     * Releases a mapping now instead of when the buffer is garbage collected, so the disk space of a deleted segment
+     * is returned at once (and, on Windows, the file can be deleted at all). The buffer must not be used afterwards.
+     */
+    private static void unmap(MappedByteBuffer buffer) {
+        if (INVOKE_CLEANER == null) {
+            return;
+        }
+        try {
+            INVOKE_CLEANER.invokeExact((ByteBuffer) buffer);
+        } catch (Throwable e) {
+            logger.debug("Cannot unmap segment: {}", e.getMessage());
+        }
+    }
+
+    private static MethodHandle findCleaner() {
+        // sun.misc.Unsafe.invokeCleaner is the only way to unmap before Java 21 (jdk.unsupported, no flags needed)
+        try {
+            Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+            Field field = unsafeClass.getDeclaredField("theUnsafe");
+            field.setAccessible(true);
+            return MethodHandles.lookup()
+                    .findVirtual(unsafeClass, "invokeCleaner", MethodType.methodType(void.class, ByteBuffer.class))
+                    .bindTo(field.get(null));
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            logger.debug("Segments are unmapped by the garbage collector: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    // A log position is the segment index in the high 32 bits and the offset within the segment in the low 32 bits
+
+    private static long position(long segment, int offset) {
+        return (segment << 32) | offset;
+    }
+
+    private static long segmentOf(long position) {
+        return position >>> 32;
+    }
+
+    private static int offsetOf(long position) {
+        return (int) position;
+    }
+
+    private record Segment(long index, Path path, MappedByteBuffer buffer, int capacity) {
+    }
+
+    private record Pending(long end, CompletableFuture<Void> future) {
+    }
+}
@@ -0,0 +1,97 @@
+package com.luna.app.outbox;
+
+import com.luna.app.retry.RetryPolicy;
+
+import java.time.Duration;
+
+/**
+ * Segment size, drain batching and retry settings for an {@link Outbox}.
+ */
+public class OutboxOptions {
+
+    static final int MAX_SEGMENT_BYTES = 1 << 30;
+
+    private int segmentBytes = 64 * 1024 * 1024;
+    private int maxBatchMessages = 500;
+    private int maxMessageBytes = 256 * 1024;
+    private RetryPolicy retryPolicy = new RetryPolicy()
+            .setInitialDelay(Duration.ofMillis(100))
+            .setMaxDelay(Duration.ofSeconds(30));
+
+    public int getSegmentBytes() {
+        return segmentBytes;
+    }
+
+    /**
+     * Sets the size of new segment files. Existing segments keep their size, so this may change between runs. A
+     * message must fit in one segment.
+     *
+     * @param segmentBytes the segment size, at most 1 GiB
+     * @return the updated options
+     */
+    public OutboxOptions setSegmentBytes(int segmentBytes) {
+        if (segmentBytes <= 0 || segmentBytes > MAX_SEGMENT_BYTES) {
+            throw new IllegalArgumentException("segmentBytes must be in (0, " + MAX_SEGMENT_BYTES + "] but was "
+                    + segmentBytes);
+        }
+        this.segmentBytes = segmentBytes;
+        return this;
+    }
+
+    public int getMaxBatchMessages() {
+        return maxBatchMessages;
+    }
+
+    /**
+     * Sets the maximum number of messages the drainer sends per batch. Batches are also closed when the entity's size
+     * limit is reached.
+     *
+     * @param maxBatchMessages the message limit
+     * @return the updated options
+     */
+    public OutboxOptions setMaxBatchMessages(int maxBatchMessages) {
+        if (maxBatchMessages <= 0) {
+            throw new IllegalArgumentException("maxBatchMessages must be positive but was " + maxBatchMessages);
+        }
+        this.maxBatchMessages = maxBatchMessages;
+        return this;
+    }
+
+    public int getMaxMessageBytes() {
+        return maxMessageBytes;
+    }
+
+    /**
+     * Sets the size above which {@link Outbox#send} refuses a message, so that the caller learns at once about a
+     * message the entity would never accept. Defaults to the 256 KiB limit of the Standard tier.
+     *
+     * @param maxMessageBytes the largest serialized message
+     * @return the updated options
+     */
+    public OutboxOptions setMaxMessageBytes(int maxMessageBytes) {
+        if (maxMessageBytes <= 0) {
+            throw new IllegalArgumentException("maxMessageBytes must be positive but was " + maxMessageBytes);
+        }
+        this.maxMessageBytes = maxMessageBytes;
+        return this;
+    }
+
+    public RetryPolicy getRetryPolicy() {
+        return retryPolicy;
+    }
+
+    /**
+     * Sets the backoff between drain attempts that failed transiently. The drainer never gives up on a transient
+     * failure, so only the delays of the policy are used, not its retry limit.
+     *
+     * @param retryPolicy the backoff policy
+     * @return the updated options
+     */
+    public OutboxOptions setRetryPolicy(RetryPolicy retryPolicy) {
+        if (retryPolicy == null) {
+            throw new IllegalArgumentException("retryPolicy must not be null");
+        }
+        this.retryPolicy = retryPolicy;
+        return this;
+    }
+}
@@ -0,0 +1,208 @@
+package com.luna.app.outbox;
+
+import com.azure.core.amqp.models.AmqpMessageBody;
+import com.azure.core.amqp.models.AmqpMessageBodyType;
+import com.azure.messaging.servicebus.ServiceBusMessage;
+import com.luna.app.codec.PayloadBuffer;
+import com.luna.app.codec.PayloadReader;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Serializes the parts of a {@link ServiceBusMessage} that survive a send: the broker-visible properties, the
+ * application properties and the body. Strings and numbers use the {@link PayloadBuffer} layout; the body comes last
+ * and takes the rest of the record, so it is not length-prefixed.
+ */
+final class OutboxRecords {
+
+    private static final int NULL = 0;
+    private static final int STRING = 1;
+    private static final int BOOLEAN = 2;
+    private static final int BYTE = 3;
+    private static final int SHORT = 4;
+    private static final int INT = 5;
+    private static final int LONG = 6;
+    private static final int FLOAT = 7;
+    private static final int DOUBLE = 8;
+    private static final int CHAR = 9;
+    private static final int UUID_TYPE = 10;
+    private static final int OFFSET_DATE_TIME = 11;
+    private static final int DATE = 12;
+    private static final int BINARY = 13;
+
+    private OutboxRecords() {
+    }
+
+    /**
+     * @throws IllegalArgumentException if the body is not a single data section or a property has an unsupported type
+     */
+    static void encode(ServiceBusMessage message, PayloadBuffer buffer) {
+        AmqpMessageBody body = message.getRawAmqpMessage().getBody();
+        if (body.getBodyType() != AmqpMessageBodyType.DATA) {
+            throw new IllegalArgumentException("Only data bodies can be stored, not " + body.getBodyType());
+        }
+        buffer.writeString(message.getMessageId());
+        buffer.writeString(message.getSessionId());
+        buffer.writeString(message.getPartitionKey());
+        buffer.writeString(message.getContentType());
+        buffer.writeString(message.getCorrelationId());
+        buffer.writeString(message.getSubject());
+        buffer.writeString(message.getTo());
+        buffer.writeString(message.getReplyTo());
+        buffer.writeString(message.getReplyToSessionId());
+        Duration timeToLive = message.getTimeToLive();
+        buffer.writeSignedVarint(timeToLive != null ? timeToLive.toMillis() : -1);
+        OffsetDateTime scheduled = message.getScheduledEnqueueTime();
+        buffer.writeSignedVarint(scheduled != null ? scheduled.toInstant().toEpochMilli() : Long.MIN_VALUE);
+
+        Map<String, Object> properties = message.getApplicationProperties();
+        buffer.writeVarint(properties.size());
+        for (Map.Entry<String, Object> property : properties.entrySet()) {
+            buffer.writeString(property.getKey());
+            writeValue(property.getKey(), property.getValue(), buffer);
+        }
+        byte[] bytes = body.getFirstData();
+        buffer.writeBytes(bytes, 0, bytes.length);
+    }
+
+    /**
+     * @param record the bytes of one record, owned by the returned message
+     */
+    static ServiceBusMessage decode(byte[] record) {
+        PayloadReader reader = new PayloadReader(record, 0, record.length);
+        String messageId = reader.readString();
+        String sessionId = reader.readString();
+        String partitionKey = reader.readString();
+        String contentType = reader.readString();
+        String correlationId = reader.readString();
+        String subject = reader.readString();
+        String to = reader.readString();
+        String replyTo = reader.readString();
+        String replyToSessionId = reader.readString();
+        long timeToLiveMillis = reader.readSignedVarint();
+        long scheduledMillis = reader.readSignedVarint();
+        int propertyCount = (int) reader.readVarint();
+        Object[] properties = new Object[propertyCount * 2];
+        for (int i = 0; i < properties.length; i += 2) {
+            properties[i] = reader.readString();
+            properties[i + 1] = readValue(reader);
+        }
+        byte[] body = Arrays.copyOfRange(record, record.length - reader.remaining(), record.length);
+
+        ServiceBusMessage message = new ServiceBusMessage(AmqpMessageBody.fromData(body))
+                .setContentType(contentType)
+                .setCorrelationId(correlationId)
+                .setSubject(subject)
+                .setTo(to)
+                .setReplyTo(replyTo)
+                .setReplyToSessionId(replyToSessionId);
+        if (messageId != null) {
+            message.setMessageId(messageId);
+        }
+        if (sessionId != null) {
+            message.setSessionId(sessionId);
+        }
+        if (partitionKey != null) {
+            message.setPartitionKey(partitionKey);
+        }
+        if (timeToLiveMillis >= 0) {
+            message.setTimeToLive(Duration.ofMillis(timeToLiveMillis));
+        }
+        if (scheduledMillis != Long.MIN_VALUE) {
+            message.setScheduledEnqueueTime(Instant.ofEpochMilli(scheduledMillis).atOffset(ZoneOffset.UTC));
+        }
+        for (int i = 0; i < properties.length; i += 2) {
+            message.getApplicationProperties().put((String) properties[i], properties[i + 1]);
+        }
+        return message;
+    }
+
+    private static void writeValue(String name, Object value, PayloadBuffer buffer) {
+        if (value == null) {
+            buffer.writeByte(NULL);
+        } else if (value instanceof String string) {
+            buffer.writeByte(STRING);
+            buffer.writeString(string);
+        } else if (value instanceof Boolean bool) {
+            buffer.writeByte(BOOLEAN);
+            buffer.writeBoolean(bool);
+        } else if (value instanceof Byte number) {
+            buffer.writeByte(BYTE);
+            buffer.writeByte(number);
+        } else if (value instanceof Short number) {
+            buffer.writeByte(SHORT);
+            buffer.writeSignedVarint(number);
+        } else if (value instanceof Integer number) {
+            buffer.writeByte(INT);
+            buffer.writeSignedVarint(number);
+        } else if (value instanceof Long number) {
+            buffer.writeByte(LONG);
+            buffer.writeSignedVarint(number);
+        } else if (value instanceof Float number) {
+            buffer.writeByte(FLOAT);
+            buffer.writeSignedVarint(Float.floatToIntBits(number));
+        } else if (value instanceof Double number) {
+            buffer.writeByte(DOUBLE);
+            buffer.writeDouble(number);
+        } else if (value instanceof Character character) {
+            buffer.writeByte(CHAR);
+            buffer.writeVarint(character);
+        } else if (value instanceof UUID uuid) {
+            buffer.writeByte(UUID_TYPE);
+            buffer.writeLong(uuid.getMostSignificantBits());
+            buffer.writeLong(uuid.getLeastSignificantBits());
+        } else if (value instanceof OffsetDateTime time) {
+            buffer.writeByte(OFFSET_DATE_TIME);
+            buffer.writeSignedVarint(time.toEpochSecond());
+            buffer.writeVarint(time.getNano());
+            buffer.writeSignedVarint(time.getOffset().getTotalSeconds());
+        } else if (value instanceof Date date) {
+            buffer.writeByte(DATE);
+            buffer.writeSignedVarint(date.getTime());
+        } else if (value instanceof byte[] bytes) {
+            buffer.writeByte(BINARY);
+            buffer.writeVarint(bytes.length);
+            buffer.writeBytes(bytes, 0, bytes.length);
+        } else {
+            throw new IllegalArgumentException("Application property " + name + " has unsupported type "
+                    + value.getClass().getName());
+        }
+    }
+
+    private static Object readValue(PayloadReader reader) {
+        int type = reader.readByte();
+        return switch (type) {
+            case NULL -> null;
+            case STRING -> reader.readString();
+            case BOOLEAN -> reader.readBoolean();
+            case BYTE -> (byte) reader.readByte();
+            case SHORT -> (short) reader.readSignedVarint();
+            case INT -> (int) reader.readSignedVarint();
+            case LONG -> reader.readSignedVarint();
+            case FLOAT -> Float.intBitsToFloat((int) reader.readSignedVarint());
+            case DOUBLE -> reader.readDouble();
+            case CHAR -> (char) reader.readVarint();
+            case UUID_TYPE -> new UUID(reader.readLong(), reader.readLong());
+            case OFFSET_DATE_TIME -> Instant.ofEpochSecond(reader.readSignedVarint(), reader.readVarint())
+                    .atOffset(ZoneOffset.ofTotalSeconds((int) reader.readSignedVarint()));
+            case DATE -> new Date(reader.readSignedVarint());
+            case BINARY -> readBinary(reader);
+            default -> throw new IllegalArgumentException("Unknown property type " + type);
+        };
+    }
+
+    private static byte[] readBinary(PayloadReader reader) {
+        byte[] bytes = new byte[(int) reader.readVarint()];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = (byte) reader.readByte();
+        }
+        return bytes;
+    }
+}
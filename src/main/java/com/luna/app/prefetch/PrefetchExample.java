@@ -2,10 +2,23 @@ package com.luna.app.prefetch;
 
 import com.azure.core.util.IterableStream;
 import com.azure.messaging.servicebus.*;
+import com.azure.messaging.servicebus.administration.ServiceBusAdministrationClient;
+import com.azure.messaging.servicebus.administration.ServiceBusAdministrationClientBuilder;
 import com.azure.messaging.servicebus.models.ServiceBusReceiveMode;
 import com.google.common.base.Stopwatch;
+import com.luna.app.claimcheck.ClaimCheckSender;
+import com.luna.app.claimcheck.FileBlobStore;
+import com.luna.app.client.SenderLease;
+import com.luna.app.client.ServiceBusClientFactory;
+import com.luna.app.logging.MessageEvent;
+import com.luna.app.logging.MessageLog;
+import com.luna.app.logging.MessageLogOptions;
+import com.luna.app.logging.MessageLogger;
+import com.luna.app.queue.MessageSource;
+import com.luna.app.queue.ServiceBusMessageSource;
 import lombok.extern.slf4j.Slf4j;
 
+import java.nio.file.Path;
 import java.time.Duration;
 import java.util.ArrayList;
 import java.util.List;
@@ -17,6 +30,14 @@ public class PrefetchExample {
     // Use environment variables for sensitive information
     private static final String CONNECTION_STRING = System.getenv("AZURE_SERVICE_BUS_CONNECTION_STRING");
     private static final String QUEUE_NAME = "prefetchdest";
+    // Must match the LockDuration configured on the queue
+    private static final Duration LOCK_DURATION = Duration.ofSeconds(60);
+    // Receive events are written by a background thread so they do not add to the measured receive time
+    private static final MessageLog MESSAGE_LOG = new MessageLog(new MessageLogOptions(), MessageLog.toLogger(log));
+    private static final MessageLogger MESSAGES = MESSAGE_LOG.forEntity(QUEUE_NAME);
+    // Bodies above 64 KB are spilled to local files and sent as references
+    private static final ClaimCheckSender CLAIM_CHECK = new ClaimCheckSender(
+            new FileBlobStore(Path.of(System.getProperty("java.io.tmpdir"), "servicebus-claimcheck")));
 
     public static void main(String[] args) throws InterruptedException {
         log.info("Main starts");
@@ -32,6 +53,9 @@ public class PrefetchExample {
         long timeDifference = timeWithoutPrefetch - timeWithPrefetch;
         log.info("Time difference between prefetch and non-prefetch = {} milliseconds", timeDifference);
 
+        // Let the tuner pick the prefetch count while draining the queue
+        receiveMessagesAdaptive(1000);
+
         log.info("Main ends");
     }
 
@@ -49,21 +73,32 @@ public class PrefetchExample {
     }
 
     /**
-     * Sends a batch of messages to the Service Bus queue.
+     * Sends the messages to the Service Bus queue in as few batches as fit. Large bodies are replaced by claim-check
+     * references so that every message fits in a batch.
      */
     private static void sendMessageBatch() {
-        try (ServiceBusSenderClient senderClient = createSenderClient()) {
+        try (SenderLease senderClient = createSenderClient()) {
             ServiceBusMessageBatch messageBatch = senderClient.createMessageBatch();
-            List<ServiceBusMessage> listOfMessages = createMessages();
-
-            for (ServiceBusMessage message : listOfMessages) {
-                if (!messageBatch.tryAddMessage(message)) {
-                    log.warn("Failed to add message to batch: {}", message.getMessageId());
+            int batches = 0;
+
+            for (ServiceBusMessage message : createMessages()) {
+                ServiceBusMessage checked = CLAIM_CHECK.check(message);
+                if (!messageBatch.tryAddMessage(checked)) {
+                    senderClient.sendMessages(messageBatch);
+                    batches++;
+                    messageBatch = senderClient.createMessageBatch();
+                    if (!messageBatch.tryAddMessage(checked)) {
+                        throw new IllegalStateException("Message " + checked.getMessageId()
+                                + " does not fit in an empty batch");
+                    }
                 }
             }
 
-            senderClient.sendMessages(messageBatch);
-            log.info("Message batch sent successfully to the queue: {}", QUEUE_NAME);
+            if (messageBatch.getCount() > 0) {
+                senderClient.sendMessages(messageBatch);
+                batches++;
+            }
+            log.info("{} message batches sent successfully to the queue: {}", batches, QUEUE_NAME);
         } catch (Exception e) {
             log.error("Error while sending message batch: {}", e.getMessage(), e);
         }
@@ -80,7 +115,7 @@ public class PrefetchExample {
 
         try (ServiceBusReceiverClient receiver = createReceiverClient(prefetchCount)) {
             IterableStream<ServiceBusReceivedMessage> messages = receiver.receiveMessages(50, Duration.ofSeconds(5));
-            messages.forEach(message -> log.debug("Message received. Id: {}, Contents: {}", message.getMessageId(), message.getBody()));
+            messages.forEach(message -> MESSAGES.log(MessageEvent.RECEIVED, message));
         } catch (Exception e) {
             log.error("Error while receiving messages: {}", e.getMessage(), e);
         }
@@ -93,16 +128,48 @@ public class PrefetchExample {
     }
 
     /**
-     * Creates a Service Bus sender client for the queue.
+     * Receives and completes messages while a {@link PrefetchTuner} adjusts the prefetch count.
      *
-     * @return the Service Bus sender client
+     * @param messageCount the number of messages to receive before stopping
      */
-    private static ServiceBusSenderClient createSenderClient() {
-        return new ServiceBusClientBuilder()
+    private static void receiveMessagesAdaptive(int messageCount) {
+        PrefetchTuner tuner = new PrefetchTuner(0, 1000, LOCK_DURATION, 0.5, Duration.ofSeconds(2));
+        Stopwatch stopWatch = Stopwatch.createStarted();
+        int received = 0;
+
+        ServiceBusAdministrationClient adminClient = new ServiceBusAdministrationClientBuilder()
                 .connectionString(CONNECTION_STRING)
-                .sender()
-                .queueName(QUEUE_NAME)
                 .buildClient();
+        try (MessageSource<ServiceBusReceivedMessage> source = new TunedMessageSource<>(
+                prefetchCount -> new ServiceBusMessageSource(createReceiverClient(prefetchCount)), tuner,
+                () -> adminClient.getQueueRuntimeProperties(QUEUE_NAME).getActiveMessageCount())) {
+            while (received < messageCount) {
+                List<ServiceBusReceivedMessage> messages = source.receive(50, Duration.ofSeconds(5));
+                if (messages.isEmpty()) {
+                    break;
+                }
+                for (ServiceBusReceivedMessage message : messages) {
+                    log.debug("Message received. Id: {}", message.getMessageId());
+                    source.complete(message);
+                }
+                received += messages.size();
+            }
+        } catch (Exception e) {
+            log.error("Error while receiving messages: {}", e.getMessage(), e);
+        }
+
+        log.info("Received {} messages in {} milliseconds, tuner settled on prefetchCount = {}", received,
+                stopWatch.elapsed(TimeUnit.MILLISECONDS), tuner.getPrefetch());
+    }
+
+    /**
+     * Leases the shared Service Bus sender client for the queue.
+     *
+     * @return the lease on the Service Bus sender client
+     */
+    private static SenderLease createSenderClient() {
+        return ServiceBusClientFactory.forConnectionString(CONNECTION_STRING)
+                .leaseQueueSender(QUEUE_NAME);
     }
 
     /**
@@ -112,8 +179,7 @@ public class PrefetchExample {
      * @return the Service Bus receiver client
      */
     private static ServiceBusReceiverClient createReceiverClient(int prefetchCount) {
-        return new ServiceBusClientBuilder()
-                .connectionString(CONNECTION_STRING)
+        return ServiceBusClientFactory.forConnectionString(CONNECTION_STRING)
                 .receiver()
                 .receiveMode(ServiceBusReceiveMode.PEEK_LOCK)
                 .prefetchCount(prefetchCount)
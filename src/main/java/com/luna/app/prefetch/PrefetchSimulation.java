@@ -0,0 +1,172 @@
+package com.luna.app.prefetch;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.PriorityQueue;
+import java.util.Random;
+import java.util.function.LongToIntFunction;
+
+/**
+ * Discrete-event model of a peek-lock receiver with a prefetch buffer, used to compare prefetch settings without a
+ * namespace.
+ * <p>
+ * The broker holds {@code messageCount} messages. The link keeps {@code prefetch} messages requested ahead of the
+ * workers plus one per idle worker; every request costs one round trip, and the lock of each message starts when the
+ * broker hands it out. Workers handle a message for an exponentially distributed time and then complete it
+ * synchronously (another round trip). A message whose lock expired before completion is counted as lost, its work is
+ * wasted and it returns to the broker for redelivery. A buffer deeper than the workers can drain within the lock
+ * duration loses every message, so each run is capped at {@code horizon} simulated time.
+ */
+public class PrefetchSimulation {
+
+    private final int workers;
+    private final long meanHandlerNanos;
+    private final long roundTripNanos;
+    private final long lockDurationNanos;
+    private final int messageCount;
+    private final long horizonNanos;
+    private final long seed;
+
+    /**
+     * @param workers       number of concurrent handlers
+     * @param handlerTime   mean handler duration
+     * @param roundTrip     network round trip for receive and settle calls
+     * @param lockDuration  entity lock duration
+     * @param messageCount  messages waiting in the entity at the start
+     * @param horizon       simulated time after which a run stops even if messages remain
+     * @param seed          random seed, so that runs are repeatable
+     */
+    public PrefetchSimulation(int workers, Duration handlerTime, Duration roundTrip, Duration lockDuration,
+                              int messageCount, Duration horizon, long seed) {
+        this.workers = workers;
+        this.meanHandlerNanos = handlerTime.toNanos();
+        this.roundTripNanos = roundTrip.toNanos();
+        this.lockDurationNanos = lockDuration.toNanos();
+        this.messageCount = messageCount;
+        this.horizonNanos = horizon.toNanos();
+        this.seed = seed;
+    }
+
+    /**
+     * Runs the model with a constant prefetch count.
+     *
+     * @param prefetch the prefetch count
+     * @return the outcome of the run
+     */
+    public Result run(int prefetch) {
+        return run(now -> prefetch, null);
+    }
+
+    /**
+     * Runs the model with the prefetch count chosen by a tuner, which is fed the simulated measurements.
+     *
+     * @param tuner the tuner under test
+     * @return the outcome of the run
+     */
+    public Result run(PrefetchTuner tuner) {
+        return run(tuner::evaluate, tuner);
+    }
+
+    private Result run(LongToIntFunction prefetchAt, PrefetchTuner tuner) {
+        Random random = new Random(seed);
+        PriorityQueue<Event> events = new PriorityQueue<>();
+        ArrayDeque<Long> buffer = new ArrayDeque<>();
+        long now = 0;
+        int backlog = messageCount;
+        int pending = 0;
+        int idle = workers;
+        long completed = 0;
+        long lost = 0;
+        long prefetchSum = 0;
+        long prefetchSamples = 0;
+
+        while (completed < messageCount && now < horizonNanos) {
+            int prefetch = prefetchAt.applyAsInt(now);
+            prefetchSum += prefetch;
+            prefetchSamples++;
+            if (tuner != null) {
+                tuner.recordBacklog(backlog);
+            }
+
+            int wanted = Math.min(backlog, prefetch + idle - buffer.size() - pending);
+            if (wanted > 0) {
+                backlog -= wanted;
+                pending += wanted;
+                events.add(Event.arrival(now + roundTripNanos, wanted, now + roundTripNanos / 2));
+            }
+            while (idle > 0 && !buffer.isEmpty()) {
+                idle--;
+                long lockedAt = buffer.poll();
+                long handlerNanos = (long) (-Math.log(1 - random.nextDouble()) * meanHandlerNanos);
+                if (tuner != null) {
+                    tuner.recordHandlerLatency(handlerNanos);
+                }
+                events.add(Event.done(now + handlerNanos + roundTripNanos, lockedAt,
+                        now + handlerNanos + roundTripNanos / 2));
+            }
+
+            Event event = events.poll();
+            if (event == null) {
+                break;
+            }
+            now = event.time;
+            if (event.count > 0) {
+                pending -= event.count;
+                for (int i = 0; i < event.count; i++) {
+                    buffer.add(event.lockedAt);
+                }
+            } else {
+                idle++;
+                if (event.settledAt - event.lockedAt > lockDurationNanos) {
+                    lost++;
+                    backlog++;
+                    if (tuner != null) {
+                        tuner.recordLockLost();
+                    }
+                } else {
+                    completed++;
+                    if (tuner != null) {
+                        tuner.recordSettled(event.settledAt - event.lockedAt);
+                    }
+                }
+            }
+        }
+        return new Result(completed, lost, now, prefetchSamples == 0 ? 0 : (double) prefetchSum / prefetchSamples);
+    }
+
+    /**
+     * Outcome of one simulated run.
+     *
+     * @param completed       messages completed
+     * @param locksLost       deliveries whose lock expired before completion
+     * @param elapsedNanos    simulated time until the last completion or the horizon
+     * @param averagePrefetch prefetch count averaged over simulation steps
+     */
+    public record Result(long completed, long locksLost, long elapsedNanos, double averagePrefetch) {
+
+        public double throughput() {
+            return elapsedNanos == 0 ? 0 : completed * 1e9 / elapsedNanos;
+        }
+
+        public double lockLossRate() {
+            long deliveries = completed + locksLost;
+            return deliveries == 0 ? 0 : (double) locksLost / deliveries;
+        }
+    }
+
+    private record Event(long time, int count, long lockedAt, long settledAt) implements Comparable<Event> {
+
+        static Event arrival(long time, int count, long lockedAt) {
+            return new Event(time, count, lockedAt, 0);
+        }
+
+        static Event done(long time, long lockedAt, long settledAt) {
+            return new Event(time, 0, lockedAt, settledAt);
+        }
+
+        @Override
+        public int compareTo(Event other) {
+            return Long.compare(time, other.time);
+        }
+    }
+}
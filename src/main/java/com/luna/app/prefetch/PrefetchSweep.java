@@ -0,0 +1,43 @@
+package com.luna.app.prefetch;
+
+import java.time.Duration;
+
+/**
+ * Sweeps prefetch counts through a {@link PrefetchSimulation} and prints the throughput and lock-loss curve, followed
+ * by the result of letting a {@link PrefetchTuner} pick the value.
+ * <p>
+ * Usage: {@code PrefetchSweep [workers] [handlerMillis] [roundTripMillis] [lockSeconds] [messages]}.
+ */
+public class PrefetchSweep {
+
+    private static final int[] PREFETCH_COUNTS = {0, 1, 2, 4, 8, 16, 32, 64, 128, 256, 512, 1024, 2048, 4096, 8192};
+
+    public static void main(String[] args) {
+        int workers = args.length > 0 ? Integer.parseInt(args[0]) : 8;
+        Duration handlerTime = Duration.ofMillis(args.length > 1 ? Long.parseLong(args[1]) : 20);
+        Duration roundTrip = Duration.ofMillis(args.length > 2 ? Long.parseLong(args[2]) : 10);
+        Duration lockDuration = Duration.ofSeconds(args.length > 3 ? Long.parseLong(args[3]) : 5);
+        int messages = args.length > 4 ? Integer.parseInt(args[4]) : 20_000;
+
+        PrefetchSimulation simulation = new PrefetchSimulation(workers, handlerTime, roundTrip, lockDuration,
+                messages, Duration.ofMinutes(10), 42L);
+
+        System.out.printf("workers=%d handler=%s roundTrip=%s lock=%s messages=%d%n", workers, handlerTime, roundTrip,
+                lockDuration, messages);
+        System.out.printf("%10s %12s %12s %10s%n", "prefetch", "msg/s", "locks lost", "loss %");
+        for (int prefetch : PREFETCH_COUNTS) {
+            print(String.valueOf(prefetch), simulation.run(prefetch));
+        }
+
+        PrefetchTuner tuner = new PrefetchTuner(0, PREFETCH_COUNTS[PREFETCH_COUNTS.length - 1], lockDuration, 0.5,
+                Duration.ofSeconds(1));
+        PrefetchSimulation.Result tuned = simulation.run(tuner);
+        print(String.format("auto(%.0f)", tuned.averagePrefetch()), tuned);
+        System.out.printf("tuner settled on prefetch=%d%n", tuner.getPrefetch());
+    }
+
+    private static void print(String label, PrefetchSimulation.Result result) {
+        System.out.printf("%10s %12.1f %12d %10.2f%n", label, result.throughput(), result.locksLost(),
+                result.lockLossRate() * 100);
+    }
+}
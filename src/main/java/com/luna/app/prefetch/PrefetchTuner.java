@@ -0,0 +1,165 @@
+package com.luna.app.prefetch;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Chooses a receiver prefetch count from live measurements instead of a hard-coded value.
+ * <p>
+ * The tuner is fed with handler latency, lock hold time (receive to settle), lock losses and, when known, the entity
+ * backlog. Every {@code evaluationInterval} it:
+ * <ul>
+ *     <li>halves prefetch when a lock was lost or the average hold time exceeds the lock budget
+ *     ({@code lockDuration * safetyFactor});</li>
+ *     <li>otherwise doubles prefetch while throughput keeps improving, and stops at the smallest value that reached
+ *     the plateau, since a deeper buffer only adds lock exposure;</li>
+ *     <li>never exceeds the number of messages that can be handled within the lock budget at the observed throughput,
+ *     nor the backlog.</li>
+ * </ul>
+ * Time is passed in explicitly so the same tuner drives both a live receiver and the {@link PrefetchSimulation}.
+ */
+public class PrefetchTuner {
+
+    private static final double EWMA_WEIGHT = 0.2;
+    private static final double IMPROVEMENT_THRESHOLD = 1.05;
+    private static final double REGRESSION_THRESHOLD = 0.8;
+
+    private final int minPrefetch;
+    private final int maxPrefetch;
+    private final long lockBudgetNanos;
+    private final long evaluationIntervalNanos;
+
+    private final LongAdder settled = new LongAdder();
+    private final LongAdder locksLost = new LongAdder();
+    private volatile double handlerNanos;
+    private volatile double holdNanos;
+    private volatile long backlog = -1;
+
+    private int prefetch;
+    private boolean probing = true;
+    private double lastThroughput;
+    private double bestThroughput;
+    private long lastEvaluationNanos = -1;
+
+    /**
+     * @param minPrefetch        lower bound, 0 disables prefetch entirely
+     * @param maxPrefetch        upper bound
+     * @param lockDuration       the entity lock duration
+     * @param safetyFactor       fraction of the lock duration a message may spend locked on the client, e.g. 0.5
+     * @param evaluationInterval how often the prefetch count is reconsidered
+     */
+    public PrefetchTuner(int minPrefetch, int maxPrefetch, Duration lockDuration, double safetyFactor,
+                         Duration evaluationInterval) {
+        if (minPrefetch < 0 || maxPrefetch < minPrefetch) {
+            throw new IllegalArgumentException("Invalid prefetch bounds: " + minPrefetch + ".." + maxPrefetch);
+        }
+        if (safetyFactor <= 0 || safetyFactor > 1) {
+            throw new IllegalArgumentException("safetyFactor must be in (0, 1] but was " + safetyFactor);
+        }
+        this.minPrefetch = minPrefetch;
+        this.maxPrefetch = maxPrefetch;
+        this.lockBudgetNanos = (long) (lockDuration.toNanos() * safetyFactor);
+        this.evaluationIntervalNanos = evaluationInterval.toNanos();
+        this.prefetch = Math.max(minPrefetch, 1);
+    }
+
+    /**
+     * Records how long the handler took for one message.
+     *
+     * @param nanos handler duration
+     */
+    public void recordHandlerLatency(long nanos) {
+        handlerNanos = ewma(handlerNanos, nanos);
+    }
+
+    /**
+     * Records a successful settlement and how long the message was held locked on the client.
+     *
+     * @param holdNanos time from the lock being taken to settlement
+     */
+    public void recordSettled(long holdNanos) {
+        settled.increment();
+        this.holdNanos = ewma(this.holdNanos, holdNanos);
+    }
+
+    /**
+     * Records a settlement that failed because the message lock had already expired.
+     */
+    public void recordLockLost() {
+        locksLost.increment();
+    }
+
+    /**
+     * Records the number of active messages waiting in the entity, or -1 if unknown.
+     *
+     * @param activeMessageCount the backlog
+     */
+    public void recordBacklog(long activeMessageCount) {
+        backlog = activeMessageCount;
+    }
+
+    public Duration getEvaluationInterval() {
+        return Duration.ofNanos(evaluationIntervalNanos);
+    }
+
+    public synchronized int getPrefetch() {
+        return prefetch;
+    }
+
+    /**
+     * Re-evaluates the prefetch count if an evaluation interval has passed since the last call.
+     *
+     * @param nowNanos the current time on the caller's clock
+     * @return the prefetch count to use from now on
+     */
+    public synchronized int evaluate(long nowNanos) {
+        if (lastEvaluationNanos < 0) {
+            lastEvaluationNanos = nowNanos;
+            return prefetch;
+        }
+        long elapsed = nowNanos - lastEvaluationNanos;
+        if (elapsed < evaluationIntervalNanos) {
+            return prefetch;
+        }
+        lastEvaluationNanos = nowNanos;
+
+        double throughput = settled.sumThenReset() * 1e9 / elapsed;
+        long lost = locksLost.sumThenReset();
+        int next = prefetch;
+
+        if (lost > 0 || holdNanos > lockBudgetNanos) {
+            next = prefetch / 2;
+            probing = false;
+        } else if (probing) {
+            if (throughput >= lastThroughput * IMPROVEMENT_THRESHOLD) {
+                next = Math.max(prefetch * 2, prefetch + 1);
+            } else {
+                probing = false;
+            }
+        } else if (throughput < bestThroughput * REGRESSION_THRESHOLD) {
+            probing = true;
+            bestThroughput = 0;
+        }
+
+        bestThroughput = Math.max(bestThroughput, throughput);
+        lastThroughput = throughput;
+        prefetch = clamp(next, throughput);
+        return prefetch;
+    }
+
+    private int clamp(int candidate, double throughput) {
+        long limit = maxPrefetch;
+        if (throughput > 0) {
+            double budgetNanos = lockBudgetNanos - handlerNanos;
+            limit = Math.min(limit, (long) (throughput * Math.max(0, budgetNanos) / 1e9));
+        }
+        if (backlog >= 0) {
+            limit = Math.min(limit, Math.max(backlog, 1));
+        }
+        return (int) Math.max(minPrefetch, Math.min(candidate, limit));
+    }
+
+    private static double ewma(double current, long sample) {
+        return current == 0 ? sample : current + EWMA_WEIGHT * (sample - current);
+    }
+}
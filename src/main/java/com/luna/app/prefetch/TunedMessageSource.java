@@ -0,0 +1,229 @@
+package com.luna.app.prefetch;
+
+import com.luna.app.queue.MessageSource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntFunction;
+import java.util.function.LongSupplier;
+
+/**
+ * {@link MessageSource} whose prefetch count is driven by a {@link PrefetchTuner}.
+ * <p>
+ * Prefetch is fixed when a Service Bus receiver is built, so a change is applied by opening a new receiver through
+ * {@code receiverFactory}. The previous receiver is kept until every message it delivered has been settled on it, and
+ * closed afterwards.
+ * <p>
+ * The source feeds the tuner from the live traffic: the time from a message being handed out by {@link #receive} to
+ * its settlement being requested as handler latency, the time until the settlement succeeded as lock hold time, a
+ * failed settlement as a lost lock, and, when a backlog probe is given, the entity's active message count once per
+ * evaluation interval.
+ *
+ * @param <M> the message type
+ */
+public class TunedMessageSource<M> implements MessageSource<M> {
+
+    private static final Logger logger = LoggerFactory.getLogger(TunedMessageSource.class);
+
+    private final IntFunction<? extends MessageSource<M>> receiverFactory;
+    private final PrefetchTuner tuner;
+    private final LongSupplier backlogProbe;
+    private final long backlogIntervalNanos;
+    private long lastBacklogNanos;
+    private final Map<M, Held<M>> held = new ConcurrentHashMap<>();
+    // Retired links still waiting for their messages to be settled, closed with the source at the latest
+    private final Set<Link<M>> retired = ConcurrentHashMap.newKeySet();
+
+    private volatile Link<M> current;
+    private boolean closed;
+
+    /**
+     * @param receiverFactory builds a receive link for a given prefetch count
+     * @param tuner           the tuner choosing the prefetch count
+     */
+    public TunedMessageSource(IntFunction<? extends MessageSource<M>> receiverFactory, PrefetchTuner tuner) {
+        this(receiverFactory, tuner, null);
+    }
+
+    /**
+     * @param receiverFactory builds a receive link for a given prefetch count
+     * @param tuner           the tuner choosing the prefetch count
+     * @param backlogProbe    returns the entity's active message count, e.g. from its runtime properties; called at
+     *                        most once per evaluation interval, or {@code null} to leave the backlog unknown
+     */
+    public TunedMessageSource(IntFunction<? extends MessageSource<M>> receiverFactory, PrefetchTuner tuner,
+                              LongSupplier backlogProbe) {
+        this.receiverFactory = receiverFactory;
+        this.tuner = tuner;
+        this.backlogProbe = backlogProbe;
+        this.backlogIntervalNanos = tuner.getEvaluationInterval().toNanos();
+        this.lastBacklogNanos = System.nanoTime() - backlogIntervalNanos;
+        int prefetch = tuner.evaluate(System.nanoTime());
+        this.current = new Link<>(receiverFactory.apply(prefetch), prefetch);
+    }
+
+    public int getPrefetch() {
+        return current.prefetch;
+    }
+
+    @Override
+    public List<M> receive(int maxMessages, Duration maxWaitTime) {
+        // The receive itself counts as outstanding, so that a concurrent relink cannot close the link under it
+        Link<M> link = relinkIfNeeded();
+        try {
+            List<M> messages = link.source.receive(maxMessages, maxWaitTime);
+            long now = System.nanoTime();
+            link.outstanding.addAndGet(messages.size());
+            for (M message : messages) {
+                held.put(message, new Held<>(link, now));
+            }
+            return messages;
+        } finally {
+            link.outstanding.decrementAndGet();
+            closeIfDrained(link);
+        }
+    }
+
+    private synchronized Link<M> relinkIfNeeded() {
+        if (closed) {
+            throw new IllegalStateException("Source is closed");
+        }
+        long now = System.nanoTime();
+        if (backlogProbe != null && now - lastBacklogNanos >= backlogIntervalNanos) {
+            lastBacklogNanos = now;
+            probeBacklog();
+        }
+        int prefetch = tuner.evaluate(now);
+        Link<M> link = current;
+        if (prefetch != link.prefetch) {
+            Link<M> previous = link;
+            link = new Link<>(receiverFactory.apply(prefetch), prefetch);
+            current = link;
+            previous.retired = true;
+            retired.add(previous);
+            closeIfDrained(previous);
+        }
+        link.outstanding.incrementAndGet();
+        return link;
+    }
+
+    private void probeBacklog() {
+        long backlog;
+        try {
+            backlog = backlogProbe.getAsLong();
+        } catch (RuntimeException e) {
+            logger.debug("Cannot read the entity backlog: {}", e.getMessage());
+            backlog = -1;
+        }
+        tuner.recordBacklog(backlog);
+    }
+
+    private void closeIfDrained(Link<M> link) {
+        if (link.closeIfDrained()) {
+            retired.remove(link);
+        }
+    }
+
+    @Override
+    public void complete(M message) {
+        settle(message, MessageSource::complete);
+    }
+
+    @Override
+    public void abandon(M message) {
+        settle(message, MessageSource::abandon);
+    }
+
+    @Override
+    public void deadLetter(M message) {
+        settle(message, MessageSource::deadLetter);
+    }
+
+    @Override
+    public Instant getLockedUntil(M message) {
+        Held<M> entry = held.get(message);
+        return entry != null ? entry.link.source.getLockedUntil(message) : null;
+    }
+
+    @Override
+    public Instant renewLock(M message) {
+        Held<M> entry = held.get(message);
+        if (entry == null) {
+            throw new IllegalArgumentException("Message was not received from this source");
+        }
+        return entry.link.source.renewLock(message);
+    }
+
+    private void settle(M message, Settlement<M> settlement) {
+        Held<M> entry = held.remove(message);
+        if (entry == null) {
+            throw new IllegalArgumentException("Message was not received from this source");
+        }
+        long settleNanos = System.nanoTime();
+        tuner.recordHandlerLatency(settleNanos - entry.receivedAt);
+        try {
+            settlement.apply(entry.link.source, message);
+            tuner.recordSettled(System.nanoTime() - entry.receivedAt);
+        } catch (RuntimeException e) {
+            tuner.recordLockLost();
+            throw e;
+        } finally {
+            entry.link.outstanding.decrementAndGet();
+            closeIfDrained(entry.link);
+        }
+    }
+
+    /**
+     * Closes the current link and every retired one, including those with messages still unsettled.
+     */
+    @Override
+    public synchronized void close() {
+        closed = true;
+        current.close();
+        retired.forEach(Link::close);
+        retired.clear();
+    }
+
+    @FunctionalInterface
+    private interface Settlement<M> {
+        void apply(MessageSource<M> source, M message);
+    }
+
+    private record Held<M>(Link<M> link, long receivedAt) {
+    }
+
+    private static final class Link<M> {
+        private final MessageSource<M> source;
+        private final int prefetch;
+        private final AtomicInteger outstanding = new AtomicInteger();
+        private volatile boolean retired;
+        private boolean closed;
+
+        private Link(MessageSource<M> source, int prefetch) {
+            this.source = source;
+            this.prefetch = prefetch;
+        }
+
+        private synchronized boolean closeIfDrained() {
+            if (retired && outstanding.get() == 0) {
+                close();
+                return true;
+            }
+            return false;
+        }
+
+        private synchronized void close() {
+            if (!closed) {
+                closed = true;
+                source.close();
+            }
+        }
+    }
+}
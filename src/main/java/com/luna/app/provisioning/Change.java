@@ -0,0 +1,74 @@
+package com.luna.app.provisioning;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+
+/**
+ * One management operation of a {@link ProvisioningPlan}.
+ */
+public final class Change {
+
+    public enum Type {
+        CREATE, UPDATE, DELETE
+    }
+
+    private final Type type;
+    private final String kind;
+    private final String path;
+    private final String detail;
+    private final Function<EntityAdmin, CompletableFuture<Void>> operation;
+
+    Change(Type type, String kind, String path, String detail,
+           Function<EntityAdmin, CompletableFuture<Void>> operation) {
+        this.type = type;
+        this.kind = kind;
+        this.path = path;
+        this.detail = detail;
+        this.operation = operation;
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    /**
+     * @return "queue", "topic", "subscription" or "rule"
+     */
+    public String getKind() {
+        return kind;
+    }
+
+    /**
+     * @return the entity path, such as {@code topic001/sub1/red} for a rule
+     */
+    public String getPath() {
+        return path;
+    }
+
+    /**
+     * @return the settings being changed, or an empty string
+     */
+    public String getDetail() {
+        return detail;
+    }
+
+    /**
+     * @return 0 for queues and topics, 1 for subscriptions and 2 for rules
+     */
+    int depth() {
+        int depth = 0;
+        for (int i = path.indexOf('/'); i >= 0; i = path.indexOf('/', i + 1)) {
+            depth++;
+        }
+        return depth;
+    }
+
+    CompletableFuture<Void> execute(EntityAdmin admin) {
+        return operation.apply(admin);
+    }
+
+    @Override
+    public String toString() {
+        return type + " " + kind + " " + path + (detail.isEmpty() ? "" : " (" + detail + ")");
+    }
+}
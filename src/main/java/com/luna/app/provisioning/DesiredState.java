@@ -0,0 +1,219 @@
+package com.luna.app.provisioning;
+
+import com.azure.json.JsonProviders;
+import com.azure.json.JsonReader;
+import com.azure.json.JsonToken;
+import com.luna.app.filter.SqlFilter;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.format.DateTimeParseException;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The queues, topics, subscriptions and rules a namespace should contain. Read from JSON such as:
+ * <pre>{@code
+ * {
+ *   "queues": [
+ *     { "name": "queue001", "lockDuration": "PT60S", "maxDeliveryCount": 4 }
+ *   ],
+ *   "topics": [
+ *     { "name": "topic001", "subscriptions": [
+ *       { "name": "sub1", "rules": { "red": "color = 'red'" } }
+ *     ] }
+ *   ]
+ * }
+ * }</pre>
+ * Durations are ISO-8601. Rule expressions are compiled with {@link SqlFilter} so that syntax errors are reported before
+ * anything is changed.
+ *
+ * @param queues the queues
+ * @param topics the topics with their subscriptions
+ */
+public record DesiredState(List<QueueSpec> queues, List<TopicSpec> topics) {
+
+    public DesiredState {
+        queues = List.copyOf(queues);
+        topics = topics.stream()
+                .map(topic -> topic.subscriptions() != null ? topic : new TopicSpec(topic.name(),
+                        topic.defaultMessageTimeToLive(), topic.duplicateDetectionRequired(), List.of()))
+                .toList();
+        validate(queues, topics);
+    }
+
+    /**
+     * Reads a desired state file.
+     *
+     * @param path the JSON file
+     * @return the desired state
+     * @throws IllegalArgumentException if the file is malformed or names an entity twice
+     */
+    public static DesiredState read(Path path) {
+        try (InputStream input = Files.newInputStream(path)) {
+            return parse(JsonProviders.createReader(input));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read " + path, e);
+        }
+    }
+
+    /**
+     * Parses a desired state document.
+     *
+     * @param json the JSON document
+     * @return the desired state
+     * @throws IllegalArgumentException if the document is malformed or names an entity twice
+     */
+    public static DesiredState parse(String json) {
+        try {
+            return parse(JsonProviders.createReader(json));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static DesiredState parse(JsonReader reader) throws IOException {
+        try (reader) {
+            return reader.readObject(root -> {
+                List<QueueSpec> queues = List.of();
+                List<TopicSpec> topics = List.of();
+                while (root.nextToken() != JsonToken.END_OBJECT) {
+                    String field = root.getFieldName();
+                    root.nextToken();
+                    switch (field) {
+                        case "queues" -> queues = root.readArray(DesiredState::readQueue);
+                        case "topics" -> topics = root.readArray(DesiredState::readTopic);
+                        default -> throw unknownField(field, "document");
+                    }
+                }
+                return new DesiredState(queues, topics);
+            });
+        } catch (IllegalStateException e) {
+            throw new IllegalArgumentException("Malformed desired state: " + e.getMessage(), e);
+        }
+    }
+
+    private static QueueSpec readQueue(JsonReader reader) throws IOException {
+        return reader.readObject(queue -> {
+            String name = null;
+            Duration lockDuration = null;
+            Integer maxDeliveryCount = null;
+            Duration ttl = null;
+            Boolean sessionRequired = null;
+            Boolean duplicateDetection = null;
+            while (queue.nextToken() != JsonToken.END_OBJECT) {
+                String field = queue.getFieldName();
+                queue.nextToken();
+                switch (field) {
+                    case "name" -> name = queue.getString();
+                    case "lockDuration" -> lockDuration = readDuration(queue, field);
+                    case "maxDeliveryCount" -> maxDeliveryCount = queue.getInt();
+                    case "defaultMessageTimeToLive" -> ttl = readDuration(queue, field);
+                    case "sessionRequired" -> sessionRequired = queue.getBoolean();
+                    case "duplicateDetectionRequired" -> duplicateDetection = queue.getBoolean();
+                    default -> throw unknownField(field, "queue " + name);
+                }
+            }
+            return new QueueSpec(name, lockDuration, maxDeliveryCount, ttl, sessionRequired, duplicateDetection);
+        });
+    }
+
+    private static TopicSpec readTopic(JsonReader reader) throws IOException {
+        return reader.readObject(topic -> {
+            String name = null;
+            Duration ttl = null;
+            Boolean duplicateDetection = null;
+            List<SubscriptionSpec> subscriptions = List.of();
+            while (topic.nextToken() != JsonToken.END_OBJECT) {
+                String field = topic.getFieldName();
+                topic.nextToken();
+                switch (field) {
+                    case "name" -> name = topic.getString();
+                    case "defaultMessageTimeToLive" -> ttl = readDuration(topic, field);
+                    case "duplicateDetectionRequired" -> duplicateDetection = topic.getBoolean();
+                    case "subscriptions" -> subscriptions = topic.readArray(DesiredState::readSubscription);
+                    default -> throw unknownField(field, "topic " + name);
+                }
+            }
+            return new TopicSpec(name, ttl, duplicateDetection, subscriptions);
+        });
+    }
+
+    private static SubscriptionSpec readSubscription(JsonReader reader) throws IOException {
+        return reader.readObject(subscription -> {
+            String name = null;
+            Duration lockDuration = null;
+            Integer maxDeliveryCount = null;
+            Duration ttl = null;
+            Boolean sessionRequired = null;
+            Map<String, String> rules = null;
+            while (subscription.nextToken() != JsonToken.END_OBJECT) {
+                String field = subscription.getFieldName();
+                subscription.nextToken();
+                switch (field) {
+                    case "name" -> name = subscription.getString();
+                    case "lockDuration" -> lockDuration = readDuration(subscription, field);
+                    case "maxDeliveryCount" -> maxDeliveryCount = subscription.getInt();
+                    case "defaultMessageTimeToLive" -> ttl = readDuration(subscription, field);
+                    case "sessionRequired" -> sessionRequired = subscription.getBoolean();
+                    case "rules" -> rules = new LinkedHashMap<>(subscription.readMap(JsonReader::getString));
+                    default -> throw unknownField(field, "subscription " + name);
+                }
+            }
+            return new SubscriptionSpec(name, lockDuration, maxDeliveryCount, ttl, sessionRequired, rules);
+        });
+    }
+
+    private static Duration readDuration(JsonReader reader, String field) throws IOException {
+        String value = reader.getString();
+        try {
+            return Duration.parse(value);
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException(field + " is not an ISO-8601 duration: " + value, e);
+        }
+    }
+
+    private static IllegalArgumentException unknownField(String field, String owner) {
+        return new IllegalArgumentException("Unknown field '" + field + "' in " + owner);
+    }
+
+    private static void validate(List<QueueSpec> queues, List<TopicSpec> topics) {
+        Set<String> entityNames = new HashSet<>();
+        for (QueueSpec queue : queues) {
+            requireUniqueName(queue.name(), entityNames, "Entity");
+        }
+        for (TopicSpec topic : topics) {
+            requireUniqueName(topic.name(), entityNames, "Entity");
+            Set<String> subscriptionNames = new HashSet<>();
+            for (SubscriptionSpec subscription : topic.subscriptions()) {
+                requireUniqueName(subscription.name(), subscriptionNames, "Subscription in topic " + topic.name());
+                if (subscription.rules() != null) {
+                    subscription.rules().forEach((rule, expression) -> {
+                        try {
+                            SqlFilter.compile(expression);
+                        } catch (IllegalArgumentException e) {
+                            throw new IllegalArgumentException("Rule " + rule + " of " + topic.name() + "/"
+                                    + subscription.name() + ": " + e.getMessage(), e);
+                        }
+                    });
+                }
+            }
+        }
+    }
+
+    private static void requireUniqueName(String name, Set<String> names, String kind) {
+        if (name == null || name.isBlank()) {
+            throw new IllegalArgumentException(kind + " without a name");
+        }
+        if (!names.add(name.toLowerCase())) {
+            throw new IllegalArgumentException(kind + " " + name + " is declared twice");
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package com.luna.app.provisioning;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * The administration operations used by the {@link Provisioner}. Implemented over the Service Bus administration client
+ * by {@link ServiceBusEntityAdmin} and, for tests, in memory by {@code InMemoryEntityAdmin}.
+ * <p>
+ * Every call is asynchronous so that the provisioner can keep many requests in flight. Listings return fully populated
+ * specs, except that topics are listed without their subscriptions and subscriptions without their rules.
+ */
+public interface EntityAdmin {
+
+    CompletableFuture<List<QueueSpec>> listQueues();
+
+    CompletableFuture<List<TopicSpec>> listTopics();
+
+    CompletableFuture<List<SubscriptionSpec>> listSubscriptions(String topicName);
+
+    /**
+     * @return SQL filter expressions by rule name
+     */
+    CompletableFuture<Map<String, String>> listRules(String topicName, String subscriptionName);
+
+    CompletableFuture<Void> createQueue(QueueSpec queue);
+
+    /**
+     * Applies the non-null mutable settings of {@code queue} to the existing queue.
+     */
+    CompletableFuture<Void> updateQueue(QueueSpec queue);
+
+    CompletableFuture<Void> deleteQueue(String queueName);
+
+    CompletableFuture<Void> createTopic(TopicSpec topic);
+
+    /**
+     * Applies the non-null mutable settings of {@code topic} to the existing topic; subscriptions are ignored.
+     */
+    CompletableFuture<Void> updateTopic(TopicSpec topic);
+
+    CompletableFuture<Void> deleteTopic(String topicName);
+
+    /**
+     * Creates a subscription with the broker's {@value Provisioner#DEFAULT_RULE} rule; the rules of the spec are
+     * ignored.
+     */
+    CompletableFuture<Void> createSubscription(String topicName, SubscriptionSpec subscription);
+
+    /**
+     * Applies the non-null mutable settings of {@code subscription} to the existing subscription; rules are ignored.
+     */
+    CompletableFuture<Void> updateSubscription(String topicName, SubscriptionSpec subscription);
+
+    CompletableFuture<Void> deleteSubscription(String topicName, String subscriptionName);
+
+    CompletableFuture<Void> createRule(String topicName, String subscriptionName, String ruleName,
+                                       String sqlExpression);
+
+    CompletableFuture<Void> updateRule(String topicName, String subscriptionName, String ruleName,
+                                       String sqlExpression);
+
+    CompletableFuture<Void> deleteRule(String topicName, String subscriptionName, String ruleName);
+}
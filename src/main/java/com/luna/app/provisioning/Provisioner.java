@@ -0,0 +1,343 @@
+package com.luna.app.provisioning;
+
+import com.google.common.base.Stopwatch;
+import com.google.common.util.concurrent.RateLimiter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Reconciles a namespace with a {@link DesiredState}.
+ * <p>
+ * {@link #plan} lists the namespace and diffs it against the desired state; {@link #apply} then runs the changes with up
+ * to {@link ProvisioningOptions#getMaxConcurrency()} calls in flight, started no faster than
+ * {@link ProvisioningOptions#getMaxOperationsPerSecond()}. Queues and topics are changed first, then subscriptions, then
+ * rules, so that every parent exists before its children are created; a child whose parent failed is skipped. Running
+ * the same desired state twice yields an empty second plan.
+ */
+public class Provisioner {
+
+    private static final Logger logger = LoggerFactory.getLogger(Provisioner.class);
+
+    /**
+     * Name of the rule the broker adds to every new subscription.
+     */
+    public static final String DEFAULT_RULE = "$Default";
+
+    /**
+     * Filter of the {@value #DEFAULT_RULE} rule, which matches every message.
+     */
+    public static final String DEFAULT_RULE_EXPRESSION = "1=1";
+
+    private static final int MAX_DEPTH = 2;
+
+    private final EntityAdmin admin;
+    private final ProvisioningOptions options;
+    private final Semaphore permits;
+    private final RateLimiter rateLimiter;
+
+    public Provisioner(EntityAdmin admin, ProvisioningOptions options) {
+        this.admin = admin;
+        this.options = options;
+        this.permits = new Semaphore(options.getMaxConcurrency());
+        this.rateLimiter = RateLimiter.create(options.getMaxOperationsPerSecond());
+    }
+
+    /**
+     * Plans and applies the changes for a desired state.
+     *
+     * @param desired the desired state
+     * @return the outcome
+     */
+    public ProvisioningReport provision(DesiredState desired) {
+        return apply(plan(desired));
+    }
+
+    /**
+     * Lists the namespace and computes the changes needed to reach {@code desired}, without changing anything.
+     *
+     * @param desired the desired state
+     * @return the plan
+     */
+    public ProvisioningPlan plan(DesiredState desired) {
+        CompletableFuture<List<QueueSpec>> queueListing = submit(admin::listQueues);
+        CompletableFuture<List<TopicSpec>> topicListing = submit(admin::listTopics);
+        Map<String, QueueSpec> actualQueues = byName(join(queueListing, "queues"), QueueSpec::name);
+        Map<String, TopicSpec> actualTopics = byName(join(topicListing, "topics"), TopicSpec::name);
+
+        Map<TopicSpec, CompletableFuture<List<SubscriptionSpec>>> subscriptionListings = new LinkedHashMap<>();
+        for (TopicSpec topic : desired.topics()) {
+            if (actualTopics.containsKey(key(topic.name()))) {
+                subscriptionListings.put(topic, submit(() -> admin.listSubscriptions(topic.name())));
+            }
+        }
+
+        List<Change> changes = new ArrayList<>();
+        List<String> warnings = new ArrayList<>();
+        planQueues(desired.queues(), actualQueues, changes, warnings);
+        planTopics(desired.topics(), actualTopics, changes, warnings);
+
+        List<RuleListing> ruleListings = new ArrayList<>();
+        for (TopicSpec topic : desired.topics()) {
+            CompletableFuture<List<SubscriptionSpec>> listing = subscriptionListings.get(topic);
+            Map<String, SubscriptionSpec> actualSubscriptions = listing == null ? Map.of()
+                    : byName(join(listing, "subscriptions of " + topic.name()), SubscriptionSpec::name);
+            planSubscriptions(topic, actualSubscriptions, changes, warnings, ruleListings);
+        }
+        for (RuleListing listing : ruleListings) {
+            Map<String, String> actualRules = join(listing.rules(), "rules of " + listing.topicName() + "/"
+                    + listing.subscription().name());
+            planRules(listing.topicName(), listing.subscription(), actualRules, changes);
+        }
+
+        ProvisioningPlan plan = new ProvisioningPlan(changes, warnings);
+        logger.info("Planned {} creates, {} updates and {} deletes with {} warnings",
+                plan.count(Change.Type.CREATE), plan.count(Change.Type.UPDATE), plan.count(Change.Type.DELETE),
+                warnings.size());
+        return plan;
+    }
+
+    private void planQueues(List<QueueSpec> desired, Map<String, QueueSpec> actual, List<Change> changes,
+                            List<String> warnings) {
+        for (QueueSpec queue : desired) {
+            QueueSpec current = actual.get(key(queue.name()));
+            if (current == null) {
+                changes.add(new Change(Change.Type.CREATE, "queue", queue.name(), "",
+                        api -> api.createQueue(queue)));
+                continue;
+            }
+            List<String> changed = new ArrayList<>();
+            diff(changed, "lockDuration", queue.lockDuration(), current.lockDuration());
+            diff(changed, "maxDeliveryCount", queue.maxDeliveryCount(), current.maxDeliveryCount());
+            diff(changed, "defaultMessageTimeToLive", queue.defaultMessageTimeToLive(),
+                    current.defaultMessageTimeToLive());
+            if (!changed.isEmpty()) {
+                changes.add(new Change(Change.Type.UPDATE, "queue", queue.name(), String.join(", ", changed),
+                        api -> api.updateQueue(queue)));
+            }
+            checkFixed(warnings, queue.name(), "sessionRequired", queue.sessionRequired(),
+                    current.sessionRequired());
+            checkFixed(warnings, queue.name(), "duplicateDetectionRequired", queue.duplicateDetectionRequired(),
+                    current.duplicateDetectionRequired());
+        }
+        if (options.isPrune()) {
+            Set<String> declared = keys(desired, QueueSpec::name);
+            actual.values().stream()
+                    .filter(queue -> !declared.contains(key(queue.name())))
+                    .forEach(queue -> changes.add(new Change(Change.Type.DELETE, "queue", queue.name(), "",
+                            api -> api.deleteQueue(queue.name()))));
+        }
+    }
+
+    private void planTopics(List<TopicSpec> desired, Map<String, TopicSpec> actual, List<Change> changes,
+                            List<String> warnings) {
+        for (TopicSpec topic : desired) {
+            TopicSpec current = actual.get(key(topic.name()));
+            if (current == null) {
+                changes.add(new Change(Change.Type.CREATE, "topic", topic.name(), "",
+                        api -> api.createTopic(topic)));
+                continue;
+            }
+            List<String> changed = new ArrayList<>();
+            diff(changed, "defaultMessageTimeToLive", topic.defaultMessageTimeToLive(),
+                    current.defaultMessageTimeToLive());
+            if (!changed.isEmpty()) {
+                changes.add(new Change(Change.Type.UPDATE, "topic", topic.name(), String.join(", ", changed),
+                        api -> api.updateTopic(topic)));
+            }
+            checkFixed(warnings, topic.name(), "duplicateDetectionRequired", topic.duplicateDetectionRequired(),
+                    current.duplicateDetectionRequired());
+        }
+        if (options.isPrune()) {
+            Set<String> declared = keys(desired, TopicSpec::name);
+            actual.values().stream()
+                    .filter(topic -> !declared.contains(key(topic.name())))
+                    .forEach(topic -> changes.add(new Change(Change.Type.DELETE, "topic", topic.name(), "",
+                            api -> api.deleteTopic(topic.name()))));
+        }
+    }
+
+    private void planSubscriptions(TopicSpec topic, Map<String, SubscriptionSpec> actual, List<Change> changes,
+                                   List<String> warnings, List<RuleListing> ruleListings) {
+        for (SubscriptionSpec subscription : topic.subscriptions()) {
+            String path = topic.name() + "/" + subscription.name();
+            SubscriptionSpec current = actual.get(key(subscription.name()));
+            if (current == null) {
+                changes.add(new Change(Change.Type.CREATE, "subscription", path, "",
+                        api -> api.createSubscription(topic.name(), subscription)));
+                planRules(topic.name(), subscription, Map.of(DEFAULT_RULE, DEFAULT_RULE_EXPRESSION), changes);
+                continue;
+            }
+            List<String> changed = new ArrayList<>();
+            diff(changed, "lockDuration", subscription.lockDuration(), current.lockDuration());
+            diff(changed, "maxDeliveryCount", subscription.maxDeliveryCount(), current.maxDeliveryCount());
+            diff(changed, "defaultMessageTimeToLive", subscription.defaultMessageTimeToLive(),
+                    current.defaultMessageTimeToLive());
+            if (!changed.isEmpty()) {
+                changes.add(new Change(Change.Type.UPDATE, "subscription", path, String.join(", ", changed),
+                        api -> api.updateSubscription(topic.name(), subscription)));
+            }
+            checkFixed(warnings, path, "sessionRequired", subscription.sessionRequired(), current.sessionRequired());
+            if (subscription.rules() != null) {
+                ruleListings.add(new RuleListing(topic.name(), subscription,
+                        submit(() -> admin.listRules(topic.name(), subscription.name()))));
+            }
+        }
+        if (options.isPrune()) {
+            Set<String> declared = keys(topic.subscriptions(), SubscriptionSpec::name);
+            actual.values().stream()
+                    .filter(subscription -> !declared.contains(key(subscription.name())))
+                    .forEach(subscription -> changes.add(new Change(Change.Type.DELETE, "subscription",
+                            topic.name() + "/" + subscription.name(), "",
+                            api -> api.deleteSubscription(topic.name(), subscription.name()))));
+        }
+    }
+
+    private void planRules(String topicName, SubscriptionSpec subscription, Map<String, String> actual,
+                           List<Change> changes) {
+        Map<String, String> desired = subscription.rules();
+        if (desired == null) {
+            return;
+        }
+        String subscriptionPath = topicName + "/" + subscription.name();
+        desired.forEach((rule, expression) -> {
+            String current = actual.get(rule);
+            String path = subscriptionPath + "/" + rule;
+            if (current == null) {
+                changes.add(new Change(Change.Type.CREATE, "rule", path, expression,
+                        api -> api.createRule(topicName, subscription.name(), rule, expression)));
+            } else if (!current.equals(expression)) {
+                changes.add(new Change(Change.Type.UPDATE, "rule", path, current + " -> " + expression,
+                        api -> api.updateRule(topicName, subscription.name(), rule, expression)));
+            }
+        });
+        actual.keySet().stream()
+                .filter(rule -> !desired.containsKey(rule))
+                .forEach(rule -> changes.add(new Change(Change.Type.DELETE, "rule", subscriptionPath + "/" + rule,
+                        "", api -> api.deleteRule(topicName, subscription.name(), rule))));
+    }
+
+    /**
+     * Applies a plan: queues and topics first, then subscriptions, then rules, each level in parallel.
+     *
+     * @param plan the plan from {@link #plan}
+     * @return the outcome
+     */
+    public ProvisioningReport apply(ProvisioningPlan plan) {
+        Stopwatch stopwatch = Stopwatch.createStarted();
+        List<Change> applied = Collections.synchronizedList(new ArrayList<>());
+        Map<Change, Throwable> failed = new ConcurrentHashMap<>();
+        List<Change> skipped = new ArrayList<>();
+        Set<String> failedPaths = ConcurrentHashMap.newKeySet();
+
+        for (int depth = 0; depth <= MAX_DEPTH; depth++) {
+            List<CompletableFuture<Void>> running = new ArrayList<>();
+            for (Change change : plan.changes()) {
+                if (change.depth() != depth) {
+                    continue;
+                }
+                if (hasFailedParent(change.getPath(), failedPaths)) {
+                    skipped.add(change);
+                    failedPaths.add(key(change.getPath()));
+                    continue;
+                }
+                running.add(submit(() -> change.execute(admin)).handle((ignored, error) -> {
+                    if (error == null) {
+                        applied.add(change);
+                    } else {
+                        Throwable cause = error instanceof CompletionException ? error.getCause() : error;
+                        failed.put(change, cause);
+                        failedPaths.add(key(change.getPath()));
+                        logger.warn("Failed to {}: {}", change, cause.getMessage());
+                    }
+                    return null;
+                }));
+            }
+            CompletableFuture.allOf(running.toArray(new CompletableFuture<?>[0])).join();
+        }
+
+        ProvisioningReport report = new ProvisioningReport(List.copyOf(applied), Map.copyOf(failed),
+                List.copyOf(skipped), stopwatch.elapsed());
+        logger.info("Provisioning finished: {}", report);
+        return report;
+    }
+
+    private static boolean hasFailedParent(String path, Set<String> failedPaths) {
+        String key = key(path);
+        for (int i = key.lastIndexOf('/'); i > 0; i = key.lastIndexOf('/', i - 1)) {
+            if (failedPaths.contains(key.substring(0, i))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Starts a management call once both a concurrency permit and the rate limiter allow it.
+     */
+    private <T> CompletableFuture<T> submit(Supplier<CompletableFuture<T>> call) {
+        permits.acquireUninterruptibly();
+        rateLimiter.acquire();
+        CompletableFuture<T> future;
+        try {
+            future = call.get();
+        } catch (RuntimeException e) {
+            future = CompletableFuture.failedFuture(e);
+        }
+        return future.whenComplete((result, error) -> permits.release());
+    }
+
+    private static <T> T join(CompletableFuture<T> listing, String what) {
+        try {
+            return listing.join();
+        } catch (CompletionException e) {
+            throw new IllegalStateException("Failed to list " + what + ": " + e.getCause().getMessage(),
+                    e.getCause());
+        }
+    }
+
+    private static void diff(List<String> changed, String setting, Object desired, Object actual) {
+        if (desired != null && !desired.equals(actual)) {
+            changed.add(setting + " " + actual + " -> " + desired);
+        }
+    }
+
+    private static void checkFixed(List<String> warnings, String path, String setting, Boolean desired,
+                                   Boolean actual) {
+        if (desired != null && !desired.equals(actual)) {
+            warnings.add(path + ": " + setting + " is " + actual + " and can only be changed by recreating it");
+        }
+    }
+
+    private static <T> Map<String, T> byName(List<T> specs, Function<T, String> name) {
+        Map<String, T> byName = new LinkedHashMap<>();
+        specs.forEach(spec -> byName.put(key(name.apply(spec)), spec));
+        return byName;
+    }
+
+    private static <T> Set<String> keys(List<T> specs, Function<T, String> name) {
+        return byName(specs, name).keySet();
+    }
+
+    // Entity names are case-insensitive
+    private static String key(String name) {
+        return name.toLowerCase(Locale.ROOT);
+    }
+
+    private record RuleListing(String topicName, SubscriptionSpec subscription,
+                               CompletableFuture<Map<String, String>> rules) {
+    }
+}
@@ -0,0 +1,64 @@
+package com.luna.app.provisioning;
+
+/**
+ * Concurrency, rate and scope settings for a {@link Provisioner}.
+ */
+public class ProvisioningOptions {
+
+    private int maxConcurrency = 8;
+    private double maxOperationsPerSecond = 50;
+    private boolean prune;
+
+    public int getMaxConcurrency() {
+        return maxConcurrency;
+    }
+
+    /**
+     * Sets the maximum number of management calls in flight, including the listings made while planning.
+     *
+     * @param maxConcurrency the concurrency limit
+     * @return the updated options
+     */
+    public ProvisioningOptions setMaxConcurrency(int maxConcurrency) {
+        if (maxConcurrency <= 0) {
+            throw new IllegalArgumentException("maxConcurrency must be positive but was " + maxConcurrency);
+        }
+        this.maxConcurrency = maxConcurrency;
+        return this;
+    }
+
+    public double getMaxOperationsPerSecond() {
+        return maxOperationsPerSecond;
+    }
+
+    /**
+     * Sets the rate at which management calls are started, to stay under the namespace's management throttling.
+     *
+     * @param maxOperationsPerSecond the call rate
+     * @return the updated options
+     */
+    public ProvisioningOptions setMaxOperationsPerSecond(double maxOperationsPerSecond) {
+        if (!(maxOperationsPerSecond > 0)) {
+            throw new IllegalArgumentException("maxOperationsPerSecond must be positive but was "
+                    + maxOperationsPerSecond);
+        }
+        this.maxOperationsPerSecond = maxOperationsPerSecond;
+        return this;
+    }
+
+    public boolean isPrune() {
+        return prune;
+    }
+
+    /**
+     * Sets whether queues, topics and subscriptions missing from the desired state are deleted. Rules of a
+     * subscription that declares rules are always reconciled.
+     *
+     * @param prune whether to delete undeclared entities
+     * @return the updated options
+     */
+    public ProvisioningOptions setPrune(boolean prune) {
+        this.prune = prune;
+        return this;
+    }
+}
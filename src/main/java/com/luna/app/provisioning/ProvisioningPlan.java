@@ -0,0 +1,34 @@
+package com.luna.app.provisioning;
+
+import java.util.List;
+
+/**
+ * The changes that bring a namespace to a {@link DesiredState}, as computed by {@link Provisioner#plan}.
+ *
+ * @param changes  the operations to apply
+ * @param warnings differences that cannot be applied, such as settings that are fixed at creation
+ */
+public record ProvisioningPlan(List<Change> changes, List<String> warnings) {
+
+    public ProvisioningPlan {
+        changes = List.copyOf(changes);
+        warnings = List.copyOf(warnings);
+    }
+
+    public boolean isEmpty() {
+        return changes.isEmpty();
+    }
+
+    public long count(Change.Type type) {
+        return changes.stream().filter(change -> change.getType() == type).count();
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder text = new StringBuilder(String.format("%d to create, %d to update, %d to delete%n",
+                count(Change.Type.CREATE), count(Change.Type.UPDATE), count(Change.Type.DELETE)));
+        changes.forEach(change -> text.append("  ").append(change).append(System.lineSeparator()));
+        warnings.forEach(warning -> text.append("  WARNING ").append(warning).append(System.lineSeparator()));
+        return text.toString();
+    }
+}
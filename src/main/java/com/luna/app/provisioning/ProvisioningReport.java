@@ -0,0 +1,27 @@
+package com.luna.app.provisioning;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Outcome of {@link Provisioner#apply}.
+ *
+ * @param applied the changes that succeeded
+ * @param failed  the changes that failed, with their errors
+ * @param skipped the changes not attempted because a change to their parent entity failed
+ * @param elapsed wall-clock time taken
+ */
+public record ProvisioningReport(List<Change> applied, Map<Change, Throwable> failed, List<Change> skipped,
+                                 Duration elapsed) {
+
+    public boolean isSuccess() {
+        return failed.isEmpty() && skipped.isEmpty();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("applied=%d, failed=%d, skipped=%d in %d ms", applied.size(), failed.size(),
+                skipped.size(), elapsed.toMillis());
+    }
+}
@@ -0,0 +1,45 @@
+package com.luna.app.provisioning;
+
+import com.azure.messaging.servicebus.administration.ServiceBusAdministrationAsyncClient;
+import com.azure.messaging.servicebus.administration.ServiceBusAdministrationClientBuilder;
+
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Brings a namespace in line with a desired state file.
+ * <p>
+ * Usage: {@code ProvisioningTool <desired-state.json> [--apply] [--prune]}. Without {@code --apply} the plan is only
+ * printed. With {@code --prune}, queues, topics and subscriptions missing from the file are deleted.
+ */
+public class ProvisioningTool {
+
+    private static final String CONNECTION_STRING = System.getenv("AZURE_SERVICE_BUS_CONNECTION_STRING");
+
+    public static void main(String[] args) {
+        if (args.length == 0) {
+            System.err.println("Usage: ProvisioningTool <desired-state.json> [--apply] [--prune]");
+            System.exit(2);
+        }
+        List<String> flags = Arrays.asList(args).subList(1, args.length);
+        DesiredState desired = DesiredState.read(Path.of(args[0]));
+
+        ServiceBusAdministrationAsyncClient client = new ServiceBusAdministrationClientBuilder()
+                .connectionString(CONNECTION_STRING)
+                .buildAsyncClient();
+        Provisioner provisioner = new Provisioner(new ServiceBusEntityAdmin(client),
+                new ProvisioningOptions().setPrune(flags.contains("--prune")));
+
+        ProvisioningPlan plan = provisioner.plan(desired);
+        System.out.print(plan);
+        if (plan.isEmpty() || !flags.contains("--apply")) {
+            return;
+        }
+        ProvisioningReport report = provisioner.apply(plan);
+        report.failed().forEach((change, error) -> System.err.println("FAILED " + change + ": " + error.getMessage()));
+        report.skipped().forEach(change -> System.err.println("SKIPPED " + change));
+        System.out.println("Done: " + report);
+        System.exit(report.isSuccess() ? 0 : 1);
+    }
+}
@@ -0,0 +1,23 @@
+package com.luna.app.provisioning;
+
+import java.time.Duration;
+
+/**
+ * Desired or actual settings of a queue. In a desired state, {@code null} leaves the setting at the broker's default on
+ * creation and unmanaged afterwards.
+ *
+ * @param name                       the queue name
+ * @param lockDuration               the peek-lock duration
+ * @param maxDeliveryCount           deliveries before a message is dead-lettered
+ * @param defaultMessageTimeToLive   the default message time to live
+ * @param sessionRequired            whether the queue is session-aware; fixed at creation
+ * @param duplicateDetectionRequired whether duplicate detection is enabled; fixed at creation
+ */
+public record QueueSpec(String name, Duration lockDuration, Integer maxDeliveryCount,
+                        Duration defaultMessageTimeToLive, Boolean sessionRequired,
+                        Boolean duplicateDetectionRequired) {
+
+    public QueueSpec(String name) {
+        this(name, null, null, null, null, null);
+    }
+}
@@ -0,0 +1,216 @@
+package com.luna.app.provisioning;
+
+import com.azure.messaging.servicebus.administration.ServiceBusAdministrationAsyncClient;
+import com.azure.messaging.servicebus.administration.models.CreateQueueOptions;
+import com.azure.messaging.servicebus.administration.models.CreateRuleOptions;
+import com.azure.messaging.servicebus.administration.models.CreateSubscriptionOptions;
+import com.azure.messaging.servicebus.administration.models.CreateTopicOptions;
+import com.azure.messaging.servicebus.administration.models.QueueProperties;
+import com.azure.messaging.servicebus.administration.models.RuleFilter;
+import com.azure.messaging.servicebus.administration.models.RuleProperties;
+import com.azure.messaging.servicebus.administration.models.SqlRuleFilter;
+import com.azure.messaging.servicebus.administration.models.SubscriptionProperties;
+import com.azure.messaging.servicebus.administration.models.TopicProperties;
+import reactor.core.publisher.Mono;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * {@link EntityAdmin} backed by a {@link ServiceBusAdministrationAsyncClient}. Updates read the current properties
+ * first, as the management API replaces the whole entity description.
+ */
+public class ServiceBusEntityAdmin implements EntityAdmin {
+
+    private final ServiceBusAdministrationAsyncClient client;
+
+    public ServiceBusEntityAdmin(ServiceBusAdministrationAsyncClient client) {
+        this.client = client;
+    }
+
+    @Override
+    public CompletableFuture<List<QueueSpec>> listQueues() {
+        return client.listQueues()
+                .map(queue -> new QueueSpec(queue.getName(), queue.getLockDuration(), queue.getMaxDeliveryCount(),
+                        queue.getDefaultMessageTimeToLive(), queue.isSessionRequired(),
+                        queue.isDuplicateDetectionRequired()))
+                .collectList()
+                .toFuture();
+    }
+
+    @Override
+    public CompletableFuture<List<TopicSpec>> listTopics() {
+        return client.listTopics()
+                .map(topic -> new TopicSpec(topic.getName(), topic.getDefaultMessageTimeToLive(),
+                        topic.isDuplicateDetectionRequired(), null))
+                .collectList()
+                .toFuture();
+    }
+
+    @Override
+    public CompletableFuture<List<SubscriptionSpec>> listSubscriptions(String topicName) {
+        return client.listSubscriptions(topicName)
+                .map(subscription -> new SubscriptionSpec(subscription.getSubscriptionName(),
+                        subscription.getLockDuration(), subscription.getMaxDeliveryCount(),
+                        subscription.getDefaultMessageTimeToLive(), subscription.isSessionRequired(), null))
+                .collectList()
+                .toFuture();
+    }
+
+    @Override
+    public CompletableFuture<Map<String, String>> listRules(String topicName, String subscriptionName) {
+        return client.listRules(topicName, subscriptionName)
+                .collectMap(RuleProperties::getName, rule -> expressionOf(rule.getFilter()), LinkedHashMap::new)
+                .toFuture();
+    }
+
+    // Correlation filters have no SQL form; they never match a desired expression and get replaced
+    private static String expressionOf(RuleFilter filter) {
+        return filter instanceof SqlRuleFilter sql ? sql.getSqlExpression() : String.valueOf(filter);
+    }
+
+    @Override
+    public CompletableFuture<Void> createQueue(QueueSpec queue) {
+        CreateQueueOptions options = new CreateQueueOptions();
+        if (queue.lockDuration() != null) {
+            options.setLockDuration(queue.lockDuration());
+        }
+        if (queue.maxDeliveryCount() != null) {
+            options.setMaxDeliveryCount(queue.maxDeliveryCount());
+        }
+        if (queue.defaultMessageTimeToLive() != null) {
+            options.setDefaultMessageTimeToLive(queue.defaultMessageTimeToLive());
+        }
+        if (queue.sessionRequired() != null) {
+            options.setSessionRequired(queue.sessionRequired());
+        }
+        if (queue.duplicateDetectionRequired() != null) {
+            options.setDuplicateDetectionRequired(queue.duplicateDetectionRequired());
+        }
+        return done(client.createQueue(queue.name(), options));
+    }
+
+    @Override
+    public CompletableFuture<Void> updateQueue(QueueSpec queue) {
+        return done(client.getQueue(queue.name()).flatMap(properties -> {
+            apply(queue, properties);
+            return client.updateQueue(properties);
+        }));
+    }
+
+    private static void apply(QueueSpec queue, QueueProperties properties) {
+        if (queue.lockDuration() != null) {
+            properties.setLockDuration(queue.lockDuration());
+        }
+        if (queue.maxDeliveryCount() != null) {
+            properties.setMaxDeliveryCount(queue.maxDeliveryCount());
+        }
+        if (queue.defaultMessageTimeToLive() != null) {
+            properties.setDefaultMessageTimeToLive(queue.defaultMessageTimeToLive());
+        }
+    }
+
+    @Override
+    public CompletableFuture<Void> deleteQueue(String queueName) {
+        return done(client.deleteQueue(queueName));
+    }
+
+    @Override
+    public CompletableFuture<Void> createTopic(TopicSpec topic) {
+        CreateTopicOptions options = new CreateTopicOptions();
+        if (topic.defaultMessageTimeToLive() != null) {
+            options.setDefaultMessageTimeToLive(topic.defaultMessageTimeToLive());
+        }
+        if (topic.duplicateDetectionRequired() != null) {
+            options.setDuplicateDetectionRequired(topic.duplicateDetectionRequired());
+        }
+        return done(client.createTopic(topic.name(), options));
+    }
+
+    @Override
+    public CompletableFuture<Void> updateTopic(TopicSpec topic) {
+        return done(client.getTopic(topic.name()).flatMap(properties -> {
+            apply(topic, properties);
+            return client.updateTopic(properties);
+        }));
+    }
+
+    private static void apply(TopicSpec topic, TopicProperties properties) {
+        if (topic.defaultMessageTimeToLive() != null) {
+            properties.setDefaultMessageTimeToLive(topic.defaultMessageTimeToLive());
+        }
+    }
+
+    @Override
+    public CompletableFuture<Void> deleteTopic(String topicName) {
+        return done(client.deleteTopic(topicName));
+    }
+
+    @Override
+    public CompletableFuture<Void> createSubscription(String topicName, SubscriptionSpec subscription) {
+        CreateSubscriptionOptions options = new CreateSubscriptionOptions();
+        if (subscription.lockDuration() != null) {
+            options.setLockDuration(subscription.lockDuration());
+        }
+        if (subscription.maxDeliveryCount() != null) {
+            options.setMaxDeliveryCount(subscription.maxDeliveryCount());
+        }
+        if (subscription.defaultMessageTimeToLive() != null) {
+            options.setDefaultMessageTimeToLive(subscription.defaultMessageTimeToLive());
+        }
+        if (subscription.sessionRequired() != null) {
+            options.setSessionRequired(subscription.sessionRequired());
+        }
+        return done(client.createSubscription(topicName, subscription.name(), options));
+    }
+
+    @Override
+    public CompletableFuture<Void> updateSubscription(String topicName, SubscriptionSpec subscription) {
+        return done(client.getSubscription(topicName, subscription.name()).flatMap(properties -> {
+            apply(subscription, properties);
+            return client.updateSubscription(properties);
+        }));
+    }
+
+    private static void apply(SubscriptionSpec subscription, SubscriptionProperties properties) {
+        if (subscription.lockDuration() != null) {
+            properties.setLockDuration(subscription.lockDuration());
+        }
+        if (subscription.maxDeliveryCount() != null) {
+            properties.setMaxDeliveryCount(subscription.maxDeliveryCount());
+        }
+        if (subscription.defaultMessageTimeToLive() != null) {
+            properties.setDefaultMessageTimeToLive(subscription.defaultMessageTimeToLive());
+        }
+    }
+
+    @Override
+    public CompletableFuture<Void> deleteSubscription(String topicName, String subscriptionName) {
+        return done(client.deleteSubscription(topicName, subscriptionName));
+    }
+
+    @Override
+    public CompletableFuture<Void> createRule(String topicName, String subscriptionName, String ruleName,
+                                              String sqlExpression) {
+        return done(client.createRule(topicName, subscriptionName, ruleName,
+                new CreateRuleOptions().setFilter(new SqlRuleFilter(sqlExpression))));
+    }
+
+    @Override
+    public CompletableFuture<Void> updateRule(String topicName, String subscriptionName, String ruleName,
+                                              String sqlExpression) {
+        return done(client.getRule(topicName, subscriptionName, ruleName).flatMap(rule -> client.updateRule(
+                topicName, subscriptionName, rule.setFilter(new SqlRuleFilter(sqlExpression)))));
+    }
+
+    @Override
+    public CompletableFuture<Void> deleteRule(String topicName, String subscriptionName, String ruleName) {
+        return done(client.deleteRule(topicName, subscriptionName, ruleName));
+    }
+
+    private static CompletableFuture<Void> done(Mono<?> operation) {
+        return operation.then().toFuture();
+    }
+}
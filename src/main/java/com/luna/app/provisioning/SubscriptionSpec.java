@@ -0,0 +1,25 @@
+package com.luna.app.provisioning;
+
+import java.time.Duration;
+import java.util.Map;
+
+/**
+ * Desired or actual settings of a topic subscription. In a desired state, {@code null} leaves the setting at the
+ * broker's default on creation and unmanaged afterwards.
+ *
+ * @param name                     the subscription name
+ * @param lockDuration             the peek-lock duration
+ * @param maxDeliveryCount         deliveries before a message is dead-lettered
+ * @param defaultMessageTimeToLive the default message time to live
+ * @param sessionRequired          whether the subscription is session-aware; fixed at creation
+ * @param rules                    SQL filter expressions by rule name; when given, they replace every other rule,
+ *                                 including the {@value Provisioner#DEFAULT_RULE} rule created with the subscription
+ */
+public record SubscriptionSpec(String name, Duration lockDuration, Integer maxDeliveryCount,
+                               Duration defaultMessageTimeToLive, Boolean sessionRequired,
+                               Map<String, String> rules) {
+
+    public SubscriptionSpec(String name, Map<String, String> rules) {
+        this(name, null, null, null, null, rules);
+    }
+}
@@ -0,0 +1,21 @@
+package com.luna.app.provisioning;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Desired or actual settings of a topic. In a desired state, {@code null} leaves the setting at the broker's default on
+ * creation and unmanaged afterwards.
+ *
+ * @param name                       the topic name
+ * @param defaultMessageTimeToLive   the default message time to live
+ * @param duplicateDetectionRequired whether duplicate detection is enabled; fixed at creation
+ * @param subscriptions              the subscriptions, or {@code null} when listed without them
+ */
+public record TopicSpec(String name, Duration defaultMessageTimeToLive, Boolean duplicateDetectionRequired,
+                        List<SubscriptionSpec> subscriptions) {
+
+    public TopicSpec(String name, List<SubscriptionSpec> subscriptions) {
+        this(name, null, null, subscriptions);
+    }
+}
@@ -1,10 +1,18 @@
 package com.luna.app.queue;
 
-import com.azure.messaging.servicebus.ServiceBusClientBuilder;
 import com.azure.messaging.servicebus.ServiceBusReceivedMessage;
 import com.azure.messaging.servicebus.ServiceBusReceiverClient;
+import com.luna.app.client.ServiceBusClientFactory;
+import com.luna.app.logging.MessageEvent;
+import com.luna.app.logging.MessageLog;
+import com.luna.app.logging.MessageLogOptions;
+import com.luna.app.logging.MessageLogger;
+import com.luna.app.metrics.MetricsRegistry;
+import com.luna.app.metrics.MetricsReporter;
 import io.github.cdimascio.dotenv.Dotenv;
 
+import java.time.Duration;
+
 public class ASBQueueReceiver {
 
     //    private static final Logger logger = LoggerFactory.getLogger(ASBQueueReceiver.class);
@@ -12,9 +20,15 @@ public class ASBQueueReceiver {
 
     private static final String CONNECTION_STRING = dotenv.get("AZURE_SERVICE_BUS_CONNECTION_STRING");
     private static final String QUEUE_NAME = dotenv.get("AZURE_SERVICE_BUS_QUEUE_NAME");
-    // Polling constants
-    private static final int MESSAGE_BATCH_SIZE = 1;
-    private static final long POLLING_INTERVAL_MS = 1000L; // 1 second
+    // Consumer engine settings
+    private static final int MAX_IN_FLIGHT = VirtualThreads.isAvailable() ? 1000 : 64;
+    private static final int PREFETCH_COUNT = 50;
+    private static final int MAX_OUTSTANDING_SETTLEMENTS = 256;
+    private static final LockRenewer LOCK_RENEWER = new LockRenewer(Duration.ofSeconds(10), Duration.ofMinutes(5));
+    private static final Duration METRICS_INTERVAL = Duration.ofSeconds(30);
+    // Received messages are logged from a ring buffer by a background thread; bodies are not decoded
+    private static final MessageLog MESSAGE_LOG = new MessageLog(new MessageLogOptions(), System.out::print);
+    private static final MessageLogger MESSAGES = MESSAGE_LOG.forEntity(QUEUE_NAME);
 
     public static void main(String[] args) {
         ASBQueueReceiver receiver = new ASBQueueReceiver();
@@ -23,46 +37,45 @@ public class ASBQueueReceiver {
 
 
     public void startMessageReceiver() {
-        try (ServiceBusReceiverClient receiverClient = createReceiverClient()) {
-            System.out.println("Listening for messages from the queue: {} " + QUEUE_NAME);
-            pollMessages(receiverClient);
-        } catch (Exception e) {
-            System.out.println("Error while receiving messages: {} " + e.getMessage());
-        }
-    }
+        ConsumerOptions options = new ConsumerOptions()
+                .setExecutionMode(ExecutionMode.VIRTUAL_THREAD_PER_MESSAGE)
+                .setMaxInFlight(MAX_IN_FLIGHT)
+                .setMaxOutstandingSettlements(MAX_OUTSTANDING_SETTLEMENTS)
+                .setLockRenewer(LOCK_RENEWER)
+                .setMetricsRegistry(MetricsRegistry.global());
+        ConsumerEngine<ServiceBusReceivedMessage> engine = new ConsumerEngine<>(QUEUE_NAME,
+                () -> new ServiceBusMessageSource(createReceiverClient()), this::processMessage, options);
+        MetricsReporter reporter = new MetricsReporter(MetricsRegistry.global(), METRICS_INTERVAL, System.out::print);
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            engine.close();
+            reporter.close();
+        }));
 
-    /**
-     * Polls the queue for messages indefinitely.
-     *
-     * @param receiverClient the Service Bus receiver client
-     * @throws InterruptedException if the thread is interrupted while sleeping
-     */
-    private void pollMessages(ServiceBusReceiverClient receiverClient) throws InterruptedException {
-        while (true) {//todo better way than while loop
-            receiverClient.receiveMessages(MESSAGE_BATCH_SIZE).forEach(message -> {
-                processMessage(receiverClient, message);
-            });
-            Thread.sleep(POLLING_INTERVAL_MS); // Poll every second
+        try {
+            System.out.println("Listening for messages from the queue: " + QUEUE_NAME);
+            engine.start();
+            engine.awaitTermination();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            engine.close();
+        } catch (Exception e) {
+            System.out.println("Error while receiving messages: " + e.getMessage());
+            engine.close();
         }
     }
 
 
     private ServiceBusReceiverClient createReceiverClient() {
-        return new ServiceBusClientBuilder()
-                .connectionString(CONNECTION_STRING)
+        return ServiceBusClientFactory.forConnectionString(CONNECTION_STRING)
                 .receiver()
                 .queueName(QUEUE_NAME)
+                .prefetchCount(PREFETCH_COUNT)
                 .buildClient();
     }
 
 
-    private void processMessage(ServiceBusReceiverClient receiverClient, ServiceBusReceivedMessage message) {
-        try {
-            System.out.println("Message received from queue: {}" + message.getBody());
-            receiverClient.complete(message);  // Mark message as complete (it seems it deletes the message)
-            System.out.println("Message processed successfully.");
-        } catch (Exception e) {
-            System.out.println("Error processing message: {} " + e.getMessage());
-        }
+    private Disposition processMessage(ServiceBusReceivedMessage message) {
+        MESSAGES.log(MessageEvent.RECEIVED, message);
+        return Disposition.COMPLETE;  // The engine completes the message (it seems it deletes the message)
     }
 }
@@ -1,15 +1,20 @@
 package com.luna.app.queue;
 
-import com.azure.messaging.servicebus.ServiceBusClientBuilder;
 import com.azure.messaging.servicebus.ServiceBusMessage;
-import com.azure.messaging.servicebus.ServiceBusSenderClient;
+import com.luna.app.client.ServiceBusClientFactory;
+import com.luna.app.outbox.Outbox;
+import com.luna.app.outbox.OutboxOptions;
 import io.github.cdimascio.dotenv.Dotenv;
 
+import java.nio.file.Path;
+import java.time.Duration;
+
 public class ASBQueueSender {
     private static final Dotenv dotenv = Dotenv.load();
 
     private static final String CONNECTION_STRING = dotenv.get("AZURE_SERVICE_BUS_CONNECTION_STRING");
     private static final String QUEUE_NAME = dotenv.get("AZURE_SERVICE_BUS_QUEUE_NAME");
+    private static final Path OUTBOX_DIRECTORY = Path.of(System.getProperty("java.io.tmpdir"), "servicebus-outbox");
 
 
     public static void main(String[] args) {
@@ -17,19 +22,24 @@ public class ASBQueueSender {
         sendMessageToAzureServiceBusQueue(message);
     }
 
+    /**
+     * Stores the message in a local outbox before sending it, so a message the queue cannot take right now is kept on
+     * disk and sent by the next run instead of being lost.
+     */
     public static void sendMessageToAzureServiceBusQueue(String message) {
-        try (ServiceBusSenderClient senderClient = new ServiceBusClientBuilder()
-                .connectionString(CONNECTION_STRING)
-                .sender()
-                .queueName(QUEUE_NAME)
-                .buildClient()) {
+        try (Outbox outbox = new Outbox(QUEUE_NAME, OUTBOX_DIRECTORY.resolve(QUEUE_NAME), new ServiceBusMessageSink(
+                ServiceBusClientFactory.forConnectionString(CONNECTION_STRING).leaseQueueSender(QUEUE_NAME)),
+                new OutboxOptions())) {
 
-            ServiceBusMessage serviceBusMessage = new ServiceBusMessage(message);
-            senderClient.sendMessage(serviceBusMessage);
-            System.out.println("Message sent to queue successfully.");
+            outbox.send(new ServiceBusMessage(message)).join();
+            if (outbox.awaitDrained(Duration.ofSeconds(30))) {
+                System.out.println("Message sent to queue successfully.");
+            } else {
+                System.out.println("Queue unavailable, " + outbox.getBacklog() + " messages kept in the outbox.");
+            }
 
         } catch (Exception e) {
-            System.out.println("Error while sending message to the queue: {}" + e.getMessage());
+            System.out.println("Error while sending message to the queue: " + e.getMessage());
         }
     }
 }
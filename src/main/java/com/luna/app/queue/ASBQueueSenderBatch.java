@@ -1,10 +1,16 @@
 package com.luna.app.queue;
 
-import com.azure.messaging.servicebus.ServiceBusClientBuilder;
 import com.azure.messaging.servicebus.ServiceBusMessage;
 import com.azure.messaging.servicebus.ServiceBusSenderClient;
+import com.luna.app.client.ServiceBusClientFactory;
 import io.github.cdimascio.dotenv.Dotenv;
 
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
 public class ASBQueueSenderBatch {
 
     private static final Dotenv dotenv = Dotenv.load();
@@ -12,22 +18,42 @@ public class ASBQueueSenderBatch {
     private static final String CONNECTION_STRING = dotenv.get("AZURE_SERVICE_BUS_CONNECTION_STRING");
     private static final String QUEUE_NAME = dotenv.get("AZURE_SERVICE_BUS_QUEUE_NAME");
 
+    // One long-lived sender for the whole process; individual sends are grouped into batches
+    private static final BatchingSender SENDER = createBatchingSender();
+
     public static void main(String[] args) {
-        sendMessageToAzureServiceBusQueue("Hello World");
+        List<CompletableFuture<Void>> sends = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            sends.add(sendMessageToAzureServiceBusQueue("Hello World " + i));
+        }
+        try {
+            CompletableFuture.allOf(sends.toArray(new CompletableFuture<?>[0])).join();
+        } catch (CompletionException e) {
+            System.err.println("Some messages were not sent: " + e.getMessage());
+        }
+        SENDER.close();
+        System.out.println("Sent " + SENDER.getMessagesSent() + " messages in " + SENDER.getBatchesSent() + " batches");
     }
 
-    public static void sendMessageToAzureServiceBusQueue(String message) {
-        try (ServiceBusSenderClient senderClient = new ServiceBusClientBuilder()
-                .connectionString(CONNECTION_STRING)
+    public static CompletableFuture<Void> sendMessageToAzureServiceBusQueue(String message) {
+        return SENDER.send(new ServiceBusMessage(message))
+                .whenComplete((ignored, error) -> {
+                    if (error != null) {
+                        System.err.println("Error while sending message: " + error.getMessage());
+                    }
+                });
+    }
+
+    private static BatchingSender createBatchingSender() {
+        ServiceBusSenderClient senderClient = ServiceBusClientFactory.forConnectionString(CONNECTION_STRING)
                 .sender()
                 .queueName(QUEUE_NAME)
-                .buildClient()) {
-
-            senderClient.sendMessage(new ServiceBusMessage(message));
-            System.out.println("Message sent to queue successfully.");
-
-        } catch (Exception e) {
-            System.err.println("Error while sending message: " + e.getMessage());
-        }
+                .buildClient();
+        BatchingOptions options = new BatchingOptions()
+                .setMaxLinger(Duration.ofMillis(10))
+                .setMaxBatchMessages(500);
+        BatchingSender sender = new BatchingSender(QUEUE_NAME, new ServiceBusMessageSink(senderClient), options);
+        Runtime.getRuntime().addShutdownHook(new Thread(sender::close));
+        return sender;
     }
 }
@@ -0,0 +1,97 @@
+package com.luna.app.queue;
+
+import com.luna.app.metrics.MetricsRegistry;
+
+import java.time.Duration;
+
+/**
+ * Tuning knobs for a {@link BatchingSender}.
+ */
+public class BatchingOptions {
+
+    private Duration maxLinger = Duration.ofMillis(10);
+    private int maxBatchMessages = 500;
+    private int maxPendingMessages = 10_000;
+    private int maxConcurrentSends = 4;
+    private MetricsRegistry metricsRegistry;
+
+    public Duration getMaxLinger() {
+        return maxLinger;
+    }
+
+    /**
+     * Sets how long the first message of a batch may wait for more messages before the batch is sent, like Kafka's
+     * {@code linger.ms}.
+     *
+     * @param maxLinger the linger time, zero to send whatever is queued immediately
+     * @return the updated options
+     */
+    public BatchingOptions setMaxLinger(Duration maxLinger) {
+        if (maxLinger == null || maxLinger.isNegative()) {
+            throw new IllegalArgumentException("maxLinger must not be negative");
+        }
+        this.maxLinger = maxLinger;
+        return this;
+    }
+
+    public int getMaxBatchMessages() {
+        return maxBatchMessages;
+    }
+
+    /**
+     * Sets the maximum number of messages per batch. Batches are also closed when the entity's size limit is reached.
+     *
+     * @param maxBatchMessages the message limit
+     * @return the updated options
+     */
+    public BatchingOptions setMaxBatchMessages(int maxBatchMessages) {
+        this.maxBatchMessages = ConsumerOptions.requirePositive(maxBatchMessages, "maxBatchMessages");
+        return this;
+    }
+
+    public int getMaxPendingMessages() {
+        return maxPendingMessages;
+    }
+
+    /**
+     * Sets how many submitted messages may wait for a batch. Further {@code send} calls block until there is room.
+     *
+     * @param maxPendingMessages the queue bound
+     * @return the updated options
+     */
+    public BatchingOptions setMaxPendingMessages(int maxPendingMessages) {
+        this.maxPendingMessages = ConsumerOptions.requirePositive(maxPendingMessages, "maxPendingMessages");
+        return this;
+    }
+
+    public int getMaxConcurrentSends() {
+        return maxConcurrentSends;
+    }
+
+    /**
+     * Sets how many batches may be in flight to the broker at once.
+     *
+     * @param maxConcurrentSends the number of concurrent batch sends
+     * @return the updated options
+     */
+    public BatchingOptions setMaxConcurrentSends(int maxConcurrentSends) {
+        this.maxConcurrentSends = ConsumerOptions.requirePositive(maxConcurrentSends, "maxConcurrentSends");
+        return this;
+    }
+
+    public MetricsRegistry getMetricsRegistry() {
+        return metricsRegistry;
+    }
+
+    /**
+     * Records the sender's metrics in a shared registry, labelled with the sender's name.
+     *
+     * @param metricsRegistry the registry, e.g. {@link MetricsRegistry#global()}, or {@code null} to keep the metrics
+     *                        private to the sender
+     * @return the updated options
+     */
+    public BatchingOptions setMetricsRegistry(MetricsRegistry metricsRegistry) {
+        this.metricsRegistry = metricsRegistry;
+        return this;
+    }
+}
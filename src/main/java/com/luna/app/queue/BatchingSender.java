@@ -0,0 +1,229 @@
+package com.luna.app.queue;
+
+import com.azure.messaging.servicebus.ServiceBusMessage;
+import com.luna.app.metrics.EntityMetrics;
+import com.luna.app.metrics.MetricsRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Long-lived sender that groups individually submitted messages into batches.
+ * <p>
+ * Callers on any thread submit messages with {@link #send(ServiceBusMessage)} and get a future that completes when the
+ * batch containing the message has been accepted by the broker. A single batching thread closes a batch when it holds
+ * {@link BatchingOptions#getMaxBatchMessages()} messages, when the next message no longer fits the entity's size limit,
+ * or when the first message has waited {@link BatchingOptions#getMaxLinger()}. Up to
+ * {@link BatchingOptions#getMaxConcurrentSends()} batches are sent in parallel; batches may then complete out of
+ * order, so use a single concurrent send where ordering matters.
+ * <p>
+ * Send latency and batch size are recorded as {@link EntityMetrics} of the sender's name in
+ * {@link BatchingOptions#getMetricsRegistry()}.
+ */
+public class BatchingSender implements AutoCloseable {
+
+    private static final Logger logger = LoggerFactory.getLogger(BatchingSender.class);
+
+    private final String name;
+    private final MessageSink sink;
+    private final BatchingOptions options;
+    private final BlockingQueue<Pending> pending;
+    private final Semaphore sendPermits;
+    private final ExecutorService sendExecutor;
+    private final Thread batcher;
+
+    private final LongAdder batchesSent = new LongAdder();
+    private final LongAdder messagesSent = new LongAdder();
+    private final LongAdder messagesFailed = new LongAdder();
+    private final EntityMetrics metrics;
+
+    private final AtomicInteger submitting = new AtomicInteger();
+    private volatile boolean running = true;
+    private Pending carried;
+
+    /**
+     * Creates the sender and starts its batching thread.
+     *
+     * @param name    name used for thread names and logging, usually the entity path
+     * @param sink    the send link batches are sent on
+     * @param options linger, size and concurrency settings
+     */
+    public BatchingSender(String name, MessageSink sink, BatchingOptions options) {
+        this.name = name;
+        this.sink = sink;
+        this.options = options;
+        MetricsRegistry registry = options.getMetricsRegistry() != null
+                ? options.getMetricsRegistry()
+                : new MetricsRegistry();
+        this.metrics = registry.entity(name);
+        this.pending = new LinkedBlockingQueue<>(options.getMaxPendingMessages());
+        this.sendPermits = new Semaphore(options.getMaxConcurrentSends());
+        AtomicInteger threadCount = new AtomicInteger();
+        this.sendExecutor = Executors.newFixedThreadPool(options.getMaxConcurrentSends(),
+                runnable -> new Thread(runnable, name + "-send-" + threadCount.getAndIncrement()));
+        this.batcher = new Thread(this::batchLoop, name + "-batcher");
+        this.batcher.start();
+    }
+
+    /**
+     * Queues a message for the next batch, blocking while {@link BatchingOptions#getMaxPendingMessages()} messages are
+     * already waiting.
+     *
+     * @param message the message to send
+     * @return a future completed once the message's batch has been sent, or failed if the sender is closed
+     */
+    public CompletableFuture<Void> send(ServiceBusMessage message) {
+        Pending entry = new Pending(message, new CompletableFuture<>());
+        // Registers before checking running, so that the batcher keeps draining until this put has landed
+        submitting.incrementAndGet();
+        try {
+            if (!running) {
+                entry.future.completeExceptionally(new IllegalStateException("Sender " + name + " is closed"));
+                return entry.future;
+            }
+            pending.put(entry);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            entry.future.completeExceptionally(e);
+        } finally {
+            submitting.decrementAndGet();
+        }
+        return entry.future;
+    }
+
+    private void batchLoop() {
+        while (running || submitting.get() > 0 || carried != null || !pending.isEmpty()) {
+            try {
+                Pending first = carried != null ? carried : pending.poll(100, TimeUnit.MILLISECONDS);
+                carried = null;
+                if (first != null) {
+                    fillAndDispatch(first);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException e) {
+                logger.error("Batching failed on {}: {}", name, e.getMessage(), e);
+            }
+        }
+    }
+
+    private void fillAndDispatch(Pending first) throws InterruptedException {
+        MessageSink.Batch batch;
+        try {
+            batch = sink.createBatch();
+        } catch (RuntimeException e) {
+            fail(List.of(first), e);
+            return;
+        }
+        if (!batch.tryAddMessage(first.message)) {
+            fail(List.of(first), new IllegalArgumentException("Message is larger than the maximum batch size"));
+            return;
+        }
+
+        List<Pending> members = new ArrayList<>();
+        members.add(first);
+        long deadline = System.nanoTime() + options.getMaxLinger().toNanos();
+        while (members.size() < options.getMaxBatchMessages()) {
+            Pending next = pending.poll();
+            if (next == null) {
+                long remaining = deadline - System.nanoTime();
+                if (remaining <= 0 || !running) {
+                    break;
+                }
+                next = pending.poll(remaining, TimeUnit.NANOSECONDS);
+                if (next == null) {
+                    break;
+                }
+            }
+            if (!batch.tryAddMessage(next.message)) {
+                carried = next;
+                break;
+            }
+            members.add(next);
+        }
+
+        sendPermits.acquire();
+        sendExecutor.execute(() -> sendBatch(batch, members));
+    }
+
+    private void sendBatch(MessageSink.Batch batch, List<Pending> members) {
+        long startNanos = System.nanoTime();
+        try {
+            sink.send(batch);
+            metrics.getSendLatency().recordSince(startNanos);
+            metrics.getSendBatchSize().record(members.size());
+            batchesSent.increment();
+            messagesSent.add(members.size());
+            members.forEach(member -> member.future.complete(null));
+        } catch (RuntimeException e) {
+            logger.warn("Failed to send batch of {} messages to {}: {}", members.size(), name, e.getMessage());
+            fail(members, e);
+        } finally {
+            sendPermits.release();
+        }
+    }
+
+    private void fail(List<Pending> members, Throwable error) {
+        messagesFailed.add(members.size());
+        members.forEach(member -> member.future.completeExceptionally(error));
+    }
+
+    public long getBatchesSent() {
+        return batchesSent.sum();
+    }
+
+    public long getMessagesSent() {
+        return messagesSent.sum();
+    }
+
+    public long getMessagesFailed() {
+        return messagesFailed.sum();
+    }
+
+    /**
+     * @return the metrics of this sender's entity, shared with other components using the same registry and name
+     */
+    public EntityMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Sends everything already submitted, including messages whose {@link #send(ServiceBusMessage)} call is still
+     * queueing them, waits for in-flight batches and closes the sink. Later sends fail.
+     */
+    @Override
+    public void close() {
+        if (!running) {
+            return;
+        }
+        running = false;
+        try {
+            batcher.join();
+            sendExecutor.shutdown();
+            sendExecutor.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        List<Pending> leftovers = new ArrayList<>();
+        pending.drainTo(leftovers);
+        fail(leftovers, new IllegalStateException("Sender " + name + " is closed"));
+        sink.close();
+        logger.info("Sender {} closed: batches={}, messages={}, failed={}", name, getBatchesSent(),
+                getMessagesSent(), getMessagesFailed());
+    }
+
+    private record Pending(ServiceBusMessage message, CompletableFuture<Void> future) {
+    }
+}
@@ -0,0 +1,401 @@
+package com.luna.app.queue;
+
+import com.luna.app.metrics.EntityMetrics;
+import com.luna.app.metrics.MetricsRegistry;
+import com.luna.app.metrics.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Push-style consumer: receiver threads long-poll their {@link MessageSource} and hand messages to a pool of worker
+ * threads, which run the {@link MessageHandler} and settle each message on the source that received it.
+ * <p>
+ * There is no fixed polling interval: a receiver issues the next receive as soon as the previous one returns. The
+ * number of locked messages held by the engine is capped by {@link ConsumerOptions#getMaxInFlight()}; when workers fall
+ * behind, receivers block instead of pulling more messages whose locks would expire in the local buffer.
+ * <p>
+ * With {@link ExecutionMode#VIRTUAL_THREAD_PER_MESSAGE} there is no worker pool: receivers start one virtual thread per
+ * message and the in-flight limit alone bounds concurrency.
+ * <p>
+ * With {@link ConsumerOptions#setMaxOutstandingSettlements(int)} the handler thread hands its disposition to a
+ * {@link SettlementPipeline} and moves on; handler and settlement latency are recorded separately either way. With
+ * {@link ConsumerOptions#setLockRenewer(LockRenewer)} message locks are renewed until settlement, so handlers may run
+ * longer than the entity's lock duration.
+ * <p>
+ * Handlers that hand work off can return it from {@link MessageHandler#handleAsync}: the handler thread moves on, and
+ * the message is settled on an engine thread once the result completes. {@link #close()} waits for those results.
+ * <p>
+ * Receive-to-handler, handler and settlement latency, dispositions, lock renewals and the in-flight count are recorded
+ * as {@link EntityMetrics} of the engine's name in {@link ConsumerOptions#getMetricsRegistry()}.
+ *
+ * @param <M> the message type
+ */
+public class ConsumerEngine<M> implements AutoCloseable {
+
+    private static final Logger logger = LoggerFactory.getLogger(ConsumerEngine.class);
+
+    private static final long MAX_RECEIVE_BACKOFF_MS = 30_000L;
+
+    private final String name;
+    private final Supplier<? extends MessageSource<M>> sourceFactory;
+    private final MessageHandler<M> handler;
+    private final ConsumerOptions options;
+
+    // Deliveries to handle and handed-off results to settle, taken by the worker threads
+    private final BlockingQueue<Runnable> buffer = new LinkedBlockingQueue<>();
+    // Deliveries dispatched but not yet settled (or handed to the settlement pipeline)
+    private final AtomicInteger unfinished = new AtomicInteger();
+    private final Semaphore inFlight;
+    private final List<Thread> receiverThreads = new ArrayList<>();
+    private final List<Thread> workerThreads = new ArrayList<>();
+    private final List<MessageSource<M>> sources = new ArrayList<>();
+    private ExecutorService handlerExecutor;
+    private final SettlementPipeline<M> settlements;
+    private final CountDownLatch terminated = new CountDownLatch(1);
+
+    private final LongAdder received = new LongAdder();
+    private final LongAdder completed = new LongAdder();
+    private final LongAdder abandoned = new LongAdder();
+    private final LongAdder deadLettered = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final EntityMetrics metrics;
+
+    private volatile boolean running;
+
+    /**
+     * Creates an engine; call {@link #start()} to begin receiving.
+     *
+     * @param name          name used for thread names and logging, usually the entity path
+     * @param sourceFactory opens one receive link per receiver thread
+     * @param handler       the message handler
+     * @param options       concurrency and backpressure settings
+     */
+    public ConsumerEngine(String name, Supplier<? extends MessageSource<M>> sourceFactory, MessageHandler<M> handler,
+                          ConsumerOptions options) {
+        this.name = name;
+        this.sourceFactory = sourceFactory;
+        this.handler = handler;
+        this.options = options;
+        this.inFlight = new Semaphore(options.getMaxInFlight());
+        MetricsRegistry registry = options.getMetricsRegistry() != null
+                ? options.getMetricsRegistry()
+                : new MetricsRegistry();
+        this.metrics = registry.entity(name);
+        metrics.registerInFlight(() -> options.getMaxInFlight() - inFlight.availablePermits());
+        this.settlements = options.getMaxOutstandingSettlements() > 0
+                ? new SettlementPipeline<>(name, options.getMaxOutstandingSettlements(),
+                metrics.getSettlementLatency())
+                : null;
+    }
+
+    /**
+     * Opens the receive links and starts the receiver and worker threads.
+     */
+    public synchronized void start() {
+        if (running) {
+            return;
+        }
+        running = true;
+        if (options.getExecutionMode() == ExecutionMode.VIRTUAL_THREAD_PER_MESSAGE) {
+            handlerExecutor = VirtualThreads.newThreadPerTaskExecutor(name);
+        } else {
+            for (int i = 0; i < options.getWorkerCount(); i++) {
+                Thread worker = new Thread(this::workLoop, name + "-worker-" + i);
+                workerThreads.add(worker);
+                worker.start();
+            }
+        }
+        for (int i = 0; i < options.getReceiverCount(); i++) {
+            MessageSource<M> source = sourceFactory.get();
+            sources.add(source);
+            Thread receiver = new Thread(() -> receiveLoop(source), name + "-receiver-" + i);
+            receiverThreads.add(receiver);
+            receiver.start();
+        }
+        logger.info("Consumer {} started with {} receivers in {} mode", name, options.getReceiverCount(),
+                options.getExecutionMode());
+    }
+
+    private void receiveLoop(MessageSource<M> source) {
+        long backoffMs = 0;
+        while (running) {
+            int permits = 0;
+            try {
+                inFlight.acquire();
+                permits = 1 + acquireUpTo(options.getMaxBatchSize() - 1);
+
+                List<M> messages = source.receive(permits, options.getMaxWaitTime());
+                backoffMs = 0;
+                long receivedNanos = System.nanoTime();
+                received.add(messages.size());
+                permits -= messages.size();
+                for (M message : messages) {
+                    Delivery<M> delivery = new Delivery<>(source, message, renewLock(source, message), receivedNanos);
+                    unfinished.incrementAndGet();
+                    dispatch(() -> process(delivery));
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            } catch (RuntimeException e) {
+                if (!running) {
+                    break;
+                }
+                backoffMs = backoffMs == 0 ? 100 : Math.min(backoffMs * 2, MAX_RECEIVE_BACKOFF_MS);
+                logger.warn("Receive failed on {}, retrying in {} ms: {}", name, backoffMs, e.getMessage());
+                sleepQuietly(backoffMs);
+            } finally {
+                inFlight.release(permits);
+            }
+        }
+    }
+
+    private void dispatch(Runnable task) {
+        if (handlerExecutor != null) {
+            handlerExecutor.execute(task);
+        } else {
+            buffer.add(task);
+        }
+    }
+
+    private LockRenewer.Renewal renewLock(MessageSource<M> source, M message) {
+        LockRenewer lockRenewer = options.getLockRenewer();
+        return lockRenewer != null ? lockRenewer.register(source, message, metrics.getLockRenewals()) : null;
+    }
+
+    private int acquireUpTo(int wanted) {
+        int extra = Math.min(wanted, inFlight.availablePermits());
+        return extra > 0 && inFlight.tryAcquire(extra) ? extra : 0;
+    }
+
+    private void workLoop() {
+        while (running || unfinished.get() > 0) {
+            Runnable task;
+            try {
+                task = buffer.poll(100, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            if (task != null) {
+                task.run();
+            }
+        }
+    }
+
+    void process(Delivery<M> delivery) {
+        long startNanos = System.nanoTime();
+        metrics.getReceiveToHandler().record(startNanos - delivery.receivedNanos());
+        CompletableFuture<Disposition> result;
+        try {
+            result = handler.handleAsync(delivery.message()).toCompletableFuture();
+        } catch (RuntimeException e) {
+            result = CompletableFuture.failedFuture(e);
+        }
+        metrics.getHandlerDuration().recordSince(startNanos);
+        if (!result.isDone()) {
+            // Settles on an engine thread, so settlement never runs on the thread that completes the hand-off
+            CompletableFuture<Disposition> pending = result;
+            pending.whenComplete((ignored, error) -> dispatch(() -> finish(delivery, pending)));
+            return;
+        }
+        finish(delivery, result);
+    }
+
+    private void finish(Delivery<M> delivery, CompletableFuture<Disposition> result) {
+        boolean released = false;
+        try {
+            Disposition disposition;
+            try {
+                disposition = result.join();
+            } catch (CompletionException | CancellationException e) {
+                Throwable cause = e.getCause() != null ? e.getCause() : e;
+                failed.increment();
+                logger.warn("Handler failed on {}, abandoning message: {}", name, cause.getMessage());
+                disposition = Disposition.ABANDON;
+            }
+            if (settlements != null) {
+                Disposition settled = disposition;
+                settlements.submit(delivery.source(), delivery.message(), disposition)
+                        .whenComplete((ignored, error) -> {
+                            if (error == null) {
+                                count(settled);
+                            }
+                            delivery.settled();
+                            inFlight.release();
+                        });
+                released = true;
+            } else {
+                settle(delivery, disposition);
+            }
+        } finally {
+            if (!released) {
+                delivery.settled();
+                inFlight.release();
+            }
+            unfinished.decrementAndGet();
+        }
+    }
+
+    private void settle(Delivery<M> delivery, Disposition disposition) {
+        long startNanos = System.nanoTime();
+        try {
+            delivery.source().settle(delivery.message(), disposition);
+            metrics.getSettlementLatency().recordSince(startNanos);
+            count(disposition);
+        } catch (RuntimeException e) {
+            logger.warn("Failed to {} message on {}: {}", disposition, name, e.getMessage());
+        }
+    }
+
+    private void count(Disposition disposition) {
+        switch (disposition) {
+            case COMPLETE -> {
+                completed.increment();
+                metrics.getCompleted().increment();
+            }
+            case ABANDON -> {
+                abandoned.increment();
+                metrics.getAbandoned().increment();
+            }
+            case DEAD_LETTER -> {
+                deadLettered.increment();
+                metrics.getDeadLettered().increment();
+            }
+            default -> {
+            }
+        }
+    }
+
+    /**
+     * Blocks until the engine has been closed.
+     *
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public void awaitTermination() throws InterruptedException {
+        terminated.await();
+    }
+
+    /**
+     * Stops receiving, lets workers finish the messages already buffered and the results handed off by the handler,
+     * and closes the receive links.
+     */
+    @Override
+    public synchronized void close() {
+        if (!running) {
+            return;
+        }
+        running = false;
+        receiverThreads.forEach(Thread::interrupt);
+        joinAll(receiverThreads);
+        joinAll(workerThreads);
+        if (handlerExecutor != null) {
+            while (unfinished.get() > 0) {
+                sleepQuietly(10);
+            }
+            handlerExecutor.shutdown();
+            try {
+                handlerExecutor.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        if (settlements != null) {
+            settlements.close();
+        }
+        sources.forEach(MessageSource::close);
+        logger.info("Consumer {} stopped: received={}, completed={}, abandoned={}, deadLettered={}, failed={}", name,
+                getReceivedCount(), getCompletedCount(), getAbandonedCount(), getDeadLetteredCount(),
+                getFailedCount());
+        terminated.countDown();
+    }
+
+    public long getReceivedCount() {
+        return received.sum();
+    }
+
+    public long getCompletedCount() {
+        return completed.sum();
+    }
+
+    public long getAbandonedCount() {
+        return abandoned.sum();
+    }
+
+    public long getDeadLetteredCount() {
+        return deadLettered.sum();
+    }
+
+    public long getFailedCount() {
+        return failed.sum();
+    }
+
+    /**
+     * @return time spent in {@link MessageHandler#handle}, excluding settlement
+     */
+    public Timer getHandlerLatency() {
+        return metrics.getHandlerDuration();
+    }
+
+    /**
+     * @return time from the handler returning to the broker acknowledging the disposition
+     */
+    public Timer getSettlementLatency() {
+        return metrics.getSettlementLatency();
+    }
+
+    /**
+     * @return the metrics of this engine's entity, shared with other components using the same registry and name
+     */
+    public EntityMetrics getMetrics() {
+        return metrics;
+    }
+
+    private static void joinAll(List<Thread> threads) {
+        for (Thread thread : threads) {
+            try {
+                thread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    private static void sleepQuietly(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * A received message together with the link it has to be settled on, the renewal keeping its lock alive and the
+     * {@link System#nanoTime()} it was received at.
+     */
+    record Delivery<M>(MessageSource<M> source, M message, LockRenewer.Renewal renewal, long receivedNanos) {
+
+        void settled() {
+            if (renewal != null) {
+                renewal.cancel();
+            }
+        }
+    }
+}
@@ -0,0 +1,185 @@
+package com.luna.app.queue;
+
+import com.luna.app.metrics.MetricsRegistry;
+
+import java.time.Duration;
+
+/**
+ * Tuning knobs for a {@link ConsumerEngine}.
+ */
+public class ConsumerOptions {
+
+    private int receiverCount = 1;
+    private int workerCount = Runtime.getRuntime().availableProcessors();
+    private int maxBatchSize = 32;
+    private int maxInFlight = 256;
+    private Duration maxWaitTime = Duration.ofSeconds(5);
+    private ExecutionMode executionMode = ExecutionMode.WORKER_POOL;
+    private int maxOutstandingSettlements;
+    private LockRenewer lockRenewer;
+    private MetricsRegistry metricsRegistry;
+
+    public int getReceiverCount() {
+        return receiverCount;
+    }
+
+    /**
+     * Sets the number of receive links, each with its own thread and {@link MessageSource}.
+     *
+     * @param receiverCount the number of receivers
+     * @return the updated options
+     */
+    public ConsumerOptions setReceiverCount(int receiverCount) {
+        this.receiverCount = requirePositive(receiverCount, "receiverCount");
+        return this;
+    }
+
+    public int getWorkerCount() {
+        return workerCount;
+    }
+
+    /**
+     * Sets the number of threads running the {@link MessageHandler}.
+     *
+     * @param workerCount the number of workers
+     * @return the updated options
+     */
+    public ConsumerOptions setWorkerCount(int workerCount) {
+        this.workerCount = requirePositive(workerCount, "workerCount");
+        return this;
+    }
+
+    public int getMaxBatchSize() {
+        return maxBatchSize;
+    }
+
+    /**
+     * Sets the maximum number of messages requested by one receive call.
+     *
+     * @param maxBatchSize the receive batch size
+     * @return the updated options
+     */
+    public ConsumerOptions setMaxBatchSize(int maxBatchSize) {
+        this.maxBatchSize = requirePositive(maxBatchSize, "maxBatchSize");
+        return this;
+    }
+
+    public int getMaxInFlight() {
+        return maxInFlight;
+    }
+
+    /**
+     * Sets the maximum number of locked messages held by the engine (buffered plus being handled). Receivers stop
+     * pulling from the broker while this limit is reached, which keeps lock expiry bounded when handlers fall behind.
+     * Messages prefetched by the receive client are locked as well while they wait, so keep its prefetch count a small
+     * buffer ahead of the handlers rather than a second in-flight limit.
+     *
+     * @param maxInFlight the in-flight limit
+     * @return the updated options
+     */
+    public ConsumerOptions setMaxInFlight(int maxInFlight) {
+        this.maxInFlight = requirePositive(maxInFlight, "maxInFlight");
+        return this;
+    }
+
+    public Duration getMaxWaitTime() {
+        return maxWaitTime;
+    }
+
+    /**
+     * Sets how long a receive call waits for the first message before returning empty.
+     *
+     * @param maxWaitTime the long-poll timeout
+     * @return the updated options
+     */
+    public ConsumerOptions setMaxWaitTime(Duration maxWaitTime) {
+        if (maxWaitTime == null || maxWaitTime.isNegative() || maxWaitTime.isZero()) {
+            throw new IllegalArgumentException("maxWaitTime must be positive");
+        }
+        this.maxWaitTime = maxWaitTime;
+        return this;
+    }
+
+    public ExecutionMode getExecutionMode() {
+        return executionMode;
+    }
+
+    /**
+     * Sets how handlers are run. With {@link ExecutionMode#VIRTUAL_THREAD_PER_MESSAGE} the worker count is ignored and
+     * {@link #getMaxInFlight()} is the concurrency limit: a thousand or so is cheap when
+     * {@link VirtualThreads#isAvailable() virtual threads are available}, while the platform threads used before Java
+     * 21 call for a limit closer to a worker pool's size.
+     *
+     * @param executionMode the execution mode
+     * @return the updated options
+     */
+    public ConsumerOptions setExecutionMode(ExecutionMode executionMode) {
+        if (executionMode == null) {
+            throw new IllegalArgumentException("executionMode must not be null");
+        }
+        this.executionMode = executionMode;
+        return this;
+    }
+
+    public int getMaxOutstandingSettlements() {
+        return maxOutstandingSettlements;
+    }
+
+    /**
+     * Settles messages through a {@link SettlementPipeline} instead of on the handler thread, with at most this many
+     * settlements in flight. A message keeps its in-flight permit until its settlement is acknowledged. Zero, the
+     * default, settles synchronously after each handler call.
+     *
+     * @param maxOutstandingSettlements the settlement limit, or zero for synchronous settlement
+     * @return the updated options
+     */
+    public ConsumerOptions setMaxOutstandingSettlements(int maxOutstandingSettlements) {
+        if (maxOutstandingSettlements < 0) {
+            throw new IllegalArgumentException("maxOutstandingSettlements must not be negative but was "
+                    + maxOutstandingSettlements);
+        }
+        this.maxOutstandingSettlements = maxOutstandingSettlements;
+        return this;
+    }
+
+    public LockRenewer getLockRenewer() {
+        return lockRenewer;
+    }
+
+    /**
+     * Keeps the lock on every message alive from receipt until it is settled, including the time spent waiting in the
+     * buffer. Only needed when handlers, or the wait in the buffer, can outlast the entity's lock duration; renewing
+     * some seconds before expiry leaves room for a slow renewal call. The renewer is usually shared by all engines in
+     * the process and is not closed by the engine.
+     *
+     * @param lockRenewer the renewer, or {@code null} to let locks expire after the entity's lock duration
+     * @return the updated options
+     */
+    public ConsumerOptions setLockRenewer(LockRenewer lockRenewer) {
+        this.lockRenewer = lockRenewer;
+        return this;
+    }
+
+    public MetricsRegistry getMetricsRegistry() {
+        return metricsRegistry;
+    }
+
+    /**
+     * Records the engine's metrics in a shared registry, labelled with the engine's name.
+     *
+     * @param metricsRegistry the registry, e.g. {@link MetricsRegistry#global()}, or {@code null} to keep the metrics
+     *                        private to the engine
+     * @return the updated options
+     */
+    public ConsumerOptions setMetricsRegistry(MetricsRegistry metricsRegistry) {
+        this.metricsRegistry = metricsRegistry;
+        return this;
+    }
+
+    static int requirePositive(int value, String name) {
+        if (value <= 0) {
+            throw new IllegalArgumentException(name + " must be positive but was " + value);
+        }
+        return value;
+    }
+}
@@ -0,0 +1,19 @@
+package com.luna.app.queue;
+
+/**
+ * Outcome of handling a received message, applied by the consumer engine on the receiver that delivered it.
+ */
+public enum Disposition {
+    /**
+     * Message processed; remove it from the entity.
+     */
+    COMPLETE,
+    /**
+     * Release the lock so the message is redelivered (counts towards max delivery count).
+     */
+    ABANDON,
+    /**
+     * Move the message to the dead-letter sub-queue.
+     */
+    DEAD_LETTER
+}
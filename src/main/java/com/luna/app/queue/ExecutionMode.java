@@ -0,0 +1,20 @@
+package com.luna.app.queue;
+
+/**
+ * How a {@link ConsumerEngine} runs its {@link MessageHandler}.
+ */
+public enum ExecutionMode {
+    /**
+     * A fixed pool of {@link ConsumerOptions#getWorkerCount()} platform threads takes messages from a shared buffer.
+     * Suited to CPU-bound handlers.
+     */
+    WORKER_POOL,
+    /**
+     * Every received message is handled on its own virtual thread, bounded by
+     * {@link ConsumerOptions#getMaxInFlight()}. Suited to handlers that block on I/O: thousands of messages can be in
+     * flight without thousands of platform threads. Requires Java 21 at runtime; on older runtimes the engine falls
+     * back to a cached platform thread pool with the same in-flight limit, i.e. one platform thread per message in
+     * flight, so size the limit with {@link VirtualThreads#isAvailable()} in mind.
+     */
+    VIRTUAL_THREAD_PER_MESSAGE
+}
@@ -0,0 +1,118 @@
+package com.luna.app.queue;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * A message held by a {@link com.luna.app.emulator.ServiceBusEmulator} entity or an in-memory queue of the tests.
+ */
+public class InMemoryMessage {
+
+    private final long sequenceNumber;
+    private final String messageId;
+    private final String sessionId;
+    private final byte[] body;
+    private final Map<String, Object> applicationProperties = new HashMap<>();
+    private volatile int deliveryCount;
+    private volatile String deadLetterReason;
+    private volatile String deadLetterErrorDescription;
+    private volatile long lockedUntilMillis;
+
+    InMemoryMessage(long sequenceNumber, String messageId, byte[] body) {
+        this(sequenceNumber, messageId, null, body);
+    }
+
+    public InMemoryMessage(long sequenceNumber, String messageId, String sessionId, byte[] body) {
+        this.sequenceNumber = sequenceNumber;
+        this.messageId = messageId;
+        this.sessionId = sessionId;
+        this.body = body;
+    }
+
+    public long getSequenceNumber() {
+        return sequenceNumber;
+    }
+
+    public String getMessageId() {
+        return messageId;
+    }
+
+    public String getSessionId() {
+        return sessionId;
+    }
+
+    public byte[] getBody() {
+        return body;
+    }
+
+    public String getBodyAsString() {
+        return new String(body, StandardCharsets.UTF_8);
+    }
+
+    public Map<String, Object> getApplicationProperties() {
+        return applicationProperties;
+    }
+
+    /**
+     * @return why the message was dead-lettered, or {@code null} if it was dead-lettered without a reason or not at all
+     */
+    public String getDeadLetterReason() {
+        return deadLetterReason;
+    }
+
+    /**
+     * Called by an in-memory broker when it moves the message to a dead-letter sub-queue.
+     */
+    public void setDeadLetterReason(String deadLetterReason) {
+        this.deadLetterReason = deadLetterReason;
+    }
+
+    /**
+     * @return the description given with the dead-letter reason, or {@code null}
+     */
+    public String getDeadLetterErrorDescription() {
+        return deadLetterErrorDescription;
+    }
+
+    /**
+     * Called by an in-memory broker when it moves the message to a dead-letter sub-queue.
+     */
+    public void setDeadLetterErrorDescription(String deadLetterErrorDescription) {
+        this.deadLetterErrorDescription = deadLetterErrorDescription;
+    }
+
+    /**
+     * @return when the current lock expires, or {@code null} if the message is not locked or its queue has no lock
+     * duration
+     */
+    public Instant getLockedUntil() {
+        long lockedUntil = lockedUntilMillis;
+        return lockedUntil > 0 ? Instant.ofEpochMilli(lockedUntil) : null;
+    }
+
+    long getLockedUntilMillis() {
+        return lockedUntilMillis;
+    }
+
+    /**
+     * Called by an in-memory broker when it locks or releases the message.
+     *
+     * @param lockedUntilMillis the lock expiry in epoch milliseconds, or zero if the message is not locked
+     */
+    public void setLockedUntilMillis(long lockedUntilMillis) {
+        this.lockedUntilMillis = lockedUntilMillis;
+    }
+
+    public int getDeliveryCount() {
+        return deliveryCount;
+    }
+
+    /**
+     * Called by an in-memory broker each time the message is handed to a receiver.
+     */
+    public void incrementDeliveryCount() {
+        deliveryCount++;
+    }
+}
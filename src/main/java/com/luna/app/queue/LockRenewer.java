@@ -0,0 +1,396 @@
+package com.luna.app.queue;
+
+import com.luna.app.metrics.Counter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Queue;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+/**
+ * Keeps message locks alive while handlers run, for any number of messages, from one scheduler thread.
+ * <p>
+ * Registered messages are kept on a hashed timer wheel: each slot covers one tick and holds a linked list of the locks
+ * due for renewal in that tick, so registering, cancelling and firing are all O(1) regardless of how many locks are
+ * held. A lock is renewed {@code renewBefore} ahead of its expiry (or halfway through, for locks shorter than that),
+ * then rescheduled from the new expiry. Renewal stops when the message is settled and its {@link Renewal} cancelled,
+ * when a renewal fails, or once {@code maxRenewalDuration} has passed since registration.
+ * <p>
+ * Each renewal is a blocking round trip, made on a fixed pool of {@code renewalThreads} platform threads (16 by
+ * default) fed by a bounded queue. Besides the scheduler thread, that is the whole thread cost, however many locks are
+ * held; in exchange the pool renews at most {@code renewalThreads} / round trip locks per second, so
+ * {@code renewBefore} has to cover a burst of renewals queueing up. Renewals that do not fit the queue are retried on
+ * the next tick.
+ * <p>
+ * One instance is meant to be shared by every consumer in the process.
+ */
+public class LockRenewer implements AutoCloseable {
+
+    private static final Logger logger = LoggerFactory.getLogger(LockRenewer.class);
+
+    private static final long DEFAULT_TICK_MILLIS = 100;
+    private static final int DEFAULT_WHEEL_SIZE = 1024;
+    private static final int DEFAULT_RENEWAL_THREADS = 16;
+    private static final int RENEWAL_QUEUE_CAPACITY = 65_536;
+
+    private static final int SCHEDULED = 0;
+    private static final int RENEWING = 1;
+    private static final int CANCELLED = 2;
+    private static final int DONE = 3;
+
+    private final long renewBeforeMillis;
+    private final long maxRenewalMillis;
+    private final long tickMillis;
+    private final Renewal[] wheel;
+    private final int mask;
+    private final LongSupplier clock;
+    private final Executor executor;
+
+    // Written by any thread, drained by the wheel thread; the slot lists are only touched by the wheel thread
+    private final Queue<Renewal> scheduled = new ConcurrentLinkedQueue<>();
+    private final Queue<Renewal> cancelled = new ConcurrentLinkedQueue<>();
+    private long currentTick;
+
+    private final AtomicInteger active = new AtomicInteger();
+    private final LongAdder renewed = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final LongAdder deferred = new LongAdder();
+
+    private final Thread wheelThread;
+    private volatile boolean running = true;
+
+    /**
+     * Creates a renewer and starts its scheduler thread.
+     *
+     * @param renewBefore        how long before expiry a lock is renewed; must cover the renewal round trip
+     * @param maxRenewalDuration how long a message's lock is kept alive at most, to bound stuck handlers
+     */
+    public LockRenewer(Duration renewBefore, Duration maxRenewalDuration) {
+        this(renewBefore, maxRenewalDuration, DEFAULT_RENEWAL_THREADS);
+    }
+
+    /**
+     * Creates a renewer and starts its scheduler thread and renewal pool.
+     *
+     * @param renewBefore        how long before expiry a lock is renewed; must cover the renewal round trip plus the
+     *                           time a burst of renewals waits for a pool thread
+     * @param maxRenewalDuration how long a message's lock is kept alive at most, to bound stuck handlers
+     * @param renewalThreads     the number of platform threads making renewal calls
+     */
+    public LockRenewer(Duration renewBefore, Duration maxRenewalDuration, int renewalThreads) {
+        this(renewBefore, maxRenewalDuration, DEFAULT_TICK_MILLIS, DEFAULT_WHEEL_SIZE, System::currentTimeMillis,
+                newRenewalPool(renewalThreads), true);
+    }
+
+    LockRenewer(Duration renewBefore, Duration maxRenewalDuration, long tickMillis, int wheelSize, LongSupplier clock,
+                Executor executor, boolean startThread) {
+        if (renewBefore == null || renewBefore.isNegative() || renewBefore.isZero()) {
+            throw new IllegalArgumentException("renewBefore must be positive");
+        }
+        if (maxRenewalDuration == null || maxRenewalDuration.isNegative() || maxRenewalDuration.isZero()) {
+            throw new IllegalArgumentException("maxRenewalDuration must be positive");
+        }
+        if (Integer.bitCount(wheelSize) != 1) {
+            throw new IllegalArgumentException("wheelSize must be a power of two but was " + wheelSize);
+        }
+        this.renewBeforeMillis = renewBefore.toMillis();
+        this.maxRenewalMillis = maxRenewalDuration.toMillis();
+        this.tickMillis = tickMillis;
+        this.wheel = new Renewal[wheelSize];
+        this.mask = wheelSize - 1;
+        this.clock = clock;
+        this.executor = executor;
+        this.currentTick = clock.getAsLong() / tickMillis;
+        if (startThread) {
+            wheelThread = new Thread(this::run, "lock-renewer");
+            wheelThread.setDaemon(true);
+            wheelThread.start();
+        } else {
+            wheelThread = null;
+        }
+    }
+
+    /**
+     * Starts renewing the lock on a received message. Cancel the returned renewal once the message is settled.
+     *
+     * @param source  the source that received the message
+     * @param message the locked message
+     * @param <M>     the message type
+     * @return the renewal, already finished if the source does not report lock expiry
+     */
+    public <M> Renewal register(MessageSource<M> source, M message) {
+        return register(source, message, null);
+    }
+
+    /**
+     * Starts renewing the lock on a received message, counting each successful renewal.
+     *
+     * @param source   the source that received the message
+     * @param message  the locked message
+     * @param renewals incremented on every renewal, or {@code null}
+     * @param <M>      the message type
+     * @return the renewal, already finished if the source does not report lock expiry
+     */
+    public <M> Renewal register(MessageSource<M> source, M message, Counter renewals) {
+        Instant lockedUntil = source.getLockedUntil(message);
+        long now = clock.getAsLong();
+        Renewal renewal = new Renewal(() -> source.renewLock(message), now + maxRenewalMillis, renewals);
+        if (lockedUntil == null || !running) {
+            renewal.state.set(DONE);
+            return renewal;
+        }
+        active.incrementAndGet();
+        renewal.fireAt = nextRenewal(now, lockedUntil.toEpochMilli());
+        scheduled.add(renewal);
+        return renewal;
+    }
+
+    private static ExecutorService newRenewalPool(int threads) {
+        if (threads <= 0) {
+            throw new IllegalArgumentException("renewalThreads must be positive but was " + threads);
+        }
+        AtomicInteger counter = new AtomicInteger();
+        return new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(RENEWAL_QUEUE_CAPACITY), runnable -> {
+                    Thread thread = new Thread(runnable, "lock-renewer-" + counter.getAndIncrement());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+    }
+
+    private long nextRenewal(long now, long lockedUntil) {
+        long remaining = lockedUntil - now;
+        return now + Math.max(remaining - renewBeforeMillis, remaining / 2);
+    }
+
+    private void run() {
+        while (running) {
+            advance();
+            long sleepMillis = (currentTick + 1) * tickMillis - clock.getAsLong();
+            if (sleepMillis > 0) {
+                LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(sleepMillis));
+            }
+        }
+    }
+
+    /**
+     * Applies pending registrations and cancellations, then fires every slot whose tick has fully elapsed.
+     */
+    void advance() {
+        Renewal renewal;
+        while ((renewal = cancelled.poll()) != null) {
+            if (renewal.slot >= 0) {
+                unlink(renewal);
+            }
+        }
+        while ((renewal = scheduled.poll()) != null) {
+            if (renewal.state.get() == SCHEDULED && renewal.slot < 0) {
+                link(renewal);
+            }
+        }
+        long now = clock.getAsLong();
+        while ((currentTick + 1) * tickMillis <= now) {
+            long tickEnd = (currentTick + 1) * tickMillis;
+            Renewal next;
+            for (renewal = wheel[(int) (currentTick & mask)]; renewal != null; renewal = next) {
+                next = renewal.next;
+                // later rounds of the wheel share the slot and stay put
+                if (renewal.fireAt < tickEnd) {
+                    unlink(renewal);
+                    fire(renewal);
+                }
+            }
+            currentTick++;
+        }
+    }
+
+    private void link(Renewal renewal) {
+        long tick = Math.max(renewal.fireAt / tickMillis, currentTick);
+        int slot = (int) (tick & mask);
+        renewal.slot = slot;
+        renewal.prev = null;
+        renewal.next = wheel[slot];
+        if (wheel[slot] != null) {
+            wheel[slot].prev = renewal;
+        }
+        wheel[slot] = renewal;
+    }
+
+    private void unlink(Renewal renewal) {
+        if (renewal.prev != null) {
+            renewal.prev.next = renewal.next;
+        } else {
+            wheel[renewal.slot] = renewal.next;
+        }
+        if (renewal.next != null) {
+            renewal.next.prev = renewal.prev;
+        }
+        renewal.prev = null;
+        renewal.next = null;
+        renewal.slot = -1;
+    }
+
+    private void fire(Renewal renewal) {
+        if (!renewal.state.compareAndSet(SCHEDULED, RENEWING)) {
+            return;
+        }
+        try {
+            executor.execute(renewal::renew);
+        } catch (RejectedExecutionException e) {
+            if (!running) {
+                renewal.finish();
+                return;
+            }
+            // The pool is saturated; try again on the next tick rather than growing the backlog
+            deferred.increment();
+            renewal.fireAt = (currentTick + 1) * tickMillis;
+            if (renewal.state.compareAndSet(RENEWING, SCHEDULED)) {
+                link(renewal);
+            }
+        } catch (RuntimeException e) {
+            logger.warn("Failed to schedule lock renewal: {}", e.getMessage());
+            renewal.finish();
+        }
+    }
+
+    /**
+     * @return the number of locks currently being kept alive
+     */
+    public int getActiveCount() {
+        return active.get();
+    }
+
+    public long getRenewalCount() {
+        return renewed.sum();
+    }
+
+    public long getFailureCount() {
+        return failed.sum();
+    }
+
+    /**
+     * @return how many times a due renewal was put off by a tick because the renewal pool's queue was full
+     */
+    public long getDeferredCount() {
+        return deferred.sum();
+    }
+
+    /**
+     * Stops the scheduler; locks that are still registered are no longer renewed.
+     */
+    @Override
+    public void close() {
+        running = false;
+        if (wheelThread != null) {
+            LockSupport.unpark(wheelThread);
+            try {
+                wheelThread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        if (executor instanceof ExecutorService executorService) {
+            executorService.shutdown();
+        }
+    }
+
+    /**
+     * The renewal of one message's lock.
+     */
+    public final class Renewal {
+
+        private final Supplier<Instant> renewLock;
+        private final long deadline;
+        private final Counter renewals;
+        private final AtomicInteger state = new AtomicInteger(SCHEDULED);
+        private volatile boolean lost;
+        private volatile long fireAt;
+
+        // Owned by the wheel thread
+        private int slot = -1;
+        private Renewal prev;
+        private Renewal next;
+
+        private Renewal(Supplier<Instant> renewLock, long deadline, Counter renewals) {
+            this.renewLock = renewLock;
+            this.deadline = deadline;
+            this.renewals = renewals;
+        }
+
+        private void renew() {
+            Instant lockedUntil;
+            try {
+                lockedUntil = renewLock.get();
+            } catch (RuntimeException e) {
+                lost = true;
+                failed.increment();
+                logger.warn("Failed to renew message lock, the message will be redelivered: {}", e.getMessage());
+                finish();
+                return;
+            }
+            renewed.increment();
+            if (renewals != null) {
+                renewals.increment();
+            }
+            if (lockedUntil == null) {
+                finish();
+                return;
+            }
+            long now = clock.getAsLong();
+            long nextFireAt = nextRenewal(now, lockedUntil.toEpochMilli());
+            if (nextFireAt > deadline) {
+                finish();
+                return;
+            }
+            fireAt = nextFireAt;
+            if (state.compareAndSet(RENEWING, SCHEDULED)) {
+                scheduled.add(this);
+            }
+        }
+
+        private void finish() {
+            if (state.compareAndSet(RENEWING, DONE)) {
+                active.decrementAndGet();
+            }
+        }
+
+        /**
+         * Stops renewing the lock. Call once the message has been settled; safe to call more than once.
+         */
+        public void cancel() {
+            while (true) {
+                int previous = state.get();
+                if (previous == CANCELLED || previous == DONE) {
+                    return;
+                }
+                if (state.compareAndSet(previous, CANCELLED)) {
+                    active.decrementAndGet();
+                    if (previous == SCHEDULED) {
+                        cancelled.add(this);
+                    }
+                    return;
+                }
+            }
+        }
+
+        /**
+         * @return whether a renewal failed, in which case the lock has most likely expired and settling will fail
+         */
+        public boolean isLost() {
+            return lost;
+        }
+    }
+}
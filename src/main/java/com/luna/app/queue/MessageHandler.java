@@ -0,0 +1,38 @@
+package com.luna.app.queue;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+
+/**
+ * Business logic invoked by the {@link ConsumerEngine} for every received message.
+ *
+ * @param <M> the message type delivered by the {@link MessageSource}
+ */
+@FunctionalInterface
+public interface MessageHandler<M> {
+
+    /**
+     * Handles a single message.
+     *
+     * @param message the received message
+     * @return how the message should be settled; an exception abandons the message
+     * @throws Exception if the message could not be processed
+     */
+    Disposition handle(M message) throws Exception;
+
+    /**
+     * Handles a single message without waiting for work it hands off, such as a send. The {@link ConsumerEngine} frees
+     * the handler thread when this returns and settles the message once the stage completes; until then the message
+     * keeps its lock, its renewal and its in-flight slot. The default runs {@link #handle(Object)}.
+     *
+     * @param message the received message
+     * @return completes with how the message should be settled; completing exceptionally abandons the message
+     */
+    default CompletionStage<Disposition> handleAsync(M message) {
+        try {
+            return CompletableFuture.completedFuture(handle(message));
+        } catch (Exception e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package com.luna.app.queue;
+
+import com.azure.messaging.servicebus.ServiceBusMessage;
+
+import java.util.Map;
+
+/**
+ * Size limits of a Standard tier entity, for code that has to bound messages and batches without a send link.
+ */
+public final class MessageLimits {
+
+    /**
+     * Maximum message (and batch) size of a Standard tier entity.
+     */
+    public static final int MAX_MESSAGE_SIZE = 256 * 1024;
+
+    // Rough AMQP framing cost per message and per application property, used to bound batches
+    private static final int MESSAGE_OVERHEAD = 64;
+    private static final int PROPERTY_OVERHEAD = 8;
+
+    private MessageLimits() {
+    }
+
+    /**
+     * @param message a message to send
+     * @return roughly how many bytes the message takes in a batch
+     */
+    public static int estimateSize(ServiceBusMessage message) {
+        Long bodyLength = message.getBody().getLength();
+        int size = MESSAGE_OVERHEAD + (bodyLength != null ? bodyLength.intValue() : message.getBody().toBytes().length);
+        for (Map.Entry<String, Object> property : message.getApplicationProperties().entrySet()) {
+            size += PROPERTY_OVERHEAD + property.getKey().length() + String.valueOf(property.getValue()).length();
+        }
+        return size;
+    }
+}
@@ -0,0 +1,44 @@
+package com.luna.app.queue;
+
+import com.azure.messaging.servicebus.ServiceBusMessage;
+
+/**
+ * A send link that accepts size-bounded batches. Implemented by {@link ServiceBusMessageSink} for a real entity and by
+ * {@code InMemoryQueue} in tests and benchmarks.
+ */
+public interface MessageSink extends AutoCloseable {
+
+    /**
+     * Creates an empty batch bounded by the entity's maximum message size.
+     *
+     * @return an empty batch
+     */
+    Batch createBatch();
+
+    /**
+     * Sends a batch in one round trip.
+     *
+     * @param batch a batch created by this sink
+     */
+    void send(Batch batch);
+
+    @Override
+    default void close() {
+    }
+
+    /**
+     * Messages accumulated for a single send.
+     */
+    interface Batch {
+
+        /**
+         * Adds a message if it still fits.
+         *
+         * @param message the message to add
+         * @return {@code false} if the batch is full
+         */
+        boolean tryAddMessage(ServiceBusMessage message);
+
+        int getCount();
+    }
+}
@@ -0,0 +1,66 @@
+package com.luna.app.queue;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * A peek-lock receive link. The {@link ConsumerEngine} only talks to the broker through this interface, so the same
+ * engine runs against a real Service Bus receiver ({@link ServiceBusMessageSource}) or the in-process
+ * {@code InMemoryQueue} of the tests.
+ *
+ * @param <M> the received message type
+ */
+public interface MessageSource<M> extends AutoCloseable {
+
+    /**
+     * Receives up to {@code maxMessages}, returning as soon as at least one message is available or
+     * {@code maxWaitTime} elapses.
+     *
+     * @param maxMessages the maximum number of messages to return
+     * @param maxWaitTime how long to wait for the first message
+     * @return the received messages, possibly empty
+     */
+    List<M> receive(int maxMessages, Duration maxWaitTime);
+
+    void complete(M message);
+
+    void abandon(M message);
+
+    void deadLetter(M message);
+
+    /**
+     * Applies a disposition to a message received from this source.
+     *
+     * @param message     the message to settle
+     * @param disposition the disposition to apply
+     */
+    default void settle(M message, Disposition disposition) {
+        switch (disposition) {
+            case COMPLETE -> complete(message);
+            case ABANDON -> abandon(message);
+            case DEAD_LETTER -> deadLetter(message);
+            default -> throw new IllegalArgumentException("Unknown disposition: " + disposition);
+        }
+    }
+
+    /**
+     * @param message a message received from this source
+     * @return when the lock on the message expires, or {@code null} if this source does not track lock expiry
+     */
+    default Instant getLockedUntil(M message) {
+        return null;
+    }
+
+    /**
+     * Extends the lock on a message by the entity's lock duration.
+     *
+     * @param message a message received from this source
+     * @return the new lock expiry, or {@code null} if this source does not track lock expiry
+     */
+    Instant renewLock(M message);
+
+    @Override
+    default void close() {
+    }
+}
@@ -0,0 +1,287 @@
+package com.luna.app.queue;
+
+import com.azure.messaging.servicebus.ServiceBusMessage;
+import com.google.common.hash.Hashing;
+import com.luna.app.metrics.EntityMetrics;
+import com.luna.app.metrics.MetricsRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Sender that keeps one ordered stream per key group instead of one for all traffic.
+ * <p>
+ * Each message is sent with a business key, e.g. a customer or order ID, which is hashed into one of
+ * {@link PartitionedSenderOptions#getKeyGroups()} groups. The group's label becomes the message's partition key (or
+ * session ID), so every batch targets a single partition, as a partitioned entity requires. Messages that already carry
+ * a session ID or partition key keep it, and a batch is closed when that key changes.
+ * <p>
+ * Every group has its own queue and at most one batch in flight, so messages with the same key are sent in order.
+ * Groups are independent: up to {@link PartitionedSenderOptions#getMaxConcurrentSends()} of them send at once, and a
+ * slow or failing group does not hold back the others. While a group's batch is in flight its next messages
+ * accumulate, so batches grow with the round trip without a linger timer.
+ * <p>
+ * When a batch fails, the messages queued behind it in the same group fail too. A caller that retries the failed
+ * messages therefore never finds a later message of the group already sent ahead of them.
+ */
+public class PartitionedSender implements AutoCloseable {
+
+    private static final Logger logger = LoggerFactory.getLogger(PartitionedSender.class);
+
+    private final String name;
+    private final MessageSink sink;
+    private final PartitionedSenderOptions options;
+    private final Group[] groups;
+    private final ExecutorService sendExecutor;
+
+    private final LongAdder batchesSent = new LongAdder();
+    private final LongAdder messagesSent = new LongAdder();
+    private final LongAdder messagesFailed = new LongAdder();
+    private final EntityMetrics metrics;
+
+    private volatile boolean running = true;
+
+    /**
+     * Creates the sender and its send threads.
+     *
+     * @param name    name used for thread names, group labels and logging, usually the entity path
+     * @param sink    the send link batches are sent on
+     * @param options key group, batching and concurrency settings
+     */
+    public PartitionedSender(String name, MessageSink sink, PartitionedSenderOptions options) {
+        this.name = name;
+        this.sink = sink;
+        this.options = options;
+        MetricsRegistry registry = options.getMetricsRegistry() != null
+                ? options.getMetricsRegistry()
+                : new MetricsRegistry();
+        this.metrics = registry.entity(name);
+        this.groups = new Group[options.getKeyGroups()];
+        for (int i = 0; i < groups.length; i++) {
+            groups[i] = new Group(name + "-" + i);
+        }
+        int threads = Math.min(options.getMaxConcurrentSends(), options.getKeyGroups());
+        AtomicInteger threadCount = new AtomicInteger();
+        this.sendExecutor = Executors.newFixedThreadPool(threads,
+                runnable -> new Thread(runnable, name + "-send-" + threadCount.getAndIncrement()));
+    }
+
+    /**
+     * Queues a message in the group of its key, blocking while
+     * {@link PartitionedSenderOptions#getMaxPendingMessagesPerGroup()} messages of that group are pending.
+     *
+     * @param key     the business key whose messages must stay in order
+     * @param message the message to send; its partition key or session ID is set to the group label unless it already
+     *                has one
+     * @return a future completed once the message's batch has been sent
+     */
+    public CompletableFuture<Void> send(String key, ServiceBusMessage message) {
+        Group group = groupOf(key);
+        CompletableFuture<Void> future = new CompletableFuture<>();
+        try {
+            group.capacity.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            future.completeExceptionally(e);
+            return future;
+        }
+        if (!running) {
+            group.capacity.release();
+            future.completeExceptionally(new IllegalStateException("Sender " + name + " is closed"));
+            return future;
+        }
+        if (message.getSessionId() == null && message.getPartitionKey() == null) {
+            if (options.isSessionKeys()) {
+                message.setSessionId(group.label);
+            } else {
+                message.setPartitionKey(group.label);
+            }
+        }
+        group.pending.add(new Pending(message, future));
+        group.schedule();
+        return future;
+    }
+
+    /**
+     * @param key a business key
+     * @return the label of the key's group, which its messages are sent with as partition key or session ID
+     */
+    public String keyGroupOf(String key) {
+        return groupOf(key).label;
+    }
+
+    public long getBatchesSent() {
+        return batchesSent.sum();
+    }
+
+    public long getMessagesSent() {
+        return messagesSent.sum();
+    }
+
+    public long getMessagesFailed() {
+        return messagesFailed.sum();
+    }
+
+    /**
+     * @return the metrics of this sender's entity, shared with other components using the same registry and name
+     */
+    public EntityMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Sends everything already submitted, waits for in-flight batches and closes the sink.
+     */
+    @Override
+    public void close() {
+        if (!running) {
+            return;
+        }
+        running = false;
+        for (Group group : groups) {
+            group.capacity.acquireUninterruptibly(options.getMaxPendingMessagesPerGroup());
+        }
+        sendExecutor.shutdown();
+        try {
+            sendExecutor.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        sink.close();
+        logger.info("Sender {} closed: batches={}, messages={}, failed={}", name, getBatchesSent(),
+                getMessagesSent(), getMessagesFailed());
+    }
+
+    private Group groupOf(String key) {
+        int hash = Hashing.murmur3_32_fixed().hashString(key, StandardCharsets.UTF_8).asInt();
+        return groups[Math.floorMod(hash, groups.length)];
+    }
+
+    private static String routingKey(ServiceBusMessage message) {
+        return message.getSessionId() != null ? message.getSessionId() : message.getPartitionKey();
+    }
+
+    /**
+     * One ordered stream. Its send task is scheduled on the executor whenever messages are pending and it is not
+     * already running, so at most one thread works on a group at a time.
+     */
+    private final class Group implements Runnable {
+
+        private final String label;
+        private final Queue<Pending> pending = new ConcurrentLinkedQueue<>();
+        private final Semaphore capacity = new Semaphore(options.getMaxPendingMessagesPerGroup());
+        private final AtomicBoolean scheduled = new AtomicBoolean();
+        private Pending carried;
+
+        Group(String label) {
+            this.label = label;
+        }
+
+        void schedule() {
+            if (scheduled.compareAndSet(false, true)) {
+                sendExecutor.execute(this);
+            }
+        }
+
+        @Override
+        public void run() {
+            try {
+                sendNextBatch();
+            } catch (RuntimeException e) {
+                logger.error("Batching failed on {}: {}", label, e.getMessage(), e);
+            } finally {
+                scheduled.set(false);
+                if (carried != null || !pending.isEmpty()) {
+                    schedule();
+                }
+            }
+        }
+
+        private void sendNextBatch() {
+            MessageSink.Batch batch;
+            try {
+                batch = sink.createBatch();
+            } catch (RuntimeException e) {
+                failQueued(new ArrayList<>(), e);
+                return;
+            }
+            List<Pending> members = new ArrayList<>();
+            String routingKey = null;
+            while (members.size() < options.getMaxBatchMessages()) {
+                Pending next = carried != null ? carried : pending.poll();
+                carried = null;
+                if (next == null) {
+                    break;
+                }
+                if (members.isEmpty()) {
+                    if (!batch.tryAddMessage(next.message)) {
+                        fail(List.of(next), new IllegalArgumentException(
+                                "Message is larger than the maximum batch size"));
+                        continue;
+                    }
+                    routingKey = routingKey(next.message);
+                } else if (!Objects.equals(routingKey, routingKey(next.message))
+                        || !batch.tryAddMessage(next.message)) {
+                    carried = next;
+                    break;
+                }
+                members.add(next);
+            }
+            if (members.isEmpty()) {
+                return;
+            }
+
+            long startNanos = System.nanoTime();
+            try {
+                sink.send(batch);
+            } catch (RuntimeException e) {
+                logger.warn("Failed to send batch of {} messages to {}: {}", members.size(), label, e.getMessage());
+                failQueued(members, e);
+                return;
+            }
+            metrics.getSendLatency().recordSince(startNanos);
+            metrics.getSendBatchSize().record(members.size());
+            batchesSent.increment();
+            messagesSent.add(members.size());
+            members.forEach(member -> member.future.complete(null));
+            capacity.release(members.size());
+        }
+
+        /**
+         * Fails a batch together with everything queued behind it in this group.
+         */
+        private void failQueued(List<Pending> members, Throwable error) {
+            if (carried != null) {
+                members.add(carried);
+                carried = null;
+            }
+            for (Pending next = pending.poll(); next != null; next = pending.poll()) {
+                members.add(next);
+            }
+            fail(members, error);
+        }
+
+        private void fail(List<Pending> members, Throwable error) {
+            messagesFailed.add(members.size());
+            members.forEach(member -> member.future.completeExceptionally(error));
+            capacity.release(members.size());
+        }
+    }
+
+    private record Pending(ServiceBusMessage message, CompletableFuture<Void> future) {
+    }
+}
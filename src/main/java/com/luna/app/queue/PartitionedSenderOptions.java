@@ -0,0 +1,111 @@
+package com.luna.app.queue;
+
+import com.luna.app.metrics.MetricsRegistry;
+
+/**
+ * Tuning knobs for a {@link PartitionedSender}.
+ */
+public class PartitionedSenderOptions {
+
+    private int keyGroups = 16;
+    private int maxBatchMessages = 500;
+    private int maxPendingMessagesPerGroup = 1_000;
+    private int maxConcurrentSends = 16;
+    private boolean sessionKeys;
+    private MetricsRegistry metricsRegistry;
+
+    public int getKeyGroups() {
+        return keyGroups;
+    }
+
+    /**
+     * Sets how many independent ordered streams business keys are hashed into. Each group becomes one partition key
+     * (or session), so match it to the entity's partition count or the number of sessions consumers process at once.
+     *
+     * @param keyGroups the number of key groups
+     * @return the updated options
+     */
+    public PartitionedSenderOptions setKeyGroups(int keyGroups) {
+        this.keyGroups = ConsumerOptions.requirePositive(keyGroups, "keyGroups");
+        return this;
+    }
+
+    public int getMaxBatchMessages() {
+        return maxBatchMessages;
+    }
+
+    /**
+     * Sets the maximum number of messages per batch. Batches are also closed when the entity's size limit is reached.
+     *
+     * @param maxBatchMessages the message limit
+     * @return the updated options
+     */
+    public PartitionedSenderOptions setMaxBatchMessages(int maxBatchMessages) {
+        this.maxBatchMessages = ConsumerOptions.requirePositive(maxBatchMessages, "maxBatchMessages");
+        return this;
+    }
+
+    public int getMaxPendingMessagesPerGroup() {
+        return maxPendingMessagesPerGroup;
+    }
+
+    /**
+     * Sets how many messages of one key group may be queued or in flight. Further {@code send} calls for that group
+     * block until there is room; other groups are not affected.
+     *
+     * @param maxPendingMessagesPerGroup the per-group bound
+     * @return the updated options
+     */
+    public PartitionedSenderOptions setMaxPendingMessagesPerGroup(int maxPendingMessagesPerGroup) {
+        this.maxPendingMessagesPerGroup = ConsumerOptions.requirePositive(maxPendingMessagesPerGroup,
+                "maxPendingMessagesPerGroup");
+        return this;
+    }
+
+    public int getMaxConcurrentSends() {
+        return maxConcurrentSends;
+    }
+
+    /**
+     * Sets how many batches may be in flight at once across all groups. A group never has more than one batch in
+     * flight, so values above {@link #getKeyGroups()} have no effect.
+     *
+     * @param maxConcurrentSends the number of concurrent batch sends
+     * @return the updated options
+     */
+    public PartitionedSenderOptions setMaxConcurrentSends(int maxConcurrentSends) {
+        this.maxConcurrentSends = ConsumerOptions.requirePositive(maxConcurrentSends, "maxConcurrentSends");
+        return this;
+    }
+
+    public boolean isSessionKeys() {
+        return sessionKeys;
+    }
+
+    /**
+     * Sets whether the key group is written to the session ID, for session-enabled entities, instead of the partition
+     * key.
+     *
+     * @param sessionKeys {@code true} to set {@code SessionId}, {@code false} to set {@code PartitionKey}
+     * @return the updated options
+     */
+    public PartitionedSenderOptions setSessionKeys(boolean sessionKeys) {
+        this.sessionKeys = sessionKeys;
+        return this;
+    }
+
+    public MetricsRegistry getMetricsRegistry() {
+        return metricsRegistry;
+    }
+
+    /**
+     * Records the sender's metrics in a shared registry, labelled with the sender's name.
+     *
+     * @param metricsRegistry the registry, or {@code null} to keep the metrics private to the sender
+     * @return the updated options
+     */
+    public PartitionedSenderOptions setMetricsRegistry(MetricsRegistry metricsRegistry) {
+        this.metricsRegistry = metricsRegistry;
+        return this;
+    }
+}
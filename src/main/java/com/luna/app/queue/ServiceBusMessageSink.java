@@ -0,0 +1,59 @@
+package com.luna.app.queue;
+
+import com.azure.messaging.servicebus.ServiceBusMessage;
+import com.azure.messaging.servicebus.ServiceBusMessageBatch;
+import com.azure.messaging.servicebus.ServiceBusSenderClient;
+import com.luna.app.client.SenderLease;
+
+/**
+ * {@link MessageSink} backed by a {@link ServiceBusSenderClient}; batches are {@link ServiceBusMessageBatch}es, so the
+ * size check uses the SDK's own AMQP encoding.
+ */
+public class ServiceBusMessageSink implements MessageSink {
+
+    private final ServiceBusSenderClient senderClient;
+    private final Runnable closer;
+
+    public ServiceBusMessageSink(ServiceBusSenderClient senderClient) {
+        this.senderClient = senderClient;
+        this.closer = senderClient::close;
+    }
+
+    /**
+     * Sends on a cached sender; closing the sink releases the lease instead of closing the shared client.
+     *
+     * @param lease the lease to send on
+     */
+    public ServiceBusMessageSink(SenderLease lease) {
+        this.senderClient = lease.getClient();
+        this.closer = lease::close;
+    }
+
+    @Override
+    public Batch createBatch() {
+        return new SdkBatch(senderClient.createMessageBatch());
+    }
+
+    @Override
+    public void send(Batch batch) {
+        senderClient.sendMessages(((SdkBatch) batch).messageBatch);
+    }
+
+    @Override
+    public void close() {
+        closer.run();
+    }
+
+    private record SdkBatch(ServiceBusMessageBatch messageBatch) implements Batch {
+
+        @Override
+        public boolean tryAddMessage(ServiceBusMessage message) {
+            return messageBatch.tryAddMessage(message);
+        }
+
+        @Override
+        public int getCount() {
+            return messageBatch.getCount();
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package com.luna.app.queue;
+
+import com.azure.messaging.servicebus.ServiceBusReceivedMessage;
+import com.azure.messaging.servicebus.ServiceBusReceiverClient;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * {@link MessageSource} backed by a synchronous {@link ServiceBusReceiverClient} in peek-lock mode.
+ */
+public class ServiceBusMessageSource implements MessageSource<ServiceBusReceivedMessage> {
+
+    private final ServiceBusReceiverClient receiverClient;
+
+    public ServiceBusMessageSource(ServiceBusReceiverClient receiverClient) {
+        this.receiverClient = receiverClient;
+    }
+
+    @Override
+    public List<ServiceBusReceivedMessage> receive(int maxMessages, Duration maxWaitTime) {
+        List<ServiceBusReceivedMessage> messages = new ArrayList<>(maxMessages);
+        receiverClient.receiveMessages(maxMessages, maxWaitTime).forEach(messages::add);
+        return messages;
+    }
+
+    @Override
+    public void complete(ServiceBusReceivedMessage message) {
+        receiverClient.complete(message);
+    }
+
+    @Override
+    public void abandon(ServiceBusReceivedMessage message) {
+        receiverClient.abandon(message);
+    }
+
+    @Override
+    public void deadLetter(ServiceBusReceivedMessage message) {
+        receiverClient.deadLetter(message);
+    }
+
+    @Override
+    public Instant getLockedUntil(ServiceBusReceivedMessage message) {
+        return message.getLockedUntil() != null ? message.getLockedUntil().toInstant() : null;
+    }
+
+    @Override
+    public Instant renewLock(ServiceBusReceivedMessage message) {
+        return receiverClient.renewMessageLock(message).toInstant();
+    }
+
+    @Override
+    public void close() {
+        receiverClient.close();
+    }
+}
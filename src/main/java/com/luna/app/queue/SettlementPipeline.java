@@ -0,0 +1,138 @@
+package com.luna.app.queue;
+
+import com.luna.app.metrics.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Moves settlement (complete, abandon, dead-letter) off the handler thread. Dispositions are queued and settled
+ * concurrently, with at most {@code maxOutstanding} round trips in flight; callers block in {@link #submit} once that
+ * limit is reached, which bounds the number of locks waiting to be settled.
+ * <p>
+ * The Service Bus SDK settles one lock token per call, so throughput comes from pipelining many calls over the same
+ * link rather than from combining them into one request.
+ *
+ * @param <M> the message type
+ */
+public class SettlementPipeline<M> implements AutoCloseable {
+
+    private static final Logger logger = LoggerFactory.getLogger(SettlementPipeline.class);
+
+    private final String name;
+    private final int maxOutstanding;
+    private final Semaphore outstanding;
+    private final ExecutorService executor;
+    private final Timer latency;
+    private final LongAdder settled = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+
+    private volatile boolean closed;
+
+    /**
+     * @param name           name used for thread names and logging, usually the entity path
+     * @param maxOutstanding the maximum number of settlements in flight
+     */
+    public SettlementPipeline(String name, int maxOutstanding) {
+        this(name, maxOutstanding, new Timer());
+    }
+
+    /**
+     * @param name           name used for thread names and logging, usually the entity path
+     * @param maxOutstanding the maximum number of settlements in flight
+     * @param latency        records the time from submission to acknowledgement of each settlement
+     */
+    public SettlementPipeline(String name, int maxOutstanding, Timer latency) {
+        this.name = name;
+        this.latency = latency;
+        this.maxOutstanding = ConsumerOptions.requirePositive(maxOutstanding, "maxOutstanding");
+        this.outstanding = new Semaphore(maxOutstanding);
+        this.executor = VirtualThreads.newThreadPerTaskExecutor(name + "-settle");
+    }
+
+    /**
+     * Queues a disposition, blocking while {@code maxOutstanding} settlements are in flight.
+     *
+     * @param source      the source that received the message
+     * @param message     the message to settle
+     * @param disposition the disposition to apply
+     * @return completes when the broker has acknowledged the settlement, or exceptionally if it failed
+     */
+    public CompletableFuture<Void> submit(MessageSource<M> source, M message, Disposition disposition) {
+        if (closed) {
+            return CompletableFuture.failedFuture(new IllegalStateException("Settlement pipeline " + name
+                    + " is closed"));
+        }
+        try {
+            outstanding.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return CompletableFuture.failedFuture(e);
+        }
+        long submittedNanos = System.nanoTime();
+        CompletableFuture<Void> result = new CompletableFuture<>();
+        try {
+            executor.execute(() -> {
+                try {
+                    source.settle(message, disposition);
+                    latency.recordSince(submittedNanos);
+                    settled.increment();
+                    result.complete(null);
+                } catch (RuntimeException e) {
+                    failed.increment();
+                    logger.warn("Failed to {} message on {}: {}", disposition, name, e.getMessage());
+                    result.completeExceptionally(e);
+                } finally {
+                    outstanding.release();
+                }
+            });
+        } catch (RuntimeException e) {
+            outstanding.release();
+            result.completeExceptionally(e);
+        }
+        return result;
+    }
+
+    /**
+     * @return time from {@link #submit} to broker acknowledgement, including time queued behind other settlements
+     */
+    public Timer getLatency() {
+        return latency;
+    }
+
+    public int getOutstandingCount() {
+        return maxOutstanding - outstanding.availablePermits();
+    }
+
+    public long getSettledCount() {
+        return settled.sum();
+    }
+
+    public long getFailedCount() {
+        return failed.sum();
+    }
+
+    /**
+     * Rejects new submissions and waits for the outstanding settlements to finish.
+     */
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            if (!outstanding.tryAcquire(maxOutstanding, 30, TimeUnit.SECONDS)) {
+                logger.warn("{} settlements still outstanding on {} after 30 seconds", getOutstandingCount(), name);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        executor.shutdown();
+    }
+}
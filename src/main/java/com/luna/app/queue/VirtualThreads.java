@@ -0,0 +1,53 @@
+package com.luna.app.queue;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Creates virtual-thread executors while the project still compiles for Java 17.
+ */
+public final class VirtualThreads {
+
+    private static final Logger logger = LoggerFactory.getLogger(VirtualThreads.class);
+
+    private static final boolean AVAILABLE = Runtime.version().feature() >= 21;
+
+    private VirtualThreads() {
+    }
+
+    /**
+     * @return whether the runtime has virtual threads; without them each task of a thread-per-task executor holds a
+     * platform thread, so concurrency limits have to be sized for platform threads
+     */
+    public static boolean isAvailable() {
+        return AVAILABLE;
+    }
+
+    /**
+     * Returns {@code Executors.newVirtualThreadPerTaskExecutor()} when running on Java 21 or later, otherwise a
+     * cached pool of daemon platform threads named after {@code name}.
+     *
+     * @param name prefix for fallback thread names
+     * @return an executor starting a new thread per task
+     */
+    public static ExecutorService newThreadPerTaskExecutor(String name) {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            logger.warn("Virtual threads are not available on Java {}, using platform threads for {}",
+                    Runtime.version().feature(), name);
+            AtomicInteger counter = new AtomicInteger();
+            ThreadFactory threadFactory = runnable -> {
+                Thread thread = new Thread(runnable, name + "-handler-" + counter.getAndIncrement());
+                thread.setDaemon(true);
+                return thread;
+            };
+            return Executors.newCachedThreadPool(threadFactory);
+        }
+    }
+}
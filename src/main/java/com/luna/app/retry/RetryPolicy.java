@@ -0,0 +1,136 @@
+package com.luna.app.retry;
+
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Predicate;
+
+/**
+ * Exponential backoff with jitter for {@link ScheduledRetryHandler}.
+ * <p>
+ * Retry {@code n} (starting at 1) is delayed by {@code initialDelay * multiplier^(n-1)}, capped at {@code maxDelay} and
+ * spread by up to {@code jitter} in either direction so that messages failing together do not come back together.
+ */
+public class RetryPolicy {
+
+    private int maxRetries = 5;
+    private Duration initialDelay = Duration.ofSeconds(1);
+    private Duration maxDelay = Duration.ofMinutes(5);
+    private double multiplier = 2.0;
+    private double jitter = 0.2;
+    private Predicate<Throwable> retryOn = error -> true;
+
+    public int getMaxRetries() {
+        return maxRetries;
+    }
+
+    /**
+     * Sets how many times a message is rescheduled before it is dead-lettered.
+     *
+     * @param maxRetries the number of retries, zero to dead-letter on the first failure
+     * @return the updated policy
+     */
+    public RetryPolicy setMaxRetries(int maxRetries) {
+        if (maxRetries < 0) {
+            throw new IllegalArgumentException("maxRetries must not be negative but was " + maxRetries);
+        }
+        this.maxRetries = maxRetries;
+        return this;
+    }
+
+    public Duration getInitialDelay() {
+        return initialDelay;
+    }
+
+    /**
+     * @param initialDelay the delay before the first retry
+     * @return the updated policy
+     */
+    public RetryPolicy setInitialDelay(Duration initialDelay) {
+        this.initialDelay = requirePositive(initialDelay, "initialDelay");
+        return this;
+    }
+
+    public Duration getMaxDelay() {
+        return maxDelay;
+    }
+
+    /**
+     * @param maxDelay the longest delay between retries, before jitter
+     * @return the updated policy
+     */
+    public RetryPolicy setMaxDelay(Duration maxDelay) {
+        this.maxDelay = requirePositive(maxDelay, "maxDelay");
+        return this;
+    }
+
+    public double getMultiplier() {
+        return multiplier;
+    }
+
+    /**
+     * @param multiplier the factor applied to the delay after each retry, at least 1
+     * @return the updated policy
+     */
+    public RetryPolicy setMultiplier(double multiplier) {
+        if (!(multiplier >= 1.0)) {
+            throw new IllegalArgumentException("multiplier must be at least 1 but was " + multiplier);
+        }
+        this.multiplier = multiplier;
+        return this;
+    }
+
+    public double getJitter() {
+        return jitter;
+    }
+
+    /**
+     * @param jitter the fraction of the delay by which it is randomly lengthened or shortened, between 0 and 1
+     * @return the updated policy
+     */
+    public RetryPolicy setJitter(double jitter) {
+        if (!(jitter >= 0.0 && jitter <= 1.0)) {
+            throw new IllegalArgumentException("jitter must be between 0 and 1 but was " + jitter);
+        }
+        this.jitter = jitter;
+        return this;
+    }
+
+    /**
+     * Sets which handler exceptions are transient. Other exceptions dead-letter the message straight away. By default
+     * every exception is retried.
+     *
+     * @param retryOn returns {@code true} for exceptions worth retrying
+     * @return the updated policy
+     */
+    public RetryPolicy setRetryOn(Predicate<Throwable> retryOn) {
+        if (retryOn == null) {
+            throw new IllegalArgumentException("retryOn must not be null");
+        }
+        this.retryOn = retryOn;
+        return this;
+    }
+
+    public boolean isRetryable(Throwable error) {
+        return retryOn.test(error);
+    }
+
+    /**
+     * @param retry the retry number, starting at 1
+     * @return how long to wait before that retry
+     */
+    public Duration delayFor(int retry) {
+        double delay = initialDelay.toMillis() * Math.pow(multiplier, Math.max(0, retry - 1));
+        delay = Math.min(delay, maxDelay.toMillis());
+        if (jitter > 0) {
+            delay *= 1.0 + jitter * (2 * ThreadLocalRandom.current().nextDouble() - 1);
+        }
+        return Duration.ofMillis(Math.round(delay));
+    }
+
+    private static Duration requirePositive(Duration value, String name) {
+        if (value == null || value.isNegative() || value.isZero()) {
+            throw new IllegalArgumentException(name + " must be positive");
+        }
+        return value;
+    }
+}
@@ -0,0 +1,70 @@
+package com.luna.app.retry;
+
+import com.azure.messaging.servicebus.ServiceBusReceivedMessage;
+import com.luna.app.client.ServiceBusClientFactory;
+import com.luna.app.queue.BatchingOptions;
+import com.luna.app.queue.BatchingSender;
+import com.luna.app.queue.ConsumerEngine;
+import com.luna.app.queue.ConsumerOptions;
+import com.luna.app.queue.Disposition;
+import com.luna.app.queue.ServiceBusMessageSink;
+import com.luna.app.queue.ServiceBusMessageSource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Receives from a queue and retries failing messages after 2, 4, 8 and 16 seconds before dead-lettering them, instead of
+ * abandoning them into an immediate redelivery as {@link com.luna.app.dlq.DLQMaxDeliveryCount} does.
+ */
+public class ScheduledRetryExample {
+
+    private static final Logger logger = LoggerFactory.getLogger(ScheduledRetryExample.class);
+
+    // Use environment variables for sensitive information
+    private static final String CONNECTION_STRING = System.getenv("AZURE_SERVICE_BUS_CONNECTION_STRING");
+    private static final String QUEUE_NAME = System.getenv("AZURE_SERVICE_BUS_QUEUE_NAME");
+
+    private static final RetryPolicy RETRY_POLICY = new RetryPolicy()
+            .setMaxRetries(4)
+            .setInitialDelay(Duration.ofSeconds(2));
+
+    public static void main(String[] args) throws InterruptedException {
+        new ScheduledRetryExample().receiveWithRetries(Duration.ofSeconds(60));
+    }
+
+    /**
+     * Receives for the given duration, rescheduling every message whose body contains "fail".
+     *
+     * @param duration how long to receive
+     */
+    public void receiveWithRetries(Duration duration) throws InterruptedException {
+        ServiceBusClientFactory factory = ServiceBusClientFactory.forConnectionString(CONNECTION_STRING);
+        try (BatchingSender retrySender = new BatchingSender(QUEUE_NAME,
+                new ServiceBusMessageSink(factory.sender().queueName(QUEUE_NAME).buildClient()),
+                new BatchingOptions())) {
+            ScheduledRetryHandler<ServiceBusReceivedMessage> handler = ScheduledRetryHandler.forServiceBus(
+                    retrySender, RETRY_POLICY, this::processMessage);
+            ConsumerOptions options = new ConsumerOptions().setMaxOutstandingSettlements(64);
+            try (ConsumerEngine<ServiceBusReceivedMessage> engine = new ConsumerEngine<>(QUEUE_NAME,
+                    () -> new ServiceBusMessageSource(factory.receiver().queueName(QUEUE_NAME).buildClient()),
+                    handler, options)) {
+                engine.start();
+                TimeUnit.MILLISECONDS.sleep(duration.toMillis());
+            }
+            logger.info("Scheduled {} retries, dead-lettered {} messages that ran out of retries",
+                    handler.getScheduledCount(), handler.getExhaustedCount());
+        }
+    }
+
+    private Disposition processMessage(ServiceBusReceivedMessage message) {
+        String body = message.getBody().toString();
+        if (body.contains("fail")) {
+            throw new IllegalStateException("Simulated transient failure for " + message.getMessageId());
+        }
+        logger.info("Processed message {}: {}", message.getMessageId(), body);
+        return Disposition.COMPLETE;
+    }
+}
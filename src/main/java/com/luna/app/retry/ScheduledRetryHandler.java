@@ -0,0 +1,173 @@
+package com.luna.app.retry;
+
+import com.azure.messaging.servicebus.ServiceBusMessage;
+import com.azure.messaging.servicebus.ServiceBusReceivedMessage;
+import com.luna.app.queue.BatchingSender;
+import com.luna.app.queue.Disposition;
+import com.luna.app.queue.MessageHandler;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * Retries failed messages later instead of abandoning them for immediate redelivery.
+ * <p>
+ * When the wrapped handler throws a retryable exception or returns {@link Disposition#ABANDON}, a copy of the message
+ * is sent back to the entity with a scheduled enqueue time from the {@link RetryPolicy} and an incremented
+ * {@value #RETRY_COUNT_PROPERTY} property, and the original is completed. The copy is sent first, so a crash in between
+ * leaves a duplicate rather than a lost message; its MessageId is derived from the original and the retry number, so
+ * duplicate detection drops a repeated send of the same retry. Once the policy gives up, or for a non-retryable
+ * exception, the message is dead-lettered.
+ * <p>
+ * Copies go through a shared {@link BatchingSender}, so failures arriving together cost one send per batch. Under a
+ * {@link com.luna.app.queue.ConsumerEngine} the handler thread does not wait for that send: {@link #handleAsync}
+ * returns once the copy is queued, and the original keeps its lock and renewal until the send completes and it is
+ * settled. The completions can be pipelined with
+ * {@link com.luna.app.queue.ConsumerOptions#setMaxOutstandingSettlements(int)}. If the copy cannot be sent the original
+ * is abandoned, falling back to the broker's redelivery.
+ *
+ * @param <M> the received message type
+ */
+public class ScheduledRetryHandler<M> implements MessageHandler<M> {
+
+    private static final Logger logger = LoggerFactory.getLogger(ScheduledRetryHandler.class);
+
+    /**
+     * Application property holding the number of times a message has been rescheduled.
+     */
+    public static final String RETRY_COUNT_PROPERTY = "RetryCount";
+
+    private static final String RETRY_ID_SEPARATOR = "/retry-";
+
+    private final BatchingSender retrySender;
+    private final Function<M, ServiceBusMessage> copier;
+    private final RetryPolicy policy;
+    private final MessageHandler<M> delegate;
+
+    private final LongAdder scheduled = new LongAdder();
+    private final LongAdder exhausted = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder sendFailed = new LongAdder();
+
+    /**
+     * @param retrySender sends the rescheduled copies, normally to the entity the messages were received from
+     * @param copier      creates a message with the same body and properties as a received message
+     * @param policy      the backoff and retry limit
+     * @param delegate    the handler doing the actual work
+     */
+    public ScheduledRetryHandler(BatchingSender retrySender, Function<M, ServiceBusMessage> copier, RetryPolicy policy,
+                                 MessageHandler<M> delegate) {
+        this.retrySender = retrySender;
+        this.copier = copier;
+        this.policy = policy;
+        this.delegate = delegate;
+    }
+
+    /**
+     * Creates a handler for messages received with the Service Bus SDK.
+     */
+    public static ScheduledRetryHandler<ServiceBusReceivedMessage> forServiceBus(
+            BatchingSender retrySender, RetryPolicy policy, MessageHandler<ServiceBusReceivedMessage> delegate) {
+        return new ScheduledRetryHandler<>(retrySender, ServiceBusMessage::new, policy, delegate);
+    }
+
+    /**
+     * Handles the message and waits for any retry to be sent; prefer {@link #handleAsync}, which the
+     * {@link com.luna.app.queue.ConsumerEngine} uses.
+     */
+    @Override
+    public Disposition handle(M message) throws Exception {
+        return handleAsync(message).toCompletableFuture().get();
+    }
+
+    @Override
+    public CompletionStage<Disposition> handleAsync(M message) {
+        try {
+            Disposition disposition = delegate.handle(message);
+            if (disposition != Disposition.ABANDON) {
+                return CompletableFuture.completedFuture(disposition);
+            }
+        } catch (Exception e) {
+            if (!policy.isRetryable(e)) {
+                rejected.increment();
+                logger.warn("Dead-lettering message after non-retryable failure: {}", e.getMessage());
+                return CompletableFuture.completedFuture(Disposition.DEAD_LETTER);
+            }
+            logger.debug("Handler failed, scheduling a retry: {}", e.getMessage());
+        }
+        return scheduleRetry(message);
+    }
+
+    private CompletableFuture<Disposition> scheduleRetry(M message) {
+        ServiceBusMessage copy = copier.apply(message);
+        int retries = retryCountOf(copy);
+        if (retries >= policy.getMaxRetries()) {
+            exhausted.increment();
+            return CompletableFuture.completedFuture(Disposition.DEAD_LETTER);
+        }
+        int retry = retries + 1;
+        Duration delay = policy.delayFor(retry);
+        copy.getApplicationProperties().put(RETRY_COUNT_PROPERTY, retry);
+        copy.setScheduledEnqueueTime(OffsetDateTime.now().plus(delay));
+        if (copy.getMessageId() != null) {
+            copy.setMessageId(originalIdOf(copy.getMessageId()) + RETRY_ID_SEPARATOR + retry);
+        }
+        return retrySender.send(copy).handle((ignored, error) -> {
+            if (error != null) {
+                Throwable cause = error instanceof CompletionException && error.getCause() != null
+                        ? error.getCause()
+                        : error;
+                sendFailed.increment();
+                logger.warn("Failed to schedule retry {}, abandoning instead: {}", retry, cause.getMessage());
+                return Disposition.ABANDON;
+            }
+            scheduled.increment();
+            return Disposition.COMPLETE;
+        });
+    }
+
+    private static int retryCountOf(ServiceBusMessage message) {
+        Object count = message.getApplicationProperties().get(RETRY_COUNT_PROPERTY);
+        return count instanceof Number number ? number.intValue() : 0;
+    }
+
+    private static String originalIdOf(String messageId) {
+        int separator = messageId.lastIndexOf(RETRY_ID_SEPARATOR);
+        return separator >= 0 ? messageId.substring(0, separator) : messageId;
+    }
+
+    /**
+     * @return the number of retries sent
+     */
+    public long getScheduledCount() {
+        return scheduled.sum();
+    }
+
+    /**
+     * @return the number of messages dead-lettered because they ran out of retries
+     */
+    public long getExhaustedCount() {
+        return exhausted.sum();
+    }
+
+    /**
+     * @return the number of messages dead-lettered because of a non-retryable exception
+     */
+    public long getRejectedCount() {
+        return rejected.sum();
+    }
+
+    /**
+     * @return the number of retries that could not be sent and were abandoned instead
+     */
+    public long getSendFailedCount() {
+        return sendFailed.sum();
+    }
+}
@@ -0,0 +1,186 @@
+package com.luna.app.session;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Compact binary encoding of a property map, suited to small per-session state such as counters, cursors and flags.
+ * <p>
+ * The layout is a varint entry count followed by, per entry, a length-prefixed UTF-8 key, a one-byte type tag and
+ * the value. Integral numbers are zig-zag varints, so a counter below 64 costs one byte instead of the dozen or so
+ * characters of a JSON rendering. Supported values are {@code null}, booleans, integral numbers (decoded as
+ * {@link Long}), floating point numbers (decoded as {@link Double}), strings and byte arrays.
+ */
+public class CompactStateCodec implements SessionStateCodec<Map<String, Object>> {
+
+    private static final int TAG_NULL = 0;
+    private static final int TAG_FALSE = 1;
+    private static final int TAG_TRUE = 2;
+    private static final int TAG_LONG = 3;
+    private static final int TAG_DOUBLE = 4;
+    private static final int TAG_STRING = 5;
+    private static final int TAG_BYTES = 6;
+
+    @Override
+    public byte[] encode(Map<String, Object> state) {
+        Writer writer = new Writer(16 + state.size() * 16);
+        writer.writeVarint(state.size());
+        for (Map.Entry<String, Object> entry : state.entrySet()) {
+            writer.writeBytes(entry.getKey().getBytes(StandardCharsets.UTF_8));
+            writeValue(writer, entry.getKey(), entry.getValue());
+        }
+        return writer.toByteArray();
+    }
+
+    private static void writeValue(Writer writer, String key, Object value) {
+        if (value == null) {
+            writer.writeByte(TAG_NULL);
+        } else if (value instanceof Boolean bool) {
+            writer.writeByte(bool ? TAG_TRUE : TAG_FALSE);
+        } else if (value instanceof Long || value instanceof Integer || value instanceof Short
+                || value instanceof Byte) {
+            long l = ((Number) value).longValue();
+            writer.writeByte(TAG_LONG);
+            writer.writeVarint((l << 1) ^ (l >> 63));
+        } else if (value instanceof Double || value instanceof Float) {
+            writer.writeByte(TAG_DOUBLE);
+            writer.writeLong(Double.doubleToRawLongBits(((Number) value).doubleValue()));
+        } else if (value instanceof String string) {
+            writer.writeByte(TAG_STRING);
+            writer.writeBytes(string.getBytes(StandardCharsets.UTF_8));
+        } else if (value instanceof byte[] bytes) {
+            writer.writeByte(TAG_BYTES);
+            writer.writeBytes(bytes);
+        } else {
+            throw new IllegalArgumentException("Unsupported session state value for '" + key + "': "
+                    + value.getClass().getName());
+        }
+    }
+
+    @Override
+    public Map<String, Object> decode(byte[] bytes) {
+        Map<String, Object> state = new LinkedHashMap<>();
+        if (bytes == null || bytes.length == 0) {
+            return state;
+        }
+        Reader reader = new Reader(bytes);
+        long count = reader.readVarint();
+        for (long i = 0; i < count; i++) {
+            String key = new String(reader.readBytes(), StandardCharsets.UTF_8);
+            int tag = reader.readByte();
+            Object value = switch (tag) {
+                case TAG_NULL -> null;
+                case TAG_FALSE -> Boolean.FALSE;
+                case TAG_TRUE -> Boolean.TRUE;
+                case TAG_LONG -> {
+                    long zigzag = reader.readVarint();
+                    yield (zigzag >>> 1) ^ -(zigzag & 1);
+                }
+                case TAG_DOUBLE -> Double.longBitsToDouble(reader.readLong());
+                case TAG_STRING -> new String(reader.readBytes(), StandardCharsets.UTF_8);
+                case TAG_BYTES -> reader.readBytes();
+                default -> throw new IllegalArgumentException("Unknown session state tag " + tag + " for '" + key
+                        + "'");
+            };
+            state.put(key, value);
+        }
+        return state;
+    }
+
+    private static final class Writer {
+
+        private byte[] buffer;
+        private int position;
+
+        Writer(int capacity) {
+            buffer = new byte[capacity];
+        }
+
+        void writeByte(int b) {
+            ensure(1);
+            buffer[position++] = (byte) b;
+        }
+
+        void writeVarint(long value) {
+            ensure(10);
+            while ((value & ~0x7FL) != 0) {
+                buffer[position++] = (byte) ((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            buffer[position++] = (byte) value;
+        }
+
+        void writeLong(long value) {
+            ensure(8);
+            for (int shift = 56; shift >= 0; shift -= 8) {
+                buffer[position++] = (byte) (value >>> shift);
+            }
+        }
+
+        void writeBytes(byte[] bytes) {
+            writeVarint(bytes.length);
+            ensure(bytes.length);
+            System.arraycopy(bytes, 0, buffer, position, bytes.length);
+            position += bytes.length;
+        }
+
+        private void ensure(int extra) {
+            if (position + extra > buffer.length) {
+                buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, position + extra));
+            }
+        }
+
+        byte[] toByteArray() {
+            return Arrays.copyOf(buffer, position);
+        }
+    }
+
+    private static final class Reader {
+
+        private final byte[] buffer;
+        private int position;
+
+        Reader(byte[] buffer) {
+            this.buffer = buffer;
+        }
+
+        int readByte() {
+            if (position >= buffer.length) {
+                throw new IllegalArgumentException("Truncated session state");
+            }
+            return buffer[position++] & 0xFF;
+        }
+
+        long readVarint() {
+            long value = 0;
+            for (int shift = 0; shift < 64; shift += 7) {
+                int b = readByte();
+                value |= (long) (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) {
+                    return value;
+                }
+            }
+            throw new IllegalArgumentException("Malformed varint in session state");
+        }
+
+        long readLong() {
+            long value = 0;
+            for (int i = 0; i < 8; i++) {
+                value = (value << 8) | readByte();
+            }
+            return value;
+        }
+
+        byte[] readBytes() {
+            long length = readVarint();
+            if (length > buffer.length - position) {
+                throw new IllegalArgumentException("Truncated session state");
+            }
+            byte[] bytes = Arrays.copyOfRange(buffer, position, position + (int) length);
+            position += (int) length;
+            return bytes;
+        }
+    }
+}
@@ -0,0 +1,295 @@
+package com.luna.app.session;
+
+import com.luna.app.queue.InMemoryMessage;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * In-process stand-in for a session-enabled Service Bus queue, used to test and benchmark the
+ * {@link SessionProcessor} without a namespace.
+ * <p>
+ * A session can be held by one link at a time and its messages are delivered in sequence-number order; abandoned
+ * messages go back to the head of their session and are dead-lettered after {@code maxDeliveryCount} deliveries.
+ * Accept, receive and session-state calls park for a configurable round-trip time; session-state calls are counted
+ * so callers can measure how many round trips a caching layer saves.
+ */
+public class InMemorySessionQueue implements SessionSource<InMemoryMessage> {
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition changed = lock.newCondition();
+    private final Map<String, PriorityQueue<InMemoryMessage>> sessions = new HashMap<>();
+    private final Set<String> available = new LinkedHashSet<>();
+    private final Set<String> locked = new LinkedHashSet<>();
+    private final Map<String, byte[]> sessionStates = new ConcurrentHashMap<>();
+    private final Queue<InMemoryMessage> deadLetters = new ConcurrentLinkedQueue<>();
+    private final LongAdder completed = new LongAdder();
+    private final LongAdder stateReads = new LongAdder();
+    private final LongAdder stateWrites = new LongAdder();
+    private final long roundTripNanos;
+    private final long acceptTimeoutNanos;
+    private final int maxDeliveryCount;
+    private long sequence;
+
+    public InMemorySessionQueue() {
+        this(Duration.ZERO, Duration.ofMillis(100), 10);
+    }
+
+    /**
+     * @param roundTrip        simulated round trip of one accept or receive call
+     * @param acceptTimeout    how long {@link #acceptNextSession()} waits for an unlocked session with messages
+     * @param maxDeliveryCount deliveries after which an abandoned message is dead-lettered
+     */
+    public InMemorySessionQueue(Duration roundTrip, Duration acceptTimeout, int maxDeliveryCount) {
+        this.roundTripNanos = roundTrip.toNanos();
+        this.acceptTimeoutNanos = acceptTimeout.toNanos();
+        this.maxDeliveryCount = maxDeliveryCount;
+    }
+
+    public InMemoryMessage send(String sessionId, String body) {
+        lock.lock();
+        try {
+            long sequenceNumber = ++sequence;
+            InMemoryMessage message = new InMemoryMessage(sequenceNumber, String.valueOf(sequenceNumber), sessionId,
+                    body.getBytes(StandardCharsets.UTF_8));
+            enqueue(message);
+            return message;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Enqueues a message built by the caller, e.g. an in-memory broker that assigns its own sequence numbers.
+     *
+     * @param message a message with a session ID
+     */
+    public void send(InMemoryMessage message) {
+        lock.lock();
+        try {
+            enqueue(message);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int getActiveMessageCount() {
+        lock.lock();
+        try {
+            return sessions.values().stream().mapToInt(Queue::size).sum();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long getCompletedCount() {
+        return completed.sum();
+    }
+
+    /**
+     * @param sessionId the session
+     * @return the state last stored for the session, without counting a round trip
+     */
+    public byte[] peekSessionState(String sessionId) {
+        return sessionStates.get(sessionId);
+    }
+
+    public long getStateReadCount() {
+        return stateReads.sum();
+    }
+
+    public long getStateWriteCount() {
+        return stateWrites.sum();
+    }
+
+    public List<InMemoryMessage> getDeadLetters() {
+        return new ArrayList<>(deadLetters);
+    }
+
+    @Override
+    public SessionLink<InMemoryMessage> acceptNextSession() {
+        simulateRoundTrip();
+        lock.lock();
+        try {
+            long remaining = acceptTimeoutNanos;
+            while (available.isEmpty()) {
+                if (remaining <= 0) {
+                    return null;
+                }
+                remaining = changed.awaitNanos(remaining);
+            }
+            String sessionId = available.iterator().next();
+            available.remove(sessionId);
+            locked.add(sessionId);
+            return new Link(sessionId);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Called with the lock held
+    private void enqueue(InMemoryMessage message) {
+        String sessionId = message.getSessionId();
+        sessions.computeIfAbsent(sessionId, id -> new PriorityQueue<>(
+                Comparator.comparingLong(InMemoryMessage::getSequenceNumber))).add(message);
+        if (!locked.contains(sessionId)) {
+            available.add(sessionId);
+        }
+        changed.signalAll();
+    }
+
+    private void simulateRoundTrip() {
+        if (roundTripNanos > 0) {
+            LockSupport.parkNanos(roundTripNanos);
+        }
+    }
+
+    private final class Link implements SessionLink<InMemoryMessage> {
+
+        private final String sessionId;
+        private boolean closed;
+
+        Link(String sessionId) {
+            this.sessionId = sessionId;
+        }
+
+        @Override
+        public String getSessionId() {
+            return sessionId;
+        }
+
+        @Override
+        public List<InMemoryMessage> receive(int maxMessages, Duration maxWaitTime) {
+            simulateRoundTrip();
+            lock.lock();
+            try {
+                long remaining = maxWaitTime.toNanos();
+                PriorityQueue<InMemoryMessage> pending = sessions.get(sessionId);
+                while (!closed && (pending == null || pending.isEmpty())) {
+                    if (remaining <= 0) {
+                        return List.of();
+                    }
+                    remaining = changed.awaitNanos(remaining);
+                    pending = sessions.get(sessionId);
+                }
+                if (closed) {
+                    throw new IllegalStateException("Session " + sessionId + " has been released");
+                }
+                List<InMemoryMessage> messages = new ArrayList<>(Math.min(maxMessages, pending.size()));
+                while (messages.size() < maxMessages && !pending.isEmpty()) {
+                    InMemoryMessage message = pending.poll();
+                    message.incrementDeliveryCount();
+                    messages.add(message);
+                }
+                return messages;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return List.of();
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        @Override
+        public Instant renewLock(InMemoryMessage message) {
+            // Messages are covered by the session lock, which is held until the link is closed
+            checkOpen();
+            return null;
+        }
+
+        @Override
+        public byte[] getSessionState() {
+            checkOpen();
+            simulateRoundTrip();
+            stateReads.increment();
+            return sessionStates.get(sessionId);
+        }
+
+        @Override
+        public void setSessionState(byte[] state) {
+            checkOpen();
+            simulateRoundTrip();
+            stateWrites.increment();
+            if (state == null) {
+                sessionStates.remove(sessionId);
+            } else {
+                sessionStates.put(sessionId, state.clone());
+            }
+        }
+
+        private void checkOpen() {
+            lock.lock();
+            try {
+                if (closed) {
+                    throw new IllegalStateException("Session " + sessionId + " has been released");
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        @Override
+        public void complete(InMemoryMessage message) {
+            completed.increment();
+        }
+
+        @Override
+        public void abandon(InMemoryMessage message) {
+            if (message.getDeliveryCount() >= maxDeliveryCount) {
+                deadLetters.add(message);
+                return;
+            }
+            lock.lock();
+            try {
+                enqueue(message);
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        @Override
+        public void deadLetter(InMemoryMessage message) {
+            deadLetters.add(message);
+        }
+
+        @Override
+        public void close() {
+            lock.lock();
+            try {
+                if (closed) {
+                    return;
+                }
+                closed = true;
+                locked.remove(sessionId);
+                PriorityQueue<InMemoryMessage> pending = sessions.get(sessionId);
+                if (pending != null && !pending.isEmpty()) {
+                    available.add(sessionId);
+                } else {
+                    sessions.remove(sessionId);
+                }
+                changed.signalAll();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+}
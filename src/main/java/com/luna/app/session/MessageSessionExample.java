@@ -1,18 +1,18 @@
 package com.luna.app.session;
 
 import com.azure.core.util.BinaryData;
-import com.azure.messaging.servicebus.ServiceBusClientBuilder;
 import com.azure.messaging.servicebus.ServiceBusMessage;
-import com.azure.messaging.servicebus.ServiceBusSenderAsyncClient;
+import com.luna.app.client.ServiceBusClientFactory;
+import com.luna.app.queue.PartitionedSender;
+import com.luna.app.queue.PartitionedSenderOptions;
+import com.luna.app.queue.ServiceBusMessageSink;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.nio.charset.StandardCharsets;
-import java.util.Arrays;
+import java.util.ArrayList;
 import java.util.List;
-import java.util.concurrent.CountDownLatch;
-import java.util.concurrent.TimeUnit;
-import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.CompletableFuture;
 
 public class MessageSessionExample {
 
@@ -22,52 +22,28 @@ public class MessageSessionExample {
     private static final String CONNECTION_STRING = System.getenv("AZURE_SERVICE_BUS_CONNECTION_STRING");
     private static final String QUEUE_NAME = "queue001";
 
-    public static void main(String[] args) throws InterruptedException {
+    public static void main(String[] args) {
         String sessionId1 = "hello-session1";
         String sessionId2 = "hello-session2";
 
-        sendMessagesToSession(sessionId1);
-        sendMessagesToSession(sessionId2);
-    }
-
-    /**
-     * Sends messages to the Service Bus queue with a specific session ID.
-     *
-     * @param sessionId the session ID to set for the messages
-     */
-    private static void sendMessagesToSession(String sessionId) throws InterruptedException {
-        AtomicBoolean isSuccessful = new AtomicBoolean(false);
-        CountDownLatch countdownLatch = new CountDownLatch(1);
-
-        // Create an asynchronous sender client
-        try (ServiceBusSenderAsyncClient senderClient = new ServiceBusClientBuilder()
-                .connectionString(CONNECTION_STRING)
-                .sender()
-                .queueName(QUEUE_NAME)
-                .buildAsyncClient()) {
-
-            // Create messages with the session ID
-            List<ServiceBusMessage> messages = Arrays.asList(
-                    createMessageWithSession(sessionId, "Hello1"),
-                    createMessageWithSession(sessionId, "Hello2")
-            );
-
-            // Send messages asynchronously
-            senderClient.sendMessages(messages).subscribe(
-                    unused -> logger.info("Batch of messages sent for session: {}", sessionId),
-                    error -> logger.error("Error occurred while sending messages for session {}: {}", sessionId, error.getMessage()),
-                    () -> {
-                        logger.info("Message batch for session {} completed successfully.", sessionId);
-                        isSuccessful.set(true);
-                    });
-
-            // Wait for the sending process to complete
-            countdownLatch.await(10, TimeUnit.SECONDS);
+        // Each session is an ordered stream of its own, so the two are sent concurrently rather than one after another
+        try (PartitionedSender sender = new PartitionedSender(QUEUE_NAME, new ServiceBusMessageSink(
+                ServiceBusClientFactory.forConnectionString(CONNECTION_STRING)
+                        .sender()
+                        .queueName(QUEUE_NAME)
+                        .buildClient()), new PartitionedSenderOptions().setSessionKeys(true))) {
+
+            List<CompletableFuture<Void>> sends = new ArrayList<>();
+            for (String sessionId : List.of(sessionId1, sessionId2)) {
+                sends.add(sender.send(sessionId, createMessageWithSession(sessionId, "Hello1")));
+                sends.add(sender.send(sessionId, createMessageWithSession(sessionId, "Hello2")));
+            }
+            CompletableFuture.allOf(sends.toArray(new CompletableFuture<?>[0])).join();
+            logger.info("Messages sent for sessions {} and {} in {} batches", sessionId1, sessionId2,
+                    sender.getBatchesSent());
         } catch (Exception e) {
-            logger.error("Error occurred while closing sender client: {}", e.getMessage(), e);
+            logger.error("Error occurred while sending session messages: {}", e.getMessage(), e);
         }
-
-        logger.info("Message session method completed for session: {}", sessionId);
     }
 
     /**
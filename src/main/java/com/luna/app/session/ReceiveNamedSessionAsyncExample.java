@@ -1,9 +1,13 @@
 package com.luna.app.session;
 
-import com.azure.messaging.servicebus.ServiceBusClientBuilder;
 import com.azure.messaging.servicebus.ServiceBusReceiverAsyncClient;
 import com.azure.messaging.servicebus.ServiceBusSessionReceiverAsyncClient;
 import com.azure.messaging.servicebus.models.ServiceBusReceiveMode;
+import com.luna.app.client.ServiceBusClientFactory;
+import com.luna.app.logging.MessageEvent;
+import com.luna.app.logging.MessageLog;
+import com.luna.app.logging.MessageLogOptions;
+import com.luna.app.logging.MessageLogger;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import reactor.core.Disposable;
@@ -24,6 +28,9 @@ public class ReceiveNamedSessionAsyncExample {
     private static final String QUEUE_NAME = "queue001";
     private static final String SESSION_ID = "hello-session2";
 
+    private static final MessageLog MESSAGE_LOG = new MessageLog(new MessageLogOptions(), MessageLog.toLogger(logger));
+    private static final MessageLogger MESSAGES = MESSAGE_LOG.forEntity(QUEUE_NAME);
+
     public static void main(String[] args) throws InterruptedException {
         receiveMessagesFromNamedSession();
     }
@@ -36,8 +43,8 @@ public class ReceiveNamedSessionAsyncExample {
         CountDownLatch countdownLatch = new CountDownLatch(1);
 
         // Create the session receiver client
-        try (ServiceBusSessionReceiverAsyncClient sessionReceiver = new ServiceBusClientBuilder()
-                .connectionString(CONNECTION_STRING)
+        try (ServiceBusSessionReceiverAsyncClient sessionReceiver = ServiceBusClientFactory
+                .forConnectionString(CONNECTION_STRING)
                 .sessionReceiver()
                 .receiveMode(ServiceBusReceiveMode.PEEK_LOCK)
                 .queueName(QUEUE_NAME)
@@ -54,10 +61,7 @@ public class ReceiveNamedSessionAsyncExample {
                         return receiver.receiveMessages();
                     },
                     receiver -> Mono.fromRunnable(receiver::close)
-            ).subscribe(message -> {
-                        logger.info("Session: {}. Sequence #: {}. Contents: {}", message.getSessionId(),
-                                message.getSequenceNumber(), message.getBody());
-                    },
+            ).subscribe(message -> MESSAGES.log(MessageEvent.RECEIVED, message),
                     error -> {
                         logger.error("Error occurred while receiving messages: {}", error.getMessage());
                         operationSuccessful.set(false);
@@ -0,0 +1,56 @@
+package com.luna.app.session;
+
+import com.azure.messaging.servicebus.ServiceBusReceivedMessage;
+import com.azure.messaging.servicebus.ServiceBusSessionReceiverClient;
+import com.azure.messaging.servicebus.models.ServiceBusReceiveMode;
+import com.luna.app.client.ServiceBusClientFactory;
+import com.luna.app.logging.MessageEvent;
+import com.luna.app.logging.MessageLog;
+import com.luna.app.logging.MessageLogOptions;
+import com.luna.app.logging.MessageLogger;
+import com.luna.app.queue.Disposition;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+
+/**
+ * Demonstrates how to receive from many sessions at once, keeping the messages of each session in order.
+ */
+public class ReceiveSessionsInParallelExample {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReceiveSessionsInParallelExample.class);
+
+    // Use environment variables for sensitive information
+    private static final String CONNECTION_STRING = System.getenv("AZURE_SERVICE_BUS_CONNECTION_STRING");
+    private static final String QUEUE_NAME = "queue001";
+    private static final int MAX_CONCURRENT_SESSIONS = 64;
+    // 64 sessions log from 64 threads; the ring buffer takes the events without contending on the log output
+    private static final MessageLog MESSAGE_LOG = new MessageLog(new MessageLogOptions(), MessageLog.toLogger(logger));
+    private static final MessageLogger MESSAGES = MESSAGE_LOG.forEntity(QUEUE_NAME);
+
+    public static void main(String[] args) throws InterruptedException {
+        ServiceBusSessionReceiverClient sessionReceiver = ServiceBusClientFactory
+                .forConnectionString(CONNECTION_STRING)
+                .sessionReceiver()
+                .receiveMode(ServiceBusReceiveMode.PEEK_LOCK)
+                .queueName(QUEUE_NAME)
+                .buildClient();
+
+        SessionProcessorOptions options = new SessionProcessorOptions()
+                .setMaxConcurrentSessions(MAX_CONCURRENT_SESSIONS)
+                .setSessionIdleTimeout(Duration.ofSeconds(2));
+
+        SessionProcessor<ServiceBusReceivedMessage> processor = new SessionProcessor<>(QUEUE_NAME,
+                new ServiceBusSessionSource(sessionReceiver), ReceiveSessionsInParallelExample::processMessage,
+                options);
+        Runtime.getRuntime().addShutdownHook(new Thread(processor::close));
+        processor.start();
+        processor.awaitTermination();
+    }
+
+    private static Disposition processMessage(ServiceBusReceivedMessage message) {
+        MESSAGES.log(MessageEvent.RECEIVED, message);
+        return Disposition.COMPLETE;
+    }
+}
@@ -1,9 +1,13 @@
 package com.luna.app.session;
 
-import com.azure.messaging.servicebus.ServiceBusClientBuilder;
 import com.azure.messaging.servicebus.ServiceBusReceiverAsyncClient;
 import com.azure.messaging.servicebus.ServiceBusSessionReceiverAsyncClient;
 import com.azure.messaging.servicebus.models.ServiceBusReceiveMode;
+import com.luna.app.client.ServiceBusClientFactory;
+import com.luna.app.logging.MessageEvent;
+import com.luna.app.logging.MessageLog;
+import com.luna.app.logging.MessageLogOptions;
+import com.luna.app.logging.MessageLogger;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import reactor.core.Disposable;
@@ -25,6 +29,9 @@ public class ReceiveSingleSessionAsyncExample {
     private static final String CONNECTION_STRING = System.getenv("AZURE_SERVICE_BUS_CONNECTION_STRING");
     private static final String QUEUE_NAME = "queue001";
 
+    private static final MessageLog MESSAGE_LOG = new MessageLog(new MessageLogOptions(), MessageLog.toLogger(logger));
+    private static final MessageLogger MESSAGES = MESSAGE_LOG.forEntity(QUEUE_NAME);
+
     public static void main(String[] args) throws InterruptedException {
         receiveSingleSession();
     }
@@ -37,8 +44,8 @@ public class ReceiveSingleSessionAsyncExample {
         CountDownLatch countdownLatch = new CountDownLatch(1);
 
         // Create a session receiver client
-        try (ServiceBusSessionReceiverAsyncClient sessionReceiver = new ServiceBusClientBuilder()
-                .connectionString(CONNECTION_STRING)
+        try (ServiceBusSessionReceiverAsyncClient sessionReceiver = ServiceBusClientFactory
+                .forConnectionString(CONNECTION_STRING)
                 .sessionReceiver()
                 .receiveMode(ServiceBusReceiveMode.PEEK_LOCK)
                 .queueName(QUEUE_NAME)
@@ -52,10 +59,7 @@ public class ReceiveSingleSessionAsyncExample {
                     receiverMono,
                     receiver -> receiver.receiveMessages(),
                     receiver -> Mono.fromRunnable(receiver::close)
-            ).subscribe(message -> {
-                        logger.info("Session: {}. Sequence #: {}. Contents: {}",
-                                message.getSessionId(), message.getSequenceNumber(), message.getBody());
-                    },
+            ).subscribe(message -> MESSAGES.log(MessageEvent.RECEIVED, message),
                     error -> {
                         logger.error("Error occurred while receiving messages: {}", error.getMessage());
                         operationSuccessful.set(false);
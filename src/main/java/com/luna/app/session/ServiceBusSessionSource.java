@@ -0,0 +1,74 @@
+package com.luna.app.session;
+
+import com.azure.messaging.servicebus.ServiceBusException;
+import com.azure.messaging.servicebus.ServiceBusFailureReason;
+import com.azure.messaging.servicebus.ServiceBusReceivedMessage;
+import com.azure.messaging.servicebus.ServiceBusReceiverClient;
+import com.azure.messaging.servicebus.ServiceBusSessionReceiverClient;
+import com.luna.app.queue.ServiceBusMessageSource;
+
+import java.util.concurrent.TimeoutException;
+
+/**
+ * {@link SessionSource} backed by a synchronous {@link ServiceBusSessionReceiverClient}. The accept timeout is the
+ * client's try timeout, configured through {@code retryOptions} on the builder.
+ */
+public class ServiceBusSessionSource implements SessionSource<ServiceBusReceivedMessage> {
+
+    private final ServiceBusSessionReceiverClient sessionReceiver;
+
+    public ServiceBusSessionSource(ServiceBusSessionReceiverClient sessionReceiver) {
+        this.sessionReceiver = sessionReceiver;
+    }
+
+    @Override
+    public SessionLink<ServiceBusReceivedMessage> acceptNextSession() {
+        try {
+            ServiceBusReceiverClient receiver = sessionReceiver.acceptNextSession();
+            return new Link(receiver);
+        } catch (ServiceBusException e) {
+            if (e.getReason() == ServiceBusFailureReason.SERVICE_TIMEOUT) {
+                return null;
+            }
+            throw e;
+        } catch (IllegalStateException e) {
+            // the blocking wrapper reports an expired accept as a timeout on the underlying Mono
+            if (e.getCause() instanceof TimeoutException) {
+                return null;
+            }
+            throw e;
+        }
+    }
+
+    @Override
+    public void close() {
+        sessionReceiver.close();
+    }
+
+    private static final class Link extends ServiceBusMessageSource implements SessionLink<ServiceBusReceivedMessage> {
+
+        private final ServiceBusReceiverClient receiver;
+        private final String sessionId;
+
+        Link(ServiceBusReceiverClient receiver) {
+            super(receiver);
+            this.receiver = receiver;
+            this.sessionId = receiver.getSessionId();
+        }
+
+        @Override
+        public String getSessionId() {
+            return sessionId;
+        }
+
+        @Override
+        public byte[] getSessionState() {
+            return receiver.getSessionState();
+        }
+
+        @Override
+        public void setSessionState(byte[] state) {
+            receiver.setSessionState(state);
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package com.luna.app.session;
+
+import com.luna.app.queue.MessageSource;
+
+/**
+ * A receive link locked to one session. Messages of the session are returned in order; closing the link releases the
+ * session lock so another receiver can accept it.
+ *
+ * @param <M> the received message type
+ */
+public interface SessionLink<M> extends MessageSource<M> {
+
+    String getSessionId();
+
+    /**
+     * Reads the session state from the broker.
+     *
+     * @return the stored state, or {@code null} if none has been set
+     */
+    byte[] getSessionState();
+
+    /**
+     * Replaces the session state on the broker.
+     *
+     * @param state the new state, or {@code null} to clear it
+     */
+    void setSessionState(byte[] state);
+}
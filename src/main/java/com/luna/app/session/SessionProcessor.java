@@ -0,0 +1,334 @@
+package com.luna.app.session;
+
+import com.luna.app.metrics.EntityMetrics;
+import com.luna.app.metrics.MetricsRegistry;
+import com.luna.app.queue.Disposition;
+import com.luna.app.queue.MessageHandler;
+import com.luna.app.queue.VirtualThreads;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Processes many sessions in parallel while keeping each session strictly ordered.
+ * <p>
+ * The processor runs {@link SessionProcessorOptions#getMaxConcurrentSessions()} slots. A slot accepts the next
+ * available session, then receives and handles its messages one at a time on a single thread, so messages of one
+ * session are never handled concurrently or out of order. When a session has had no messages for
+ * {@link SessionProcessorOptions#getSessionIdleTimeout()} the slot releases it and accepts another, which lets a small
+ * number of slots serve thousands of mostly idle session IDs.
+ * <p>
+ * If the handler fails, the failed message and the rest of its receive batch are abandoned, so the session lock
+ * redelivers them in their original order.
+ * <p>
+ * Handlers that keep per-session state use the {@link SessionStateHandler} constructor; the state of each held
+ * session is cached in a {@link SessionStateCache} and flushed before the session is released.
+ *
+ * @param <M> the message type
+ */
+public class SessionProcessor<M> implements AutoCloseable {
+
+    private static final Logger logger = LoggerFactory.getLogger(SessionProcessor.class);
+
+    private static final long MAX_ACCEPT_BACKOFF_MS = 30_000L;
+
+    private final String name;
+    private final SessionSource<M> source;
+    private final SessionHandler<M> handler;
+    private final SessionProcessorOptions options;
+
+    private ExecutorService slots;
+    private final CountDownLatch terminated = new CountDownLatch(1);
+
+    private final LongAdder received = new LongAdder();
+    private final LongAdder completed = new LongAdder();
+    private final LongAdder abandoned = new LongAdder();
+    private final LongAdder deadLettered = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final LongAdder sessionsAccepted = new LongAdder();
+    private final AtomicInteger activeSessions = new AtomicInteger();
+    private final EntityMetrics metrics;
+
+    private volatile boolean running;
+
+    /**
+     * Creates a processor; call {@link #start()} to begin accepting sessions.
+     *
+     * @param name    name used for logging, usually the entity path
+     * @param source  hands out session locks
+     * @param handler the message handler
+     * @param options concurrency and idle settings
+     */
+    public SessionProcessor(String name, SessionSource<M> source, MessageHandler<M> handler,
+                            SessionProcessorOptions options) {
+        this(name, source, (link, message) -> handler.handle(message), options);
+    }
+
+    /**
+     * Creates a processor whose handler reads and updates cached session state.
+     *
+     * @param name       name used for logging, usually the entity path
+     * @param source     hands out session locks
+     * @param handler    the message handler
+     * @param stateCache caches the state of held sessions; closed by the caller after the processor
+     * @param options    concurrency and idle settings
+     * @param <S>        the session state type
+     */
+    public <S> SessionProcessor(String name, SessionSource<M> source, SessionStateHandler<M, S> handler,
+                                SessionStateCache<S> stateCache, SessionProcessorOptions options) {
+        this(name, source, new SessionHandler<>() {
+            @Override
+            public Disposition handle(SessionLink<M> link, M message) throws Exception {
+                return handler.handle(message, stateCache.attach(link));
+            }
+
+            @Override
+            public void released(SessionLink<M> link) {
+                stateCache.release(link);
+            }
+        }, options);
+    }
+
+    private SessionProcessor(String name, SessionSource<M> source, SessionHandler<M> handler,
+                             SessionProcessorOptions options) {
+        this.name = name;
+        this.source = source;
+        this.handler = handler;
+        this.options = options;
+        MetricsRegistry registry = options.getMetricsRegistry() != null
+                ? options.getMetricsRegistry()
+                : new MetricsRegistry();
+        this.metrics = registry.entity(name);
+        metrics.registerInFlight(activeSessions::get);
+    }
+
+    /**
+     * Starts the session slots.
+     */
+    public synchronized void start() {
+        if (running) {
+            return;
+        }
+        running = true;
+        slots = VirtualThreads.newThreadPerTaskExecutor(name + "-session");
+        for (int i = 0; i < options.getMaxConcurrentSessions(); i++) {
+            slots.execute(this::slotLoop);
+        }
+        logger.info("Session processor {} started with {} session slots", name, options.getMaxConcurrentSessions());
+    }
+
+    private void slotLoop() {
+        long backoffMs = 0;
+        while (running) {
+            SessionLink<M> link;
+            try {
+                link = source.acceptNextSession();
+                backoffMs = 0;
+            } catch (RuntimeException e) {
+                if (!running) {
+                    break;
+                }
+                backoffMs = backoffMs == 0 ? 100 : Math.min(backoffMs * 2, MAX_ACCEPT_BACKOFF_MS);
+                logger.warn("Accepting a session failed on {}, retrying in {} ms: {}", name, backoffMs,
+                        e.getMessage());
+                sleepQuietly(backoffMs);
+                continue;
+            }
+            if (link != null) {
+                sessionsAccepted.increment();
+                activeSessions.incrementAndGet();
+                try {
+                    processSession(link);
+                } finally {
+                    activeSessions.decrementAndGet();
+                    handler.released(link);
+                    closeQuietly(link);
+                }
+            }
+        }
+    }
+
+    private void processSession(SessionLink<M> link) {
+        long idleTimeoutNanos = options.getSessionIdleTimeout().toNanos();
+        long lastMessageNanos = System.nanoTime();
+        while (running) {
+            List<M> messages;
+            try {
+                messages = link.receive(options.getMaxBatchSize(), options.getMaxWaitTime());
+            } catch (RuntimeException e) {
+                logger.warn("Receive failed on session {} of {}, releasing it: {}", link.getSessionId(), name,
+                        e.getMessage());
+                return;
+            }
+            if (messages.isEmpty()) {
+                if (System.nanoTime() - lastMessageNanos >= idleTimeoutNanos) {
+                    logger.debug("Releasing idle session {} of {}", link.getSessionId(), name);
+                    return;
+                }
+                continue;
+            }
+            received.add(messages.size());
+            lastMessageNanos = System.nanoTime();
+            for (int i = 0; i < messages.size(); i++) {
+                if (!handle(link, messages.get(i), lastMessageNanos)) {
+                    abandonRemaining(link, messages, i + 1);
+                    break;
+                }
+            }
+        }
+    }
+
+    /**
+     * @return whether the handler succeeded, i.e. whether the next message of the session may be handled
+     */
+    private boolean handle(SessionLink<M> link, M message, long receivedNanos) {
+        Disposition disposition;
+        long startNanos = System.nanoTime();
+        metrics.getReceiveToHandler().record(startNanos - receivedNanos);
+        try {
+            disposition = handler.handle(link, message);
+            metrics.getHandlerDuration().recordSince(startNanos);
+        } catch (Exception e) {
+            metrics.getHandlerDuration().recordSince(startNanos);
+            failed.increment();
+            logger.warn("Handler failed on session {} of {}, abandoning the rest of the batch: {}",
+                    link.getSessionId(), name, e.getMessage());
+            settle(link, message, Disposition.ABANDON);
+            return false;
+        }
+        settle(link, message, disposition);
+        return true;
+    }
+
+    private void abandonRemaining(SessionLink<M> link, List<M> messages, int from) {
+        for (int i = from; i < messages.size(); i++) {
+            settle(link, messages.get(i), Disposition.ABANDON);
+        }
+    }
+
+    private void settle(SessionLink<M> link, M message, Disposition disposition) {
+        long startNanos = System.nanoTime();
+        try {
+            link.settle(message, disposition);
+            metrics.getSettlementLatency().recordSince(startNanos);
+            switch (disposition) {
+                case COMPLETE -> {
+                    completed.increment();
+                    metrics.getCompleted().increment();
+                }
+                case ABANDON -> {
+                    abandoned.increment();
+                    metrics.getAbandoned().increment();
+                }
+                case DEAD_LETTER -> {
+                    deadLettered.increment();
+                    metrics.getDeadLettered().increment();
+                }
+                default -> {
+                }
+            }
+        } catch (RuntimeException e) {
+            logger.warn("Failed to {} message on session {} of {}: {}", disposition, link.getSessionId(), name,
+                    e.getMessage());
+        }
+    }
+
+    /**
+     * Blocks until the processor has been closed.
+     *
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public void awaitTermination() throws InterruptedException {
+        terminated.await();
+    }
+
+    /**
+     * Stops accepting sessions, lets each slot finish its current batch, releases the sessions and closes the source.
+     */
+    @Override
+    public synchronized void close() {
+        if (!running) {
+            return;
+        }
+        running = false;
+        slots.shutdown();
+        try {
+            slots.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        source.close();
+        logger.info("Session processor {} stopped: sessions={}, received={}, completed={}, abandoned={}, "
+                        + "deadLettered={}, failed={}", name, getSessionsAccepted(), getReceivedCount(),
+                getCompletedCount(), getAbandonedCount(), getDeadLetteredCount(), getFailedCount());
+        terminated.countDown();
+    }
+
+    /**
+     * @return the metrics of this processor's entity; the in-flight gauge counts held sessions
+     */
+    public EntityMetrics getMetrics() {
+        return metrics;
+    }
+
+    public int getActiveSessionCount() {
+        return activeSessions.get();
+    }
+
+    public long getSessionsAccepted() {
+        return sessionsAccepted.sum();
+    }
+
+    public long getReceivedCount() {
+        return received.sum();
+    }
+
+    public long getCompletedCount() {
+        return completed.sum();
+    }
+
+    public long getAbandonedCount() {
+        return abandoned.sum();
+    }
+
+    public long getDeadLetteredCount() {
+        return deadLettered.sum();
+    }
+
+    public long getFailedCount() {
+        return failed.sum();
+    }
+
+    private void closeQuietly(SessionLink<M> link) {
+        try {
+            link.close();
+        } catch (RuntimeException e) {
+            logger.warn("Failed to release session {} of {}: {}", link.getSessionId(), name, e.getMessage());
+        }
+    }
+
+    /**
+     * Handler plus the hook run before a session is released.
+     */
+    private interface SessionHandler<M> {
+
+        Disposition handle(SessionLink<M> link, M message) throws Exception;
+
+        default void released(SessionLink<M> link) {
+        }
+    }
+
+    private static void sleepQuietly(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
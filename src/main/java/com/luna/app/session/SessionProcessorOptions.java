@@ -0,0 +1,108 @@
+package com.luna.app.session;
+
+import com.luna.app.metrics.MetricsRegistry;
+
+import java.time.Duration;
+
+/**
+ * Tuning knobs for a {@link SessionProcessor}.
+ */
+public class SessionProcessorOptions {
+
+    private int maxConcurrentSessions = 8;
+    private int maxBatchSize = 32;
+    private Duration maxWaitTime = Duration.ofSeconds(1);
+    private Duration sessionIdleTimeout = Duration.ofSeconds(2);
+    private MetricsRegistry metricsRegistry;
+
+    public int getMaxConcurrentSessions() {
+        return maxConcurrentSessions;
+    }
+
+    /**
+     * Sets how many sessions are held and processed at the same time. Each session runs on its own virtual thread, so
+     * this can be in the hundreds when sessions are numerous and mostly idle.
+     *
+     * @param maxConcurrentSessions the number of session slots
+     * @return the updated options
+     */
+    public SessionProcessorOptions setMaxConcurrentSessions(int maxConcurrentSessions) {
+        this.maxConcurrentSessions = requirePositive(maxConcurrentSessions, "maxConcurrentSessions");
+        return this;
+    }
+
+    public int getMaxBatchSize() {
+        return maxBatchSize;
+    }
+
+    /**
+     * Sets the maximum number of messages requested from a session by one receive call.
+     *
+     * @param maxBatchSize the receive batch size
+     * @return the updated options
+     */
+    public SessionProcessorOptions setMaxBatchSize(int maxBatchSize) {
+        this.maxBatchSize = requirePositive(maxBatchSize, "maxBatchSize");
+        return this;
+    }
+
+    public Duration getMaxWaitTime() {
+        return maxWaitTime;
+    }
+
+    /**
+     * Sets how long a receive call on a session waits for the first message before returning empty.
+     *
+     * @param maxWaitTime the long-poll timeout
+     * @return the updated options
+     */
+    public SessionProcessorOptions setMaxWaitTime(Duration maxWaitTime) {
+        this.maxWaitTime = requirePositive(maxWaitTime, "maxWaitTime");
+        return this;
+    }
+
+    public Duration getSessionIdleTimeout() {
+        return sessionIdleTimeout;
+    }
+
+    /**
+     * Sets how long a session may go without messages before it is released and the slot accepts the next session.
+     *
+     * @param sessionIdleTimeout the idle timeout
+     * @return the updated options
+     */
+    public SessionProcessorOptions setSessionIdleTimeout(Duration sessionIdleTimeout) {
+        this.sessionIdleTimeout = requirePositive(sessionIdleTimeout, "sessionIdleTimeout");
+        return this;
+    }
+
+    public MetricsRegistry getMetricsRegistry() {
+        return metricsRegistry;
+    }
+
+    /**
+     * Records the processor's metrics in a shared registry, labelled with the processor's entity.
+     *
+     * @param metricsRegistry the registry, e.g. {@link MetricsRegistry#global()}, or {@code null} to keep the metrics
+     *                        private to the processor
+     * @return the updated options
+     */
+    public SessionProcessorOptions setMetricsRegistry(MetricsRegistry metricsRegistry) {
+        this.metricsRegistry = metricsRegistry;
+        return this;
+    }
+
+    private static int requirePositive(int value, String name) {
+        if (value <= 0) {
+            throw new IllegalArgumentException(name + " must be positive but was " + value);
+        }
+        return value;
+    }
+
+    private static Duration requirePositive(Duration value, String name) {
+        if (value == null || value.isNegative() || value.isZero()) {
+            throw new IllegalArgumentException(name + " must be positive");
+        }
+        return value;
+    }
+}
@@ -0,0 +1,23 @@
+package com.luna.app.session;
+
+/**
+ * Hands out locks on sessions that have messages waiting. The {@link SessionProcessor} only talks to the broker
+ * through this interface, so it runs against a real session receiver ({@link ServiceBusSessionSource}) or the
+ * in-process {@link InMemorySessionQueue}.
+ *
+ * @param <M> the received message type
+ */
+public interface SessionSource<M> extends AutoCloseable {
+
+    /**
+     * Accepts the next session with messages that no other receiver holds.
+     *
+     * @return a link locked to the session, or {@code null} if no session became available within the source's
+     * accept timeout
+     */
+    SessionLink<M> acceptNextSession();
+
+    @Override
+    default void close() {
+    }
+}
@@ -0,0 +1,116 @@
+package com.luna.app.session;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Locally cached state of one held session. The state is read from the broker on first use; updates stay in memory
+ * and are written back by the owning {@link SessionStateCache} on its flush interval and when the session is released.
+ * <p>
+ * Write-behind trades durability for round trips: messages completed since the last flush may have their effect on
+ * the state lost if the process dies before the next flush, so handlers should keep state idempotent to rebuild
+ * (cursors, counters, last-seen sequence numbers) or call {@link #flush()} at points that must be durable.
+ *
+ * @param <S> the state type
+ */
+public class SessionState<S> {
+
+    private static final Logger logger = LoggerFactory.getLogger(SessionState.class);
+
+    private final SessionLink<?> link;
+    private final SessionStateCodec<S> codec;
+    private final SessionStateCache<S> cache;
+    // not synchronized: broker calls block, and a monitor would pin the virtual thread running the session
+    private final ReentrantLock lock = new ReentrantLock();
+
+    private S value;
+    private boolean loaded;
+    private boolean dirty;
+
+    SessionState(SessionLink<?> link, SessionStateCodec<S> codec, SessionStateCache<S> cache) {
+        this.link = link;
+        this.codec = codec;
+        this.cache = cache;
+    }
+
+    public String getSessionId() {
+        return link.getSessionId();
+    }
+
+    /**
+     * @return the current state, loaded from the broker on the first call
+     */
+    public S get() {
+        lock.lock();
+        try {
+            if (!loaded) {
+                value = codec.decode(link.getSessionState());
+                cache.recordBrokerRead();
+                loaded = true;
+            }
+            return value;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Replaces the state locally; the broker is updated on the next flush.
+     *
+     * @param state the new state
+     */
+    public void set(S state) {
+        lock.lock();
+        try {
+            value = state;
+            loaded = true;
+            dirty = true;
+            cache.recordLocalWrite();
+            if (cache.isWriteThrough()) {
+                flush();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public boolean isDirty() {
+        lock.lock();
+        try {
+            return dirty;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Writes pending changes to the broker.
+     *
+     * @return whether a write was issued
+     */
+    public boolean flush() {
+        lock.lock();
+        try {
+            if (!dirty) {
+                return false;
+            }
+            link.setSessionState(value == null ? null : codec.encode(value));
+            cache.recordBrokerWrite();
+            dirty = false;
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    boolean flushQuietly() {
+        try {
+            return flush();
+        } catch (RuntimeException e) {
+            logger.warn("Failed to flush state of session {}: {}", getSessionId(), e.getMessage());
+            return false;
+        }
+    }
+}
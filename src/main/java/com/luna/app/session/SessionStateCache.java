@@ -0,0 +1,148 @@
+package com.luna.app.session;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Caches the state of every session held by a {@link SessionProcessor} and writes changes back in the background.
+ * <p>
+ * Each held session reads its state from the broker once. Any number of updates between two flushes collapse into a
+ * single {@code setSessionState} call, issued on the flush interval and when the session is released. A
+ * {@link Duration#ZERO} interval writes through on every update, which still saves the per-message read.
+ *
+ * @param <S> the state type
+ */
+public class SessionStateCache<S> implements AutoCloseable {
+
+    private static final Logger logger = LoggerFactory.getLogger(SessionStateCache.class);
+
+    private final SessionStateCodec<S> codec;
+    private final Duration flushInterval;
+    private final Map<SessionLink<?>, SessionState<S>> states = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService flusher;
+
+    private final LongAdder brokerReads = new LongAdder();
+    private final LongAdder brokerWrites = new LongAdder();
+    private final LongAdder localWrites = new LongAdder();
+
+    /**
+     * @param codec         converts the state to the bytes stored on the broker
+     * @param flushInterval how often dirty states are written back, or {@link Duration#ZERO} to write through
+     */
+    public SessionStateCache(SessionStateCodec<S> codec, Duration flushInterval) {
+        if (flushInterval == null || flushInterval.isNegative()) {
+            throw new IllegalArgumentException("flushInterval must not be negative");
+        }
+        this.codec = codec;
+        this.flushInterval = flushInterval;
+        if (flushInterval.isZero()) {
+            this.flusher = null;
+        } else {
+            this.flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "session-state-flusher");
+                thread.setDaemon(true);
+                return thread;
+            });
+            long intervalNanos = flushInterval.toNanos();
+            flusher.scheduleWithFixedDelay(this::flushAll, intervalNanos, intervalNanos, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    /**
+     * @param link a held session
+     * @return the cached state of the session, created on first use
+     */
+    public SessionState<S> attach(SessionLink<?> link) {
+        return states.computeIfAbsent(link, l -> new SessionState<>(l, codec, this));
+    }
+
+    /**
+     * Flushes and forgets the state of a session that is about to be released.
+     *
+     * @param link the session being released
+     */
+    public void release(SessionLink<?> link) {
+        SessionState<S> state = states.remove(link);
+        if (state != null) {
+            state.flushQuietly();
+        }
+    }
+
+    /**
+     * Writes every dirty state to the broker.
+     */
+    public void flushAll() {
+        int flushed = 0;
+        for (SessionState<S> state : states.values()) {
+            if (state.flushQuietly()) {
+                flushed++;
+            }
+        }
+        if (flushed > 0) {
+            logger.debug("Flushed state of {} sessions", flushed);
+        }
+    }
+
+    public Duration getFlushInterval() {
+        return flushInterval;
+    }
+
+    boolean isWriteThrough() {
+        return flusher == null;
+    }
+
+    public int getCachedSessionCount() {
+        return states.size();
+    }
+
+    public long getBrokerReadCount() {
+        return brokerReads.sum();
+    }
+
+    public long getBrokerWriteCount() {
+        return brokerWrites.sum();
+    }
+
+    /**
+     * @return the number of {@link SessionState#set} calls, i.e. the writes an uncached handler would have issued
+     */
+    public long getLocalWriteCount() {
+        return localWrites.sum();
+    }
+
+    void recordBrokerRead() {
+        brokerReads.increment();
+    }
+
+    void recordBrokerWrite() {
+        brokerWrites.increment();
+    }
+
+    void recordLocalWrite() {
+        localWrites.increment();
+    }
+
+    /**
+     * Stops the background flusher and writes the remaining dirty states.
+     */
+    @Override
+    public void close() {
+        if (flusher != null) {
+            flusher.shutdown();
+            try {
+                flusher.awaitTermination(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        flushAll();
+    }
+}
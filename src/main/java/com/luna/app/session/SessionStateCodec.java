@@ -0,0 +1,13 @@
+package com.luna.app.session;
+
+/**
+ * Converts a typed session state to and from the bytes stored on the broker.
+ *
+ * @param <S> the state type
+ */
+public interface SessionStateCodec<S> {
+
+    byte[] encode(S state);
+
+    S decode(byte[] bytes);
+}
@@ -0,0 +1,16 @@
+package com.luna.app.session;
+
+import com.luna.app.queue.Disposition;
+
+/**
+ * Handles one message of a session with access to the session's cached state. State set before the handler throws is
+ * kept, so update the state only once the message has been handled.
+ *
+ * @param <M> the message type
+ * @param <S> the session state type
+ */
+@FunctionalInterface
+public interface SessionStateHandler<M, S> {
+
+    Disposition handle(M message, SessionState<S> state) throws Exception;
+}
@@ -1,8 +1,18 @@
 package com.luna.app.topic;
 
-import com.azure.messaging.servicebus.ServiceBusClientBuilder;
-import com.azure.messaging.servicebus.ServiceBusReceiverClient;
 import com.azure.messaging.servicebus.ServiceBusReceivedMessage;
+import com.azure.messaging.servicebus.ServiceBusReceiverClient;
+import com.luna.app.client.ServiceBusClientFactory;
+import com.luna.app.logging.MessageEvent;
+import com.luna.app.logging.MessageLog;
+import com.luna.app.logging.MessageLogOptions;
+import com.luna.app.logging.MessageLogger;
+import com.luna.app.queue.ConsumerEngine;
+import com.luna.app.queue.ConsumerOptions;
+import com.luna.app.queue.Disposition;
+import com.luna.app.queue.ExecutionMode;
+import com.luna.app.queue.ServiceBusMessageSource;
+import com.luna.app.queue.VirtualThreads;
 import io.github.cdimascio.dotenv.Dotenv;
 
 public class ASBTopicReceiverA {
@@ -13,6 +23,11 @@ public class ASBTopicReceiverA {
     private static final String CONNECTION_STRING = dotenv.get("AZURE_SERVICE_BUS_CONNECTION_STRING");
     private static final String TOPIC_NAME = dotenv.get("AZURE_SERVICE_BUS_TOPIC_NAME");
     private static final String SUBSCRIPTION_NAME = dotenv.get("AZURE_SERVICE_BUS_SUBSCRIPTION_A");  // Subscription A
+    private static final String ENTITY_PATH = TOPIC_NAME + "/subscriptions/" + SUBSCRIPTION_NAME;
+    private static final int MAX_IN_FLIGHT = VirtualThreads.isAvailable() ? 1000 : 64;
+    private static final int PREFETCH_COUNT = 50;
+    private static final MessageLog MESSAGE_LOG = new MessageLog(new MessageLogOptions(), System.out::print);
+    private static final MessageLogger MESSAGES = MESSAGE_LOG.forEntity(ENTITY_PATH);
 
     public static void main(String[] args) {
         ASBTopicReceiverA receiver = new ASBTopicReceiverA();
@@ -23,36 +38,39 @@ public class ASBTopicReceiverA {
      * Receives messages from the Service Bus topic subscription.
      */
     public void receiveMessages() {
-        try (ServiceBusReceiverClient receiverClient = createReceiverClient()) {
+        ConsumerOptions options = new ConsumerOptions()
+                .setExecutionMode(ExecutionMode.VIRTUAL_THREAD_PER_MESSAGE)
+                .setMaxInFlight(MAX_IN_FLIGHT);
+        ConsumerEngine<ServiceBusReceivedMessage> engine = new ConsumerEngine<>(ENTITY_PATH,
+                () -> new ServiceBusMessageSource(createReceiverClient()), this::processMessage, options);
+        Runtime.getRuntime().addShutdownHook(new Thread(engine::close));
+
+        try {
             System.out.println("Listening for messages from Subscription A...");
-            while (true) {
-                receiverClient.receiveMessages(1).forEach(message -> {
-                    processMessage(receiverClient, message);
-                });
-                Thread.sleep(1000); // Polling interval
-            }
+            engine.start();
+            engine.awaitTermination();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            engine.close();
         } catch (Exception e) {
-            System.out.println("Error occurred while receiving messages: {}" + e.getMessage());
+            System.out.println("Error occurred while receiving messages: " + e.getMessage());
+            engine.close();
         }
     }
 
 
     private ServiceBusReceiverClient createReceiverClient() {
-        return new ServiceBusClientBuilder()
-                .connectionString(CONNECTION_STRING)
+        return ServiceBusClientFactory.forConnectionString(CONNECTION_STRING)
                 .receiver()
                 .topicName(TOPIC_NAME)
                 .subscriptionName(SUBSCRIPTION_NAME)
+                .prefetchCount(PREFETCH_COUNT)
                 .buildClient();
     }
 
 
-    private void processMessage(ServiceBusReceiverClient receiverClient, ServiceBusReceivedMessage message) {
-        try {
-            System.out.println("Subscription A - Message received: {}" + message.getBody().toString());
-            receiverClient.complete(message);
-        } catch (Exception e) {
-            System.out.println("Error processing message: {}" + e.getMessage());
-        }
+    private Disposition processMessage(ServiceBusReceivedMessage message) {
+        MESSAGES.log(MessageEvent.RECEIVED, message);
+        return Disposition.COMPLETE;
     }
 }
@@ -1,9 +1,18 @@
 package com.luna.app.topic;
 
-import com.azure.messaging.servicebus.ServiceBusClientBuilder;
-import com.azure.messaging.servicebus.ServiceBusSenderClient;
+import com.azure.messaging.servicebus.ServiceBusSenderAsyncClient;
 import com.azure.messaging.servicebus.ServiceBusMessage;
+import com.luna.app.client.SenderLease;
+import com.luna.app.client.ServiceBusClientFactory;
+import com.luna.app.metrics.MetricsRegistry;
+import com.luna.app.outbox.Outbox;
+import com.luna.app.outbox.OutboxOptions;
+import com.luna.app.queue.ServiceBusMessageSink;
 import io.github.cdimascio.dotenv.Dotenv;
+import reactor.core.publisher.Flux;
+
+import java.nio.file.Path;
+import java.time.Duration;
 
 public class ASBTopicSender {
 
@@ -11,38 +20,62 @@ public class ASBTopicSender {
     private static final Dotenv dotenv = Dotenv.load();
     private static final String CONNECTION_STRING = dotenv.get("AZURE_SERVICE_BUS_CONNECTION_STRING");
     private static final String TOPIC_NAME = dotenv.get("AZURE_SERVICE_BUS_TOPIC_NAME");
+    private static final Path OUTBOX_DIRECTORY = Path.of(System.getProperty("java.io.tmpdir"), "servicebus-outbox");
 
     public static void main(String[] args) {
         ASBTopicSender sender = new ASBTopicSender();
         sender.sendMessage("Simple message to carme.");
+        sender.publishMessages(Flux.range(0, 1000).map(i -> "Pipelined message " + i));
     }
 
 
+    /**
+     * Sends through a local outbox, so a message the topic cannot take right now is kept on disk and sent by the next
+     * run instead of being lost.
+     *
+     * @param message the message body
+     */
     public void sendMessage(String message) {
-        try (ServiceBusSenderClient senderClient = createSenderClient()) {
-            sendMessageToTopic(senderClient, message);
+        try (Outbox outbox = new Outbox(TOPIC_NAME, OUTBOX_DIRECTORY.resolve(TOPIC_NAME),
+                new ServiceBusMessageSink(createSenderClient()), new OutboxOptions())) {
+            outbox.send(new ServiceBusMessage(message)).join();
+            if (outbox.awaitDrained(Duration.ofSeconds(30))) {
+                System.out.println("Message sent to topic: " + TOPIC_NAME);
+            } else {
+                System.out.println("Topic unavailable, " + outbox.getBacklog() + " messages kept in the outbox.");
+            }
         } catch (Exception e) {
-            System.out.println("Error occurred while sending message to topic: {} " + e.getMessage());
+            System.out.println("Error occurred while sending message to topic: " + e.getMessage());
         }
     }
 
 
-    private ServiceBusSenderClient createSenderClient() {
-        return new ServiceBusClientBuilder()
-                .connectionString(CONNECTION_STRING)
+    /**
+     * Streams messages to the topic with many sends in flight, instead of waiting for each acknowledgement.
+     *
+     * @param messages the message bodies to publish
+     */
+    public void publishMessages(Flux<String> messages) {
+        try (ServiceBusSenderAsyncClient senderClient = ServiceBusClientFactory.forConnectionString(CONNECTION_STRING)
                 .sender()
                 .topicName(TOPIC_NAME)
-                .buildClient();
+                .buildAsyncClient()) {
+            TopicPublisher publisher = new TopicPublisher(senderClient, new PublisherOptions()
+                    .setMetricsRegistry(MetricsRegistry.global()));
+            Long failed = publisher.publish(messages.map(ServiceBusMessage::new))
+                    .filter(result -> !result.isSuccess())
+                    .count()
+                    .block();
+            System.out.println("Messages published to topic " + TOPIC_NAME + ", failed: " + failed);
+            System.out.print(MetricsRegistry.global().report());
+        } catch (Exception e) {
+            System.out.println("Error occurred while publishing to topic: " + e.getMessage());
+        }
     }
 
 
-    private void sendMessageToTopic(ServiceBusSenderClient senderClient, String message) {
-        try {
-            ServiceBusMessage serviceBusMessage = new ServiceBusMessage(message);
-            senderClient.sendMessage(serviceBusMessage);
-            System.out.println("Message sent to topic: {} " + TOPIC_NAME);
-        } catch (Exception e) {
-            System.out.println("Failed to send message to topic: {} " + e.getMessage());
-        }
+    private SenderLease createSenderClient() {
+        return ServiceBusClientFactory.forConnectionString(CONNECTION_STRING)
+                .leaseTopicSender(TOPIC_NAME);
     }
 }
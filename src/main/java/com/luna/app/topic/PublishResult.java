@@ -0,0 +1,16 @@
+package com.luna.app.topic;
+
+import com.azure.messaging.servicebus.ServiceBusMessage;
+
+/**
+ * Outcome of publishing one message through a {@link TopicPublisher}.
+ *
+ * @param message the message that was published
+ * @param error   the final error once retries were exhausted, {@code null} on success
+ */
+public record PublishResult(ServiceBusMessage message, Throwable error) {
+
+    public boolean isSuccess() {
+        return error == null;
+    }
+}
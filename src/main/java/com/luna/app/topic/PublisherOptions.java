@@ -0,0 +1,132 @@
+package com.luna.app.topic;
+
+import com.luna.app.metrics.MetricsRegistry;
+
+import java.time.Duration;
+
+/**
+ * Tuning knobs for a {@link TopicPublisher}.
+ */
+public class PublisherOptions {
+
+    private int maxConcurrency = 64;
+    private boolean ordered;
+    private int maxRetries = 3;
+    private Duration minBackoff = Duration.ofMillis(100);
+    private Duration maxBackoff = Duration.ofSeconds(10);
+    private double jitterFactor = 0.5;
+    private MetricsRegistry metricsRegistry;
+
+    public int getMaxConcurrency() {
+        return maxConcurrency;
+    }
+
+    /**
+     * Sets how many sends may await a broker acknowledgement at once.
+     *
+     * @param maxConcurrency the in-flight limit
+     * @return the updated options
+     */
+    public PublisherOptions setMaxConcurrency(int maxConcurrency) {
+        if (maxConcurrency <= 0) {
+            throw new IllegalArgumentException("maxConcurrency must be positive but was " + maxConcurrency);
+        }
+        this.maxConcurrency = maxConcurrency;
+        return this;
+    }
+
+    public boolean isOrdered() {
+        return ordered;
+    }
+
+    /**
+     * Sets whether results are emitted in submission order. Sends are still pipelined and may be accepted by the
+     * broker out of order; only the emission of a result is held back until the results of all earlier messages have
+     * been emitted. Set a concurrency of 1 to also send in order.
+     *
+     * @param ordered {@code true} to emit acknowledgements in order
+     * @return the updated options
+     */
+    public PublisherOptions setOrdered(boolean ordered) {
+        this.ordered = ordered;
+        return this;
+    }
+
+    public int getMaxRetries() {
+        return maxRetries;
+    }
+
+    /**
+     * Sets how many times a send failing with a transient error is retried. Not used by a publisher on a
+     * {@code ServiceBusSenderAsyncClient}, which retries by its own retry options.
+     *
+     * @param maxRetries the retry limit, 0 to disable retries
+     * @return the updated options
+     */
+    public PublisherOptions setMaxRetries(int maxRetries) {
+        if (maxRetries < 0) {
+            throw new IllegalArgumentException("maxRetries must not be negative but was " + maxRetries);
+        }
+        this.maxRetries = maxRetries;
+        return this;
+    }
+
+    public Duration getMinBackoff() {
+        return minBackoff;
+    }
+
+    public Duration getMaxBackoff() {
+        return maxBackoff;
+    }
+
+    /**
+     * Sets the exponential backoff range between retries.
+     *
+     * @param minBackoff the delay before the first retry
+     * @param maxBackoff the upper bound on any delay
+     * @return the updated options
+     */
+    public PublisherOptions setBackoff(Duration minBackoff, Duration maxBackoff) {
+        if (minBackoff.isNegative() || maxBackoff.compareTo(minBackoff) < 0) {
+            throw new IllegalArgumentException("Invalid backoff range: " + minBackoff + ".." + maxBackoff);
+        }
+        this.minBackoff = minBackoff;
+        this.maxBackoff = maxBackoff;
+        return this;
+    }
+
+    public double getJitterFactor() {
+        return jitterFactor;
+    }
+
+    /**
+     * Sets the random spread applied to each backoff delay, so that publishers failing together do not retry in
+     * lockstep.
+     *
+     * @param jitterFactor between 0 (no jitter) and 1
+     * @return the updated options
+     */
+    public PublisherOptions setJitterFactor(double jitterFactor) {
+        if (jitterFactor < 0 || jitterFactor > 1) {
+            throw new IllegalArgumentException("jitterFactor must be in [0, 1] but was " + jitterFactor);
+        }
+        this.jitterFactor = jitterFactor;
+        return this;
+    }
+
+    public MetricsRegistry getMetricsRegistry() {
+        return metricsRegistry;
+    }
+
+    /**
+     * Records the publisher's metrics in a shared registry, labelled with the publisher's entity.
+     *
+     * @param metricsRegistry the registry, e.g. {@link MetricsRegistry#global()}, or {@code null} to keep the metrics
+     *                        private to the publisher
+     * @return the updated options
+     */
+    public PublisherOptions setMetricsRegistry(MetricsRegistry metricsRegistry) {
+        this.metricsRegistry = metricsRegistry;
+        return this;
+    }
+}
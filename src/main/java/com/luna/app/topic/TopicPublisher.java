@@ -0,0 +1,132 @@
+package com.luna.app.topic;
+
+import com.azure.core.amqp.exception.AmqpException;
+import com.azure.messaging.servicebus.ServiceBusException;
+import com.azure.messaging.servicebus.ServiceBusMessage;
+import com.azure.messaging.servicebus.ServiceBusSenderAsyncClient;
+import com.luna.app.metrics.EntityMetrics;
+import com.luna.app.metrics.MetricsRegistry;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.util.retry.Retry;
+
+import java.util.function.Function;
+
+/**
+ * Non-blocking publishing pipeline for a topic.
+ * <p>
+ * {@link #publish(Flux)} subscribes to upstream producers and keeps up to {@link PublisherOptions#getMaxConcurrency()}
+ * sends awaiting acknowledgement, so no thread is blocked per message. Sends failing with a transient error are
+ * retried by exactly one layer: a {@link ServiceBusSenderAsyncClient} retries by its own
+ * {@link com.azure.core.amqp.AmqpRetryOptions}, and the publisher adds no retries on top, while any other send
+ * operation is retried by the publisher with the exponential backoff and jitter of its {@link PublisherOptions}. A
+ * message that still fails is reported as a failed {@link PublishResult} rather than terminating the stream.
+ * <p>
+ * Up to {@link PublisherOptions#getMaxConcurrency()} sends run concurrently even when
+ * {@link PublisherOptions#isOrdered()} is set; ordering applies to the emitted results only, so the broker may accept
+ * messages in a different order than submitted. Use a concurrency of 1 where the broker order matters.
+ * <p>
+ * The latency of every send attempt is recorded as {@link EntityMetrics#getSendLatency()} of the topic in
+ * {@link PublisherOptions#getMetricsRegistry()}.
+ */
+public class TopicPublisher {
+
+    private final String topicName;
+    private final Function<ServiceBusMessage, Mono<Void>> send;
+    private final PublisherOptions options;
+    private final Retry retry;  // null when the send operation retries by itself
+    private final EntityMetrics metrics;
+
+    /**
+     * Creates a publisher on an async sender client. The client stays owned by the caller and retries transient
+     * failures as configured by its {@code AmqpRetryOptions}; the retry settings of {@code options} are not used.
+     *
+     * @param senderClient the async sender for the topic
+     * @param options      concurrency, ordering and metrics settings
+     */
+    public TopicPublisher(ServiceBusSenderAsyncClient senderClient, PublisherOptions options) {
+        this(senderClient.getEntityPath(), senderClient::sendMessage, options, false);
+    }
+
+    /**
+     * Creates a publisher on an arbitrary send operation, e.g. a stand-in for benchmarks. The operation must not
+     * retry by itself; transient failures are retried by the publisher.
+     *
+     * @param topicName name used in error messages
+     * @param send      sends one message and completes on acknowledgement
+     * @param options   concurrency, ordering and retry settings
+     */
+    public TopicPublisher(String topicName, Function<ServiceBusMessage, Mono<Void>> send, PublisherOptions options) {
+        this(topicName, send, options, true);
+    }
+
+    private TopicPublisher(String topicName, Function<ServiceBusMessage, Mono<Void>> send, PublisherOptions options,
+                           boolean retrying) {
+        this.topicName = topicName;
+        this.send = send;
+        this.options = options;
+        this.retry = retrying
+                ? Retry.backoff(options.getMaxRetries(), options.getMinBackoff())
+                        .maxBackoff(options.getMaxBackoff())
+                        .jitter(options.getJitterFactor())
+                        .filter(TopicPublisher::isTransient)
+                        .onRetryExhaustedThrow((spec, signal) -> signal.failure())
+                : null;
+        MetricsRegistry registry = options.getMetricsRegistry() != null
+                ? options.getMetricsRegistry()
+                : new MetricsRegistry();
+        this.metrics = registry.entity(topicName);
+    }
+
+    /**
+     * Publishes a stream of messages.
+     *
+     * @param messages the messages to publish
+     * @return one result per message, in submission order if {@link PublisherOptions#isOrdered()} is set; the sends
+     *         themselves may still complete out of order
+     */
+    public Flux<PublishResult> publish(Flux<ServiceBusMessage> messages) {
+        Function<ServiceBusMessage, Mono<PublishResult>> publishOne = this::publishOne;
+        return options.isOrdered()
+                ? messages.flatMapSequential(publishOne, options.getMaxConcurrency())
+                : messages.flatMap(publishOne, options.getMaxConcurrency());
+    }
+
+    /**
+     * Publishes a single message.
+     *
+     * @param message the message to publish
+     * @return completes on acknowledgement, or errors once retries are exhausted
+     */
+    public Mono<Void> publish(ServiceBusMessage message) {
+        Mono<Void> attempt = Mono.defer(() -> {
+            long startNanos = System.nanoTime();
+            return send.apply(message).doOnSuccess(ignored -> metrics.getSendLatency().recordSince(startNanos));
+        });
+        return retry != null ? attempt.retryWhen(retry) : attempt;
+    }
+
+    private Mono<PublishResult> publishOne(ServiceBusMessage message) {
+        return publish(message)
+                .then(Mono.fromSupplier(() -> new PublishResult(message, null)))
+                .onErrorResume(error -> Mono.just(new PublishResult(message, error)));
+    }
+
+    public String getTopicName() {
+        return topicName;
+    }
+
+    public EntityMetrics getMetrics() {
+        return metrics;
+    }
+
+    static boolean isTransient(Throwable error) {
+        if (error instanceof ServiceBusException serviceBusException) {
+            return serviceBusException.isTransient();
+        }
+        if (error instanceof AmqpException amqpException) {
+            return amqpException.isTransient();
+        }
+        return false;
+    }
+}
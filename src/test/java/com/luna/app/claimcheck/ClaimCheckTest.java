@@ -0,0 +1,83 @@
+package com.luna.app.claimcheck;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.Channels;
+import java.nio.file.Path;
+import java.util.Random;
+
+import com.azure.messaging.servicebus.ServiceBusMessage;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class ClaimCheckTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    public void replacesLargeBodiesWithReferences() throws IOException {
+        FileBlobStore store = new FileBlobStore(directory);
+        ClaimCheckSender sender = new ClaimCheckSender(store, 1024);
+        ClaimCheckReceiver receiver = new ClaimCheckReceiver(store);
+
+        ServiceBusMessage small = new ServiceBusMessage(new byte[1024]);
+        assertSame(small, sender.check(small));
+
+        byte[] body = new byte[300_000];
+        new Random(7).nextBytes(body);
+        ServiceBusMessage large = new ServiceBusMessage(body).setMessageId("order-1").setSessionId("cart-1");
+        large.getApplicationProperties().put("region", "eu");
+        ServiceBusMessage reference = sender.check(large);
+
+        assertEquals(0, reference.getBody().toBytes().length);
+        assertEquals("order-1", reference.getMessageId());
+        assertEquals("cart-1", reference.getSessionId());
+        assertEquals("eu", reference.getApplicationProperties().get("region"));
+
+        ClaimCheckPayload payload = receiver.payloadOf(reference.getApplicationProperties(), new byte[0]);
+        assertTrue(payload.isClaimCheck());
+        assertEquals(body.length, payload.getSize());
+        try (InputStream stream = payload.openStream()) {
+            assertEquals(body[0] & 0xFF, stream.read());
+            assertEquals(1000, stream.skip(1000));
+            byte[] rest = stream.readAllBytes();
+            assertEquals(body.length - 1001, rest.length);
+            assertEquals(body[body.length - 1], rest[rest.length - 1]);
+        }
+        assertArrayEquals(body, payload.toBytes());
+
+        assertTrue(receiver.release(payload));
+        assertFalse(receiver.release(payload));
+        assertFalse(receiver.payloadOf(small.getApplicationProperties(), new byte[3]).isClaimCheck());
+    }
+
+    @Test
+    public void streamsPayloadsFromChannels() throws IOException {
+        FileBlobStore store = new FileBlobStore(directory);
+        ClaimCheckSender sender = new ClaimCheckSender(store);
+        byte[] body = new byte[100_000];
+        new Random(11).nextBytes(body);
+
+        ServiceBusMessage reference = sender.check(new ServiceBusMessage(new byte[0]),
+                Channels.newChannel(new ByteArrayInputStream(body)), body.length);
+        String blobId = (String) reference.getApplicationProperties().get(ClaimCheckSender.BLOB_ID_PROPERTY);
+        try (InputStream stream = store.open(blobId)) {
+            assertArrayEquals(body, stream.readAllBytes());
+        }
+
+        assertThrows(IllegalArgumentException.class, () -> sender.check(new ServiceBusMessage(new byte[0]),
+                Channels.newChannel(new ByteArrayInputStream(body)), body.length + 1));
+        assertThrows(IllegalArgumentException.class, () -> store.open("../../etc/passwd"));
+        assertEquals(1, sender.getCheckedCount());
+    }
+}
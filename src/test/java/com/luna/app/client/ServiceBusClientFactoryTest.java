@@ -0,0 +1,92 @@
+package com.luna.app.client;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.azure.messaging.servicebus.ServiceBusSenderClient;
+
+import java.time.Duration;
+
+import org.junit.jupiter.api.Test;
+
+public class ServiceBusClientFactoryTest {
+
+    // Clients connect lazily, so none of these tests opens a connection
+    private static final String CONNECTION_STRING =
+            "Endpoint=sb://factory-test.servicebus.windows.net/;SharedAccessKeyName=test;SharedAccessKey=secret";
+
+    @Test
+    public void sharesOneFactoryPerConnectionStringUntilClosed() {
+        ServiceBusClientFactory shared = ServiceBusClientFactory.forConnectionString(CONNECTION_STRING);
+        assertSame(shared, ServiceBusClientFactory.forConnectionString(CONNECTION_STRING));
+
+        shared.close();
+
+        ServiceBusClientFactory replacement = ServiceBusClientFactory.forConnectionString(CONNECTION_STRING);
+        assertNotSame(shared, replacement);
+        try (SenderLease lease = replacement.leaseQueueSender("orders")) {
+            assertTrue(lease.getClient() != null);
+        } finally {
+            replacement.close();
+        }
+    }
+
+    @Test
+    public void reusesTheCachedSenderAcrossLeases() {
+        try (ServiceBusClientFactory factory = new ServiceBusClientFactory(CONNECTION_STRING, Duration.ofHours(1))) {
+            ServiceBusSenderClient client;
+            try (SenderLease first = factory.leaseQueueSender("orders");
+                 SenderLease second = factory.leaseQueueSender("orders")) {
+                client = first.getClient();
+                assertSame(client, second.getClient());
+            }
+            try (SenderLease third = factory.leaseQueueSender("orders");
+                 SenderLease topic = factory.leaseTopicSender("orders")) {
+                assertSame(client, third.getClient());
+                assertNotSame(client, topic.getClient());
+            }
+            assertEquals(2, factory.getCachedSenderCount());
+        }
+    }
+
+    @Test
+    public void releasesALeaseOnlyOnce() {
+        try (ServiceBusClientFactory factory = new ServiceBusClientFactory(CONNECTION_STRING, Duration.ZERO)) {
+            SenderLease held = factory.leaseQueueSender("orders");
+            ServiceBusSenderClient evicted = held.getClient();
+            SenderLease released = factory.leaseQueueSender("orders");
+            released.close();
+            released.close();
+            assertThrows(IllegalStateException.class, released::getClient);
+
+            // The held lease keeps the sender from being evicted, even after a double release of the other one
+            factory.evictIdleSenders();
+            assertEquals(1, factory.getCachedSenderCount());
+
+            held.close();
+            factory.evictIdleSenders();
+            assertEquals(0, factory.getCachedSenderCount());
+
+            try (SenderLease fresh = factory.leaseQueueSender("orders")) {
+                assertNotSame(evicted, fresh.getClient());
+            }
+        }
+    }
+
+    @Test
+    public void refusesLeasesOnceClosed() {
+        ServiceBusClientFactory factory = new ServiceBusClientFactory(CONNECTION_STRING, Duration.ofHours(1));
+        SenderLease lease = factory.leaseQueueSender("orders");
+
+        factory.close();
+
+        assertEquals(0, factory.getCachedSenderCount());
+        assertThrows(IllegalStateException.class, () -> factory.leaseQueueSender("orders"));
+        assertThrows(IllegalStateException.class, () -> factory.leaseTopicSender("events"));
+        lease.close();
+        factory.close();
+    }
+}
@@ -0,0 +1,83 @@
+package com.luna.app.codec;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+import com.azure.messaging.servicebus.ServiceBusMessage;
+import com.luna.app.codec.CodecExample.Order;
+
+import org.junit.jupiter.api.Test;
+
+public class MessageCodecTest {
+
+    private static final Order ORDER = new Order("order-001", "Zoë Müller 😀", 3, 59.90, true);
+
+    @Test
+    public void roundTripsJsonAndBinaryBodies() {
+        for (MessageCodec<Order> codec : new MessageCodec[]{CodecExample.JSON, CodecExample.BINARY}) {
+            ServiceBusMessage message = codec.encode(ORDER);
+            assertNull(message.getApplicationProperties().get(MessageCodec.CONTENT_ENCODING_PROPERTY));
+            assertEquals(ORDER, codec.decode(bodyOf(message), null));
+        }
+        assertEquals(BinaryPayloadCodec.CONTENT_TYPE, CodecExample.BINARY.encode(ORDER).getContentType());
+    }
+
+    @Test
+    public void deflatesLargeBodiesOnlyWhenSmaller() {
+        Order large = new Order("order-002", "x".repeat(10_000), 1, 1.0, false);
+        ServiceBusMessage message = CodecExample.BINARY.encode(large);
+        assertEquals(MessageCodec.DEFLATE,
+                message.getApplicationProperties().get(MessageCodec.CONTENT_ENCODING_PROPERTY));
+        assertTrue(bodyOf(message).length < 1_000);
+        assertEquals(large, CodecExample.BINARY.decode(bodyOf(message), MessageCodec.DEFLATE));
+
+        byte[] random = new byte[2_000];
+        new Random(42).nextBytes(random);
+        MessageCodec<byte[]> raw = new MessageCodec<>(new BinaryPayloadCodec<byte[]>(1,
+                (bytes, out) -> out.writeBytes(bytes, 0, bytes.length),
+                in -> new byte[in.remaining()]), 1024, BufferPool.shared());
+        message = raw.encode(random);
+        assertNull(message.getApplicationProperties().get(MessageCodec.CONTENT_ENCODING_PROPERTY));
+        assertEquals(random.length + 1, bodyOf(message).length);
+    }
+
+    @Test
+    public void rejectsMalformedBodies() {
+        byte[] body = bodyOf(CodecExample.BINARY.encode(ORDER));
+        body[0] = 2;
+        assertThrows(IllegalArgumentException.class, () -> CodecExample.BINARY.decode(body, null));
+        assertThrows(IllegalArgumentException.class, () -> CodecExample.BINARY.decode(new byte[]{1, 5}, null));
+        assertThrows(IllegalArgumentException.class, () -> CodecExample.BINARY.decode(body, "gzip"));
+        byte[] truncated = "{\"orderId\":".getBytes(StandardCharsets.UTF_8);
+        assertThrows(IllegalArgumentException.class, () -> CodecExample.JSON.decode(truncated, null));
+    }
+
+    @Test
+    public void refusesToInflateBeyondTheLimit() {
+        MessageCodec<byte[]> raw = new MessageCodec<>(new BinaryPayloadCodec<byte[]>(1,
+                (bytes, out) -> out.writeBytes(bytes, 0, bytes.length),
+                in -> new byte[in.remaining()]), 1024, BufferPool.shared());
+        // The version byte makes the encoded body one byte larger than the limit
+        byte[] body = bodyOf(raw.encode(new byte[MessageCodec.DEFAULT_MAX_INFLATED_BYTES]));
+        assertTrue(body.length < 4_096);
+
+        InflatedSizeExceededException error = assertThrows(InflatedSizeExceededException.class,
+                () -> raw.decode(body, MessageCodec.DEFLATE));
+        assertEquals(MessageCodec.DEFAULT_MAX_INFLATED_BYTES, error.getMaxInflatedBytes());
+
+        MessageCodec<byte[]> larger = new MessageCodec<>(new BinaryPayloadCodec<byte[]>(1,
+                (bytes, out) -> out.writeBytes(bytes, 0, bytes.length),
+                in -> new byte[in.remaining()]), 1024, BufferPool.shared(),
+                MessageCodec.DEFAULT_MAX_INFLATED_BYTES + 1);
+        assertEquals(MessageCodec.DEFAULT_MAX_INFLATED_BYTES, larger.decode(body, MessageCodec.DEFLATE).length);
+    }
+
+    private static byte[] bodyOf(ServiceBusMessage message) {
+        return message.getRawAmqpMessage().getBody().getFirstData();
+    }
+}
@@ -0,0 +1,53 @@
+package com.luna.app.deduplicate;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.azure.core.util.BinaryData;
+import com.azure.messaging.servicebus.ServiceBusMessage;
+import org.junit.jupiter.api.Test;
+
+public class ContentMessageIdGeneratorTest {
+
+    private final ContentMessageIdGenerator generator = new ContentMessageIdGenerator("tenant", "orderId");
+
+    @Test
+    public void idDependsOnBodyAndChosenPropertiesOnly() {
+        String id = generator.messageIdOf(message("payload", "t1", 42));
+
+        assertEquals(id, generator.messageIdOf(message("payload", "t1", 42)));
+        assertEquals(id, generator.messageIdOf(message("payload", "t1", 42).setSubject("ignored")));
+        assertNotEquals(id, generator.messageIdOf(message("payload!", "t1", 42)));
+        assertNotEquals(id, generator.messageIdOf(message("payload", "t2", 42)));
+        assertNotEquals(id, generator.messageIdOf(message("payload", "t1", "42")));
+        assertEquals(32, id.length());
+    }
+
+    @Test
+    public void parallelBatchMatchesSequentialIds() {
+        List<ServiceBusMessage> batch = new ArrayList<>();
+        for (int i = 0; i < 64; i++) {
+            byte[] body = new byte[16 * 1024];
+            body[i] = 1;
+            batch.add(new ServiceBusMessage(BinaryData.fromBytes(body)));
+        }
+
+        generator.applyAll(batch);
+
+        for (ServiceBusMessage message : batch) {
+            assertEquals(generator.messageIdOf(message), message.getMessageId());
+        }
+        assertEquals(64, batch.stream().map(ServiceBusMessage::getMessageId).distinct().count());
+    }
+
+    private static ServiceBusMessage message(String body, String tenant, Object orderId) {
+        ServiceBusMessage message = new ServiceBusMessage(body);
+        message.getApplicationProperties().put("tenant", tenant);
+        message.getApplicationProperties().put("orderId", orderId);
+        message.getApplicationProperties().put("traceparent", String.valueOf(System.nanoTime()));
+        return message;
+    }
+}
@@ -0,0 +1,72 @@
+package com.luna.app.deduplicate;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.Test;
+
+public class IdempotencyStoreTest {
+
+    private final AtomicLong now = new AtomicLong();
+
+    @Test
+    public void remembersEveryIdWithinCapacity() {
+        IdempotencyStore store = new IdempotencyStore(100_000, Duration.ofMinutes(10), 4, now::get);
+
+        // a full window's worth of IDs arriving at a steady rate
+        for (int i = 0; i < 100_000; i++) {
+            assertTrue(store.markIfAbsent("message-" + i));
+            now.addAndGet(TimeUnit.MINUTES.toNanos(10) / 100_000);
+        }
+        for (int i = 0; i < 100_000; i++) {
+            assertFalse(store.markIfAbsent("message-" + i));
+        }
+        int falsePositives = 0;
+        for (int i = 100_000; i < 200_000; i++) {
+            if (store.contains("message-" + i)) {
+                falsePositives++;
+            }
+        }
+        assertEquals(0, falsePositives);
+        assertEquals(100_000, store.size());
+        assertEquals(0, store.getEarlyRotationCount());
+    }
+
+    @Test
+    public void forgetsIdsOnceTheWindowHasPassed() {
+        IdempotencyStore store = new IdempotencyStore(1_000, Duration.ofSeconds(30), 1, now::get);
+        store.markIfAbsent("early");
+
+        now.addAndGet(TimeUnit.SECONDS.toNanos(25));
+        store.markIfAbsent("late");
+        assertTrue(store.contains("early"));
+
+        now.addAndGet(TimeUnit.SECONDS.toNanos(30));
+        assertFalse(store.contains("early"));
+        assertTrue(store.contains("late"));
+
+        now.addAndGet(TimeUnit.MINUTES.toNanos(5));
+        assertFalse(store.contains("late"));
+        assertEquals(0, store.size());
+    }
+
+    @Test
+    public void overflowShortensTheWindowInsteadOfGrowing() {
+        IdempotencyStore store = new IdempotencyStore(300, Duration.ofMinutes(10), 1, now::get);
+        long memory = store.getMemoryBytes();
+
+        for (int i = 0; i < 10_000; i++) {
+            store.markIfAbsent("message-" + i);
+        }
+
+        assertEquals(memory, store.getMemoryBytes());
+        assertTrue(store.getEarlyRotationCount() > 0);
+        assertTrue(store.contains("message-9999"));
+        assertFalse(store.contains("message-0"));
+    }
+}
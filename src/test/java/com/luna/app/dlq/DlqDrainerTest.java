@@ -0,0 +1,55 @@
+package com.luna.app.dlq;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+
+import com.luna.app.queue.InMemoryMessage;
+import com.luna.app.queue.InMemoryQueue;
+import com.luna.app.queue.MessageSource;
+import org.junit.jupiter.api.Test;
+
+public class DlqDrainerTest {
+
+    @Test
+    public void resubmitsDiscardsAndSkipsByReason() throws InterruptedException {
+        InMemoryQueue queue = new InMemoryQueue();
+        for (int i = 0; i < 300; i++) {
+            queue.sendToDeadLetter("retry " + i, InMemoryQueue.MAX_DELIVERY_COUNT_EXCEEDED);
+        }
+        for (int i = 0; i < 50; i++) {
+            queue.sendToDeadLetter("expired " + i, "TTLExpiredException");
+        }
+        for (int i = 0; i < 20; i++) {
+            queue.sendToDeadLetter("inspect " + i, "SchemaValidationFailed");
+        }
+        queue.sendToDeadLetter("poison", InMemoryQueue.MAX_DELIVERY_COUNT_EXCEEDED)
+                .getApplicationProperties().put(DlqDrainer.RESUBMIT_COUNT_PROPERTY, 3);
+
+        DrainOptions options = new DrainOptions()
+                .setDrainerCount(3)
+                .setReceiveBatchSize(32)
+                .setMaxWaitTime(Duration.ofMillis(20))
+                .setAction("TTLExpiredException", DrainAction.DISCARD)
+                .setAction("SchemaValidationFailed", DrainAction.SKIP);
+        DrainReport report = new DlqDrainer<>("test", queue::newDeadLetterSource, queue::newSink,
+                new InMemoryDeadLetterAdapter(), options).drain();
+
+        assertEquals(371, report.received());
+        assertEquals(300, report.resubmitted());
+        assertEquals(50, report.discarded());
+        assertEquals(21, report.skipped());
+        assertEquals(Map.of(InMemoryQueue.MAX_DELIVERY_COUNT_EXCEEDED, 301L, "SchemaValidationFailed", 20L,
+                "TTLExpiredException", 50L), report.byReason());
+        assertEquals(21, queue.getDeadLetters().size());
+        assertEquals(300, queue.getActiveMessageCount());
+
+        MessageSource<InMemoryMessage> source = queue.newSource();
+        List<InMemoryMessage> resubmitted = source.receive(1, Duration.ofMillis(10));
+        assertTrue(resubmitted.get(0).getBodyAsString().startsWith("retry "));
+        assertEquals(1, resubmitted.get(0).getApplicationProperties().get(DlqDrainer.RESUBMIT_COUNT_PROPERTY));
+    }
+}
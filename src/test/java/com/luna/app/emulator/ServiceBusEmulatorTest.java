@@ -0,0 +1,153 @@
+package com.luna.app.emulator;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.util.List;
+import java.util.Map;
+
+import com.azure.messaging.servicebus.ServiceBusException;
+import com.azure.messaging.servicebus.ServiceBusFailureReason;
+import com.azure.messaging.servicebus.ServiceBusMessage;
+import com.luna.app.provisioning.QueueSpec;
+import com.luna.app.provisioning.SubscriptionSpec;
+import com.luna.app.provisioning.TopicSpec;
+import com.luna.app.queue.InMemoryMessage;
+import com.luna.app.queue.MessageSource;
+import com.luna.app.session.SessionLink;
+
+import org.junit.jupiter.api.Test;
+
+public class ServiceBusEmulatorTest {
+
+    private static final Duration WAIT = Duration.ofMillis(50);
+
+    @Test
+    public void routesTopicMessagesByFilterAndDropsDuplicates() {
+        try (ServiceBusEmulator emulator = new ServiceBusEmulator()) {
+            emulator.createTopic(new TopicSpec("events", null, true, List.of(
+                    new SubscriptionSpec("all", Map.of()),
+                    new SubscriptionSpec("red", Map.of("red", "color = 'red'", "large", "size > 10")))));
+
+            emulator.send("events", List.of(message("1", "red", 20), message("2", "blue", 5),
+                    message("1", "red", 20)));
+
+            assertEquals(2, emulator.getSubscription("events", "all").getActiveMessageCount());
+            List<InMemoryMessage> red = emulator.getSubscription("events", "red").newSource().receive(10, WAIT);
+            assertEquals(1, red.size(), "one copy per subscription even if two rules match");
+            assertEquals("1", red.get(0).getMessageId());
+            assertEquals(1, emulator.getDuplicateCount());
+        }
+    }
+
+    @Test
+    public void expiredLocksAreReleasedAndDeadLetteredAfterMaxDeliveries() throws InterruptedException {
+        try (ServiceBusEmulator emulator = new ServiceBusEmulator()) {
+            EmulatedEntity queue = emulator.createQueue(new QueueSpec("orders", Duration.ofMillis(50), 2, null,
+                    null, null));
+            emulator.send("orders", new ServiceBusMessage("order"));
+            MessageSource<InMemoryMessage> source = queue.newSource();
+
+            InMemoryMessage first = source.receive(1, WAIT).get(0);
+            Thread.sleep(300);
+            ServiceBusException lockLost = assertThrows(ServiceBusException.class, () -> source.complete(first));
+            assertEquals(ServiceBusFailureReason.MESSAGE_LOCK_LOST, lockLost.getReason());
+
+            InMemoryMessage second = source.receive(1, WAIT).get(0);
+            assertEquals(2, second.getDeliveryCount());
+            source.abandon(second);
+
+            assertTrue(source.receive(1, Duration.ZERO).isEmpty());
+            assertEquals(EmulatedEntity.MAX_DELIVERY_COUNT_EXCEEDED,
+                    queue.getDeadLetters().get(0).getDeadLetterReason());
+            assertEquals("Message could not be consumed after 2 delivery attempts.",
+                    queue.getDeadLetters().get(0).getDeadLetterErrorDescription());
+            assertEquals(1, queue.getLockExpiredCount());
+        }
+    }
+
+    @Test
+    public void locksDeadLettersAndRecordsWhyTheyWereDeadLettered() throws InterruptedException {
+        try (ServiceBusEmulator emulator = new ServiceBusEmulator()) {
+            EmulatedEntity queue = emulator.createQueue(new QueueSpec("orders", Duration.ofMillis(50), 5, null,
+                    null, null));
+            emulator.send("orders", new ServiceBusMessage("order"));
+            MessageSource<InMemoryMessage> source = queue.newSource();
+            source.deadLetter(source.receive(1, WAIT).get(0));
+
+            MessageSource<InMemoryMessage> deadLetterSource = queue.newDeadLetterSource();
+            InMemoryMessage first = deadLetterSource.receive(1, WAIT).get(0);
+            assertEquals(EmulatedEntity.DEAD_LETTERED_BY_RECEIVER, first.getDeadLetterReason());
+            assertEquals("Dead-lettered by the receiver after 1 delivery attempts.",
+                    first.getDeadLetterErrorDescription());
+            assertEquals(1, queue.getLockedMessageCount());
+            assertEquals(1, queue.getDeadLetterMessageCount());
+            assertTrue(deadLetterSource.receive(1, Duration.ZERO).isEmpty(), "locked while held");
+
+            Thread.sleep(300);
+            assertThrows(ServiceBusException.class, () -> deadLetterSource.complete(first));
+            InMemoryMessage second = deadLetterSource.receive(1, WAIT).get(0);
+            assertEquals(3, second.getDeliveryCount());
+            deadLetterSource.abandon(second);
+            InMemoryMessage third = deadLetterSource.receive(1, WAIT).get(0);
+            deadLetterSource.complete(third);
+
+            assertEquals(0, queue.getDeadLetterMessageCount());
+            assertEquals(0, queue.getLockedMessageCount());
+            assertEquals(1, queue.getLockExpiredCount());
+        }
+    }
+
+    @Test
+    public void holdsScheduledMessagesAndThrottles() throws InterruptedException {
+        try (ServiceBusEmulator emulator = new ServiceBusEmulator(new EmulatorOptions().setThrottleProbability(1))) {
+            emulator.createQueue("orders");
+            ServiceBusException throttled = assertThrows(ServiceBusException.class,
+                    () -> emulator.send("orders", new ServiceBusMessage("order")));
+            assertEquals(ServiceBusFailureReason.SERVICE_BUSY, throttled.getReason());
+            assertTrue(throttled.isTransient());
+        }
+        try (ServiceBusEmulator emulator = new ServiceBusEmulator()) {
+            EmulatedEntity queue = emulator.createQueue("orders");
+            emulator.send("orders", new ServiceBusMessage("later")
+                    .setScheduledEnqueueTime(OffsetDateTime.now().plusNanos(100_000_000)));
+            assertEquals(1, queue.getScheduledMessageCount());
+            assertEquals("later", queue.newSource().receive(1, Duration.ofSeconds(5)).get(0).getBodyAsString());
+        }
+    }
+
+    @Test
+    public void returnsUnsettledSessionMessagesWhenTheLinkCloses() {
+        try (ServiceBusEmulator emulator = new ServiceBusEmulator(new EmulatorOptions()
+                .setSessionAcceptTimeout(WAIT))) {
+            EmulatedEntity queue = emulator.createQueue(new QueueSpec("carts", null, null, null, true, null));
+            assertThrows(IllegalArgumentException.class, () -> emulator.send("carts", new ServiceBusMessage("x")));
+            emulator.send("carts", List.of(new ServiceBusMessage("a").setSessionId("cart-1"),
+                    new ServiceBusMessage("b").setSessionId("cart-1")));
+
+            SessionLink<InMemoryMessage> link = queue.newSessionSource().acceptNextSession();
+            List<InMemoryMessage> messages = link.receive(10, WAIT);
+            link.complete(messages.get(0));
+            link.close();
+
+            link = queue.newSessionSource().acceptNextSession();
+            InMemoryMessage returned = link.receive(10, WAIT).get(0);
+            assertEquals("b", returned.getBodyAsString());
+            link.complete(returned);
+            link.close();
+            assertNull(queue.newSessionSource().acceptNextSession());
+            assertEquals(2, queue.getCompletedCount());
+        }
+    }
+
+    private static ServiceBusMessage message(String id, String color, int size) {
+        ServiceBusMessage message = new ServiceBusMessage(color).setMessageId(id);
+        message.getApplicationProperties().put("color", color);
+        message.getApplicationProperties().put("size", size);
+        return message;
+    }
+}
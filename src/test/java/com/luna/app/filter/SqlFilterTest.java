@@ -0,0 +1,64 @@
+package com.luna.app.filter;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+public class SqlFilterTest {
+
+    private static final Map<String, Object> RED_ORDER = Map.of(
+            "color", "red", "quantity", 12, "price", 9.5, "region", "eu-west", "priority", true);
+
+    @Test
+    public void evaluatesOperatorsWithThreeValuedLogic() {
+        assertTrue(SqlFilter.compile("color = 'red'").test(RED_ORDER));
+        assertTrue(SqlFilter.compile("user.color <> 'blue' AND quantity >= 12").test(RED_ORDER));
+        assertTrue(SqlFilter.compile("quantity = 12.0 AND price < 10").test(RED_ORDER));
+        assertTrue(SqlFilter.compile("color IN ('red', 'green') AND region LIKE 'eu-%'").test(RED_ORDER));
+        assertTrue(SqlFilter.compile("region NOT LIKE '%east' AND EXISTS(price) AND missing IS NULL").test(RED_ORDER));
+        assertTrue(SqlFilter.compile("priority AND NOT (color = 'blue' OR quantity < 0)").test(RED_ORDER));
+        assertTrue(SqlFilter.compile("1 = 1").test(Map.of()));
+
+        // unknown: comparisons with a missing property or mismatched types never match, even when negated
+        assertFalse(SqlFilter.compile("missing = 'x'").test(RED_ORDER));
+        assertFalse(SqlFilter.compile("NOT (missing = 'x')").test(RED_ORDER));
+        assertFalse(SqlFilter.compile("quantity = '12'").test(RED_ORDER));
+        assertTrue(SqlFilter.compile("missing = 'x' OR color = 'red'").test(RED_ORDER));
+        assertTrue(SqlFilter.compile("name LIKE 'it''s\\_%' ESCAPE '\\'").test(Map.of("name", "it's_ok")));
+        assertFalse(SqlFilter.compile("name LIKE 'a_c'").test(Map.of("name", "abbc")));
+    }
+
+    @Test
+    public void rejectsInvalidExpressionsWithPosition() {
+        FilterSyntaxException e = assertThrows(FilterSyntaxException.class,
+                () -> SqlFilter.compile("color = 'red' AND"));
+        assertEquals(17, e.getPosition());
+        assertThrows(FilterSyntaxException.class, () -> SqlFilter.compile("color = 'red"));
+        assertThrows(FilterSyntaxException.class, () -> SqlFilter.compile("color IN ()"));
+        assertThrows(FilterSyntaxException.class, () -> SqlFilter.compile("(color = 'red'"));
+    }
+
+    @Test
+    public void routesThroughIndexedAndUnindexedRules() {
+        FilterRouter<String> router = new FilterRouter<String>()
+                .addRule("reds", "color = 'red'", "sub1")
+                .addRule("big", "quantity > 10", "sub2")
+                .addRule("eu-reds", "region IN ('eu-west', 'eu-north') AND color = 'red'", "sub3")
+                .addRule("blues", "color = 'blue'", "sub4");
+
+        assertEquals(List.of("sub1", "sub2", "sub3"), router.route(RED_ORDER));
+        assertEquals(List.of("sub4"), router.route(Map.of("color", "blue")));
+        assertTrue(router.route(Map.of("color", "green")).isEmpty());
+        assertFalse(router.hasMatch(Map.of("color", "green")));
+
+        router.removeRule("big");
+        assertEquals(List.of("sub1", "sub3"), router.route(RED_ORDER));
+        assertEquals(3, router.getRuleCount());
+    }
+}
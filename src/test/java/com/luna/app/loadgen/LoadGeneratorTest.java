@@ -0,0 +1,95 @@
+package com.luna.app.loadgen;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.luna.app.emulator.EmulatedEntity;
+import com.luna.app.emulator.ServiceBusEmulator;
+import com.luna.app.queue.InMemoryMessage;
+import com.luna.app.queue.MessageLimits;
+import com.luna.app.queue.MessageSink;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+public class LoadGeneratorTest {
+
+    @Test
+    public void parsesSizeDistributions() {
+        SplittableRandom random = new SplittableRandom(1);
+
+        assertEquals(512, SizeDistribution.parse("512").sample(random));
+        assertEquals("fixed:512", SizeDistribution.parse("fixed:512").toString());
+        SizeDistribution uniform = SizeDistribution.parse("uniform:100-200");
+        SizeDistribution logNormal = SizeDistribution.parse("lognormal:2048,1.5");
+        for (int i = 0; i < 10_000; i++) {
+            int size = uniform.sample(random);
+            assertTrue(size >= 100 && size <= 200, "uniform size " + size);
+            size = logNormal.sample(random);
+            assertTrue(size >= 0 && size <= MessageLimits.MAX_MESSAGE_SIZE, "log-normal size " + size);
+        }
+        assertThrows(IllegalArgumentException.class, () -> SizeDistribution.parse("uniform:200-100"));
+        assertThrows(IllegalArgumentException.class, () -> SizeDistribution.parse("lognormal:2048"));
+        assertThrows(IllegalArgumentException.class, () -> SizeDistribution.parse("fixed:" + Integer.MAX_VALUE));
+        assertThrows(IllegalArgumentException.class, () -> SizeDistribution.parse("pareto:1,2"));
+    }
+
+    @Test
+    public void measuresLatencyFromTheScheduleWhenTheSinkStalls() throws InterruptedException {
+        try (ServiceBusEmulator emulator = new ServiceBusEmulator()) {
+            EmulatedEntity queue = emulator.createQueue("load");
+            MessageSink emulated = emulator.newSink("load");
+            AtomicInteger sends = new AtomicInteger();
+            MessageSink stalling = new MessageSink() {
+                @Override
+                public Batch createBatch() {
+                    return emulated.createBatch();
+                }
+
+                @Override
+                public void send(Batch batch) {
+                    if (sends.incrementAndGet() == 100) {
+                        try {
+                            Thread.sleep(300);
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                        }
+                    }
+                    emulated.send(batch);
+                }
+            };
+            LoadOptions options = new LoadOptions()
+                    .setRatePerSecond(500)
+                    .setConcurrency(1)
+                    .setDuration(Duration.ofSeconds(1))
+                    .setReportInterval(Duration.ofMillis(250))
+                    .setSizeDistribution(SizeDistribution.uniform(10, 20))
+                    .addProperty("region", 2)
+                    .setSessionKeys(3);
+            List<LoadReport> progress = new ArrayList<>();
+
+            LoadReport report = new LoadGenerator(stalling, options).run(progress::add);
+
+            assertEquals(3, progress.size());
+            assertEquals(0, report.failed());
+            assertEquals(report.sent(), queue.getActiveMessageCount());
+            assertTrue(progress.stream().mapToLong(LoadReport::sent).sum() <= report.sent());
+            assertTrue(report.sent() >= 400 && report.sent() <= 500, "sent " + report.sent());
+            // Sends queued behind the stall are late by up to its length, although each send itself was fast
+            assertTrue(report.responseTime().getMaxValue() >= 250_000, report.toString());
+            assertTrue(report.serviceTime().getValueAtPercentile(50) < 50_000, report.toString());
+
+            for (InMemoryMessage message : queue.newSource().receive(100, Duration.ZERO)) {
+                assertTrue(message.getBody().length >= 10 && message.getBody().length <= 20);
+                assertTrue(List.of("region-0", "region-1").contains(message.getApplicationProperties().get("region")));
+                assertTrue(message.getSessionId().startsWith("session-"));
+            }
+        }
+    }
+}
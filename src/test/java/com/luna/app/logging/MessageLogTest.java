@@ -0,0 +1,122 @@
+package com.luna.app.logging;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.Test;
+
+public class MessageLogTest {
+
+    private static final byte[] BODY = "{\"orderId\":42,\"color\":\"red\"}".getBytes(StandardCharsets.UTF_8);
+
+    @Test
+    public void writesFixedFieldsWithoutTheBody() throws InterruptedException {
+        List<String> lines = new ArrayList<>();
+        CountDownLatch written = new CountDownLatch(1);
+        try (MessageLog log = new MessageLog(new MessageLogOptions().setFlushInterval(Duration.ofMillis(10)), text -> {
+            text.toString().lines().forEach(lines::add);
+            written.countDown();
+        })) {
+            log.forEntity("orders").log(MessageEvent.COMPLETED, 7, "message-7", BODY, 2_500_000);
+            assertTrue(written.await(5, TimeUnit.SECONDS));
+        }
+
+        assertEquals(1, lines.size());
+        String line = lines.get(0);
+        assertTrue(line.endsWith(" orders COMPLETED seq=7 id=message-7 size=" + BODY.length + " latency=2500us"), line);
+        assertFalse(line.contains("orderId"));
+    }
+
+    @Test
+    public void previewsTheBodyWhenAsked() {
+        StringBuilder output = new StringBuilder();
+        try (MessageLog log = new MessageLog(new MessageLogOptions().setBodyPreviewBytes(12), output::append)) {
+            log.forEntity("orders").log(MessageEvent.RECEIVED, 1, "message-1", BODY, -1);
+        }
+
+        assertTrue(output.toString().contains("size=" + BODY.length + " body=\"{\"orderId\":4...\""), output.toString());
+    }
+
+    @Test
+    public void dropsEventsInsteadOfBlockingWhenFull() {
+        List<String> lines = new ArrayList<>();
+        MessageLogOptions options = new MessageLogOptions().setCapacity(64);
+        try (MessageLog log = new MessageLog(options, text -> text.toString().lines().forEach(lines::add), false)) {
+            MessageLogger orders = log.forEntity("orders");
+            for (int i = 0; i < 100; i++) {
+                orders.log(MessageEvent.RECEIVED, i, "message-" + i, BODY, -1);
+            }
+            assertEquals(36, log.getDroppedCount());
+        }
+
+        assertEquals(64, lines.size());
+        assertTrue(lines.get(63).contains("seq=63 "));
+    }
+
+    @Test
+    public void assignsEachEntityItsOwnIndexUnderConcurrentLookups() throws InterruptedException {
+        List<String> lines = new ArrayList<>();
+        try (MessageLog log = new MessageLog(new MessageLogOptions(), text -> text.toString().lines().forEach(lines::add),
+                false)) {
+            Thread[] threads = new Thread[8];
+            for (int t = 0; t < threads.length; t++) {
+                threads[t] = new Thread(() -> {
+                    for (int e = 0; e < 200; e++) {
+                        log.forEntity("entity-" + e).log(MessageEvent.RECEIVED, e, "message", BODY, -1);
+                    }
+                });
+                threads[t].start();
+            }
+            for (Thread thread : threads) {
+                thread.join();
+            }
+        }
+
+        assertEquals(1_600, lines.size());
+        for (String line : lines) {
+            String entity = line.split(" ")[1];
+            assertTrue(line.contains(" seq=" + entity.substring("entity-".length()) + " "), line);
+        }
+    }
+
+    @Test
+    public void accountsForEveryEventLoggedWhileClosing() throws InterruptedException {
+        AtomicLong lines = new AtomicLong();
+        AtomicLong buffered = new AtomicLong();
+        MessageLog log = new MessageLog(new MessageLogOptions().setCapacity(1_024),
+                text -> lines.addAndGet(text.toString().lines().count()));
+        MessageLogger orders = log.forEntity("orders");
+        CountDownLatch started = new CountDownLatch(4);
+        Thread[] writers = new Thread[4];
+        for (int w = 0; w < writers.length; w++) {
+            writers[w] = new Thread(() -> {
+                started.countDown();
+                for (int i = 0; i < 50_000; i++) {
+                    if (orders.log(MessageEvent.RECEIVED, i, "message", BODY, -1)) {
+                        buffered.incrementAndGet();
+                    }
+                }
+            });
+            writers[w].start();
+        }
+
+        started.await();
+        log.close();
+        for (Thread writer : writers) {
+            writer.join();
+        }
+
+        assertEquals(buffered.get(), log.getWrittenCount());
+        assertEquals(buffered.get(), lines.get());
+        assertEquals(200_000, log.getWrittenCount() + log.getDroppedCount());
+    }
+}
@@ -0,0 +1,58 @@
+package com.luna.app.metrics;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+import org.junit.jupiter.api.Test;
+
+public class HistogramTest {
+
+    @Test
+    public void bucketsCoverTheWholeRangeWithoutGaps() {
+        assertEquals(0, Histogram.bucketOf(0));
+        assertEquals(Histogram.BUCKET_COUNT - 1, Histogram.bucketOf(Long.MAX_VALUE));
+        for (int bucket = 1; bucket < Histogram.BUCKET_COUNT; bucket++) {
+            assertEquals(Histogram.highestValue(bucket - 1) + 1, Histogram.lowestValue(bucket));
+            assertEquals(bucket, Histogram.bucketOf(Histogram.lowestValue(bucket)));
+            assertEquals(bucket, Histogram.bucketOf(Histogram.highestValue(bucket)));
+        }
+    }
+
+    @Test
+    public void percentilesAreWithinOneSixteenth() {
+        Histogram histogram = new Histogram();
+        List<Long> values = new ArrayList<>();
+        for (int i = 0; i < 100_000; i++) {
+            long value = ThreadLocalRandom.current().nextLong(1_000, 50_000_000);
+            values.add(value);
+            histogram.record(value);
+        }
+        values.sort(null);
+
+        for (double percentile : new double[]{50, 90, 99, 99.9}) {
+            long exact = values.get((int) Math.ceil(values.size() * percentile / 100) - 1);
+            long estimate = histogram.getValueAtPercentile(percentile);
+            assertTrue(estimate >= exact && estimate <= exact + exact / 16, percentile + ": " + estimate + " vs " + exact);
+        }
+        assertEquals(values.get(values.size() - 1), histogram.getMax());
+        assertEquals(100_000, histogram.getCount());
+    }
+
+    @Test
+    public void registryReturnsTheSameMetricPerEntity() {
+        MetricsRegistry registry = new MetricsRegistry();
+        registry.entity("orders").getDeadLettered().increment();
+        registry.entity("orders").getDeadLettered().increment();
+        registry.entity("topic001/subscriptions/sub1").getDeadLettered().increment();
+
+        assertEquals(2, registry.counter(EntityMetrics.DEAD_LETTERED, "orders").getCount());
+        assertEquals(1, registry.counter(EntityMetrics.DEAD_LETTERED, "topic001/subscriptions/sub1").getCount());
+        assertTrue(registry.report().contains("topic001/subscriptions/sub1"));
+        assertThrows(IllegalArgumentException.class, () -> registry.timer(EntityMetrics.DEAD_LETTERED, "orders"));
+    }
+}
@@ -0,0 +1,286 @@
+package com.luna.app.outbox;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Stream;
+
+import com.azure.core.amqp.exception.AmqpErrorCondition;
+import com.azure.core.amqp.exception.AmqpException;
+import com.azure.messaging.servicebus.ServiceBusErrorSource;
+import com.azure.messaging.servicebus.ServiceBusException;
+import com.azure.messaging.servicebus.ServiceBusMessage;
+import com.luna.app.emulator.ServiceBusEmulator;
+import com.luna.app.queue.InMemoryMessage;
+import com.luna.app.queue.MessageSink;
+import com.luna.app.queue.MessageSource;
+import com.luna.app.retry.RetryPolicy;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class OutboxTest {
+
+    private static final Duration WAIT = Duration.ofSeconds(10);
+
+    @TempDir
+    Path directory;
+
+    @Test
+    public void acknowledgesDuringOutageAndDrainsInOrder() throws InterruptedException, IOException {
+        try (ServiceBusEmulator emulator = new ServiceBusEmulator()) {
+            emulator.createQueue("orders");
+            OutageSink sink = new OutageSink(emulator.newSink("orders"));
+            try (Outbox outbox = new Outbox("orders", directory, sink, options())) {
+                List<CompletableFuture<Void>> sends = new ArrayList<>();
+                for (int i = 0; i < 200; i++) {
+                    ServiceBusMessage message = new ServiceBusMessage("order " + i).setSessionId("cart-" + i % 3);
+                    message.getApplicationProperties().put("quantity", (long) i);
+                    sends.add(outbox.send(message));
+                }
+                CompletableFuture.allOf(sends.toArray(new CompletableFuture<?>[0])).join();
+                assertEquals(200, outbox.getBacklog());
+
+                sink.available = true;
+                assertTrue(outbox.awaitDrained(WAIT));
+                assertEquals(0, outbox.getBacklog());
+                assertTrue(outbox.getDrainFailures() > 0);
+                assertTrue(outbox.getCommitCount() <= outbox.getAppendedCount());
+            }
+
+            List<InMemoryMessage> received = receiveAll(emulator, 200);
+            for (int i = 0; i < received.size(); i++) {
+                InMemoryMessage message = received.get(i);
+                assertEquals("order " + i, message.getBodyAsString());
+                assertEquals("cart-" + i % 3, message.getSessionId());
+                assertEquals((long) i, message.getApplicationProperties().get("quantity"));
+                assertNotNull(message.getMessageId());
+            }
+            assertEquals(1, segmentCount(), "drained segments are deleted");
+        }
+    }
+
+    @Test
+    public void recoversUndrainedMessagesAfterRestart() throws InterruptedException, IOException {
+        try (ServiceBusEmulator emulator = new ServiceBusEmulator()) {
+            emulator.createQueue("orders");
+            try (Outbox outbox = new Outbox("orders", directory, new OutageSink(emulator.newSink("orders")),
+                    options())) {
+                for (int i = 0; i < 50; i++) {
+                    outbox.send(new ServiceBusMessage("order " + i)).join();
+                }
+            }
+            // Bytes after the last record, as a crash in the middle of an append would leave them
+            Path last = lastSegment();
+            try (FileChannel channel = FileChannel.open(last, StandardOpenOption.WRITE)) {
+                channel.write(ByteBuffer.wrap(new byte[] {0, 0, 0, 100, 1, 2, 3, 4}), channel.size() - 8);
+            }
+
+            // Reopens behind an outage so that the backlog is read before the drainer sends anything
+            OutageSink sink = new OutageSink(emulator.newSink("orders"));
+            try (Outbox outbox = new Outbox("orders", directory, sink, options())) {
+                assertEquals(50, outbox.getBacklog());
+                sink.available = true;
+                assertTrue(outbox.awaitDrained(WAIT));
+                outbox.send(new ServiceBusMessage("order 50")).join();
+                assertTrue(outbox.awaitDrained(WAIT));
+            }
+            try (Outbox outbox = new Outbox("orders", directory, emulator.newSink("orders"), options())) {
+                assertEquals(0, outbox.getBacklog(), "the checkpoint covers everything drained");
+            }
+
+            List<InMemoryMessage> received = receiveAll(emulator, 51);
+            assertEquals("order 0", received.get(0).getBodyAsString());
+            assertEquals("order 50", received.get(50).getBodyAsString());
+            assertEquals(0, emulator.getQueue("orders").getActiveMessageCount());
+        }
+    }
+
+    @Test
+    public void recoveryStopsAtTheLastIntactRecord() throws InterruptedException, IOException {
+        try (ServiceBusEmulator emulator = new ServiceBusEmulator()) {
+            emulator.createQueue("orders");
+            try (Outbox outbox = new Outbox("orders", directory, new OutageSink(emulator.newSink("orders")),
+                    options())) {
+                for (int i = 0; i < 50; i++) {
+                    outbox.send(new ServiceBusMessage("order " + i)).join();
+                }
+            }
+            // Flip a byte in the body of the last record, as a write torn by a crash would leave it
+            Path last = lastSegment();
+            ByteBuffer segment = ByteBuffer.wrap(Files.readAllBytes(last));
+            int lastRecord = 0;
+            for (int offset = 0; offset + 8 <= segment.limit() && segment.getInt(offset) > 0;
+                 offset += 8 + segment.getInt(offset)) {
+                lastRecord = offset;
+            }
+            int lastByte = lastRecord + 8 + segment.getInt(lastRecord) - 1;
+            segment.put(lastByte, (byte) (segment.get(lastByte) ^ 0xFF));
+            Files.write(last, segment.array());
+
+            OutageSink sink = new OutageSink(emulator.newSink("orders"));
+            try (Outbox outbox = new Outbox("orders", directory, sink, options())) {
+                assertEquals(49, outbox.getBacklog());
+                sink.available = true;
+                outbox.send(new ServiceBusMessage("order 50")).join();
+                assertTrue(outbox.awaitDrained(WAIT));
+            }
+
+            List<InMemoryMessage> received = receiveAll(emulator, 50);
+            assertEquals("order 48", received.get(48).getBodyAsString());
+            assertEquals("order 50", received.get(49).getBodyAsString());
+            assertEquals(0, emulator.getQueue("orders").getActiveMessageCount());
+        }
+    }
+
+    @Test
+    public void quarantinesMessagesTheEntityRefusesAndMovesOn() throws InterruptedException, IOException {
+        try (ServiceBusEmulator emulator = new ServiceBusEmulator()) {
+            emulator.createQueue("orders");
+            try (Outbox outbox = new Outbox("orders", directory, new RefusingSink(emulator), options())) {
+                for (int i = 0; i < 100; i++) {
+                    ServiceBusMessage message = new ServiceBusMessage("order " + i);
+                    message.getApplicationProperties().put("refused", i % 25 == 7);
+                    outbox.send(message).join();
+                }
+                assertTrue(outbox.awaitDrained(WAIT));
+                assertEquals(4, outbox.getQuarantinedCount());
+                assertEquals(96, outbox.getDrainedCount());
+                assertEquals(0, outbox.getBacklog());
+            }
+
+            List<InMemoryMessage> received = receiveAll(emulator, 96);
+            assertEquals("order 6", received.get(6).getBodyAsString());
+            assertEquals("order 8", received.get(7).getBodyAsString());
+            List<ServiceBusMessage> quarantined = Outbox.readQuarantine(directory);
+            assertEquals(List.of("order 7", "order 32", "order 57", "order 82"),
+                    quarantined.stream().map(message -> message.getBody().toString()).toList());
+        }
+    }
+
+    @Test
+    public void rejectsOversizeMessagesOnSend() {
+        try (ServiceBusEmulator emulator = new ServiceBusEmulator()) {
+            emulator.createQueue("orders");
+            try (Outbox outbox = new Outbox("orders", directory, emulator.newSink("orders"),
+                    options().setMaxMessageBytes(1024))) {
+                assertThrows(IllegalArgumentException.class,
+                        () -> outbox.send(new ServiceBusMessage(new byte[2000])));
+                outbox.send(new ServiceBusMessage(new byte[500])).join();
+                assertEquals(1, outbox.getAppendedCount());
+            }
+        }
+    }
+
+    private static OutboxOptions options() {
+        return new OutboxOptions()
+                .setSegmentBytes(2048)
+                .setMaxBatchMessages(16)
+                .setRetryPolicy(new RetryPolicy().setInitialDelay(Duration.ofMillis(5))
+                        .setMaxDelay(Duration.ofMillis(20)));
+    }
+
+    private static List<InMemoryMessage> receiveAll(ServiceBusEmulator emulator, int count) {
+        MessageSource<InMemoryMessage> source = emulator.getQueue("orders").newSource();
+        List<InMemoryMessage> received = new ArrayList<>();
+        while (received.size() < count) {
+            List<InMemoryMessage> messages = source.receive(count, Duration.ofMillis(100));
+            assertTrue(!messages.isEmpty(), "expected " + count + " messages but got " + received.size());
+            received.addAll(messages);
+        }
+        return received;
+    }
+
+    private Path lastSegment() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(path -> path.toString().endsWith(".segment")).sorted().reduce((a, b) -> b)
+                    .orElseThrow();
+        }
+    }
+
+    private long segmentCount() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(path -> path.toString().endsWith(".segment")).count();
+        }
+    }
+
+    /**
+     * Refuses, as the broker refuses a message it will never accept, every batch holding a message marked refused.
+     */
+    private static final class RefusingSink implements MessageSink {
+
+        private final ServiceBusEmulator emulator;
+
+        RefusingSink(ServiceBusEmulator emulator) {
+            this.emulator = emulator;
+        }
+
+        @Override
+        public Batch createBatch() {
+            return new ListBatch();
+        }
+
+        @Override
+        public void send(Batch batch) {
+            List<ServiceBusMessage> messages = ((ListBatch) batch).messages;
+            if (messages.stream().anyMatch(message -> (Boolean) message.getApplicationProperties().get("refused"))) {
+                throw new ServiceBusException(new AmqpException(false, AmqpErrorCondition.NOT_ALLOWED,
+                        "The message was refused", null), ServiceBusErrorSource.SEND);
+            }
+            emulator.send("orders", messages);
+        }
+    }
+
+    private static final class ListBatch implements MessageSink.Batch {
+
+        private final List<ServiceBusMessage> messages = new ArrayList<>();
+
+        @Override
+        public boolean tryAddMessage(ServiceBusMessage message) {
+            return messages.add(message);
+        }
+
+        @Override
+        public int getCount() {
+            return messages.size();
+        }
+    }
+
+    /**
+     * Fails every send until the broker is made available again.
+     */
+    private static final class OutageSink implements MessageSink {
+
+        private final MessageSink delegate;
+        private volatile boolean available;
+
+        OutageSink(MessageSink delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public Batch createBatch() {
+            return delegate.createBatch();
+        }
+
+        @Override
+        public void send(Batch batch) {
+            if (!available) {
+                throw new IllegalStateException("Broker unavailable");
+            }
+            delegate.send(batch);
+        }
+    }
+}
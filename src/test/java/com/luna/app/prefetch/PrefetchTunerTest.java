@@ -0,0 +1,41 @@
+package com.luna.app.prefetch;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+
+import org.junit.jupiter.api.Test;
+
+public class PrefetchTunerTest {
+
+    private final PrefetchSimulation simulation = new PrefetchSimulation(8, Duration.ofMillis(20),
+            Duration.ofMillis(10), Duration.ofSeconds(5), 20_000, Duration.ofMinutes(10), 42L);
+
+    @Test
+    public void tunerReachesPlateauWithoutLosingLocks() {
+        PrefetchTuner tuner = new PrefetchTuner(0, 8192, Duration.ofSeconds(5), 0.5, Duration.ofSeconds(1));
+
+        PrefetchSimulation.Result tuned = simulation.run(tuner);
+        PrefetchSimulation.Result best = simulation.run(64);
+
+        assertEquals(0, tuned.locksLost());
+        assertTrue(tuned.throughput() > best.throughput() * 0.95);
+        assertTrue(tuner.getPrefetch() < 1024);
+    }
+
+    @Test
+    public void tunerBacksOffWhenLocksAreLost() {
+        PrefetchTuner tuner = new PrefetchTuner(0, 8192, Duration.ofSeconds(5), 0.5, Duration.ofSeconds(1));
+        tuner.evaluate(0);
+        for (int i = 0; i < 10; i++) {
+            tuner.recordSettled(Duration.ofMillis(100).toNanos());
+        }
+        int before = tuner.evaluate(Duration.ofSeconds(1).toNanos());
+
+        tuner.recordLockLost();
+        int after = tuner.evaluate(Duration.ofSeconds(2).toNanos());
+
+        assertTrue(after < before);
+    }
+}
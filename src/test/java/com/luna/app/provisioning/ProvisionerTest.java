@@ -0,0 +1,92 @@
+package com.luna.app.provisioning;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+public class ProvisionerTest {
+
+    private static final String ENVIRONMENT = """
+            {
+              "queues": [
+                { "name": "queue001", "lockDuration": "PT60S", "maxDeliveryCount": 4 },
+                { "name": "queue002" }
+              ],
+              "topics": [
+                { "name": "topic001", "subscriptions": [
+                  { "name": "sub1", "rules": { "red": "color = 'red'" } },
+                  { "name": "all" }
+                ] }
+              ]
+            }
+            """;
+
+    private final InMemoryEntityAdmin admin = new InMemoryEntityAdmin(Duration.ofMillis(5));
+    private final ProvisioningOptions options = new ProvisioningOptions()
+            .setMaxConcurrency(4)
+            .setMaxOperationsPerSecond(1_000);
+
+    @Test
+    public void provisionsFromScratchAndThenHasNothingToDo() {
+        Provisioner provisioner = new Provisioner(admin, options);
+
+        ProvisioningPlan plan = provisioner.plan(DesiredState.parse(ENVIRONMENT));
+        assertEquals(6, plan.count(Change.Type.CREATE));
+        // the broker's $Default rule is replaced by the declared one
+        assertEquals(1, plan.count(Change.Type.DELETE));
+
+        ProvisioningReport report = provisioner.apply(plan);
+        assertTrue(report.isSuccess(), report::toString);
+        assertEquals(7, report.applied().size());
+        assertEquals(Map.of("red", "color = 'red'"), admin.listRules("topic001", "sub1").join());
+        assertEquals(Map.of(Provisioner.DEFAULT_RULE, "1=1"), admin.listRules("topic001", "all").join());
+        assertTrue(admin.getMaxConcurrentCalls() <= 4);
+
+        assertTrue(provisioner.plan(DesiredState.parse(ENVIRONMENT)).isEmpty());
+    }
+
+    @Test
+    public void reconcilesDriftAndPrunesUndeclaredEntities() {
+        new Provisioner(admin, options).provision(DesiredState.parse(ENVIRONMENT));
+        DesiredState changed = new DesiredState(
+                List.of(new QueueSpec("queue001", Duration.ofSeconds(30), 4, null, true, null)),
+                List.of(new TopicSpec("topic001", List.of(
+                        new SubscriptionSpec("sub1", Map.of("red", "color = 'crimson'")),
+                        new SubscriptionSpec("all", null)))));
+
+        Provisioner provisioner = new Provisioner(admin, new ProvisioningOptions().setPrune(true));
+        ProvisioningPlan plan = provisioner.plan(changed);
+
+        assertEquals(2, plan.count(Change.Type.UPDATE));
+        assertEquals(1, plan.count(Change.Type.DELETE));
+        assertEquals(1, plan.warnings().size());
+        assertTrue(provisioner.apply(plan).isSuccess());
+        assertEquals(List.of("queue001"), admin.listQueues().join().stream().map(QueueSpec::name).toList());
+        assertEquals(Duration.ofSeconds(30), admin.listQueues().join().get(0).lockDuration());
+        assertEquals(Map.of("red", "color = 'crimson'"), admin.listRules("topic001", "sub1").join());
+    }
+
+    @Test
+    public void skipsChildrenOfFailedParents() {
+        admin.createQueue(new QueueSpec("topic001")).join();
+
+        ProvisioningReport report = new Provisioner(admin, options).provision(DesiredState.parse(ENVIRONMENT));
+
+        assertEquals(1, report.failed().size());
+        // both subscriptions, the red rule and the $Default rule removal
+        assertEquals(4, report.skipped().size());
+    }
+
+    @Test
+    public void rejectsInvalidRulesBeforeChangingAnything() {
+        IllegalArgumentException error = assertThrows(IllegalArgumentException.class,
+                () -> DesiredState.parse(ENVIRONMENT.replace("color = 'red'", "color = ")));
+        assertTrue(error.getMessage().contains("Rule red of topic001/sub1"), error.getMessage());
+    }
+}
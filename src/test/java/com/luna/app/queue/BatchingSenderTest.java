@@ -0,0 +1,112 @@
+package com.luna.app.queue;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+
+import com.azure.messaging.servicebus.ServiceBusMessage;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.junit.jupiter.api.Test;
+
+public class BatchingSenderTest {
+
+    @Test
+    public void groupsMessagesIntoBoundedBatches() {
+        InMemoryQueue queue = new InMemoryQueue();
+        BatchingOptions options = new BatchingOptions()
+                .setMaxLinger(Duration.ofMillis(50))
+                .setMaxBatchMessages(100);
+        List<CompletableFuture<Void>> futures = new ArrayList<>();
+
+        try (BatchingSender sender = new BatchingSender("test", queue.newSink(), options)) {
+            for (int i = 0; i < 1000; i++) {
+                futures.add(sender.send(new ServiceBusMessage("Message " + i)));
+            }
+            CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0])).join();
+
+            assertEquals(1000, sender.getMessagesSent());
+            assertTrue(sender.getBatchesSent() >= 10);
+            assertTrue(sender.getBatchesSent() < 1000);
+        }
+        assertEquals(1000, queue.getActiveMessageCount());
+    }
+
+    @Test
+    public void splitsBatchesAtTheSizeLimit() {
+        InMemoryQueue queue = new InMemoryQueue();
+        byte[] body = new byte[MessageLimits.MAX_MESSAGE_SIZE / 3];
+
+        try (BatchingSender sender = new BatchingSender("test", queue.newSink(), new BatchingOptions())) {
+            List<CompletableFuture<Void>> futures = new ArrayList<>();
+            for (int i = 0; i < 6; i++) {
+                futures.add(sender.send(new ServiceBusMessage(body)));
+            }
+            CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0])).join();
+
+            assertEquals(3, sender.getBatchesSent());
+        }
+    }
+
+    @Test
+    public void completesEveryMessageSubmittedWhileClosing() throws InterruptedException {
+        InMemoryQueue queue = new InMemoryQueue();
+        BatchingOptions options = new BatchingOptions()
+                .setMaxLinger(Duration.ofMillis(1))
+                .setMaxPendingMessages(1);
+        List<CompletableFuture<Void>> futures = Collections.synchronizedList(new ArrayList<>());
+        BatchingSender sender = new BatchingSender("test", queue.newSink(), options);
+        List<Thread> producers = new ArrayList<>();
+        for (int p = 0; p < 4; p++) {
+            Thread producer = new Thread(() -> {
+                for (int i = 0; i < 5_000; i++) {
+                    futures.add(sender.send(new ServiceBusMessage("Message " + i)));
+                }
+            });
+            producers.add(producer);
+            producer.start();
+        }
+
+        Thread.sleep(20);
+        sender.close();
+        for (Thread producer : producers) {
+            producer.join();
+        }
+
+        long failed = 0;
+        for (CompletableFuture<Void> future : futures) {
+            try {
+                future.get(5, TimeUnit.SECONDS);
+            } catch (ExecutionException e) {
+                assertTrue(e.getCause() instanceof IllegalStateException);
+                failed++;
+            } catch (TimeoutException e) {
+                fail("A message submitted while closing was never completed");
+            }
+        }
+        assertEquals(20_000, futures.size());
+        assertEquals(queue.getActiveMessageCount(), futures.size() - failed);
+    }
+
+    @Test
+    public void failsMessagesThatNeverFit() {
+        InMemoryQueue queue = new InMemoryQueue();
+
+        try (BatchingSender sender = new BatchingSender("test", queue.newSink(), new BatchingOptions())) {
+            ServiceBusMessage message = new ServiceBusMessage(new byte[MessageLimits.MAX_MESSAGE_SIZE]);
+            CompletableFuture<Void> future = sender.send(message);
+
+            ExecutionException error = assertThrows(ExecutionException.class, () -> future.get(5, TimeUnit.SECONDS));
+            assertTrue(error.getCause() instanceof IllegalArgumentException);
+        }
+    }
+}
@@ -0,0 +1,128 @@
+package com.luna.app.queue;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.luna.app.metrics.EntityMetrics;
+import com.luna.app.metrics.Gauge;
+import com.luna.app.metrics.MetricId;
+import com.luna.app.metrics.MetricsRegistry;
+import org.junit.jupiter.api.Test;
+
+public class ConsumerEngineTest {
+
+    private static final ConsumerOptions OPTIONS = new ConsumerOptions()
+            .setReceiverCount(2)
+            .setWorkerCount(4)
+            .setMaxInFlight(8)
+            .setMaxWaitTime(Duration.ofMillis(50));
+
+    @Test
+    public void completesEveryMessage() throws InterruptedException {
+        InMemoryQueue queue = new InMemoryQueue();
+        for (int i = 0; i < 500; i++) {
+            queue.send("Message " + i);
+        }
+        CountDownLatch done = new CountDownLatch(500);
+
+        try (ConsumerEngine<InMemoryMessage> engine = new ConsumerEngine<>("test", queue::newSource, message -> {
+            done.countDown();
+            return Disposition.COMPLETE;
+        }, OPTIONS)) {
+            engine.start();
+            assertTrue(done.await(10, TimeUnit.SECONDS));
+        }
+
+        assertEquals(500, queue.getCompletedCount());
+        assertEquals(0, queue.getActiveMessageCount());
+    }
+
+    @Test
+    public void failingHandlerAbandonsUntilDeadLettered() throws InterruptedException {
+        InMemoryQueue queue = new InMemoryQueue(Duration.ZERO, Duration.ZERO, 3);
+        queue.send("poison");
+
+        try (ConsumerEngine<InMemoryMessage> engine = new ConsumerEngine<>("test", queue::newSource, message -> {
+            throw new IllegalStateException("boom");
+        }, OPTIONS)) {
+            engine.start();
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+            while (queue.getDeadLetters().isEmpty() && System.nanoTime() < deadline) {
+                Thread.sleep(10);
+            }
+            assertEquals(3, engine.getFailedCount());
+        }
+
+        assertEquals(1, queue.getDeadLetters().size());
+        assertEquals(3, queue.getDeadLetters().get(0).getDeliveryCount());
+    }
+
+    @Test
+    public void threadPerMessageModeRespectsInFlightLimit() throws InterruptedException {
+        InMemoryQueue queue = new InMemoryQueue();
+        for (int i = 0; i < 200; i++) {
+            queue.send("Message " + i);
+        }
+        CountDownLatch done = new CountDownLatch(200);
+        AtomicInteger concurrent = new AtomicInteger();
+        AtomicInteger maxConcurrent = new AtomicInteger();
+        ConsumerOptions options = new ConsumerOptions()
+                .setExecutionMode(ExecutionMode.VIRTUAL_THREAD_PER_MESSAGE)
+                .setMaxInFlight(16)
+                .setMaxWaitTime(Duration.ofMillis(50));
+
+        try (ConsumerEngine<InMemoryMessage> engine = new ConsumerEngine<>("test", queue::newSource, message -> {
+            maxConcurrent.accumulateAndGet(concurrent.incrementAndGet(), Math::max);
+            Thread.sleep(2);
+            concurrent.decrementAndGet();
+            done.countDown();
+            return Disposition.COMPLETE;
+        }, options)) {
+            engine.start();
+            assertTrue(done.await(10, TimeUnit.SECONDS));
+        }
+
+        assertEquals(200, queue.getCompletedCount());
+        assertTrue(maxConcurrent.get() <= 16);
+    }
+
+    @Test
+    public void asyncSettlementCompletesEverythingBeforeClose() throws InterruptedException {
+        InMemoryQueue queue = new InMemoryQueue(Duration.ZERO, Duration.ofMillis(2), 10);
+        for (int i = 0; i < 300; i++) {
+            queue.send("Message " + i);
+        }
+        CountDownLatch done = new CountDownLatch(300);
+        MetricsRegistry registry = new MetricsRegistry();
+        ConsumerOptions options = new ConsumerOptions()
+                .setWorkerCount(2)
+                .setMaxInFlight(64)
+                .setMaxOutstandingSettlements(32)
+                .setMaxWaitTime(Duration.ofMillis(50))
+                .setMetricsRegistry(registry);
+
+        ConsumerEngine<InMemoryMessage> engine = new ConsumerEngine<>("test", queue::newSource, message -> {
+            done.countDown();
+            return Disposition.COMPLETE;
+        }, options);
+        try (engine) {
+            engine.start();
+            assertTrue(done.await(10, TimeUnit.SECONDS));
+        }
+
+        assertEquals(300, queue.getCompletedCount());
+        assertEquals(300, engine.getCompletedCount());
+        assertEquals(300, engine.getHandlerLatency().getCount());
+        assertEquals(300, engine.getSettlementLatency().getCount());
+        assertTrue(engine.getSettlementLatency().getMean().toNanos() >= TimeUnit.MILLISECONDS.toNanos(2));
+        assertEquals(300, registry.counter(EntityMetrics.COMPLETED, "test").getCount());
+        assertEquals(300, registry.timer(EntityMetrics.RECEIVE_TO_HANDLER, "test").getCount());
+        Gauge inFlight = (Gauge) registry.getMetrics().get(new MetricId(EntityMetrics.IN_FLIGHT, "test"));
+        assertEquals(0, inFlight.getValue());
+    }
+}
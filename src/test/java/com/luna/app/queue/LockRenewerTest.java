@@ -0,0 +1,167 @@
+package com.luna.app.queue;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.Test;
+
+public class LockRenewerTest {
+
+    private final AtomicLong now = new AtomicLong(1_000_000);
+
+    @Test
+    public void renewsEachLockAheadOfExpiryUntilCancelled() {
+        LockSource source = new LockSource(Duration.ofSeconds(60));
+        LockRenewer renewer = new LockRenewer(Duration.ofSeconds(10), Duration.ofMinutes(5), 100, 256, now::get,
+                Runnable::run, false);
+        List<LockRenewer.Renewal> renewals = new ArrayList<>();
+        for (int i = 0; i < 20_000; i++) {
+            source.lock(i);
+            renewals.add(renewer.register(source, i));
+        }
+        assertEquals(20_000, renewer.getActiveCount());
+
+        advance(renewer, Duration.ofSeconds(49));
+        assertEquals(0, renewer.getRenewalCount());
+        advance(renewer, Duration.ofMillis(1_200));
+        assertEquals(20_000, renewer.getRenewalCount());
+
+        for (int i = 0; i < 10_000; i++) {
+            renewals.get(i).cancel();
+        }
+        assertEquals(10_000, renewer.getActiveCount());
+        advance(renewer, Duration.ofSeconds(60));
+        assertEquals(30_000, renewer.getRenewalCount());
+        assertEquals(0, source.lost);
+    }
+
+    @Test
+    public void stopsRenewingAfterMaxRenewalDuration() {
+        LockSource source = new LockSource(Duration.ofSeconds(30));
+        LockRenewer renewer = new LockRenewer(Duration.ofSeconds(5), Duration.ofMinutes(2), 100, 256, now::get,
+                Runnable::run, false);
+        source.lock(1);
+        renewer.register(source, 1);
+
+        advance(renewer, Duration.ofMinutes(10));
+
+        // renewed at 25, 50, 75 and 100 seconds; the next renewal would fall after the two minute limit
+        assertEquals(4, renewer.getRenewalCount());
+        assertEquals(0, renewer.getActiveCount());
+    }
+
+    @Test
+    public void defersRenewalsWhileThePoolIsSaturated() {
+        LockSource source = new LockSource(Duration.ofSeconds(30));
+        AtomicInteger rejections = new AtomicInteger(3);
+        LockRenewer renewer = new LockRenewer(Duration.ofSeconds(5), Duration.ofMinutes(2), 100, 256, now::get,
+                task -> {
+                    if (rejections.getAndDecrement() > 0) {
+                        throw new RejectedExecutionException("queue full");
+                    }
+                    task.run();
+                }, false);
+        source.lock(1);
+        renewer.register(source, 1);
+
+        advance(renewer, Duration.ofSeconds(26));
+
+        assertEquals(3, renewer.getDeferredCount());
+        assertEquals(1, renewer.getRenewalCount());
+        assertEquals(1, renewer.getActiveCount());
+        assertEquals(0, source.lost);
+    }
+
+    @Test
+    public void engineKeepsLocksAliveForSlowHandlers() throws InterruptedException {
+        InMemoryQueue queue = new InMemoryQueue(Duration.ZERO, Duration.ZERO, 10, Duration.ofMillis(500));
+        for (int i = 0; i < 20; i++) {
+            queue.send("Message " + i);
+        }
+        CountDownLatch done = new CountDownLatch(20);
+        try (LockRenewer renewer = new LockRenewer(Duration.ofMillis(250), Duration.ofMinutes(1))) {
+            ConsumerOptions options = new ConsumerOptions()
+                    .setWorkerCount(20)
+                    .setMaxWaitTime(Duration.ofMillis(50))
+                    .setLockRenewer(renewer);
+            try (ConsumerEngine<InMemoryMessage> engine = new ConsumerEngine<>("test", queue::newSource, message -> {
+                Thread.sleep(1_200);
+                done.countDown();
+                return Disposition.COMPLETE;
+            }, options)) {
+                engine.start();
+                assertTrue(done.await(10, TimeUnit.SECONDS));
+            }
+            assertEquals(0, renewer.getActiveCount());
+        }
+
+        assertEquals(20, queue.getCompletedCount());
+        assertEquals(0, queue.getLockLostCount());
+        assertTrue(queue.getLockRenewalCount() >= 40);
+    }
+
+    private void advance(LockRenewer renewer, Duration duration) {
+        long end = now.get() + duration.toMillis();
+        while (now.get() < end) {
+            now.addAndGet(Math.min(50, end - now.get()));
+            renewer.advance();
+        }
+    }
+
+    private class LockSource implements MessageSource<Integer> {
+
+        private final long lockDurationMillis;
+        private final ConcurrentHashMap<Integer, Long> lockedUntil = new ConcurrentHashMap<>();
+        private int lost;
+
+        LockSource(Duration lockDuration) {
+            this.lockDurationMillis = lockDuration.toMillis();
+        }
+
+        void lock(int message) {
+            lockedUntil.put(message, now.get() + lockDurationMillis);
+        }
+
+        @Override
+        public Instant getLockedUntil(Integer message) {
+            return Instant.ofEpochMilli(lockedUntil.get(message));
+        }
+
+        @Override
+        public Instant renewLock(Integer message) {
+            if (now.get() > lockedUntil.get(message)) {
+                lost++;
+            }
+            lock(message);
+            return getLockedUntil(message);
+        }
+
+        @Override
+        public List<Integer> receive(int maxMessages, Duration maxWaitTime) {
+            return List.of();
+        }
+
+        @Override
+        public void complete(Integer message) {
+        }
+
+        @Override
+        public void abandon(Integer message) {
+        }
+
+        @Override
+        public void deadLetter(Integer message) {
+        }
+    }
+}
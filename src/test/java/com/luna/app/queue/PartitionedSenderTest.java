@@ -0,0 +1,136 @@
+package com.luna.app.queue;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.azure.messaging.servicebus.ServiceBusMessage;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+import org.junit.jupiter.api.Test;
+
+public class PartitionedSenderTest {
+
+    @Test
+    public void keepsPerKeyOrderWhileGroupsSendConcurrently() {
+        RecordingSink sink = new RecordingSink(null);
+        List<CompletableFuture<Void>> futures = new ArrayList<>();
+
+        try (PartitionedSender sender = new PartitionedSender("orders", sink, new PartitionedSenderOptions()
+                .setKeyGroups(8)
+                .setMaxBatchMessages(20))) {
+            for (int sequence = 0; sequence < 50; sequence++) {
+                for (int customer = 0; customer < 40; customer++) {
+                    ServiceBusMessage message = new ServiceBusMessage("order");
+                    message.getApplicationProperties().put("customer", "customer-" + customer);
+                    message.getApplicationProperties().put("sequence", sequence);
+                    futures.add(sender.send("customer-" + customer, message));
+                }
+            }
+            CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0])).join();
+
+            Map<Object, Integer> lastSequence = new HashMap<>();
+            for (List<ServiceBusMessage> batch : sink.batches) {
+                String partitionKey = batch.get(0).getPartitionKey();
+                for (ServiceBusMessage message : batch) {
+                    Object customer = message.getApplicationProperties().get("customer");
+                    assertEquals(partitionKey, message.getPartitionKey(), "one partition key per batch");
+                    assertEquals(sender.keyGroupOf((String) customer), partitionKey);
+                    int sequence = (int) message.getApplicationProperties().get("sequence");
+                    assertEquals(lastSequence.getOrDefault(customer, -1) + 1, sequence, "in order per key");
+                    lastSequence.put(customer, sequence);
+                }
+            }
+            assertEquals(2000, sender.getMessagesSent());
+            assertTrue(sink.maxInFlight.get() > 1, "groups send concurrently");
+        }
+    }
+
+    @Test
+    public void failedBatchFailsOnlyItsOwnGroup() {
+        PartitionedSenderOptions options = new PartitionedSenderOptions().setKeyGroups(4);
+        RecordingSink sink = new RecordingSink("orders-0");
+        String failing = null;
+        String healthy = null;
+
+        try (PartitionedSender sender = new PartitionedSender("orders", sink, options)) {
+            for (int i = 0; failing == null || healthy == null; i++) {
+                String key = "customer-" + i;
+                if (sender.keyGroupOf(key).equals("orders-0")) {
+                    failing = key;
+                } else {
+                    healthy = key;
+                }
+            }
+            List<CompletableFuture<Void>> failed = new ArrayList<>();
+            List<CompletableFuture<Void>> sent = new ArrayList<>();
+            for (int i = 0; i < 100; i++) {
+                failed.add(sender.send(failing, new ServiceBusMessage("order " + i)));
+                sent.add(sender.send(healthy, new ServiceBusMessage("order " + i)));
+            }
+
+            CompletableFuture.allOf(sent.toArray(new CompletableFuture<?>[0])).join();
+            CompletableFuture.allOf(failed.toArray(new CompletableFuture<?>[0])).exceptionally(error -> null).join();
+            assertTrue(failed.stream().allMatch(CompletableFuture::isCompletedExceptionally));
+            assertEquals(100, sender.getMessagesSent());
+            assertEquals(100, sender.getMessagesFailed());
+            assertNotEquals(sender.keyGroupOf(failing), sender.keyGroupOf(healthy));
+        }
+    }
+
+    /**
+     * Records every batch and fails those sent with {@code failingKey}, after a short round trip.
+     */
+    private static final class RecordingSink implements MessageSink {
+
+        private final String failingKey;
+        private final List<List<ServiceBusMessage>> batches = new ArrayList<>();
+        private final AtomicInteger inFlight = new AtomicInteger();
+        private final AtomicInteger maxInFlight = new AtomicInteger();
+
+        RecordingSink(String failingKey) {
+            this.failingKey = failingKey;
+        }
+
+        @Override
+        public Batch createBatch() {
+            return new ListBatch();
+        }
+
+        @Override
+        public void send(Batch batch) {
+            maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+            LockSupport.parkNanos(1_000_000);
+            inFlight.decrementAndGet();
+            List<ServiceBusMessage> messages = ((ListBatch) batch).messages;
+            if (messages.get(0).getPartitionKey().equals(failingKey)) {
+                throw new IllegalStateException("Partition unavailable");
+            }
+            synchronized (batches) {
+                batches.add(messages);
+            }
+        }
+    }
+
+    private static final class ListBatch implements MessageSink.Batch {
+
+        private final List<ServiceBusMessage> messages = new ArrayList<>();
+
+        @Override
+        public boolean tryAddMessage(ServiceBusMessage message) {
+            return messages.add(message);
+        }
+
+        @Override
+        public int getCount() {
+            return messages.size();
+        }
+    }
+}
@@ -0,0 +1,152 @@
+package com.luna.app.retry;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import com.luna.app.dlq.InMemoryDeadLetterAdapter;
+import com.luna.app.queue.BatchingOptions;
+import com.luna.app.queue.BatchingSender;
+import com.luna.app.queue.ConsumerEngine;
+import com.luna.app.queue.ConsumerOptions;
+import com.luna.app.queue.Disposition;
+import com.luna.app.queue.InMemoryMessage;
+import com.luna.app.queue.InMemoryQueue;
+import com.luna.app.queue.MessageHandler;
+import com.luna.app.queue.MessageSink;
+import org.junit.jupiter.api.Test;
+
+public class ScheduledRetryHandlerTest {
+
+    private static final ConsumerOptions OPTIONS = new ConsumerOptions()
+            .setWorkerCount(4)
+            .setMaxWaitTime(Duration.ofMillis(20))
+            .setMaxOutstandingSettlements(16);
+
+    private final InMemoryQueue queue = new InMemoryQueue();
+    private final RetryPolicy policy = new RetryPolicy()
+            .setInitialDelay(Duration.ofMillis(100))
+            .setJitter(0)
+            .setMaxRetries(2);
+
+    @Test
+    public void transientFailuresAreRetriedWithBackoff() throws InterruptedException {
+        queue.send("flaky");
+        List<Long> attempts = new CopyOnWriteArrayList<>();
+        CountDownLatch done = new CountDownLatch(1);
+
+        run(message -> {
+            attempts.add(System.nanoTime());
+            if (attempts.size() <= 2) {
+                throw new IllegalStateException("downstream unavailable");
+            }
+            assertEquals(2, message.getApplicationProperties().get(ScheduledRetryHandler.RETRY_COUNT_PROPERTY));
+            assertEquals("1/retry-2", message.getMessageId());
+            done.countDown();
+            return Disposition.COMPLETE;
+        }, done);
+
+        assertEquals(3, attempts.size());
+        assertTrue(attempts.get(1) - attempts.get(0) >= TimeUnit.MILLISECONDS.toNanos(90));
+        assertTrue(attempts.get(2) - attempts.get(1) >= TimeUnit.MILLISECONDS.toNanos(190));
+        // the original and the first retry were completed when their retries were scheduled
+        assertEquals(3, queue.getCompletedCount());
+        assertTrue(queue.getDeadLetters().isEmpty());
+    }
+
+    @Test
+    public void deadLettersOnceRetriesAreExhausted() throws InterruptedException {
+        queue.send("poison");
+        CountDownLatch done = new CountDownLatch(3);
+
+        ScheduledRetryHandler<InMemoryMessage> handler = run(message -> {
+            done.countDown();
+            throw new IllegalStateException("always fails");
+        }, done);
+
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (queue.getDeadLetters().isEmpty() && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(1, queue.getDeadLetters().size());
+        assertEquals(2, queue.getDeadLetters().get(0).getApplicationProperties()
+                .get(ScheduledRetryHandler.RETRY_COUNT_PROPERTY));
+        assertEquals(2, handler.getScheduledCount());
+        assertEquals(1, handler.getExhaustedCount());
+    }
+
+    @Test
+    public void slowRetrySendsDoNotHoldTheHandlerThread() throws InterruptedException {
+        for (int i = 0; i < 4; i++) {
+            queue.send("slow " + i);
+        }
+        MessageSink sink = queue.newSink();
+        MessageSink slowSink = new MessageSink() {
+            @Override
+            public Batch createBatch() {
+                return sink.createBatch();
+            }
+
+            @Override
+            public void send(Batch batch) {
+                try {
+                    Thread.sleep(300);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                sink.send(batch);
+            }
+        };
+        List<Long> firstAttempts = new CopyOnWriteArrayList<>();
+        CountDownLatch done = new CountDownLatch(4);
+        ConsumerOptions options = new ConsumerOptions()
+                .setWorkerCount(1)
+                .setMaxWaitTime(Duration.ofMillis(20));
+
+        ScheduledRetryHandler<InMemoryMessage> handler;
+        try (BatchingSender retrySender = new BatchingSender("retry", slowSink, new BatchingOptions())) {
+            handler = new ScheduledRetryHandler<>(retrySender, new InMemoryDeadLetterAdapter()::toResubmit, policy,
+                    message -> {
+                        Map<String, Object> properties = message.getApplicationProperties();
+                        if (properties.containsKey(ScheduledRetryHandler.RETRY_COUNT_PROPERTY)) {
+                            return Disposition.COMPLETE;
+                        }
+                        firstAttempts.add(System.nanoTime());
+                        done.countDown();
+                        throw new IllegalStateException("downstream unavailable");
+                    });
+            try (ConsumerEngine<InMemoryMessage> engine = new ConsumerEngine<>("test", queue::newSource, handler,
+                    options)) {
+                engine.start();
+                assertTrue(done.await(5, TimeUnit.SECONDS));
+            }
+        }
+
+        // a single worker waiting out each 300 ms send would take almost a second to see all four messages
+        assertTrue(firstAttempts.get(3) - firstAttempts.get(0) < TimeUnit.MILLISECONDS.toNanos(250));
+        assertEquals(4, handler.getScheduledCount());
+        assertEquals(0, handler.getSendFailedCount());
+    }
+
+    private ScheduledRetryHandler<InMemoryMessage> run(MessageHandler<InMemoryMessage> delegate,
+                                                       CountDownLatch done) throws InterruptedException {
+        ScheduledRetryHandler<InMemoryMessage> handler;
+        try (BatchingSender retrySender = new BatchingSender("retry", queue.newSink(), new BatchingOptions())) {
+            handler = new ScheduledRetryHandler<>(retrySender, new InMemoryDeadLetterAdapter()::toResubmit, policy,
+                    delegate);
+            try (ConsumerEngine<InMemoryMessage> engine = new ConsumerEngine<>("test", queue::newSource, handler,
+                    OPTIONS)) {
+                engine.start();
+                assertTrue(done.await(5, TimeUnit.SECONDS));
+                Thread.sleep(50);
+            }
+        }
+        return handler;
+    }
+}
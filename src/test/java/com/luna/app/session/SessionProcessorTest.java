@@ -0,0 +1,123 @@
+package com.luna.app.session;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.luna.app.queue.Disposition;
+import com.luna.app.queue.InMemoryMessage;
+import org.junit.jupiter.api.Test;
+
+public class SessionProcessorTest {
+
+    private static final SessionProcessorOptions OPTIONS = new SessionProcessorOptions()
+            .setMaxConcurrentSessions(4)
+            .setMaxBatchSize(4)
+            .setMaxWaitTime(Duration.ofMillis(10))
+            .setSessionIdleTimeout(Duration.ofMillis(10));
+
+    @Test
+    public void processesSessionsInParallelAndInOrder() throws InterruptedException {
+        InMemorySessionQueue queue = new InMemorySessionQueue();
+        for (int i = 0; i < 50; i++) {
+            for (int s = 0; s < 20; s++) {
+                queue.send("session-" + s, String.valueOf(i));
+            }
+        }
+        Map<String, List<Integer>> seen = new ConcurrentHashMap<>();
+        AtomicInteger concurrent = new AtomicInteger();
+        AtomicInteger maxConcurrent = new AtomicInteger();
+        CountDownLatch done = new CountDownLatch(1000);
+
+        try (SessionProcessor<InMemoryMessage> processor = new SessionProcessor<>("test", queue, message -> {
+            maxConcurrent.accumulateAndGet(concurrent.incrementAndGet(), Math::max);
+            seen.computeIfAbsent(message.getSessionId(), id -> new ArrayList<>())
+                    .add(Integer.parseInt(message.getBodyAsString()));
+            Thread.sleep(1);
+            concurrent.decrementAndGet();
+            done.countDown();
+            return Disposition.COMPLETE;
+        }, OPTIONS)) {
+            processor.start();
+            assertTrue(done.await(30, TimeUnit.SECONDS));
+            assertTrue(processor.getSessionsAccepted() >= 20);
+        }
+
+        assertEquals(1000, queue.getCompletedCount());
+        assertEquals(20, seen.size());
+        for (List<Integer> bodies : seen.values()) {
+            assertEquals(50, bodies.size());
+            for (int i = 0; i < bodies.size(); i++) {
+                assertEquals(i, bodies.get(i));
+            }
+        }
+        assertTrue(maxConcurrent.get() > 1);
+    }
+
+    @Test
+    public void failureRedeliversRestOfSessionInOrder() throws InterruptedException {
+        InMemorySessionQueue queue = new InMemorySessionQueue();
+        for (int i = 0; i < 4; i++) {
+            queue.send("orders", String.valueOf(i));
+        }
+        List<String> handled = new ArrayList<>();
+        AtomicInteger attempts = new AtomicInteger();
+        CountDownLatch done = new CountDownLatch(4);
+
+        try (SessionProcessor<InMemoryMessage> processor = new SessionProcessor<>("test", queue, message -> {
+            if (message.getBodyAsString().equals("1") && attempts.getAndIncrement() == 0) {
+                throw new IllegalStateException("transient");
+            }
+            handled.add(message.getBodyAsString());
+            done.countDown();
+            return Disposition.COMPLETE;
+        }, OPTIONS)) {
+            processor.start();
+            assertTrue(done.await(10, TimeUnit.SECONDS));
+            assertEquals(1, processor.getFailedCount());
+        }
+
+        assertEquals(List.of("0", "1", "2", "3"), handled);
+        assertEquals(0, queue.getActiveMessageCount());
+    }
+
+    @Test
+    public void cachesSessionStateAndFlushesOnRelease() throws InterruptedException {
+        InMemorySessionQueue queue = new InMemorySessionQueue();
+        for (int i = 0; i < 30; i++) {
+            queue.send("session-" + (i % 3), String.valueOf(i));
+        }
+        CompactStateCodec codec = new CompactStateCodec();
+        CountDownLatch done = new CountDownLatch(30);
+
+        try (SessionStateCache<Map<String, Object>> cache = new SessionStateCache<>(codec, Duration.ofMinutes(1))) {
+            SessionStateHandler<InMemoryMessage, Map<String, Object>> handler = (message, state) -> {
+                Map<String, Object> next = new LinkedHashMap<>(state.get());
+                next.merge("count", 1L, (a, b) -> (Long) a + (Long) b);
+                next.put("last", message.getBodyAsString());
+                state.set(next);
+                done.countDown();
+                return Disposition.COMPLETE;
+            };
+            try (SessionProcessor<InMemoryMessage> processor = new SessionProcessor<>("test", queue, handler, cache,
+                    OPTIONS)) {
+                processor.start();
+                assertTrue(done.await(10, TimeUnit.SECONDS));
+            }
+            assertEquals(30, cache.getLocalWriteCount());
+        }
+
+        assertEquals(Map.of("count", 10L, "last", "29"), codec.decode(queue.peekSessionState("session-2")));
+        assertTrue(queue.getStateWriteCount() < 10);
+        assertTrue(queue.getStateReadCount() <= queue.getStateWriteCount());
+    }
+}
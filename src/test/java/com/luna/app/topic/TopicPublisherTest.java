@@ -0,0 +1,72 @@
+package com.luna.app.topic;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.azure.core.amqp.exception.AmqpException;
+import com.azure.messaging.servicebus.ServiceBusMessage;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+public class TopicPublisherTest {
+
+    @Test
+    public void orderedModeEmitsResultsInSubmissionOrder() {
+        AtomicInteger inFlight = new AtomicInteger();
+        AtomicInteger maxInFlight = new AtomicInteger();
+        TopicPublisher publisher = new TopicPublisher("topic", message -> Mono.defer(() -> {
+            maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+            return Mono.delay(Duration.ofMillis(ThreadLocalRandom.current().nextInt(5)))
+                    .doOnTerminate(inFlight::decrementAndGet)
+                    .then();
+        }), new PublisherOptions().setOrdered(true).setMaxConcurrency(8));
+
+        List<PublishResult> results = publisher.publish(Flux.range(0, 200).map(i -> new ServiceBusMessage("" + i)))
+                .collectList()
+                .block();
+
+        assertEquals(200, results.size());
+        for (int i = 0; i < results.size(); i++) {
+            assertEquals(String.valueOf(i), results.get(i).message().getBody().toString());
+        }
+        assertTrue(maxInFlight.get() <= 8);
+        assertTrue(maxInFlight.get() > 1);
+    }
+
+    @Test
+    public void retriesTransientFailures() {
+        AtomicInteger attempts = new AtomicInteger();
+        TopicPublisher publisher = new TopicPublisher("topic", message -> Mono.defer(() ->
+                attempts.incrementAndGet() < 3
+                        ? Mono.error(new AmqpException(true, "server busy", null))
+                        : Mono.empty()),
+                new PublisherOptions().setBackoff(Duration.ofMillis(1), Duration.ofMillis(5)));
+
+        PublishResult result = publisher.publish(Flux.just(new ServiceBusMessage("hello"))).blockLast();
+
+        assertTrue(result.isSuccess());
+        assertEquals(3, attempts.get());
+    }
+
+    @Test
+    public void reportsNonTransientFailuresWithoutRetrying() {
+        AtomicInteger attempts = new AtomicInteger();
+        TopicPublisher publisher = new TopicPublisher("topic", message -> Mono.defer(() -> {
+            attempts.incrementAndGet();
+            return Mono.error(new AmqpException(false, "unauthorized", null));
+        }), new PublisherOptions().setBackoff(Duration.ofMillis(1), Duration.ofMillis(5)));
+
+        PublishResult result = publisher.publish(Flux.just(new ServiceBusMessage("hello"))).blockLast();
+
+        assertFalse(result.isSuccess());
+        assertEquals(1, attempts.get());
+    }
+}
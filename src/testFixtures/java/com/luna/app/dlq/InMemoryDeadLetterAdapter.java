@@ -0,0 +1,27 @@
+package com.luna.app.dlq;
+
+import com.azure.messaging.servicebus.ServiceBusMessage;
+import com.luna.app.queue.InMemoryMessage;
+
+/**
+ * {@link DeadLetterAdapter} for messages of an {@link com.luna.app.queue.InMemoryQueue}.
+ */
+public class InMemoryDeadLetterAdapter implements DeadLetterAdapter<InMemoryMessage> {
+
+    @Override
+    public String reasonOf(InMemoryMessage message) {
+        return message.getDeadLetterReason();
+    }
+
+    @Override
+    public long sequenceNumberOf(InMemoryMessage message) {
+        return message.getSequenceNumber();
+    }
+
+    @Override
+    public ServiceBusMessage toResubmit(InMemoryMessage message) {
+        ServiceBusMessage copy = new ServiceBusMessage(message.getBody()).setMessageId(message.getMessageId());
+        copy.getApplicationProperties().putAll(message.getApplicationProperties());
+        return copy;
+    }
+}
@@ -0,0 +1,272 @@
+package com.luna.app.provisioning;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * In-process stand-in for a namespace's management API, used to test and benchmark the {@link Provisioner}.
+ * <p>
+ * Every call completes after a configurable round-trip time. Creating an entity that exists or changing one that does
+ * not fails, as on the broker, and new subscriptions get the {@value Provisioner#DEFAULT_RULE} rule. Unset settings take
+ * the broker's defaults.
+ */
+public class InMemoryEntityAdmin implements EntityAdmin {
+
+    static final Duration DEFAULT_LOCK_DURATION = Duration.ofMinutes(1);
+    static final int DEFAULT_MAX_DELIVERY_COUNT = 10;
+    static final Duration DEFAULT_TIME_TO_LIVE = Duration.ofDays(14);
+
+    private final ConcurrentMap<String, QueueSpec> queues = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, Topic> topics = new ConcurrentHashMap<>();
+    private final Executor executor;
+
+    private final LongAdder calls = new LongAdder();
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicInteger maxInFlight = new AtomicInteger();
+
+    public InMemoryEntityAdmin() {
+        this(Duration.ZERO);
+    }
+
+    /**
+     * @param roundTrip simulated latency of every management call
+     */
+    public InMemoryEntityAdmin(Duration roundTrip) {
+        this.executor = CompletableFuture.delayedExecutor(roundTrip.toNanos(), TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public CompletableFuture<List<QueueSpec>> listQueues() {
+        return call(() -> new ArrayList<>(queues.values()));
+    }
+
+    @Override
+    public CompletableFuture<List<TopicSpec>> listTopics() {
+        return call(() -> topics.values().stream().map(topic -> topic.spec).toList());
+    }
+
+    @Override
+    public CompletableFuture<List<SubscriptionSpec>> listSubscriptions(String topicName) {
+        return call(() -> topic(topicName).subscriptions.values().stream()
+                .map(subscription -> subscription.spec)
+                .toList());
+    }
+
+    @Override
+    public CompletableFuture<Map<String, String>> listRules(String topicName, String subscriptionName) {
+        return call(() -> new LinkedHashMap<>(subscription(topicName, subscriptionName).rules));
+    }
+
+    @Override
+    public CompletableFuture<Void> createQueue(QueueSpec queue) {
+        return run(() -> {
+            QueueSpec created = new QueueSpec(queue.name(), or(queue.lockDuration(), DEFAULT_LOCK_DURATION),
+                    or(queue.maxDeliveryCount(), DEFAULT_MAX_DELIVERY_COUNT),
+                    or(queue.defaultMessageTimeToLive(), DEFAULT_TIME_TO_LIVE), or(queue.sessionRequired(), false),
+                    or(queue.duplicateDetectionRequired(), false));
+            if (queues.putIfAbsent(queue.name(), created) != null || topics.containsKey(queue.name())) {
+                throw new IllegalStateException("Entity " + queue.name() + " already exists");
+            }
+        });
+    }
+
+    @Override
+    public CompletableFuture<Void> updateQueue(QueueSpec queue) {
+        return run(() -> {
+            if (queues.computeIfPresent(queue.name(), (name, current) -> new QueueSpec(name,
+                    or(queue.lockDuration(), current.lockDuration()),
+                    or(queue.maxDeliveryCount(), current.maxDeliveryCount()),
+                    or(queue.defaultMessageTimeToLive(), current.defaultMessageTimeToLive()),
+                    current.sessionRequired(), current.duplicateDetectionRequired())) == null) {
+                throw notFound("Queue " + queue.name());
+            }
+        });
+    }
+
+    @Override
+    public CompletableFuture<Void> deleteQueue(String queueName) {
+        return run(() -> {
+            if (queues.remove(queueName) == null) {
+                throw notFound("Queue " + queueName);
+            }
+        });
+    }
+
+    @Override
+    public CompletableFuture<Void> createTopic(TopicSpec topic) {
+        return run(() -> {
+            Topic created = new Topic(new TopicSpec(topic.name(),
+                    or(topic.defaultMessageTimeToLive(), DEFAULT_TIME_TO_LIVE),
+                    or(topic.duplicateDetectionRequired(), false), null));
+            if (topics.putIfAbsent(topic.name(), created) != null || queues.containsKey(topic.name())) {
+                throw new IllegalStateException("Entity " + topic.name() + " already exists");
+            }
+        });
+    }
+
+    @Override
+    public CompletableFuture<Void> updateTopic(TopicSpec topic) {
+        return run(() -> {
+            Topic current = topic(topic.name());
+            current.spec = new TopicSpec(topic.name(),
+                    or(topic.defaultMessageTimeToLive(), current.spec.defaultMessageTimeToLive()),
+                    current.spec.duplicateDetectionRequired(), null);
+        });
+    }
+
+    @Override
+    public CompletableFuture<Void> deleteTopic(String topicName) {
+        return run(() -> {
+            if (topics.remove(topicName) == null) {
+                throw notFound("Topic " + topicName);
+            }
+        });
+    }
+
+    @Override
+    public CompletableFuture<Void> createSubscription(String topicName, SubscriptionSpec subscription) {
+        return run(() -> {
+            Subscription created = new Subscription(new SubscriptionSpec(subscription.name(),
+                    or(subscription.lockDuration(), DEFAULT_LOCK_DURATION),
+                    or(subscription.maxDeliveryCount(), DEFAULT_MAX_DELIVERY_COUNT),
+                    or(subscription.defaultMessageTimeToLive(), DEFAULT_TIME_TO_LIVE),
+                    or(subscription.sessionRequired(), false), null));
+            created.rules.put(Provisioner.DEFAULT_RULE, Provisioner.DEFAULT_RULE_EXPRESSION);
+            if (topic(topicName).subscriptions.putIfAbsent(subscription.name(), created) != null) {
+                throw new IllegalStateException("Subscription " + topicName + "/" + subscription.name()
+                        + " already exists");
+            }
+        });
+    }
+
+    @Override
+    public CompletableFuture<Void> updateSubscription(String topicName, SubscriptionSpec subscription) {
+        return run(() -> {
+            Subscription current = subscription(topicName, subscription.name());
+            SubscriptionSpec spec = current.spec;
+            current.spec = new SubscriptionSpec(spec.name(), or(subscription.lockDuration(), spec.lockDuration()),
+                    or(subscription.maxDeliveryCount(), spec.maxDeliveryCount()),
+                    or(subscription.defaultMessageTimeToLive(), spec.defaultMessageTimeToLive()),
+                    spec.sessionRequired(), null);
+        });
+    }
+
+    @Override
+    public CompletableFuture<Void> deleteSubscription(String topicName, String subscriptionName) {
+        return run(() -> {
+            if (topic(topicName).subscriptions.remove(subscriptionName) == null) {
+                throw notFound("Subscription " + topicName + "/" + subscriptionName);
+            }
+        });
+    }
+
+    @Override
+    public CompletableFuture<Void> createRule(String topicName, String subscriptionName, String ruleName,
+                                              String sqlExpression) {
+        return run(() -> {
+            if (subscription(topicName, subscriptionName).rules.putIfAbsent(ruleName, sqlExpression) != null) {
+                throw new IllegalStateException("Rule " + ruleName + " already exists");
+            }
+        });
+    }
+
+    @Override
+    public CompletableFuture<Void> updateRule(String topicName, String subscriptionName, String ruleName,
+                                              String sqlExpression) {
+        return run(() -> {
+            if (subscription(topicName, subscriptionName).rules.replace(ruleName, sqlExpression) == null) {
+                throw notFound("Rule " + ruleName);
+            }
+        });
+    }
+
+    @Override
+    public CompletableFuture<Void> deleteRule(String topicName, String subscriptionName, String ruleName) {
+        return run(() -> {
+            if (subscription(topicName, subscriptionName).rules.remove(ruleName) == null) {
+                throw notFound("Rule " + ruleName);
+            }
+        });
+    }
+
+    /**
+     * @return the number of management calls made
+     */
+    public long getCallCount() {
+        return calls.sum();
+    }
+
+    /**
+     * @return the largest number of calls that were in flight at the same time
+     */
+    public int getMaxConcurrentCalls() {
+        return maxInFlight.get();
+    }
+
+    private Topic topic(String topicName) {
+        Topic topic = topics.get(topicName);
+        if (topic == null) {
+            throw notFound("Topic " + topicName);
+        }
+        return topic;
+    }
+
+    private Subscription subscription(String topicName, String subscriptionName) {
+        Subscription subscription = topic(topicName).subscriptions.get(subscriptionName);
+        if (subscription == null) {
+            throw notFound("Subscription " + topicName + "/" + subscriptionName);
+        }
+        return subscription;
+    }
+
+    private CompletableFuture<Void> run(Runnable operation) {
+        return call(() -> {
+            operation.run();
+            return null;
+        });
+    }
+
+    private <T> CompletableFuture<T> call(Supplier<T> operation) {
+        calls.increment();
+        maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+        return CompletableFuture.supplyAsync(operation, executor)
+                .whenComplete((result, error) -> inFlight.decrementAndGet());
+    }
+
+    private static IllegalStateException notFound(String entity) {
+        return new IllegalStateException(entity + " does not exist");
+    }
+
+    private static <T> T or(T value, T fallback) {
+        return value != null ? value : fallback;
+    }
+
+    private static class Topic {
+        private final ConcurrentMap<String, Subscription> subscriptions = new ConcurrentHashMap<>();
+        private volatile TopicSpec spec;
+
+        Topic(TopicSpec spec) {
+            this.spec = spec;
+        }
+    }
+
+    private static class Subscription {
+        private final Map<String, String> rules = new ConcurrentHashMap<>();
+        private volatile SubscriptionSpec spec;
+
+        Subscription(SubscriptionSpec spec) {
+            this.spec = spec;
+        }
+    }
+}
@@ -0,0 +1,323 @@
+package com.luna.app.queue;
+
+import com.azure.messaging.servicebus.ServiceBusMessage;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * In-process stand-in for a Service Bus queue, used to test and benchmark the {@link ConsumerEngine} without a
+ * namespace.
+ * <p>
+ * Each receive, settle and send call parks the calling thread for a configurable round-trip time so that the
+ * benchmark reflects network-bound behaviour. Abandoned messages are redelivered until {@code maxDeliveryCount} is reached,
+ * after which they move to the dead-letter sub-queue with reason {@value #MAX_DELIVERY_COUNT_EXCEEDED}, as on the broker.
+ * The dead-letter sub-queue can be received from with {@link #newDeadLetterSource()}.
+ * <p>
+ * With a lock duration, received messages are locked until {@link InMemoryMessage#getLockedUntil()} and the lock can be
+ * renewed. Settling or renewing after the lock has expired fails and returns the message to the queue; unlike the
+ * broker, an expired message is only released when its receiver next touches it.
+ * <p>
+ * Messages sent with a scheduled enqueue time in the future become available at that time.
+ */
+public class InMemoryQueue {
+
+    /**
+     * Dead-letter reason set by the broker when a message exceeds the entity's max delivery count.
+     */
+    public static final String MAX_DELIVERY_COUNT_EXCEEDED = "MaxDeliveryCountExceeded";
+
+    // Releases scheduled messages for all in-memory queues
+    private static final ScheduledExecutorService SCHEDULER = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "in-memory-queue-scheduler");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final BlockingQueue<InMemoryMessage> ready = new LinkedBlockingQueue<>();
+    private final BlockingQueue<InMemoryMessage> deadLetters = new LinkedBlockingQueue<>();
+    private final AtomicLong sequence = new AtomicLong();
+    private final LongAdder completed = new LongAdder();
+    private final LongAdder lockRenewals = new LongAdder();
+    private final LongAdder locksLost = new LongAdder();
+    private final AtomicInteger scheduledCount = new AtomicInteger();
+    private final long receiveLatencyNanos;
+    private final long settleLatencyNanos;
+    private final int maxDeliveryCount;
+    private final long lockDurationMillis;
+
+    public InMemoryQueue() {
+        this(Duration.ZERO, Duration.ZERO, 10);
+    }
+
+    /**
+     * @param receiveLatency   simulated round trip of one receive call
+     * @param settleLatency    simulated round trip of one settlement or send call
+     * @param maxDeliveryCount deliveries after which an abandoned message is dead-lettered
+     */
+    public InMemoryQueue(Duration receiveLatency, Duration settleLatency, int maxDeliveryCount) {
+        this(receiveLatency, settleLatency, maxDeliveryCount, Duration.ZERO);
+    }
+
+    /**
+     * @param receiveLatency   simulated round trip of one receive call
+     * @param settleLatency    simulated round trip of one settlement, lock renewal or send call
+     * @param maxDeliveryCount deliveries after which an abandoned message is dead-lettered
+     * @param lockDuration     how long a received message stays locked, or zero for locks that never expire
+     */
+    public InMemoryQueue(Duration receiveLatency, Duration settleLatency, int maxDeliveryCount,
+                         Duration lockDuration) {
+        this.receiveLatencyNanos = receiveLatency.toNanos();
+        this.settleLatencyNanos = settleLatency.toNanos();
+        this.maxDeliveryCount = maxDeliveryCount;
+        this.lockDurationMillis = lockDuration.toMillis();
+    }
+
+    public InMemoryMessage send(String body) {
+        return send(body.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public InMemoryMessage send(byte[] body) {
+        long sequenceNumber = sequence.incrementAndGet();
+        InMemoryMessage message = new InMemoryMessage(sequenceNumber, Long.toString(sequenceNumber), body);
+        ready.add(message);
+        return message;
+    }
+
+    private InMemoryMessage send(ServiceBusMessage message) {
+        long sequenceNumber = sequence.incrementAndGet();
+        String messageId = message.getMessageId() != null ? message.getMessageId() : Long.toString(sequenceNumber);
+        InMemoryMessage received = new InMemoryMessage(sequenceNumber, messageId, message.getBody().toBytes());
+        received.getApplicationProperties().putAll(message.getApplicationProperties());
+        long delayNanos = message.getScheduledEnqueueTime() == null ? 0
+                : Duration.between(Instant.now(), message.getScheduledEnqueueTime()).toNanos();
+        if (delayNanos > 0) {
+            scheduledCount.incrementAndGet();
+            SCHEDULER.schedule(() -> {
+                scheduledCount.decrementAndGet();
+                ready.add(received);
+            }, delayNanos, TimeUnit.NANOSECONDS);
+        } else {
+            ready.add(received);
+        }
+        return received;
+    }
+
+    public int getActiveMessageCount() {
+        return ready.size();
+    }
+
+    /**
+     * @return the number of messages waiting for their scheduled enqueue time
+     */
+    public int getScheduledMessageCount() {
+        return scheduledCount.get();
+    }
+
+    public long getCompletedCount() {
+        return completed.sum();
+    }
+
+    public long getLockRenewalCount() {
+        return lockRenewals.sum();
+    }
+
+    /**
+     * @return the number of settlements and renewals that failed because the lock had expired
+     */
+    public long getLockLostCount() {
+        return locksLost.sum();
+    }
+
+    public List<InMemoryMessage> getDeadLetters() {
+        return new ArrayList<>(deadLetters);
+    }
+
+    /**
+     * Moves a message straight to the dead-letter sub-queue, as the broker does for expired or invalid messages.
+     *
+     * @param body   the message body
+     * @param reason the dead-letter reason
+     * @return the dead-lettered message
+     */
+    public InMemoryMessage sendToDeadLetter(String body, String reason) {
+        long sequenceNumber = sequence.incrementAndGet();
+        InMemoryMessage message = new InMemoryMessage(sequenceNumber, Long.toString(sequenceNumber),
+                body.getBytes(StandardCharsets.UTF_8));
+        message.setDeadLetterReason(reason);
+        deadLetters.add(message);
+        return message;
+    }
+
+    /**
+     * Opens a new receive link on this queue.
+     *
+     * @return a message source bound to this queue
+     */
+    public MessageSource<InMemoryMessage> newSource() {
+        return new Source(ready, false);
+    }
+
+    /**
+     * Opens a new receive link on the dead-letter sub-queue. Completing a message removes it; abandoning or
+     * dead-lettering it leaves it in the sub-queue.
+     *
+     * @return a message source bound to the dead-letter sub-queue
+     */
+    public MessageSource<InMemoryMessage> newDeadLetterSource() {
+        return new Source(deadLetters, true);
+    }
+
+    /**
+     * Opens a new send link on this queue.
+     *
+     * @return a message sink bound to this queue
+     */
+    public MessageSink newSink() {
+        return new Sink();
+    }
+
+    private static void roundTrip(long nanos) {
+        if (nanos > 0) {
+            LockSupport.parkNanos(nanos);
+        }
+    }
+
+    private class Source implements MessageSource<InMemoryMessage> {
+
+        private final BlockingQueue<InMemoryMessage> entity;
+        private final boolean deadLetterQueue;
+
+        Source(BlockingQueue<InMemoryMessage> entity, boolean deadLetterQueue) {
+            this.entity = entity;
+            this.deadLetterQueue = deadLetterQueue;
+        }
+
+        @Override
+        public List<InMemoryMessage> receive(int maxMessages, Duration maxWaitTime) {
+            roundTrip(receiveLatencyNanos);
+            List<InMemoryMessage> messages = new ArrayList<>(maxMessages);
+            try {
+                InMemoryMessage first = entity.poll(maxWaitTime.toNanos(), TimeUnit.NANOSECONDS);
+                if (first == null) {
+                    return messages;
+                }
+                messages.add(first);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return messages;
+            }
+            entity.drainTo(messages, maxMessages - 1);
+            long lockedUntil = lockDurationMillis > 0 ? System.currentTimeMillis() + lockDurationMillis : 0;
+            for (InMemoryMessage message : messages) {
+                message.incrementDeliveryCount();
+                message.setLockedUntilMillis(lockedUntil);
+            }
+            return messages;
+        }
+
+        @Override
+        public void complete(InMemoryMessage message) {
+            roundTrip(settleLatencyNanos);
+            checkLock(message);
+            if (!deadLetterQueue) {
+                completed.increment();
+            }
+        }
+
+        @Override
+        public void abandon(InMemoryMessage message) {
+            roundTrip(settleLatencyNanos);
+            checkLock(message);
+            release(message);
+        }
+
+        @Override
+        public void deadLetter(InMemoryMessage message) {
+            roundTrip(settleLatencyNanos);
+            checkLock(message);
+            deadLetters.add(message);
+        }
+
+        @Override
+        public Instant getLockedUntil(InMemoryMessage message) {
+            return message.getLockedUntil();
+        }
+
+        @Override
+        public Instant renewLock(InMemoryMessage message) {
+            roundTrip(settleLatencyNanos);
+            checkLock(message);
+            lockRenewals.increment();
+            message.setLockedUntilMillis(System.currentTimeMillis() + lockDurationMillis);
+            return message.getLockedUntil();
+        }
+
+        private void checkLock(InMemoryMessage message) {
+            if (lockDurationMillis > 0 && System.currentTimeMillis() > message.getLockedUntilMillis()) {
+                locksLost.increment();
+                release(message);
+                throw new IllegalStateException("The lock on message " + message.getMessageId() + " has expired");
+            }
+        }
+
+        private void release(InMemoryMessage message) {
+            message.setLockedUntilMillis(0);
+            if (deadLetterQueue) {
+                deadLetters.add(message);
+            } else if (message.getDeliveryCount() >= maxDeliveryCount) {
+                message.setDeadLetterReason(MAX_DELIVERY_COUNT_EXCEEDED);
+                deadLetters.add(message);
+            } else {
+                ready.add(message);
+            }
+        }
+    }
+
+    private class Sink implements MessageSink {
+
+        @Override
+        public Batch createBatch() {
+            return new SizedBatch();
+        }
+
+        @Override
+        public void send(Batch batch) {
+            roundTrip(settleLatencyNanos);
+            ((SizedBatch) batch).messages.forEach(InMemoryQueue.this::send);
+        }
+    }
+
+    private static class SizedBatch implements MessageSink.Batch {
+        private final List<ServiceBusMessage> messages = new ArrayList<>();
+        private int sizeInBytes;
+
+        @Override
+        public boolean tryAddMessage(ServiceBusMessage message) {
+            int size = MessageLimits.estimateSize(message);
+            if (sizeInBytes + size > MessageLimits.MAX_MESSAGE_SIZE) {
+                return false;
+            }
+            sizeInBytes += size;
+            messages.add(message);
+            return true;
+        }
+
+        @Override
+        public int getCount() {
+            return messages.size();
+        }
+    }
+}